@@ -0,0 +1,26 @@
+package com.example.Impression.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Workers de calcul des distances (DistanceJobService). Pas de file d'attente
+ * en mémoire : le travail en attente vit dans la table distance_jobs.
+ */
+@Configuration
+public class DistanceJobsConfig {
+
+    @Bean(name = "distancesExecutor")
+    public ThreadPoolTaskExecutor distancesExecutor(@Value("${app.distances.jobs.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("distances-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.Impression.config;
+
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.repositories.AnnonceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Migration des équipements enregistrés avant le catalogue : les équipements
+ * reconnus de la liste JSON passent dans Annonce.equipementsMasque, les autres
+ * restent en texte libre. Exécutée au démarrage, avant le chargement des
+ * index ; une annonce migrée (equipementsRepartis), y compris sans aucun
+ * équipement reconnu, n'est pas relue.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EquipementsDataLoader implements ApplicationRunner {
+
+    private static final int TAILLE_PAGE = 500;
+
+    private final AnnonceRepository annonceRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run(ApplicationArguments args) {
+        int migrees = 0;
+        UUID curseur = null;
+        List<Object[]> page;
+        do {
+            page = annonceRepository.findEquipementsNonRepartisApres(curseur, PageRequest.of(0, TAILLE_PAGE));
+            List<Object[]> aMigrer = new ArrayList<>();
+            for (Object[] l : page) {
+                curseur = (UUID) l[0];
+                aMigrer.add(new Object[] { curseur, Equipement.repartir((List<String>) l[1]) });
+            }
+            if (!aMigrer.isEmpty()) {
+                transactionTemplate.executeWithoutResult(statut -> {
+                    for (Object[] m : aMigrer) {
+                        Equipement.Repartition repartition = (Equipement.Repartition) m[1];
+                        annonceRepository.definirEquipements((UUID) m[0], repartition.masque(), repartition.libres());
+                    }
+                });
+                migrees += aMigrer.size();
+            }
+        } while (page.size() == TAILLE_PAGE);
+        if (migrees > 0) {
+            log.info("[Équipements] {} annonce(s) migrée(s) vers le catalogue", migrees);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.Impression.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Exécuteur borné dédié à la génération des variantes d'images. Le décodage
+ * d'une photo occupe plusieurs dizaines de Mo : le nombre de threads limite la
+ * mémoire consommée et la file bornée évite d'accumuler du travail sans fin.
+ * File pleine : l'exécuteur refuse la tâche (politique par défaut, exception
+ * TaskRejectedException), ImageVariantesService la libère et le balayage
+ * périodique la reprendra.
+ */
+@Configuration
+public class ImageVariantesConfig {
+
+    @Bean(name = "imageVariantesExecutor")
+    public ThreadPoolTaskExecutor imageVariantesExecutor(
+            @Value("${app.images.variantes.threads:2}") int threads,
+            @Value("${app.images.variantes.file:200}") int capaciteFile) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(capaciteFile);
+        executor.setThreadNamePrefix("image-variantes-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.Impression.config;
 
 import com.example.Impression.entities.Stade;
 import com.example.Impression.repositories.StadeRepository;
+import com.example.Impression.services.StadeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -16,6 +17,9 @@ public class StadeDataLoader implements CommandLineRunner {
     @Autowired
     private StadeRepository stadeRepository;
 
+    @Autowired
+    private StadeService stadeService;
+
     @Override
     public void run(String... args) throws Exception {
         // Vérifier si les stades sont déjà chargés
@@ -89,8 +93,8 @@ public class StadeDataLoader implements CommandLineRunner {
         stades.get(4).setDescription("Plus grand stade du Maroc, porte d'entrée de l'Afrique");
         stades.get(5).setDescription("Stade de la ville rouge, au pied de l'Atlas");
 
-        // Sauvegarder tous les stades
-        stadeRepository.saveAll(stades);
+        // Sauvegarder tous les stades (recalcul des distances des annonces existantes)
+        stadeService.sauvegarderStades(stades);
 
         System.out.println("✅ " + stades.size() + " stades de la CAN 2025 chargés avec succès !");
     }
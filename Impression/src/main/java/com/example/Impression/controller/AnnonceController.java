@@ -1,8 +1,19 @@
 package com.example.Impression.controller;
 
 import com.example.Impression.dto.AnnonceDTO;
+import com.example.Impression.dto.AnnonceSummaryDTO;
+import com.example.Impression.dto.AnnonceTrouveeDTO;
+import com.example.Impression.dto.CarteZoneDTO;
 import com.example.Impression.dto.CreerAnnonceDTO;
+import com.example.Impression.dto.PageCurseurDTO;
+import com.example.Impression.dto.RechercheFacetteeDTO;
+import com.example.Impression.dto.SuggestionDTO;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.enums.Facette;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.enums.TriAnnonce;
 import com.example.Impression.enums.TypeMaison;
+import com.example.Impression.enums.TypeSuggestion;
 import com.example.Impression.exception.AnnonceException;
 import com.example.Impression.services.AnnonceService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +22,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,12 +38,15 @@ public class AnnonceController {
     @Autowired
     private AnnonceService annonceService;
 
-    // GET /api/annonces - Récupérer toutes les annonces actives
+    // GET /api/annonces - Récupérer les annonces actives (paginées par curseur)
     @GetMapping
-    public ResponseEntity<List<AnnonceDTO>> getAllAnnonces() {
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> getAllAnnonces(
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
         try {
-            List<AnnonceDTO> annonces = annonceService.getAllAnnoncesActives();
-            return ResponseEntity.ok(annonces);
+            return ResponseEntity.ok(annonceService.getAnnoncesActivesPage(curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -111,9 +129,9 @@ public class AnnonceController {
     // GET /api/annonces/locateur/{locateurId} - Récupérer les annonces d'un
     // locateur
     @GetMapping("/locateur/{locateurId}")
-    public ResponseEntity<List<AnnonceDTO>> getAnnoncesByLocateur(@PathVariable UUID locateurId) {
+    public ResponseEntity<List<AnnonceSummaryDTO>> getAnnoncesByLocateur(@PathVariable UUID locateurId) {
         try {
-            List<AnnonceDTO> annonces = annonceService.getAnnoncesByLocateur(locateurId);
+            List<AnnonceSummaryDTO> annonces = annonceService.getAnnoncesByLocateur(locateurId);
             return ResponseEntity.ok(annonces);
         } catch (AnnonceException.AnnonceNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -124,16 +142,82 @@ public class AnnonceController {
 
     // GET /api/annonces/recherche - Recherche d'annonces avec critères
     @GetMapping("/recherche")
-    public ResponseEntity<List<AnnonceDTO>> rechercherAnnonces(
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherAnnonces(
             @RequestParam(required = false) String ville,
             @RequestParam(required = false) TypeMaison typeMaison,
             @RequestParam(required = false) BigDecimal prixMax,
             @RequestParam(required = false) Integer capaciteMin,
-            @RequestParam(required = false) Double noteMin) {
+            @RequestParam(required = false) Double noteMin,
+            @RequestParam(required = false) LocalDate dateArrivee,
+            @RequestParam(required = false) LocalDate dateDepart,
+            @RequestParam(required = false) List<Equipement> equipements,
+            @RequestParam(required = false) TriAnnonce tri,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
         try {
-            List<AnnonceDTO> annonces = annonceService.rechercherAnnonces(ville, typeMaison, prixMax, capaciteMin,
-                    noteMin);
-            return ResponseEntity.ok(annonces);
+            return ResponseEntity.ok(annonceService.rechercherAnnoncesPage(ville, typeMaison, prixMax, capaciteMin,
+                    noteMin, dateArrivee, dateDepart, equipements, tri, curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // GET /api/annonces/recherche/facettes - Recherche à facettes avec les comptes
+    // par valeur (plusieurs valeurs d'une facette séparées par des virgules)
+    @GetMapping("/recherche/facettes")
+    public ResponseEntity<RechercheFacetteeDTO> rechercherAvecFacettes(
+            @RequestParam(required = false) List<String> typeMaison,
+            @RequestParam(required = false) List<String> ville,
+            @RequestParam(required = false) List<String> prix,
+            @RequestParam(required = false) List<String> capacite,
+            @RequestParam(required = false) List<String> equipements,
+            @RequestParam(required = false) TriAnnonce tri,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        Map<Facette, Collection<String>> selection = new EnumMap<>(Facette.class);
+        selection.put(Facette.TYPE_MAISON, typeMaison);
+        selection.put(Facette.VILLE, ville);
+        selection.put(Facette.PRIX, prix);
+        selection.put(Facette.CAPACITE, capacite);
+        selection.put(Facette.EQUIPEMENT, equipements);
+        try {
+            return ResponseEntity.ok(annonceService.rechercherAvecFacettesPage(selection, tri, curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // GET /api/annonces/recherche/texte - Recherche plein texte classée par
+    // pertinence, avec les passages surlignés
+    @GetMapping("/recherche/texte")
+    public ResponseEntity<PageCurseurDTO<AnnonceTrouveeDTO>> rechercherTexte(
+            @RequestParam String q,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        try {
+            return ResponseEntity.ok(annonceService.rechercherTextePage(q, curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // GET /api/annonces/recherche/suggestions - Autocomplétion des villes, quartiers
+    // et stades pendant la saisie
+    @GetMapping("/recherche/suggestions")
+    public ResponseEntity<List<SuggestionDTO>> suggerer(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) List<TypeSuggestion> types,
+            @RequestParam(required = false) Integer limite) {
+        try {
+            return ResponseEntity.ok(annonceService.suggerer(q, types, limite));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -141,10 +225,33 @@ public class AnnonceController {
 
     // GET /api/annonces/recherche/stade - Recherche par stade
     @GetMapping("/recherche/stade")
-    public ResponseEntity<List<AnnonceDTO>> rechercherParStade(@RequestParam String stade) {
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherParStade(
+            @RequestParam String stade,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
         try {
-            List<AnnonceDTO> annonces = annonceService.rechercherParStade(stade);
-            return ResponseEntity.ok(annonces);
+            return ResponseEntity.ok(annonceService.rechercherParStadePage(stade, curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // GET /api/annonces/recherche/temps-trajet - Annonces à moins de N minutes d'un
+    // stade
+    @GetMapping("/recherche/temps-trajet")
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherParTempsTrajet(
+            @RequestParam UUID stadeId,
+            @RequestParam int minutes,
+            @RequestParam(required = false) ModeTransport mode,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        try {
+            return ResponseEntity.ok(annonceService.rechercherParTempsTrajetPage(stadeId, minutes, mode, curseur,
+                    taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -152,13 +259,17 @@ public class AnnonceController {
 
     // GET /api/annonces/recherche/rayon - Recherche par rayon géographique
     @GetMapping("/recherche/rayon")
-    public ResponseEntity<List<AnnonceDTO>> rechercherParRayon(
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherParRayon(
             @RequestParam BigDecimal latitude,
             @RequestParam BigDecimal longitude,
-            @RequestParam double rayonKm) {
+            @RequestParam double rayonKm,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
         try {
-            List<AnnonceDTO> annonces = annonceService.rechercherParRayonDTO(latitude, longitude, rayonKm);
-            return ResponseEntity.ok(annonces);
+            return ResponseEntity.ok(annonceService.rechercherParRayonPage(latitude, longitude, rayonKm, curseur,
+                    taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -166,14 +277,36 @@ public class AnnonceController {
 
     // GET /api/annonces/recherche/zone - Recherche par zone géographique
     @GetMapping("/recherche/zone")
-    public ResponseEntity<List<AnnonceDTO>> rechercherParZone(
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherParZone(
             @RequestParam BigDecimal latMin,
             @RequestParam BigDecimal latMax,
             @RequestParam BigDecimal lonMin,
-            @RequestParam BigDecimal lonMax) {
+            @RequestParam BigDecimal lonMax,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
         try {
-            List<AnnonceDTO> annonces = annonceService.rechercherParZoneDTO(latMin, latMax, lonMin, lonMax);
-            return ResponseEntity.ok(annonces);
+            return ResponseEntity.ok(annonceService.rechercherParZonePage(latMin, latMax, lonMin, lonMax, curseur,
+                    taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // GET /api/annonces/recherche/zone/grappes - Carte de la zone affichée :
+    // grappes aux zooms faibles, marqueurs légers aux zooms élevés
+    @GetMapping("/recherche/zone/grappes")
+    public ResponseEntity<CarteZoneDTO> carteZone(
+            @RequestParam BigDecimal latMin,
+            @RequestParam BigDecimal latMax,
+            @RequestParam BigDecimal lonMin,
+            @RequestParam BigDecimal lonMax,
+            @RequestParam int zoom) {
+        try {
+            return ResponseEntity.ok(annonceService.carteZone(latMin, latMax, lonMin, lonMax, zoom));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -181,18 +314,17 @@ public class AnnonceController {
 
     // GET /api/annonces/recherche/proximite - Recherche par proximité
     @GetMapping("/recherche/proximite")
-    public ResponseEntity<List<AnnonceDTO>> rechercherParProximite(
+    public ResponseEntity<PageCurseurDTO<AnnonceSummaryDTO>> rechercherParProximite(
             @RequestParam BigDecimal latitude,
             @RequestParam BigDecimal longitude,
-            @RequestParam(required = false) Double distanceMax) {
-        try {
-            List<AnnonceDTO> annonces;
-            if (distanceMax != null) {
-                annonces = annonceService.rechercherParProximiteAvecLimiteDTO(latitude, longitude, distanceMax);
-            } else {
-                annonces = annonceService.rechercherParProximiteDTO(latitude, longitude);
-            }
-            return ResponseEntity.ok(annonces);
+            @RequestParam(required = false) Double distanceMax,
+            @RequestParam(required = false) String curseur,
+            @RequestParam(required = false) Integer taille) {
+        try {
+            return ResponseEntity.ok(annonceService.rechercherParProximitePage(latitude, longitude, distanceMax,
+                    curseur, taille));
+        } catch (AnnonceException.AnnonceValidationException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
@@ -0,0 +1,178 @@
+package com.example.Impression.controller;
+
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.services.ImageStockageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Diffusion des images du stockage adressé par contenu. Le contenu d'un hash
+ * ne change jamais : ETag fort égal au hash, mise en cache permanente
+ * (immutable) et 304 sur If-None-Match. Les requêtes Range (une seule plage)
+ * sont servies en 206. Le corps est transmis par sendfile quand Tomcat le
+ * permet, sinon par FileChannel.transferTo, sans passer par un tampon applicatif.
+ */
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = "*")
+public class ImageController {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final String CACHE_PERMANENT = "public, max-age=31536000, immutable";
+
+    // Attributs de requête Tomcat pour l'envoi par sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private ImageStockageService imageStockageService;
+
+    // GET /api/images/{hash} - Télécharger une image (Range, ETag, 304)
+    @GetMapping("/{hash}")
+    public void telechargerImage(@PathVariable String hash, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<ImageAsset> asset = HASH.matcher(hash).matches()
+                ? imageStockageService.trouver(hash)
+                : Optional.empty();
+        Path fichier = asset.map(imageStockageService::chemin).orElse(null);
+        if (fichier == null || !Files.isRegularFile(fichier)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String etag = "\"" + hash + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_PERMANENT);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (correspondAuEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long taille = Files.size(fichier);
+        long debut = 0;
+        long fin = taille - 1;
+
+        // If-Range : la plage n'est honorée que si l'ETag correspond encore
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] plage = analyserPlage(range, taille);
+            if (plage == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + taille);
+                return;
+            }
+            if (plage.length == 2) {
+                debut = plage[0];
+                fin = plage[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + debut + "-" + fin + "/" + taille);
+            }
+        }
+
+        long longueur = fin - debut + 1;
+        response.setContentType(asset.get().getTypeContenu());
+        response.setContentLengthLong(longueur);
+        if ("HEAD".equals(request.getMethod()) || longueur == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat transmet le fichier lui-même après la fin du traitement
+            request.setAttribute(SENDFILE_FICHIER, fichier.toString());
+            request.setAttribute(SENDFILE_DEBUT, debut);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            OutputStream sortie = response.getOutputStream();
+            WritableByteChannel destination = Channels.newChannel(sortie);
+            long position = debut;
+            long restant = longueur;
+            while (restant > 0) {
+                long envoyes = canal.transferTo(position, restant, destination);
+                if (envoyes <= 0) {
+                    break;
+                }
+                position += envoyes;
+                restant -= envoyes;
+            }
+            sortie.flush();
+        }
+    }
+
+    private static boolean correspondAuEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valeur : ifNoneMatch.split(",")) {
+            String candidat = valeur.trim();
+            if (candidat.startsWith("W/")) {
+                candidat = candidat.substring(2);
+            }
+            if ("*".equals(candidat) || etag.equals(candidat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Analyse un en-tête Range. Renvoie {début, fin} pour une plage unique
+     * satisfaisable, un tableau vide si l'en-tête doit être ignoré (unité
+     * inconnue, plages multiples, syntaxe invalide) et null si la plage n'est
+     * pas satisfaisable (416).
+     */
+    static long[] analyserPlage(String range, long taille) {
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int tiret = spec.indexOf('-');
+        if (tiret < 0) {
+            return new long[0];
+        }
+        try {
+            String gauche = spec.substring(0, tiret).trim();
+            String droite = spec.substring(tiret + 1).trim();
+            if (gauche.isEmpty()) {
+                // Suffixe : les n derniers octets
+                long suffixe = Long.parseLong(droite);
+                if (suffixe <= 0 || taille == 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, taille - suffixe), taille - 1 };
+            }
+            long debut = Long.parseLong(gauche);
+            long fin = droite.isEmpty() ? Long.MAX_VALUE : Long.parseLong(droite);
+            if (fin < debut) {
+                return new long[0];
+            }
+            if (debut >= taille) {
+                return null;
+            }
+            return new long[] { debut, Math.min(fin, taille - 1) };
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
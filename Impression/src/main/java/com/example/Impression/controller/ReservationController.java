@@ -1,8 +1,10 @@
 package com.example.Impression.controller;
 
+import com.example.Impression.dto.CalendrierAnnonceDTO;
 import com.example.Impression.dto.CreationReservationDTO;
 import com.example.Impression.dto.RecapitulatifReservationDTO;
 import com.example.Impression.dto.ReservationDTO;
+import com.example.Impression.dto.VerificationDisponibilitesDTO;
 import com.example.Impression.dto.PaiementDTO;
 import com.example.Impression.enums.StatutReservation;
 import com.example.Impression.services.ReservationService;
@@ -322,4 +324,30 @@ public class ReservationController {
         List<PaiementDTO> paiements = paiementService.getPaiementsReservation(id);
         return ResponseEntity.ok(paiements);
     }
+
+    /**
+     * 2️⃣2️⃣ GET /api/reservations/annonce/{annonceId}/calendrier
+     * Périodes occupées fusionnées sur [debut, fin) (aujourd'hui et un an par
+     * défaut). Paramètre optionnel: masque=true pour le masque Base64 des nuits
+     */
+    @GetMapping("/annonce/{annonceId}/calendrier")
+    public ResponseEntity<CalendrierAnnonceDTO> getCalendrier(
+            @PathVariable UUID annonceId,
+            @RequestParam(required = false) LocalDate debut,
+            @RequestParam(required = false) LocalDate fin,
+            @RequestParam(defaultValue = "false") boolean masque) {
+        return ResponseEntity.ok(reservationService.getCalendrierAnnonce(annonceId, debut, fin, masque));
+    }
+
+    /**
+     * 2️⃣3️⃣ POST /api/reservations/disponibilites
+     * Vérifier la disponibilité de plusieurs annonces pour les mêmes dates
+     */
+    @PostMapping("/disponibilites")
+    public ResponseEntity<java.util.Map<UUID, Boolean>> verifierDisponibilites(
+            @Valid @RequestBody VerificationDisponibilitesDTO verification) {
+        log.info("Vérification de disponibilité de {} annonce(s) du {} au {}", verification.getAnnonceIds().size(),
+                verification.getDateArrivee(), verification.getDateDepart());
+        return ResponseEntity.ok(reservationService.verifierDisponibilites(verification));
+    }
 }
\ No newline at end of file
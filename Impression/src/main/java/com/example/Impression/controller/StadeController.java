@@ -2,17 +2,22 @@ package com.example.Impression.controller;
 
 import com.example.Impression.dto.StadeDTO;
 import com.example.Impression.dto.CategorieStadeDTO;
+import com.example.Impression.dto.RecalculStadeDTO;
 import com.example.Impression.entities.Stade;
 import com.example.Impression.entities.CategorieStade;
+import com.example.Impression.services.ImageStockageService;
+import com.example.Impression.services.RecalculStadeService;
 import com.example.Impression.services.StadeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @RestController
@@ -23,6 +28,9 @@ public class StadeController {
     @Autowired
     private StadeService stadeService;
 
+    @Autowired
+    private RecalculStadeService recalculStadeService;
+
     @GetMapping
     public ResponseEntity<List<StadeDTO>> getTousLesStades() {
         List<Stade> stades = stadeService.obtenirTousLesStades();
@@ -30,6 +38,19 @@ public class StadeController {
         return ResponseEntity.ok(dto);
     }
 
+    // Avancement des recalculs de distances après modification des stades
+    @GetMapping("/recalculs")
+    public ResponseEntity<List<RecalculStadeDTO>> getRecalculs() {
+        return ResponseEntity.ok(recalculStadeService.derniers(20));
+    }
+
+    @GetMapping("/{id}/recalcul")
+    public ResponseEntity<RecalculStadeDTO> getRecalcul(@PathVariable UUID id) {
+        return recalculStadeService.avancement(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     private StadeDTO convertirEnDTO(Stade stade) {
         if (stade == null)
             return null;
@@ -51,7 +72,8 @@ public class StadeController {
         dto.setPrixMin(stade.getPrixMin());
         dto.setPrixMax(stade.getPrixMax());
         dto.setImages(stade.getImages());
-        dto.setImagesBlob(stade.getImagesBlob());
+        dto.setImageIds(stade.getImageIds());
+        dto.setImageUrls(ImageStockageService.urls(stade.getImageIds()));
         dto.setSurfaceType(stade.getSurfaceType());
         dto.setDimensions(stade.getDimensions());
         dto.setSiteWeb(stade.getSiteWeb());
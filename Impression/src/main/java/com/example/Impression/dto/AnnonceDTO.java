@@ -31,7 +31,9 @@ public class AnnonceDTO {
     private List<String> equipements;
     private List<String> regles;
     private List<String> images;
-    private List<byte[]> imagesBlob;
+    private List<String> imageIds; // Identifiants des images (SHA-256)
+    private List<String> imageUrls; // URLs de téléchargement (/api/images/{hash})
+    private List<ImageVariantesDTO> imageVariantes; // Tailles réduites de chaque image, même ordre
     private Double noteMoyenne;
     private int nombreAvis;
     private LocateurInfoDTO locateur;
@@ -41,4 +43,5 @@ public class AnnonceDTO {
     // Nouvelles propriétés pour les distances avec stades
     private List<AnnonceStadeDistanceDTO> distancesStades;
     private AnnonceStadeDistanceDTO stadeLePlusProche;
+    private boolean distancesPending; // Calcul en attente : distances estimées à vol d'oiseau
 }
\ No newline at end of file
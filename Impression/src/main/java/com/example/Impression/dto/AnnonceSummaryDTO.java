@@ -0,0 +1,58 @@
+package com.example.Impression.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Résumé d'annonce pour les listes et résultats de recherche. Construit
+ * directement par une projection JPQL (AnnonceRepository) : ni la description,
+ * ni les équipements, ni les images en base ne sont chargés. Le détail complet
+ * reste disponible via GET /api/annonces/{id}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnonceSummaryDTO {
+    private UUID id;
+    private String titre;
+    private BigDecimal prixParNuit;
+    private int capacite;
+    private Double noteMoyenne;
+    private String ville;
+    private String imageCouverture; // URL de la première image (variante "carte" si disponible)
+    private UUID stadeLePlusProcheId;
+    private String stadeLePlusProcheNom;
+    private BigDecimal distanceStadeKm;
+    private Integer tempsTrajetStadeMinutes;
+
+    @JsonIgnore
+    private LocalDateTime dateCreation; // Clé de pagination, non exposée
+
+    @JsonIgnore
+    private String imageCouvertureId; // Hash de la première image, pour la substitution par sa variante
+
+    // Constructeur utilisé par les requêtes "SELECT new" de AnnonceRepository
+    public AnnonceSummaryDTO(UUID id, String titre, BigDecimal prixParNuit, int capacite, Double noteMoyenne,
+            String ville, List<String> imageIds, List<String> images, UUID stadeLePlusProcheId,
+            String stadeLePlusProcheNom, BigDecimal distanceStadeKm, Integer tempsTrajetStadeMinutes,
+            LocalDateTime dateCreation) {
+        this(id, titre, prixParNuit, capacite, noteMoyenne, ville, couverture(imageIds, images),
+                stadeLePlusProcheId, stadeLePlusProcheNom, distanceStadeKm, tempsTrajetStadeMinutes, dateCreation,
+                imageIds != null && !imageIds.isEmpty() ? imageIds.get(0) : null);
+    }
+
+    // Image du stockage si disponible, sinon chemin d'origine
+    private static String couverture(List<String> imageIds, List<String> images) {
+        if (imageIds != null && !imageIds.isEmpty()) {
+            return "/api/images/" + imageIds.get(0);
+        }
+        return images != null && !images.isEmpty() ? images.get(0) : null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Annonce trouvée par la recherche plein texte : son résumé, son score de
+ * pertinence (BM25) et, par champ où la requête apparaît (titre, ville,
+ * equipements, description), le texte échappé en HTML avec les mots trouvés
+ * entre balises mark. La description est réduite à un extrait.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnonceTrouveeDTO {
+    private AnnonceSummaryDTO annonce;
+    private double score;
+    private Map<String, String> surlignages;
+}
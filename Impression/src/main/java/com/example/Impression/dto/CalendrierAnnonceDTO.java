@@ -0,0 +1,25 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Nuits occupées d'une annonce sur [debut, fin) : périodes fusionnées, sans
+ * chevauchement, triées. masque (optionnel) : bit i = nuit debut + i occupée,
+ * octets petit-boutistes encodés en Base64 (format de BitSet.toByteArray()).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendrierAnnonceDTO {
+    private UUID annonceId;
+    private LocalDate debut;
+    private LocalDate fin;
+    private List<PeriodeReserveeDTO> periodes;
+    private String masque;
+}
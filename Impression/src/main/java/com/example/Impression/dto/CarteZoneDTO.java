@@ -0,0 +1,22 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Contenu de la carte pour une zone et un niveau de zoom : des grappes aux
+ * zooms faibles, des marqueurs individuels aux zooms élevés (l'une des deux
+ * listes est vide). total : nombre d'annonces représentées.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CarteZoneDTO {
+    private int zoom;
+    private int total;
+    private List<GrappeDTO> grappes;
+    private List<MarqueurDTO> marqueurs;
+}
@@ -0,0 +1,21 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Regroupement d'annonces voisines sur la carte : nombre d'annonces, centre
+ * de gravité de leurs positions et prix par nuit le plus bas
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GrappeDTO {
+    private double latitude;
+    private double longitude;
+    private int nombre;
+    private BigDecimal prixMin;
+}
@@ -0,0 +1,20 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * URLs des tailles d'une image. Tant que les variantes ne sont pas générées,
+ * chaque taille pointe vers l'image d'origine.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariantesDTO {
+    private String hash; // Identifiant de l'image d'origine (SHA-256)
+    private String url; // Image d'origine
+    private String urlMiniature; // 160 px de large
+    private String urlCarte; // 480 px de large, cartes de résultats
+    private String urlComplete; // 1280 px de large, page de détail
+}
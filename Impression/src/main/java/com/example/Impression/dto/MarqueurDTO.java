@@ -0,0 +1,23 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Annonce affichée individuellement sur la carte, sans images ni
+ * description (la fiche se charge au clic)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarqueurDTO {
+    private UUID id;
+    private double latitude;
+    private double longitude;
+    private BigDecimal prixParNuit;
+    private String titre;
+}
@@ -0,0 +1,22 @@
+package com.example.Impression.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Page de résultats paginée par curseur (keyset). curseurSuivant est opaque
+ * pour le client et doit être renvoyé tel quel pour obtenir la page suivante ;
+ * il vaut null sur la dernière page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PageCurseurDTO<T> {
+    private List<T> elements;
+    private String curseurSuivant;
+    private int taille;
+    private boolean pageSuivante;
+}
@@ -0,0 +1,29 @@
+package com.example.Impression.dto;
+
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Avancement du recalcul des distances vers un stade après sa modification
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecalculStadeDTO {
+    private UUID id;
+    private UUID stadeId;
+    private TypeRecalculStade type;
+    private StatutRecalculStade statut;
+    private long total;
+    private long traitees;
+    private int pourcentage;
+    private LocalDateTime dateDemande;
+    private LocalDateTime dateFin;
+    private String dernierMessage;
+}
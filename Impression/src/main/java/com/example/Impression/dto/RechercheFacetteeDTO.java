@@ -0,0 +1,22 @@
+package com.example.Impression.dto;
+
+import com.example.Impression.enums.Facette;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Résultat d'une recherche à facettes : la page demandée, le nombre total
+ * d'annonces retenues et, par facette, le nombre d'annonces par valeur (du plus
+ * fréquent au moins fréquent).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RechercheFacetteeDTO {
+    private PageCurseurDTO<AnnonceSummaryDTO> page;
+    private int total;
+    private Map<Facette, Map<String, Integer>> facettes;
+}
@@ -30,7 +30,8 @@ public class StadeDTO {
     private BigDecimal prixMin;
     private BigDecimal prixMax;
     private List<String> images;
-    private List<byte[]> imagesBlob;
+    private List<String> imageIds; // Identifiants des images (SHA-256)
+    private List<String> imageUrls; // URLs de téléchargement (/api/images/{hash})
     private String surfaceType;
     private String dimensions;
     private String siteWeb;
@@ -0,0 +1,25 @@
+package com.example.Impression.dto;
+
+import com.example.Impression.enums.TypeSuggestion;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Suggestion d'autocomplétion : ville, quartier ou stade. poids : nombre
+ * d'annonces actives concernées (annonces de la ville ou du quartier,
+ * annonces dont le stade est le plus proche). stadeId n'est renseigné que
+ * pour un stade.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    private TypeSuggestion type;
+    private String libelle;
+    private String ville;
+    private UUID stadeId;
+    private long poids;
+}
@@ -0,0 +1,28 @@
+package com.example.Impression.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VerificationDisponibilitesDTO {
+
+    @NotEmpty(message = "Au moins une annonce est obligatoire")
+    @Size(max = 500, message = "500 annonces au plus par vérification")
+    private List<UUID> annonceIds;
+
+    @NotNull(message = "La date d'arrivée est obligatoire")
+    private LocalDate dateArrivee;
+
+    @NotNull(message = "La date de départ est obligatoire")
+    private LocalDate dateDepart;
+}
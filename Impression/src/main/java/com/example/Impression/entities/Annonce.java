@@ -1,5 +1,6 @@
 package com.example.Impression.entities;
 
+import com.example.Impression.enums.Equipement;
 import com.example.Impression.enums.TypeMaison;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -15,7 +16,11 @@ import java.util.UUID;
 import java.util.ArrayList;
 
 @Entity
-@Table(name = "annonces")
+@Table(name = "annonces", indexes = {
+        // Index de pagination keyset (voir AnnonceRepository)
+        @Index(name = "idx_annonces_active_date", columnList = "est_active, date_creation, id"),
+        @Index(name = "idx_annonces_active_prix", columnList = "est_active, prix_par_nuit, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -67,7 +72,18 @@ public class Annonce {
     @Column(nullable = false)
     private LocalDateTime dateModification;
 
-    // Liste d'équipements stockée comme JSON dans la base de données
+    // Équipements du catalogue (enum Equipement), un bit chacun : filtrables
+    // en SQL sans lire le JSON
+    @Column(nullable = false)
+    private long equipementsMasque = 0;
+
+    // Vrai une fois les équipements saisis répartis entre le masque et le texte
+    // libre ; faux pour les annonces antérieures au catalogue, jusqu'à leur
+    // migration (EquipementsDataLoader), même si aucun n'est reconnu
+    @Column(nullable = false)
+    private boolean equipementsRepartis = false;
+
+    // Équipements hors catalogue (texte libre) stockés comme JSON
     @Column(columnDefinition = "TEXT")
     @Convert(converter = StringListConverter.class)
     private List<String> equipements = new ArrayList<>();
@@ -82,10 +98,10 @@ public class Annonce {
     @Convert(converter = StringListConverter.class)
     private List<String> images = new ArrayList<>();
 
-    // Images stockées comme liste de fichiers binaires dans la base de données
-    @Column(columnDefinition = "LONGTEXT")
-    @Convert(converter = ByteArrayListConverter.class)
-    private List<byte[]> imagesBlob = new ArrayList<>();
+    // Identifiants (SHA-256) des images dans le stockage d'images
+    @Column(columnDefinition = "TEXT")
+    @Convert(converter = StringListConverter.class)
+    private List<String> imageIds = new ArrayList<>();
 
     @Column
     private Double noteMoyenne = 0.0;
@@ -153,6 +169,19 @@ public class Annonce {
                 .noneMatch(reservation -> reservation.estEnConflit(dateArrivee, dateDepart));
     }
 
+    // Répartit les équipements saisis entre le catalogue (masque) et le texte libre
+    public void definirEquipements(List<String> saisis) {
+        Equipement.Repartition repartition = Equipement.repartir(saisis);
+        equipementsMasque = repartition.masque();
+        equipements = new ArrayList<>(repartition.libres());
+        equipementsRepartis = true;
+    }
+
+    // Libellés des équipements du catalogue suivis des équipements libres
+    public List<String> listeEquipements() {
+        return Equipement.libelles(equipementsMasque, equipements);
+    }
+
     public List<com.example.Impression.entities.Reservation> getReservationsActives() {
         return reservations.stream()
                 .filter(reservation -> reservation.estActive())
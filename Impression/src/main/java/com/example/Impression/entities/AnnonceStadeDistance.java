@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "annonce_stade_distances")
+@Table(name = "annonce_stade_distances", indexes = {
+        // Recherche "à moins de N minutes d'un stade", triée par temps de trajet
+        @Index(name = "idx_asd_isochrone", columnList = "stade_id, mode_transport, bande_isochrone, temps_trajet_minutes")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -46,6 +49,11 @@ public class AnnonceStadeDistance {
     @Column(nullable = false)
     private ModeTransport modeTransport = ModeTransport.VOITURE;
 
+    // Bande isochrone du trajet (borne haute en minutes, voir Isochrones), null
+    // au-delà de la dernière bande
+    @Column(name = "bande_isochrone")
+    private Integer bandeIsochrone;
+
     // Indique si c'est le stade le plus proche
     @Column(nullable = false)
     private Boolean estLePlusProche = false;
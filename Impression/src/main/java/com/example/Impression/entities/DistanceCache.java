@@ -0,0 +1,44 @@
+package com.example.Impression.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Distance routière mesurée entre une cellule geohash (origine arrondie) et un
+ * stade. Partagée par toutes les annonces de la même cellule et réutilisée
+ * jusqu'à expiration (voir DistanceCacheService).
+ */
+@Entity
+@Table(name = "distance_cache", uniqueConstraints = @UniqueConstraint(name = "uk_distance_cache", columnNames = {
+        "geohash", "stade_id" }), indexes = @Index(name = "idx_distance_cache_date", columnList = "date_calcul"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistanceCache {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 12)
+    private String geohash;
+
+    @Column(name = "stade_id", nullable = false)
+    private UUID stadeId;
+
+    // Distance en kilomètres
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal distance;
+
+    @Column(nullable = false)
+    private Integer tempsTrajetMinutes;
+
+    @Column(name = "date_calcul", nullable = false)
+    private LocalDateTime dateCalcul;
+}
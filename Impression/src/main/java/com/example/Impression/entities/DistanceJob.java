@@ -0,0 +1,55 @@
+package com.example.Impression.entities;
+
+import com.example.Impression.enums.StatutDistanceJob;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Demande de (re)calcul des distances annonce-stades, au plus une par annonce.
+ * La file est persistée en base : les demandes survivent à un redémarrage et
+ * sont réservées par les workers via une mise à jour conditionnelle (voir
+ * DistanceJobService). Une ligne terminée est supprimée.
+ */
+@Entity
+@Table(name = "distance_jobs", uniqueConstraints = @UniqueConstraint(name = "uk_distance_job_annonce", columnNames = "annonce_id"), indexes = @Index(name = "idx_distance_job_statut", columnList = "statut, date_demande"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistanceJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "annonce_id", nullable = false)
+    private UUID annonceId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutDistanceJob statut = StatutDistanceJob.EN_ATTENTE;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    // Worker ayant réservé la demande (jeton aléatoire par lot)
+    @Column(length = 36)
+    private String proprietaire;
+
+    // Coordonnées modifiées pendant le calcul : la demande est rejouée
+    @Column(nullable = false)
+    private boolean relanceDemandee;
+
+    @Column(name = "date_demande", nullable = false)
+    private LocalDateTime dateDemande;
+
+    @Column
+    private LocalDateTime dateReservation;
+
+    @Column(length = 500)
+    private String dernierMessage;
+}
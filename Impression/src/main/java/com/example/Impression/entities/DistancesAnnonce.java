@@ -0,0 +1,34 @@
+package com.example.Impression.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Toutes les distances d'une annonce vers les stades, en une ligne : format
+ * binaire fixe décrit par DistancesCompactes (24 octets par stade et par mode).
+ * Utilisée à la place des lignes annonce_stade_distances en stockage COMPACT.
+ */
+@Entity
+@Table(name = "annonce_distances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DistancesAnnonce {
+
+    @Id
+    @Column(name = "annonce_id")
+    private UUID annonceId;
+
+    @Column(nullable = false, length = 8192)
+    private byte[] donnees;
+
+    @UpdateTimestamp
+    @Column(name = "date_modification")
+    private LocalDateTime dateModification;
+}
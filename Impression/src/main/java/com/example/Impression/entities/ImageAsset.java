@@ -0,0 +1,46 @@
+package com.example.Impression.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Image stockée sur disque, adressée par le SHA-256 de son contenu. Deux
+ * fichiers identiques partagent le même enregistrement et le même fichier ; la
+ * ligne ne contient que des métadonnées, jamais les octets.
+ */
+@Entity
+@Table(name = "image_assets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageAsset {
+
+    // SHA-256 du contenu, en hexadécimal minuscule
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(nullable = false, length = 100)
+    private String typeContenu;
+
+    @Column(nullable = false)
+    private long taille; // Taille en octets
+
+    // Chemin relatif au répertoire racine du stockage
+    @Column(nullable = false, length = 255)
+    private String cheminRelatif;
+
+    // Format que ImageIO ne sait pas décoder : aucune variante, le balayage
+    // périodique ne la retente pas
+    @Column(nullable = false)
+    private boolean illisible = false;
+
+    @CreationTimestamp
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+}
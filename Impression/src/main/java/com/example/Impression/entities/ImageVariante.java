@@ -0,0 +1,56 @@
+package com.example.Impression.entities;
+
+import com.example.Impression.enums.TailleImage;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Version redimensionnée d'une image du stockage. La variante est elle-même un
+ * ImageAsset (varianteHash) servi par GET /api/images/{hash}.
+ */
+@Entity
+@Table(name = "image_variantes", uniqueConstraints = @UniqueConstraint(name = "uk_image_variante", columnNames = {
+        "source_hash", "taille" }), indexes = @Index(name = "idx_image_variante_variante", columnList = "variante_hash"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariante {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Hash de l'image d'origine
+    @Column(name = "source_hash", nullable = false, length = 64)
+    private String sourceHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TailleImage taille;
+
+    // Hash de l'image redimensionnée dans le stockage
+    @Column(name = "variante_hash", nullable = false, length = 64)
+    private String varianteHash;
+
+    @Column(nullable = false, length = 100)
+    private String typeContenu;
+
+    @Column(nullable = false)
+    private int largeur;
+
+    @Column(nullable = false)
+    private int hauteur;
+
+    @Column(nullable = false)
+    private long octets;
+
+    @CreationTimestamp
+    @Column(nullable = false)
+    private LocalDateTime dateCreation;
+}
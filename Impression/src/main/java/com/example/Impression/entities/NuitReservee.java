@@ -0,0 +1,38 @@
+package com.example.Impression.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Une nuit occupée par une réservation CONFIRMEE ou EN_COURS. La contrainte
+ * unique (annonce, nuit) refuse en base une seconde réservation sur la même
+ * nuit : deux confirmations concurrentes ne peuvent pas réussir toutes les
+ * deux, sans verrou sur l'annonce. Les lignes sont supprimées quand la
+ * réservation est annulée ou terminée.
+ */
+@Entity
+@Table(name = "nuits_reservees", uniqueConstraints = @UniqueConstraint(name = "uk_nuit_reservee", columnNames = {
+        "annonce_id", "nuit" }), indexes = @Index(name = "idx_nuit_reservee_reservation", columnList = "reservation_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NuitReservee {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "annonce_id", nullable = false)
+    private UUID annonceId;
+
+    @Column(nullable = false)
+    private LocalDate nuit;
+
+    @Column(name = "reservation_id", nullable = false)
+    private UUID reservationId;
+}
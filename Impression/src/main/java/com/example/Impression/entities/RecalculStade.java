@@ -0,0 +1,71 @@
+package com.example.Impression.entities;
+
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Recalcul des distances annonce-stade après l'ajout, le déplacement ou le
+ * retrait d'un stade, au plus un par stade. Les annonces sont parcourues par
+ * tranches dans l'ordre de leur id ; curseur et traitees donnent
+ * l'avancement. Une nouvelle modification du stade relance le parcours depuis
+ * le début (voir RecalculStadeService).
+ */
+@Entity
+@Table(name = "recalculs_stades", uniqueConstraints = @UniqueConstraint(name = "uk_recalcul_stade", columnNames = "stade_id"), indexes = @Index(name = "idx_recalcul_stade_statut", columnList = "statut, date_demande"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecalculStade {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "stade_id", nullable = false)
+    private UUID stadeId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TypeRecalculStade type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private StatutRecalculStade statut = StatutRecalculStade.EN_ATTENTE;
+
+    // Dernière annonce traitée (parcours par id croissant), null au départ
+    @Column
+    private UUID curseur;
+
+    // Annonces géolocalisées à parcourir, comptées au démarrage
+    @Column(nullable = false)
+    private long total;
+
+    @Column(nullable = false)
+    private long traitees;
+
+    @Column(nullable = false)
+    private int tentatives;
+
+    // Instance ayant réservé le recalcul
+    @Column(length = 36)
+    private String proprietaire;
+
+    @Column(name = "date_demande", nullable = false)
+    private LocalDateTime dateDemande;
+
+    @Column
+    private LocalDateTime dateReservation;
+
+    @Column
+    private LocalDateTime dateFin;
+
+    @Column(length = 500)
+    private String dernierMessage;
+}
@@ -75,10 +75,10 @@ public class Stade {
     @Column(length = 4000)
     private List<String> images;
 
-    // Images binaires (BLOB encodé base64 via convertisseur)
-    @Convert(converter = ByteArrayListConverter.class)
-    @Lob
-    private List<byte[]> imagesBlob;
+    // Identifiants (SHA-256) des images dans le stockage d'images
+    @Convert(converter = StringListConverter.class)
+    @Column(columnDefinition = "TEXT")
+    private List<String> imageIds;
 
     // Informations complémentaires
     @Column(length = 100)
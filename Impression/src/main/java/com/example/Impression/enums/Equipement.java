@@ -0,0 +1,133 @@
+package com.example.Impression.enums;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catalogue des équipements reconnus. Chacun occupe un bit fixe du masque
+ * Annonce.equipementsMasque : ne jamais réutiliser ni déplacer un bit (les
+ * masques en base en dépendent), au plus 64 équipements.
+ *
+ * Une saisie est reconnue par son libellé ou un synonyme, sans tenir compte
+ * de la casse, des accents ni des tirets ("wi-fi", "Clim", "AC").
+ */
+public enum Equipement {
+    WIFI(0, "WiFi", "wi fi", "wifi gratuit", "internet"),
+    PARKING(1, "Parking", "stationnement", "garage", "parking gratuit"),
+    CLIMATISATION(2, "Climatisation", "clim", "climatise", "climatiseur", "ac", "air conditionne"),
+    CHAUFFAGE(3, "Chauffage", "chauffage central"),
+    CUISINE(4, "Cuisine", "cuisine equipee", "kitchenette"),
+    LAVE_LINGE(5, "Lave-linge", "machine a laver"),
+    SECHE_LINGE(6, "Sèche-linge"),
+    LAVE_VAISSELLE(7, "Lave-vaisselle"),
+    TELEVISION(8, "Télévision", "tv", "tele", "television"),
+    PISCINE(9, "Piscine", "piscine privee"),
+    JARDIN(10, "Jardin"),
+    TERRASSE(11, "Terrasse"),
+    BALCON(12, "Balcon"),
+    ASCENSEUR(13, "Ascenseur"),
+    BARBECUE(14, "Barbecue", "bbq"),
+    JACUZZI(15, "Jacuzzi", "spa"),
+    SALLE_DE_SPORT(16, "Salle de sport", "gym", "fitness"),
+    ACCES_HANDICAPE(17, "Accès handicapé", "accessible pmr", "pmr"),
+    ANIMAUX_ACCEPTES(18, "Animaux acceptés"),
+    PETIT_DEJEUNER(19, "Petit-déjeuner", "petit dejeuner inclus");
+
+    private static final Map<String, Equipement> PAR_CLE = new HashMap<>();
+
+    static {
+        for (Equipement equipement : values()) {
+            PAR_CLE.put(cle(equipement.libelle), equipement);
+            PAR_CLE.put(cle(equipement.name()), equipement);
+            for (String synonyme : equipement.synonymes) {
+                PAR_CLE.put(cle(synonyme), equipement);
+            }
+        }
+    }
+
+    private final int bit;
+    private final String libelle;
+    private final String[] synonymes;
+
+    Equipement(int bit, String libelle, String... synonymes) {
+        this.bit = bit;
+        this.libelle = libelle;
+        this.synonymes = synonymes;
+    }
+
+    public String getLibelle() {
+        return libelle;
+    }
+
+    public long masque() {
+        return 1L << bit;
+    }
+
+    /**
+     * Répartition d'une liste saisie : équipements du catalogue (masque) et
+     * équipements libres, dans l'ordre de saisie et sans doublon
+     */
+    public record Repartition(long masque, List<String> libres) {
+    }
+
+    // Équipement du catalogue correspondant à une saisie, null sinon
+    public static Equipement reconnaitre(String saisie) {
+        return saisie != null ? PAR_CLE.get(cle(saisie)) : null;
+    }
+
+    public static long masque(Collection<Equipement> equipements) {
+        long masque = 0;
+        if (equipements != null) {
+            for (Equipement equipement : equipements) {
+                masque |= equipement.masque();
+            }
+        }
+        return masque;
+    }
+
+    public static Repartition repartir(Collection<String> saisis) {
+        long masque = 0;
+        List<String> libres = new ArrayList<>();
+        if (saisis != null) {
+            for (String saisi : saisis) {
+                if (saisi == null || saisi.isBlank()) {
+                    continue;
+                }
+                Equipement equipement = reconnaitre(saisi);
+                if (equipement != null) {
+                    masque |= equipement.masque();
+                } else if (libres.stream().noneMatch(l -> cle(l).equals(cle(saisi)))) {
+                    libres.add(saisi.trim());
+                }
+            }
+        }
+        return new Repartition(masque, libres);
+    }
+
+    /**
+     * Libellés des équipements du masque (ordre du catalogue) suivis des
+     * équipements libres
+     */
+    public static List<String> libelles(long masque, Collection<String> libres) {
+        List<String> libelles = new ArrayList<>();
+        for (Equipement equipement : values()) {
+            if ((masque & equipement.masque()) != 0) {
+                libelles.add(equipement.libelle);
+            }
+        }
+        if (libres != null) {
+            libelles.addAll(libres);
+        }
+        return libelles;
+    }
+
+    private static String cle(String texte) {
+        String sansAccents = Normalizer.normalize(texte, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sansAccents.replaceAll("[\\s_-]+", " ").trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.Impression.enums;
+
+public enum Facette {
+    TYPE_MAISON,
+    VILLE,
+    PRIX, // Tranches de prix par nuit
+    CAPACITE, // Tranches de capacité
+    EQUIPEMENT
+}
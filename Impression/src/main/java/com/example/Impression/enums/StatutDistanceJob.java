@@ -0,0 +1,7 @@
+package com.example.Impression.enums;
+
+public enum StatutDistanceJob {
+    EN_ATTENTE,
+    EN_COURS,
+    ECHEC
+}
@@ -0,0 +1,8 @@
+package com.example.Impression.enums;
+
+public enum StatutRecalculStade {
+    EN_ATTENTE,
+    EN_COURS,
+    TERMINE,
+    ECHEC
+}
@@ -0,0 +1,12 @@
+package com.example.Impression.enums;
+
+/**
+ * Stockage des distances annonce-stade (app.distances.stockage)
+ */
+public enum StockageDistances {
+    // Une ligne annonce_stade_distances par annonce, stade et mode
+    LIGNES,
+    // Une ligne annonce_distances compacte par annonce, plus la ligne du stade le
+    // plus proche
+    COMPACT
+}
@@ -0,0 +1,17 @@
+package com.example.Impression.enums;
+
+public enum TailleImage {
+    MINIATURE(160), // Vignettes (listes compactes, carte)
+    CARTE(480), // Cartes de résultats de recherche
+    COMPLETE(1280); // Page de détail
+
+    private final int largeurMax;
+
+    TailleImage(int largeurMax) {
+        this.largeurMax = largeurMax;
+    }
+
+    public int getLargeurMax() {
+        return largeurMax;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.Impression.enums;
+
+public enum TriAnnonce {
+    DATE, // Les plus récentes d'abord
+    PRIX // Les moins chères d'abord
+}
@@ -0,0 +1,7 @@
+package com.example.Impression.enums;
+
+public enum TypeRecalculStade {
+    AJOUT,
+    DEPLACEMENT,
+    RETRAIT
+}
@@ -0,0 +1,7 @@
+package com.example.Impression.enums;
+
+public enum TypeSuggestion {
+    VILLE,
+    QUARTIER,
+    STADE
+}
@@ -1,14 +1,21 @@
 package com.example.Impression.repositories;
 
+import com.example.Impression.dto.AnnonceSummaryDTO;
 import com.example.Impression.entities.Annonce;
 import com.example.Impression.entities.Locateur;
+import com.example.Impression.enums.ModeTransport;
 import com.example.Impression.enums.TypeMaison;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -40,25 +47,154 @@ public interface AnnonceRepository extends JpaRepository<Annonce, UUID> {
         // Recherche par nombre de chambres
         List<Annonce> findByNombreChambresAndEstActiveTrue(int nombreChambres);
 
-        // Recherche combinée
-        @Query("SELECT a FROM Annonce a WHERE a.estActive = true " +
-                        "AND (:ville IS NULL OR a.adresse.ville LIKE %:ville%) " +
+        // Annonces avec adresse et locateur chargés dans la même requête
+        // (assemblage des DTO par lot)
+        @Query("SELECT a FROM Annonce a JOIN FETCH a.adresse JOIN FETCH a.locateur WHERE a.id IN :ids")
+        List<Annonce> findAvecAdresseEtLocateurByIdIn(@Param("ids") Collection<UUID> ids);
+
+        // ========== RÉSUMÉS (LISTES ET RECHERCHES) ==========
+        // Projection constructeur : seules les colonnes utiles aux listes sont lues,
+        // jamais la description, les équipements ni les images en base. Une seule
+        // ligne par annonce : le stade le plus proche est choisi par sous-requête,
+        // même si deux distances portent le drapeau pendant un recalcul concurrent.
+        String SELECT_RESUME = "SELECT new com.example.Impression.dto.AnnonceSummaryDTO(" +
+                        "a.id, a.titre, a.prixParNuit, a.capacite, a.noteMoyenne, ad.ville, a.imageIds, a.images, " +
+                        "s.id, s.nom, d.distance, d.tempsTrajetMinutes, a.dateCreation) " +
+                        "FROM Annonce a JOIN a.adresse ad " +
+                        "LEFT JOIN a.distancesStades d ON d.id = (SELECT p.id FROM AnnonceStadeDistance p " +
+                        "WHERE p.annonce = a AND p.estLePlusProche = true " +
+                        "ORDER BY p.tempsTrajetMinutes ASC, p.id ASC LIMIT 1) " +
+                        "LEFT JOIN d.stade s ";
+
+        // Résumés d'un ensemble d'annonces actives (ordre à rétablir par l'appelant)
+        @Query(SELECT_RESUME + "WHERE a.estActive = true AND a.id IN :ids")
+        List<AnnonceSummaryDTO> findResumesByIds(@Param("ids") Collection<UUID> ids);
+
+        // Résumés des annonces d'un locateur, actives ou non
+        @Query(SELECT_RESUME + "WHERE a.locateur.id = :locateurId ORDER BY a.dateCreation DESC, a.id DESC")
+        List<AnnonceSummaryDTO> findResumesByLocateurId(@Param("locateurId") UUID locateurId);
+
+        // ========== PAGINATION KEYSET ==========
+        // Les pages suivantes reprennent strictement après la clé de tri (date ou
+        // prix + id) du dernier élément de la page précédente : une page profonde
+        // coûte autant que la première.
+
+        // Aucune nuit de [dateArrivee, dateDepart) réservée (ignoré sans dates) :
+        // anti-jointure lue par l'index unique (annonce_id, nuit) de nuits_reservees
+        String LIBRE_ENTRE = "AND (:dateArrivee IS NULL OR NOT EXISTS (SELECT n.id FROM NuitReservee n " +
+                        "WHERE n.annonceId = a.id AND n.nuit >= :dateArrivee AND n.nuit < :dateDepart)) ";
+
+        // Tous les équipements du masque demandé, en un seul prédicat bit à bit
+        // (toujours vrai pour un masque nul)
+        String AVEC_EQUIPEMENTS = "AND bitand(a.equipementsMasque, cast(:equipementsMasque as Long)) " +
+                        "= :equipementsMasque ";
+
+        // Annonces actives, les plus récentes d'abord
+        @Query(SELECT_RESUME + "WHERE a.estActive = true " +
+                        "AND (:curseurDate IS NULL OR a.dateCreation < :curseurDate " +
+                        "OR (a.dateCreation = :curseurDate AND a.id < :curseurId)) " +
+                        "ORDER BY a.dateCreation DESC, a.id DESC")
+        List<AnnonceSummaryDTO> findPageActivesParDate(
+                        @Param("curseurDate") LocalDateTime curseurDate,
+                        @Param("curseurId") UUID curseurId,
+                        Pageable pageable);
+
+        // Recherche combinée, les plus récentes d'abord
+        @Query(SELECT_RESUME + "WHERE a.estActive = true " +
+                        "AND (:ville IS NULL OR ad.ville LIKE %:ville%) " +
                         "AND (:typeMaison IS NULL OR a.typeMaison = :typeMaison) " +
                         "AND (:prixMax IS NULL OR a.prixParNuit <= :prixMax) " +
                         "AND (:capaciteMin IS NULL OR a.capacite >= :capaciteMin) " +
-                        "AND (:noteMin IS NULL OR a.noteMoyenne >= :noteMin)")
-        List<Annonce> findByCritereRecherche(
+                        "AND (:noteMin IS NULL OR a.noteMoyenne >= :noteMin) " +
+                        LIBRE_ENTRE +
+                        AVEC_EQUIPEMENTS +
+                        "AND (:curseurDate IS NULL OR a.dateCreation < :curseurDate " +
+                        "OR (a.dateCreation = :curseurDate AND a.id < :curseurId)) " +
+                        "ORDER BY a.dateCreation DESC, a.id DESC")
+        List<AnnonceSummaryDTO> findPageCritereRechercheParDate(
                         @Param("ville") String ville,
                         @Param("typeMaison") TypeMaison typeMaison,
                         @Param("prixMax") BigDecimal prixMax,
                         @Param("capaciteMin") Integer capaciteMin,
-                        @Param("noteMin") Double noteMin);
-
-        // Recherche par stade - maintenant via la table de liaison
-        @Query("SELECT DISTINCT a FROM Annonce a " +
-                        "JOIN a.distancesStades asd " +
-                        "WHERE a.estActive = true AND asd.stade.nom LIKE %:stade%")
-        List<Annonce> findByStadeContaining(@Param("stade") String stade);
+                        @Param("noteMin") Double noteMin,
+                        @Param("dateArrivee") LocalDate dateArrivee,
+                        @Param("dateDepart") LocalDate dateDepart,
+                        @Param("equipementsMasque") long equipementsMasque,
+                        @Param("curseurDate") LocalDateTime curseurDate,
+                        @Param("curseurId") UUID curseurId,
+                        Pageable pageable);
+
+        // Recherche combinée, les moins chères d'abord
+        @Query(SELECT_RESUME + "WHERE a.estActive = true " +
+                        "AND (:ville IS NULL OR ad.ville LIKE %:ville%) " +
+                        "AND (:typeMaison IS NULL OR a.typeMaison = :typeMaison) " +
+                        "AND (:prixMax IS NULL OR a.prixParNuit <= :prixMax) " +
+                        "AND (:capaciteMin IS NULL OR a.capacite >= :capaciteMin) " +
+                        "AND (:noteMin IS NULL OR a.noteMoyenne >= :noteMin) " +
+                        LIBRE_ENTRE +
+                        AVEC_EQUIPEMENTS +
+                        "AND (:curseurPrix IS NULL OR a.prixParNuit > :curseurPrix " +
+                        "OR (a.prixParNuit = :curseurPrix AND a.id > :curseurId)) " +
+                        "ORDER BY a.prixParNuit ASC, a.id ASC")
+        List<AnnonceSummaryDTO> findPageCritereRechercheParPrix(
+                        @Param("ville") String ville,
+                        @Param("typeMaison") TypeMaison typeMaison,
+                        @Param("prixMax") BigDecimal prixMax,
+                        @Param("capaciteMin") Integer capaciteMin,
+                        @Param("noteMin") Double noteMin,
+                        @Param("dateArrivee") LocalDate dateArrivee,
+                        @Param("dateDepart") LocalDate dateDepart,
+                        @Param("equipementsMasque") long equipementsMasque,
+                        @Param("curseurPrix") BigDecimal curseurPrix,
+                        @Param("curseurId") UUID curseurId,
+                        Pageable pageable);
+
+        // Recherche par nom du stade le plus proche, les plus récentes d'abord. Seule
+        // la ligne du plus proche existe en stockage COMPACT : LIGNES s'y restreint
+        // aussi pour que le résultat ne dépende pas du mode de stockage.
+        @Query(SELECT_RESUME + "WHERE a.estActive = true " +
+                        "AND EXISTS (SELECT asd.id FROM AnnonceStadeDistance asd " +
+                        "WHERE asd.annonce = a AND asd.estLePlusProche = true " +
+                        "AND asd.stade.nom LIKE %:stade%) " +
+                        "AND (:curseurDate IS NULL OR a.dateCreation < :curseurDate " +
+                        "OR (a.dateCreation = :curseurDate AND a.id < :curseurId)) " +
+                        "ORDER BY a.dateCreation DESC, a.id DESC")
+        List<AnnonceSummaryDTO> findPageParStade(
+                        @Param("stade") String stade,
+                        @Param("curseurDate") LocalDateTime curseurDate,
+                        @Param("curseurId") UUID curseurId,
+                        Pageable pageable);
+
+        // Annonces à moins de :minutes d'un stade pour un mode de transport, les plus
+        // proches en temps d'abord. Lecture par l'index idx_asd_isochrone (stade,
+        // mode, bande) ; les champs stade du résumé désignent le stade demandé.
+        @Query("SELECT new com.example.Impression.dto.AnnonceSummaryDTO(" +
+                        "a.id, a.titre, a.prixParNuit, a.capacite, a.noteMoyenne, ad.ville, a.imageIds, a.images, " +
+                        "s.id, s.nom, d.distance, d.tempsTrajetMinutes, a.dateCreation) " +
+                        "FROM AnnonceStadeDistance d JOIN d.stade s JOIN d.annonce a JOIN a.adresse ad " +
+                        "WHERE s.id = :stadeId AND d.modeTransport = :mode " +
+                        "AND d.bandeIsochrone <= :bande AND d.tempsTrajetMinutes <= :minutes " +
+                        "AND a.estActive = true " +
+                        "AND (:curseurTemps IS NULL OR d.tempsTrajetMinutes > :curseurTemps " +
+                        "OR (d.tempsTrajetMinutes = :curseurTemps AND a.id > :curseurId)) " +
+                        "ORDER BY d.tempsTrajetMinutes ASC, a.id ASC")
+        List<AnnonceSummaryDTO> findPageIsochrone(
+                        @Param("stadeId") UUID stadeId,
+                        @Param("mode") ModeTransport mode,
+                        @Param("bande") int bande,
+                        @Param("minutes") int minutes,
+                        @Param("curseurTemps") Integer curseurTemps,
+                        @Param("curseurId") UUID curseurId,
+                        Pageable pageable);
+
+        // Annonces géolocalisées par id croissant, tranche par tranche (recalcul des
+        // distances vers un stade, RecalculStadeService)
+        @Query("SELECT a FROM Annonce a WHERE a.latitude IS NOT NULL AND a.longitude IS NOT NULL " +
+                        "AND (:curseur IS NULL OR a.id > :curseur) ORDER BY a.id ASC")
+        List<Annonce> findGeolocaliseesApres(@Param("curseur") UUID curseur, Pageable pageable);
+
+        @Query("SELECT COUNT(a) FROM Annonce a WHERE a.latitude IS NOT NULL AND a.longitude IS NOT NULL")
+        long countGeolocalisees();
 
         // Compter les annonces d'un locateur
         long countByLocateur(Locateur locateur);
@@ -66,49 +202,47 @@ public interface AnnonceRepository extends JpaRepository<Annonce, UUID> {
         // Compter les annonces actives d'un locateur
         long countByLocateurAndEstActiveTrue(Locateur locateur);
 
-        // Recherche par rayon géographique
-        @Query("SELECT a FROM Annonce a WHERE a.estActive = true " +
-                        "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL " +
-                        "AND (6371 * acos(cos(radians(:latitude)) * cos(radians(a.latitude)) * " +
-                        "cos(radians(a.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-                        "sin(radians(a.latitude)))) <= :rayonKm")
-        List<Annonce> findByRayonGeographique(
-                        @Param("latitude") BigDecimal latitude,
-                        @Param("longitude") BigDecimal longitude,
-                        @Param("rayonKm") double rayonKm);
-
-        // Recherche par zone géographique (rectangle)
-        @Query("SELECT a FROM Annonce a WHERE a.estActive = true " +
-                        "AND a.latitude BETWEEN :latMin AND :latMax " +
-                        "AND a.longitude BETWEEN :lonMin AND :lonMax")
-        List<Annonce> findByZoneGeographique(
-                        @Param("latMin") BigDecimal latMin,
-                        @Param("latMax") BigDecimal latMax,
-                        @Param("lonMin") BigDecimal lonMin,
-                        @Param("lonMax") BigDecimal lonMax);
-
-        // Recherche par proximité d'un point (triée par distance)
-        @Query("SELECT a, (6371 * acos(cos(radians(:latitude)) * cos(radians(a.latitude)) * " +
-                        "cos(radians(a.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-                        "sin(radians(a.latitude)))) as distance " +
-                        "FROM Annonce a WHERE a.estActive = true " +
-                        "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL " +
-                        "ORDER BY distance")
-        List<Object[]> findByProximite(
-                        @Param("latitude") BigDecimal latitude,
-                        @Param("longitude") BigDecimal longitude);
-
-        // Recherche par proximité avec limite de distance
-        @Query("SELECT a FROM Annonce a WHERE a.estActive = true " +
-                        "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL " +
-                        "AND (6371 * acos(cos(radians(:latitude)) * cos(radians(a.latitude)) * " +
-                        "cos(radians(a.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-                        "sin(radians(a.latitude)))) <= :distanceMax " +
-                        "ORDER BY (6371 * acos(cos(radians(:latitude)) * cos(radians(a.latitude)) * " +
-                        "cos(radians(a.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-                        "sin(radians(a.latitude))))")
-        List<Annonce> findByProximiteAvecLimite(
-                        @Param("latitude") BigDecimal latitude,
-                        @Param("longitude") BigDecimal longitude,
-                        @Param("distanceMax") double distanceMax);
+        // Coordonnées des annonces actives, pour le chargement de l'index spatial en
+        // mémoire (IndexGeographiqueService)
+        @Query("SELECT a.id, a.latitude, a.longitude FROM Annonce a WHERE a.estActive = true " +
+                        "AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL")
+        List<Object[]> findCoordonneesAnnoncesActives();
+
+        // Marqueurs des annonces actives (id, latitude, longitude, prix, titre),
+        // pour le chargement de l'index de la carte (IndexCarteService)
+        @Query("SELECT a.id, a.latitude, a.longitude, a.prixParNuit, a.titre FROM Annonce a " +
+                        "WHERE a.estActive = true AND a.latitude IS NOT NULL AND a.longitude IS NOT NULL")
+        List<Object[]> findMarqueursAnnoncesActives();
+
+        // Valeurs indexées par IndexFacettesService : id, type, ville, prix,
+        // capacité, équipements libres, date de création, masque des équipements
+        // du catalogue des annonces actives
+        @Query("SELECT a.id, a.typeMaison, ad.ville, a.prixParNuit, a.capacite, a.equipements, a.dateCreation, " +
+                        "a.equipementsMasque FROM Annonce a JOIN a.adresse ad WHERE a.estActive = true")
+        List<Object[]> findFacettesAnnoncesActives();
+
+        // Textes indexés par IndexTexteService : id, titre, description, ville,
+        // équipements libres et masque des équipements du catalogue des annonces actives
+        @Query("SELECT a.id, a.titre, a.description, ad.ville, a.equipements, a.equipementsMasque " +
+                        "FROM Annonce a JOIN a.adresse ad WHERE a.estActive = true")
+        List<Object[]> findTexteAnnoncesActives();
+
+        // Adresses des annonces actives pour IndexAutocompletionService : id,
+        // ville, rue, complément
+        @Query("SELECT a.id, ad.ville, ad.rue, ad.complement " +
+                        "FROM Annonce a JOIN a.adresse ad WHERE a.estActive = true")
+        List<Object[]> findAdressesAnnoncesActives();
+
+        // Annonces dont les équipements n'ont pas encore été répartis, par id
+        // croissant : id, équipements
+        @Query("SELECT a.id, a.equipements FROM Annonce a WHERE a.equipementsRepartis = false " +
+                        "AND (:curseur IS NULL OR a.id > :curseur) ORDER BY a.id")
+        List<Object[]> findEquipementsNonRepartisApres(@Param("curseur") UUID curseur, Pageable pageable);
+
+        // Répartition migrée : l'annonce n'est plus relue, même sans équipement reconnu
+        @Modifying
+        @Query("UPDATE Annonce a SET a.equipementsMasque = :masque, a.equipements = :libres, " +
+                        "a.equipementsRepartis = true WHERE a.id = :id")
+        int definirEquipements(@Param("id") UUID id, @Param("masque") long masque,
+                        @Param("libres") List<String> libres);
 }
\ No newline at end of file
@@ -3,11 +3,14 @@ package com.example.Impression.repositories;
 import com.example.Impression.entities.AnnonceStadeDistance;
 import com.example.Impression.entities.Annonce;
 import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.ModeTransport;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,6 +21,12 @@ public interface AnnonceStadeDistanceRepository extends JpaRepository<AnnonceSta
     // Trouver toutes les distances pour une annonce
     List<AnnonceStadeDistance> findByAnnonceOrderByDistanceAsc(Annonce annonce);
 
+    // Distances de plusieurs annonces, stade chargé dans la même requête
+    // (assemblage des DTO par lot)
+    @Query("SELECT asd FROM AnnonceStadeDistance asd JOIN FETCH asd.stade " +
+            "WHERE asd.annonce.id IN :annonceIds ORDER BY asd.distance ASC")
+    List<AnnonceStadeDistance> findAvecStadeByAnnonceIdIn(@Param("annonceIds") Collection<UUID> annonceIds);
+
     // Trouver toutes les distances pour un stade
     List<AnnonceStadeDistance> findByStadeOrderByDistanceAsc(Stade stade);
 
@@ -44,7 +53,48 @@ public interface AnnonceStadeDistanceRepository extends JpaRepository<AnnonceSta
     List<AnnonceStadeDistance> findByAnnonceAndTempsTrajetMaximum(@Param("annonce") Annonce annonce,
             @Param("tempsMaxMinutes") Integer tempsMaxMinutes);
 
+    // Distances d'une tranche d'annonces vers un stade (recalcul après modification du stade)
+    @Modifying
+    @Query("DELETE FROM AnnonceStadeDistance asd WHERE asd.stade.id = :stadeId AND asd.annonce.id IN :annonceIds")
+    int supprimerParStadeEtAnnonces(@Param("stadeId") UUID stadeId,
+            @Param("annonceIds") Collection<UUID> annonceIds);
+
+    // Toutes les distances d'une tranche d'annonces (stockage COMPACT : lignes
+    // des plus proches)
+    @Modifying
+    @Query("DELETE FROM AnnonceStadeDistance asd WHERE asd.annonce.id IN :annonceIds")
+    int supprimerParAnnonces(@Param("annonceIds") Collection<UUID> annonceIds);
+
+    // Passage au stockage COMPACT : seules les lignes des plus proches restent
+    @Modifying
+    @Query("DELETE FROM AnnonceStadeDistance asd WHERE asd.annonce.id IN :annonceIds " +
+            "AND asd.estLePlusProche = false")
+    int supprimerSaufPlusProches(@Param("annonceIds") Collection<UUID> annonceIds);
+
+    // Stade le plus proche actuel de chaque annonce d'une tranche
+    @Query("SELECT asd FROM AnnonceStadeDistance asd WHERE asd.annonce.id IN :annonceIds " +
+            "AND asd.estLePlusProche = true")
+    List<AnnonceStadeDistance> findPlusProchesByAnnonceIdIn(@Param("annonceIds") Collection<UUID> annonceIds);
+
+    // Distances d'un mode pour plusieurs annonces, les plus courtes d'abord
+    @Query("SELECT asd FROM AnnonceStadeDistance asd WHERE asd.annonce.id IN :annonceIds " +
+            "AND asd.modeTransport = :mode ORDER BY asd.distance ASC")
+    List<AnnonceStadeDistance> findByAnnonceIdInAndMode(@Param("annonceIds") Collection<UUID> annonceIds,
+            @Param("mode") ModeTransport mode);
+
+    // Classer dans la bande donnée les trajets sans bande de durée dans ]min, bande]
+    @Modifying
+    @Query("UPDATE AnnonceStadeDistance asd SET asd.bandeIsochrone = :bande " +
+            "WHERE asd.bandeIsochrone IS NULL AND asd.tempsTrajetMinutes > :min " +
+            "AND asd.tempsTrajetMinutes <= :bande")
+    int classerDansBande(@Param("bande") int bande, @Param("min") int min);
+
     // Statistiques : distance moyenne vers un stade
     @Query("SELECT AVG(asd.distance) FROM AnnonceStadeDistance asd WHERE asd.stade = :stade")
     Double getDistanceMoyenneVersStade(@Param("stade") Stade stade);
+
+    // Nombre d'annonces actives dont chaque stade est le plus proche (popularité)
+    @Query("SELECT asd.stade.id, COUNT(asd) FROM AnnonceStadeDistance asd " +
+            "WHERE asd.estLePlusProche = true AND asd.annonce.estActive = true GROUP BY asd.stade.id")
+    List<Object[]> compterAnnoncesActivesParStadeLePlusProche();
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.DistanceCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DistanceCacheRepository extends JpaRepository<DistanceCache, UUID> {
+
+    // Mesures de plusieurs cellules pour plusieurs stades
+    List<DistanceCache> findByGeohashInAndStadeIdIn(Collection<String> geohashes, Collection<UUID> stadeIds);
+
+    @Modifying
+    @Query("DELETE FROM DistanceCache d WHERE d.dateCalcul < :limite")
+    int supprimerExpirees(@Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("DELETE FROM DistanceCache d WHERE d.stadeId = :stadeId")
+    int supprimerParStade(@Param("stadeId") UUID stadeId);
+}
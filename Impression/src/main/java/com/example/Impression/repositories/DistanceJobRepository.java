@@ -0,0 +1,81 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.DistanceJob;
+import com.example.Impression.enums.StatutDistanceJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DistanceJobRepository extends JpaRepository<DistanceJob, UUID> {
+
+    boolean existsByStatut(StatutDistanceJob statut);
+
+    List<DistanceJob> findByProprietaireAndStatut(String proprietaire, StatutDistanceJob statut);
+
+    // Plus anciennes demandes d'un statut (candidates à la réservation)
+    @Query("SELECT j.id FROM DistanceJob j WHERE j.statut = :statut ORDER BY j.dateDemande ASC")
+    List<UUID> findIdsParStatut(@Param("statut") StatutDistanceJob statut, Pageable pageable);
+
+    // Réservation : seules les lignes encore en attente passent au worker
+    @Modifying
+    @Query("UPDATE DistanceJob j SET j.statut = :enCours, j.proprietaire = :proprietaire, " +
+            "j.dateReservation = :date WHERE j.id IN :ids AND j.statut = :enAttente")
+    int reserver(@Param("ids") Collection<UUID> ids, @Param("proprietaire") String proprietaire,
+            @Param("date") LocalDateTime date, @Param("enAttente") StatutDistanceJob enAttente,
+            @Param("enCours") StatutDistanceJob enCours);
+
+    // Fin de traitement, sauf si une relance a été demandée entre-temps
+    @Modifying
+    @Query("DELETE FROM DistanceJob j WHERE j.id = :id AND j.proprietaire = :proprietaire " +
+            "AND j.relanceDemandee = false")
+    int supprimerTerminee(@Param("id") UUID id, @Param("proprietaire") String proprietaire);
+
+    // Remettre en attente (relance demandée ou nouvel essai)
+    @Modifying
+    @Query("UPDATE DistanceJob j SET j.statut = :statut, j.proprietaire = NULL, j.relanceDemandee = false, " +
+            "j.tentatives = :tentatives, j.dernierMessage = :message, j.dateDemande = :date " +
+            "WHERE j.id = :id AND j.proprietaire = :proprietaire")
+    int rendre(@Param("id") UUID id, @Param("proprietaire") String proprietaire,
+            @Param("statut") StatutDistanceJob statut, @Param("tentatives") int tentatives,
+            @Param("message") String message, @Param("date") LocalDateTime date);
+
+    // Nouvelle demande sur une ligne existante non réservée
+    @Modifying
+    @Query("UPDATE DistanceJob j SET j.statut = :enAttente, j.tentatives = 0, j.dernierMessage = NULL, " +
+            "j.dateDemande = :date WHERE j.annonceId = :annonceId AND j.statut <> :enCours")
+    int remettreEnAttente(@Param("annonceId") UUID annonceId, @Param("date") LocalDateTime date,
+            @Param("enAttente") StatutDistanceJob enAttente, @Param("enCours") StatutDistanceJob enCours);
+
+    // Nouvelle demande sur une ligne en cours de calcul
+    @Modifying
+    @Query("UPDATE DistanceJob j SET j.relanceDemandee = true WHERE j.annonceId = :annonceId " +
+            "AND j.statut = :enCours")
+    int demanderRelance(@Param("annonceId") UUID annonceId, @Param("enCours") StatutDistanceJob enCours);
+
+    // Réservations abandonnées (worker arrêté en plein calcul)
+    @Modifying
+    @Query("UPDATE DistanceJob j SET j.statut = :enAttente, j.proprietaire = NULL " +
+            "WHERE j.statut = :enCours AND j.dateReservation < :limite")
+    int libererAbandonnees(@Param("limite") LocalDateTime limite, @Param("enAttente") StatutDistanceJob enAttente,
+            @Param("enCours") StatutDistanceJob enCours);
+
+    // Annonces dont les distances sont en attente de calcul
+    @Query("SELECT j.annonceId FROM DistanceJob j WHERE j.annonceId IN :annonceIds AND j.statut <> :echec")
+    List<UUID> findAnnonceIdsEnAttente(@Param("annonceIds") Collection<UUID> annonceIds,
+            @Param("echec") StatutDistanceJob echec);
+
+    // Annonces géolocalisées sans distances ni demande (données antérieures à la file)
+    @Query("SELECT a.id FROM Annonce a WHERE a.latitude IS NOT NULL AND a.longitude IS NOT NULL " +
+            "AND NOT EXISTS (SELECT d.id FROM AnnonceStadeDistance d WHERE d.annonce = a) " +
+            "AND NOT EXISTS (SELECT j.id FROM DistanceJob j WHERE j.annonceId = a.id)")
+    List<UUID> findAnnonceIdsSansDistances(Pageable pageable);
+}
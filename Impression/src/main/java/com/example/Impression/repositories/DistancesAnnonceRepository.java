@@ -0,0 +1,31 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.DistancesAnnonce;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DistancesAnnonceRepository extends JpaRepository<DistancesAnnonce, UUID> {
+
+    // Parcours par tranches dans l'ordre des id (chargement de l'index en mémoire)
+    @Query("SELECT d FROM DistancesAnnonce d WHERE (:curseur IS NULL OR d.annonceId > :curseur) " +
+            "ORDER BY d.annonceId ASC")
+    List<DistancesAnnonce> findApres(@Param("curseur") UUID curseur, Pageable pageable);
+
+    // Annonces ayant des lignes annonce_stade_distances mais pas encore de ligne
+    // compacte (passage au stockage COMPACT)
+    @Query("SELECT DISTINCT asd.annonce.id FROM AnnonceStadeDistance asd WHERE NOT EXISTS " +
+            "(SELECT d.annonceId FROM DistancesAnnonce d WHERE d.annonceId = asd.annonce.id)")
+    List<UUID> findAnnonceIdsACompacter(Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM DistancesAnnonce d WHERE d.annonceId = :annonceId")
+    int supprimerParAnnonce(@Param("annonceId") UUID annonceId);
+}
@@ -0,0 +1,9 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.ImageAsset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImageAssetRepository extends JpaRepository<ImageAsset, String> {
+}
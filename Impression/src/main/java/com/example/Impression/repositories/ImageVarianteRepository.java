@@ -0,0 +1,36 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.ImageVariante;
+import com.example.Impression.enums.TailleImage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ImageVarianteRepository extends JpaRepository<ImageVariante, UUID> {
+
+    // Variantes de plusieurs images (assemblage des DTO par lot)
+    List<ImageVariante> findBySourceHashIn(Collection<String> sourceHashes);
+
+    // Variantes d'une taille donnée pour plusieurs images (couvertures des listes)
+    List<ImageVariante> findBySourceHashInAndTaille(Collection<String> sourceHashes, TailleImage taille);
+
+    // Tailles déjà générées pour une image
+    @Query("SELECT v.taille FROM ImageVariante v WHERE v.sourceHash = :sourceHash")
+    List<TailleImage> findTaillesBySourceHash(@Param("sourceHash") String sourceHash);
+
+    // Images d'origine auxquelles il manque au moins une taille (ni elles-mêmes
+    // variantes), hors images illisibles : chaque balayage avance vers les plus
+    // récentes
+    @Query("SELECT a.hash FROM ImageAsset a WHERE a.typeContenu LIKE 'image/%' AND a.illisible = false " +
+            "AND (SELECT COUNT(v) FROM ImageVariante v WHERE v.sourceHash = a.hash) < :nombreTailles " +
+            "AND NOT EXISTS (SELECT v.id FROM ImageVariante v WHERE v.varianteHash = a.hash) " +
+            "ORDER BY a.dateCreation ASC")
+    List<String> findHashesVariantesIncompletes(@Param("nombreTailles") long nombreTailles, Pageable pageable);
+}
@@ -0,0 +1,27 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.NuitReservee;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NuitReserveeRepository extends JpaRepository<NuitReservee, UUID> {
+
+    @Modifying
+    @Query("DELETE FROM NuitReservee n WHERE n.reservationId = :reservationId")
+    int supprimerParReservation(@Param("reservationId") UUID reservationId);
+
+    // Annonces, parmi celles données, dont une nuit de [dateArrivee, dateDepart) est prise
+    @Query("SELECT DISTINCT n.annonceId FROM NuitReservee n WHERE n.annonceId IN :annonceIds " +
+            "AND n.nuit >= :dateArrivee AND n.nuit < :dateDepart")
+    List<UUID> findAnnoncesOccupees(@Param("annonceIds") Collection<UUID> annonceIds,
+            @Param("dateArrivee") LocalDate dateArrivee, @Param("dateDepart") LocalDate dateDepart);
+}
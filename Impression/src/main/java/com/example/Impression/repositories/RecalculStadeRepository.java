@@ -0,0 +1,68 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.entities.RecalculStade;
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface RecalculStadeRepository extends JpaRepository<RecalculStade, UUID> {
+
+    Optional<RecalculStade> findByStadeId(UUID stadeId);
+
+    List<RecalculStade> findAllByOrderByDateDemandeDesc(Pageable pageable);
+
+    List<RecalculStade> findByProprietaireAndStatut(String proprietaire, StatutRecalculStade statut);
+
+    // Nouvelle modification du stade : le parcours repart du début
+    @Modifying
+    @Query("UPDATE RecalculStade r SET r.type = :type, r.statut = :enAttente, r.curseur = null, " +
+            "r.total = 0, r.traitees = 0, r.tentatives = 0, r.proprietaire = null, r.dateDemande = :date, " +
+            "r.dateReservation = null, r.dateFin = null, r.dernierMessage = null WHERE r.stadeId = :stadeId")
+    int relancer(@Param("stadeId") UUID stadeId, @Param("type") TypeRecalculStade type,
+            @Param("date") LocalDateTime date, @Param("enAttente") StatutRecalculStade enAttente);
+
+    // Recalculs en attente, ou réservés par une instance qui ne donne plus signe de vie
+    @Query("SELECT r.id FROM RecalculStade r WHERE r.statut = :enAttente " +
+            "OR (r.statut = :enCours AND r.dateReservation < :limite) ORDER BY r.dateDemande ASC")
+    List<UUID> findIdsAReserver(@Param("enAttente") StatutRecalculStade enAttente,
+            @Param("enCours") StatutRecalculStade enCours, @Param("limite") LocalDateTime limite,
+            Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE RecalculStade r SET r.statut = :enCours, r.proprietaire = :proprietaire, " +
+            "r.dateReservation = :date WHERE r.id = :id AND (r.statut = :enAttente " +
+            "OR (r.statut = :enCours AND r.dateReservation < :limite))")
+    int reserver(@Param("id") UUID id, @Param("proprietaire") String proprietaire,
+            @Param("date") LocalDateTime date, @Param("limite") LocalDateTime limite,
+            @Param("enAttente") StatutRecalculStade enAttente, @Param("enCours") StatutRecalculStade enCours);
+
+    // Avancement d'une tranche ; 0 si le recalcul a été relancé ou repris entre-temps
+    @Modifying
+    @Query("UPDATE RecalculStade r SET r.curseur = :curseur, r.traitees = r.traitees + :traitees, " +
+            "r.total = :total, r.dateReservation = :date " +
+            "WHERE r.id = :id AND r.proprietaire = :proprietaire AND r.statut = :enCours")
+    int avancer(@Param("id") UUID id, @Param("proprietaire") String proprietaire,
+            @Param("curseur") UUID curseur, @Param("traitees") long traitees, @Param("total") long total,
+            @Param("date") LocalDateTime date, @Param("enCours") StatutRecalculStade enCours);
+
+    // Fin (TERMINE) ou remise en attente / abandon après une erreur
+    @Modifying
+    @Query("UPDATE RecalculStade r SET r.statut = :statut, r.tentatives = :tentatives, " +
+            "r.dernierMessage = :message, r.proprietaire = null, r.dateFin = :dateFin " +
+            "WHERE r.id = :id AND r.proprietaire = :proprietaire AND r.statut = :enCours")
+    int rendre(@Param("id") UUID id, @Param("proprietaire") String proprietaire,
+            @Param("statut") StatutRecalculStade statut, @Param("tentatives") int tentatives,
+            @Param("message") String message, @Param("dateFin") LocalDateTime dateFin,
+            @Param("enCours") StatutRecalculStade enCours);
+}
@@ -2,6 +2,7 @@ package com.example.Impression.repositories;
 
 import com.example.Impression.entities.Reservation;
 import com.example.Impression.enums.StatutReservation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -41,6 +42,32 @@ public interface ReservationRepository extends JpaRepository<Reservation, UUID>
                         @Param("dateArrivee") LocalDate dateArrivee,
                         @Param("dateDepart") LocalDate dateDepart);
 
+        // Même test sans charger les réservations
+        @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END FROM Reservation r " +
+                        "WHERE r.annonce.id = :annonceId " +
+                        "AND r.statut IN ('CONFIRMEE', 'EN_COURS') " +
+                        "AND NOT (r.dateDepart <= :dateArrivee OR r.dateArrivee >= :dateDepart)")
+        boolean existsConflitReservation(@Param("annonceId") UUID annonceId,
+                        @Param("dateArrivee") LocalDate dateArrivee,
+                        @Param("dateDepart") LocalDate dateDepart);
+
+        // Séjours (arrivée, départ) des réservations de statuts donnés finissant
+        // après une date (bitmaps de DisponibiliteService)
+        @Query("SELECT r.dateArrivee, r.dateDepart FROM Reservation r WHERE r.annonce.id = :annonceId " +
+                        "AND r.statut IN :statuts AND r.dateDepart > :apres")
+        List<Object[]> findSejoursActifs(@Param("annonceId") UUID annonceId,
+                        @Param("apres") LocalDate apres,
+                        @Param("statuts") List<StatutReservation> statuts);
+
+        // Réservations de statuts donnés sans nuits enregistrées (id, annonce,
+        // arrivée, départ), par id croissant après le curseur
+        @Query("SELECT r.id, r.annonce.id, r.dateArrivee, r.dateDepart FROM Reservation r " +
+                        "WHERE r.statut IN :statuts AND (:curseur IS NULL OR r.id > :curseur) " +
+                        "AND NOT EXISTS (SELECT n.id FROM NuitReservee n WHERE n.reservationId = r.id) " +
+                        "ORDER BY r.id")
+        List<Object[]> findSansNuitsApres(@Param("curseur") UUID curseur,
+                        @Param("statuts") List<StatutReservation> statuts, Pageable pageable);
+
         // Trouver les réservations actives pour une période donnée
         @Query("SELECT r FROM Reservation r WHERE r.annonce.id = :annonceId " +
                         "AND r.statut IN ('CONFIRMEE', 'EN_COURS') " +
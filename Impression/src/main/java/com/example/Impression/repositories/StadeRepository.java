@@ -3,8 +3,10 @@ package com.example.Impression.repositories;
 import com.example.Impression.entities.Stade;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,6 +26,10 @@ public interface StadeRepository extends JpaRepository<Stade, UUID> {
     // Trouver le stade par nom exact
     Optional<Stade> findByNom(String nom);
 
+    // Initialiser les catégories de plusieurs stades en une requête
+    @Query("SELECT DISTINCT s FROM Stade s LEFT JOIN FETCH s.categoriesPlaces WHERE s.id IN :ids")
+    List<Stade> findAvecCategoriesByIdIn(@Param("ids") Collection<UUID> ids);
+
     // Compter le nombre de stades actifs
     long countByEstActifTrue();
 
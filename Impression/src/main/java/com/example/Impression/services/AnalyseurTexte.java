@@ -0,0 +1,203 @@
+package com.example.Impression.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Analyse du texte des annonces pour l'index plein texte : découpage en mots
+ * (avec leur position dans le texte d'origine, pour le surlignage), pliage de
+ * la casse et des accents, mots vides, racinisation légère du français et
+ * translittération de l'arabe en lettres latines.
+ *
+ * Chaque mot produit sa racine et, pour rapprocher les graphies latine et
+ * arabe d'un même nom (مراكش / Marrakech, الرباط / Rabat), un squelette
+ * consonantique préfixé par PREFIXE_SQUELETTE.
+ */
+public final class AnalyseurTexte {
+
+    public static final String PREFIXE_SQUELETTE = "~";
+
+    private static final Set<String> MOTS_VIDES = Set.of(
+            "a", "au", "aux", "avec", "ce", "ces", "cet", "cette", "d", "dans", "de", "des", "du", "elle", "en",
+            "est", "et", "il", "ils", "j", "l", "la", "le", "les", "leur", "lui", "m", "ma", "mais", "me", "mes",
+            "mon", "n", "ne", "nos", "notre", "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "s",
+            "sa", "se", "ses", "son", "sont", "sur", "t", "ta", "te", "tes", "ton", "tres", "un", "une", "vos",
+            "votre", "vous", "y",
+            // Mots outils arabes, après translittération
+            "fi", "mn", "min", "ala", "ila", "an", "hdha", "hiya", "houa");
+
+    // Article et proclitiques arabes retirés en tête de mot
+    private static final String[] PREFIXES_ARABES = { "وال", "بال", "فال", "كال", "لل", "ال" };
+
+    /**
+     * Terme d'index et position [debut, fin) du mot dont il provient dans le
+     * texte analysé
+     */
+    public record Terme(String texte, int debut, int fin) {
+    }
+
+    private AnalyseurTexte() {
+    }
+
+    /**
+     * Termes d'un texte dans l'ordre : pour chaque mot retenu, sa racine puis
+     * son squelette s'il en a un
+     */
+    public static List<Terme> analyser(String texte) {
+        List<Terme> termes = new ArrayList<>();
+        if (texte == null) {
+            return termes;
+        }
+        int i = 0;
+        int n = texte.length();
+        while (i < n) {
+            if (!estDansMot(texte.charAt(i))) {
+                i++;
+                continue;
+            }
+            int debut = i;
+            while (i < n && estDansMot(texte.charAt(i))) {
+                i++;
+            }
+            String mot = texte.substring(debut, i);
+            boolean arabe = contientArabe(mot);
+            String latin = arabe ? translitterer(mot) : plier(mot);
+            if (latin.length() < 2 || MOTS_VIDES.contains(latin)) {
+                continue;
+            }
+            String forme = arabe ? latin : racine(latin);
+            termes.add(new Terme(forme, debut, i));
+            String squelette = squelette(forme);
+            if (squelette != null) {
+                termes.add(new Terme(PREFIXE_SQUELETTE + squelette, debut, i));
+            }
+        }
+        return termes;
+    }
+
+    private static boolean estDansMot(char c) {
+        int type = Character.getType(c);
+        return Character.isLetterOrDigit(c) || type == Character.NON_SPACING_MARK || c == 'ـ';
+    }
+
+    private static boolean contientArabe(String mot) {
+        for (int i = 0; i < mot.length(); i++) {
+            if (Character.UnicodeBlock.of(mot.charAt(i)) == Character.UnicodeBlock.ARABIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Minuscules sans accents ni ligatures
+    static String plier(String mot) {
+        String sansAccents = Normalizer.normalize(mot, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sansAccents.toLowerCase(Locale.ROOT).replace("œ", "oe").replace("æ", "ae").replace("ß", "ss");
+    }
+
+    // ========== FRANÇAIS ==========
+
+    /**
+     * Racinisation légère : pluriel, féminin et quelques finales d'adjectifs
+     * (chevaux → cheval, climatisées → climatis, sportive → sportif,
+     * parisienne → parisien). Les mots courts sont laissés tels quels.
+     */
+    static String racine(String mot) {
+        String r = mot;
+        if (r.length() > 5 && r.endsWith("aux")) {
+            r = r.substring(0, r.length() - 3) + "al";
+        } else if (r.length() > 3 && (r.endsWith("s") || r.endsWith("x")) && !r.endsWith("ss")) {
+            r = r.substring(0, r.length() - 1);
+        }
+        for (int k = 0; k < 2 && r.length() > 4 && r.endsWith("e"); k++) {
+            r = r.substring(0, r.length() - 1);
+        }
+        if (r.length() > 4 && r.endsWith("iv")) {
+            r = r.substring(0, r.length() - 1) + "f";
+        } else if (r.length() > 4 && r.endsWith("eus")) {
+            r = r.substring(0, r.length() - 1);
+        }
+        int l = r.length();
+        if (l > 4 && r.charAt(l - 1) == r.charAt(l - 2) && "lnt".indexOf(r.charAt(l - 1)) >= 0) {
+            r = r.substring(0, l - 1);
+        }
+        return r;
+    }
+
+    // ========== ARABE ==========
+
+    // Translittération d'un mot arabe, sans voyelles brèves ni article
+    static String translitterer(String mot) {
+        String sansHarakat = Normalizer.normalize(mot, Normalizer.Form.NFD).replaceAll("\\p{M}", "")
+                .replace("ـ", "");
+        for (String prefixe : PREFIXES_ARABES) {
+            if (sansHarakat.startsWith(prefixe) && sansHarakat.length() - prefixe.length() >= 2) {
+                sansHarakat = sansHarakat.substring(prefixe.length());
+                break;
+            }
+        }
+        StringBuilder latin = new StringBuilder();
+        for (int i = 0; i < sansHarakat.length(); i++) {
+            latin.append(lettreLatine(sansHarakat.charAt(i)));
+        }
+        return latin.toString();
+    }
+
+    private static String lettreLatine(char c) {
+        return switch (c) {
+            case 'ا', 'أ', 'إ', 'آ', 'ٱ', 'ى', 'ة' -> "a";
+            case 'ب' -> "b";
+            case 'ت', 'ث', 'ط' -> "t";
+            case 'ج' -> "j";
+            case 'ح', 'ه' -> "h";
+            case 'خ' -> "kh";
+            case 'د', 'ذ', 'ض' -> "d";
+            case 'ر' -> "r";
+            case 'ز', 'ظ' -> "z";
+            case 'س', 'ص' -> "s";
+            case 'ش' -> "ch";
+            case 'غ' -> "gh";
+            case 'ف' -> "f";
+            case 'ڤ' -> "v";
+            case 'ق', 'ك' -> "k";
+            case 'گ' -> "g";
+            case 'ل' -> "l";
+            case 'م' -> "m";
+            case 'ن' -> "n";
+            case 'و' -> "ou";
+            case 'ي', 'ئ' -> "i";
+            case 'پ' -> "p";
+            case 'ء', 'ؤ', 'ع' -> "";
+            default -> c >= '٠' && c <= '٩' ? String.valueOf((char) ('0' + (c - '٠'))) : "";
+        };
+    }
+
+    /**
+     * Squelette consonantique d'un mot latin : graphies proches unifiées
+     * (sh/ch, q/k, g/k, c dur), voyelles, h et w retirés, doubles consonnes
+     * réduites. Null s'il reste moins de deux consonnes ou si le mot contient
+     * des chiffres.
+     */
+    static String squelette(String latin) {
+        String s = latin.replace("sh", "ch").replace("ph", "f").replace("dh", "d").replace("th", "t")
+                .replace("kh", "K").replace("gh", "G").replace("ch", "C").replace("q", "k").replace("g", "k")
+                .replaceAll("c(?=[eiy])", "s").replace("c", "k");
+        StringBuilder consonnes = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isDigit(c)) {
+                return null;
+            }
+            if ("aeiouyhw".indexOf(c) >= 0) {
+                continue;
+            }
+            if (consonnes.length() == 0 || consonnes.charAt(consonnes.length() - 1) != c) {
+                consonnes.append(c);
+            }
+        }
+        return consonnes.length() >= 2 ? consonnes.toString() : null;
+    }
+}
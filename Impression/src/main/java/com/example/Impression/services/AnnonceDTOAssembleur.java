@@ -0,0 +1,308 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.AdresseDTO;
+import com.example.Impression.dto.AnnonceDTO;
+import com.example.Impression.dto.AnnonceStadeDistanceDTO;
+import com.example.Impression.dto.CategorieStadeDTO;
+import com.example.Impression.dto.ImageVariantesDTO;
+import com.example.Impression.dto.LocateurInfoDTO;
+import com.example.Impression.dto.StadeDTO;
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.AnnonceStadeDistance;
+import com.example.Impression.entities.CategorieStade;
+import com.example.Impression.entities.Locateur;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.AnnonceStadeDistanceRepository;
+import com.example.Impression.repositories.StadeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Assemble des AnnonceDTO complets par lot, en un nombre fixe de requêtes quel
+ * que soit le nombre d'annonces : annonces + adresses + locateurs, distances +
+ * stades, puis catégories des stades. Remplace les chargements paresseux
+ * annonce par annonce (adresse, locateur, distances, stade le plus proche,
+ * catégories de chaque stade).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnnonceDTOAssembleur {
+
+    private final AnnonceRepository annonceRepository;
+    private final AnnonceStadeDistanceRepository annonceStadeDistanceRepository;
+    private final StadeRepository stadeRepository;
+    private final AnnonceStadeDistanceService annonceStadeDistanceService;
+    private final ImageVariantesService imageVariantesService;
+    private final DistanceJobService distanceJobService;
+    private final StadeService stadeService;
+
+    // Charger et assembler des annonces par identifiants, dans l'ordre fourni
+    @Transactional(readOnly = true)
+    public List<AnnonceDTO> assemblerParIds(List<UUID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<UUID, Annonce> parId = annonceRepository.findAvecAdresseEtLocateurByIdIn(new LinkedHashSet<>(ids))
+                .stream()
+                .collect(Collectors.toMap(Annonce::getId, Function.identity()));
+        List<Annonce> annonces = ids.stream()
+                .map(parId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return assembler(annonces);
+    }
+
+    // Charger et assembler une annonce
+    @Transactional(readOnly = true)
+    public Optional<AnnonceDTO> assemblerParId(UUID id) {
+        return assemblerParIds(List.of(id)).stream().findFirst();
+    }
+
+    // Assembler des annonces déjà chargées (distances et stades chargés par lot)
+    @Transactional(readOnly = true)
+    public List<AnnonceDTO> assembler(List<Annonce> annonces) {
+        if (annonces.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<UUID> estimees = new HashSet<>();
+        Map<UUID, List<AnnonceStadeDistance>> distancesParAnnonce = chargerDistances(annonces, estimees);
+        Map<UUID, List<CategorieStadeDTO>> categoriesParStade = chargerCategories(distancesParAnnonce.values()
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+        Map<String, ImageVariantesDTO> variantes = imageVariantesService.variantesParImage(annonces.stream()
+                .map(Annonce::getImageIds)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .collect(Collectors.toSet()));
+
+        List<AnnonceDTO> dtos = new ArrayList<>(annonces.size());
+        for (Annonce annonce : annonces) {
+            AnnonceDTO dto = assemblerSansDistances(annonce, variantes);
+            List<AnnonceStadeDistance> distances = distancesParAnnonce.getOrDefault(annonce.getId(),
+                    Collections.emptyList());
+            dto.setDistancesStades(distances.stream()
+                    .map(d -> convertirDistance(d, categoriesParStade))
+                    .collect(Collectors.toList()));
+            distances.stream()
+                    .filter(d -> Boolean.TRUE.equals(d.getEstLePlusProche()))
+                    .findFirst()
+                    .ifPresent(d -> dto.setStadeLePlusProche(convertirDistance(d, categoriesParStade)));
+            dto.setDistancesPending(estimees.contains(annonce.getId()));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    @Transactional(readOnly = true)
+    public AnnonceDTO assembler(Annonce annonce) {
+        return assembler(List.of(annonce)).get(0);
+    }
+
+    // Champs propres à l'annonce, sans distances
+    private AnnonceDTO assemblerSansDistances(Annonce annonce, Map<String, ImageVariantesDTO> variantes) {
+        AnnonceDTO dto = new AnnonceDTO();
+        dto.setId(annonce.getId());
+        dto.setTitre(annonce.getTitre());
+        dto.setDescription(annonce.getDescription());
+        dto.setAdresse(convertirAdresse(annonce.getAdresse()));
+        dto.setPrixParNuit(annonce.getPrixParNuit());
+        dto.setPrixParSemaine(annonce.getPrixParSemaine());
+        dto.setPrixParMois(annonce.getPrixParMois());
+        dto.setCapacite(annonce.getCapacite());
+        dto.setNombreChambres(annonce.getNombreChambres());
+        dto.setNombreSallesDeBain(annonce.getNombreSallesDeBain());
+        dto.setTypeMaison(annonce.getTypeMaison());
+        dto.setEstActive(annonce.isEstActive());
+        dto.setDateCreation(annonce.getDateCreation());
+        dto.setDateModification(annonce.getDateModification());
+        dto.setEquipements(annonce.listeEquipements());
+        dto.setRegles(annonce.getRegles());
+        dto.setImages(annonce.getImages());
+        dto.setImageIds(annonce.getImageIds());
+        dto.setImageUrls(ImageStockageService.urls(annonce.getImageIds()));
+        dto.setImageVariantes(annonce.getImageIds() == null ? new ArrayList<>()
+                : annonce.getImageIds().stream()
+                        .map(variantes::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+        dto.setNoteMoyenne(annonce.getNoteMoyenne());
+        dto.setNombreAvis(annonce.getNombreAvis());
+        dto.setLocateur(convertirLocateur(annonce.getLocateur()));
+        dto.setLatitude(annonce.getLatitude());
+        dto.setLongitude(annonce.getLongitude());
+        return dto;
+    }
+
+    // Distances d'une annonce, stades et catégories chargés par lot
+    @Transactional(readOnly = true)
+    public List<AnnonceStadeDistanceDTO> assemblerDistances(Annonce annonce) {
+        List<AnnonceStadeDistance> distances = chargerDistances(List.of(annonce), new HashSet<>())
+                .getOrDefault(annonce.getId(), Collections.emptyList());
+        Map<UUID, List<CategorieStadeDTO>> categoriesParStade = chargerCategories(distances);
+        return distances.stream()
+                .map(d -> convertirDistance(d, categoriesParStade))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Une requête pour toutes les distances (et leurs stades) du lot, ou pour
+     * leurs lignes compactes en stockage COMPACT (stades lus dans la
+     * photographie en mémoire), une pour les demandes de calcul en attente.
+     * Une annonce en attente (ou géolocalisée sans distances) reçoit des
+     * estimations Haversine calculées en mémoire ; son id est ajouté à
+     * estimees. Aucun calcul routier ni écriture ici.
+     */
+    private Map<UUID, List<AnnonceStadeDistance>> chargerDistances(List<Annonce> annonces, Set<UUID> estimees) {
+        Set<UUID> ids = annonces.stream().map(Annonce::getId).collect(Collectors.toSet());
+        Map<UUID, List<AnnonceStadeDistance>> parAnnonce;
+        if (annonceStadeDistanceService.estCompact()) {
+            parAnnonce = annonceStadeDistanceService.lireDistancesCompactes(annonces);
+        } else {
+            parAnnonce = new HashMap<>();
+            for (AnnonceStadeDistance distance : annonceStadeDistanceRepository.findAvecStadeByAnnonceIdIn(ids)) {
+                parAnnonce.computeIfAbsent(distance.getAnnonce().getId(), k -> new ArrayList<>()).add(distance);
+            }
+        }
+
+        Set<UUID> enAttente = distanceJobService.annoncesEnAttente(ids);
+        StadeSnapshot stades = null;
+        for (Annonce annonce : annonces) {
+            boolean aEstimer = enAttente.contains(annonce.getId())
+                    || (!parAnnonce.containsKey(annonce.getId()) && annonce.getLatitude() != null
+                            && annonce.getLongitude() != null);
+            if (!aEstimer) {
+                continue;
+            }
+            if (stades == null) {
+                stades = stadeService.snapshot();
+            }
+            parAnnonce.put(annonce.getId(), annonceStadeDistanceService.estimerDistances(annonce, stades));
+            estimees.add(annonce.getId());
+        }
+        return parAnnonce;
+    }
+
+    // Une requête pour les catégories de tous les stades référencés
+    private Map<UUID, List<CategorieStadeDTO>> chargerCategories(List<AnnonceStadeDistance> distances) {
+        Set<UUID> stadeIds = distances.stream()
+                .map(AnnonceStadeDistance::getStade)
+                .filter(Objects::nonNull)
+                .map(Stade::getId)
+                .collect(Collectors.toSet());
+        if (stadeIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return stadeRepository.findAvecCategoriesByIdIn(stadeIds)
+                .stream()
+                .collect(Collectors.toMap(Stade::getId, s -> convertirCategories(s.getCategoriesPlaces())));
+    }
+
+    private AnnonceStadeDistanceDTO convertirDistance(AnnonceStadeDistance distance,
+            Map<UUID, List<CategorieStadeDTO>> categoriesParStade) {
+        AnnonceStadeDistanceDTO dto = new AnnonceStadeDistanceDTO();
+        dto.setId(distance.getId());
+        dto.setStade(convertirStade(distance.getStade(), categoriesParStade));
+        dto.setDistance(distance.getDistance());
+        dto.setTempsTrajetMinutes(distance.getTempsTrajetMinutes());
+        dto.setModeTransport(distance.getModeTransport().name());
+        dto.setEstLePlusProche(distance.getEstLePlusProche());
+        dto.setDateCreation(distance.getDateCreation());
+        dto.setDateModification(distance.getDateModification());
+        return dto;
+    }
+
+    private AdresseDTO convertirAdresse(Adresse adresse) {
+        AdresseDTO dto = new AdresseDTO();
+        dto.setRue(adresse.getRue());
+        dto.setNumero(adresse.getNumero());
+        dto.setCodePostal(adresse.getCodePostal());
+        dto.setVille(adresse.getVille());
+        dto.setPays(adresse.getPays());
+        dto.setComplement(adresse.getComplement());
+        return dto;
+    }
+
+    private LocateurInfoDTO convertirLocateur(Locateur locateur) {
+        LocateurInfoDTO locateurInfo = new LocateurInfoDTO();
+        locateurInfo.setId(locateur.getId());
+        locateurInfo.setNom(locateur.getNom());
+        locateurInfo.setPrenom(locateur.getPrenom());
+        locateurInfo.setEmail(locateur.getEmail());
+        locateurInfo.setTelephone(locateur.getTelephone());
+        locateurInfo.setPhotoProfil(locateur.getPhotoProfil());
+        locateurInfo.setDescription(locateur.getDescription());
+        locateurInfo.setNoteMoyenne(locateur.getNoteMoyenne());
+        locateurInfo.setNombreAnnonces(locateur.getNombreAnnonces());
+        locateurInfo.setEstVerifie(locateur.isEstVerifie());
+        locateurInfo.setRaisonSociale(locateur.getRaisonSociale());
+        return locateurInfo;
+    }
+
+    private StadeDTO convertirStade(Stade stade, Map<UUID, List<CategorieStadeDTO>> categoriesParStade) {
+        if (stade == null) {
+            return null;
+        }
+
+        StadeDTO dto = new StadeDTO();
+        dto.setId(stade.getId());
+        dto.setNom(stade.getNom());
+        dto.setVille(stade.getVille());
+        dto.setAdresseComplete(stade.getAdresseComplete());
+        dto.setLatitude(stade.getLatitude());
+        dto.setLongitude(stade.getLongitude());
+        dto.setCapacite(stade.getCapacite());
+        dto.setDescription(stade.getDescription());
+        dto.setEstActif(stade.isEstActif());
+        dto.setDateCreation(stade.getDateCreation());
+        dto.setDateModification(stade.getDateModification());
+        dto.setSurfaceMetresCarres(stade.getSurfaceMetresCarres());
+        dto.setCategories(stade.getCategories());
+        dto.setCategoriesPlaces(categoriesParStade.getOrDefault(stade.getId(), Collections.emptyList()));
+        dto.setPrixMin(stade.getPrixMin());
+        dto.setPrixMax(stade.getPrixMax());
+        dto.setImages(stade.getImages());
+        dto.setImageIds(stade.getImageIds());
+        dto.setImageUrls(ImageStockageService.urls(stade.getImageIds()));
+        dto.setSurfaceType(stade.getSurfaceType());
+        dto.setDimensions(stade.getDimensions());
+        dto.setSiteWeb(stade.getSiteWeb());
+        dto.setTelephone(stade.getTelephone());
+        return dto;
+    }
+
+    private List<CategorieStadeDTO> convertirCategories(List<CategorieStade> categories) {
+        if (categories == null)
+            return Collections.emptyList();
+        return categories.stream().map(c -> {
+            CategorieStadeDTO dto = new CategorieStadeDTO();
+            dto.setId(c.getId());
+            dto.setCategorie(c.getCategorie());
+            dto.setNom(c.getNom());
+            dto.setNombrePlaces(c.getNombrePlaces());
+            dto.setPrix(c.getPrix());
+            dto.setDateCreation(c.getDateCreation());
+            dto.setDateModification(c.getDateModification());
+            return dto;
+        }).collect(Collectors.toList());
+    }
+}
@@ -3,31 +3,48 @@ package com.example.Impression.services;
 import com.example.Impression.dto.AnnonceDTO;
 import com.example.Impression.dto.CreerAnnonceDTO;
 import com.example.Impression.dto.AdresseDTO;
-import com.example.Impression.dto.LocateurInfoDTO;
-import com.example.Impression.dto.StadeDTO;
-import com.example.Impression.dto.CategorieStadeDTO;
 import com.example.Impression.dto.AnnonceStadeDistanceDTO;
+import com.example.Impression.dto.AnnonceSummaryDTO;
+import com.example.Impression.dto.AnnonceTrouveeDTO;
+import com.example.Impression.dto.CarteZoneDTO;
+import com.example.Impression.dto.PageCurseurDTO;
+import com.example.Impression.dto.RechercheFacetteeDTO;
+import com.example.Impression.dto.SuggestionDTO;
 import com.example.Impression.entities.Annonce;
 import com.example.Impression.entities.Adresse;
 import com.example.Impression.entities.Locateur;
 import com.example.Impression.entities.Stade;
-import com.example.Impression.entities.CategorieStade;
-import com.example.Impression.entities.AnnonceStadeDistance;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.enums.Facette;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.enums.TailleImage;
+import com.example.Impression.enums.TriAnnonce;
 import com.example.Impression.enums.TypeMaison;
+import com.example.Impression.enums.TypeSuggestion;
 import com.example.Impression.exception.AnnonceException;
 import com.example.Impression.repositories.AdresseRepository;
 import com.example.Impression.repositories.AnnonceRepository;
 import com.example.Impression.repositories.LocateurRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
+@Slf4j
 public class AnnonceService {
 
     @Autowired
@@ -42,10 +59,56 @@ public class AnnonceService {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private IndexGeographiqueService indexGeographiqueService;
+
+    @Autowired
+    private IndexFacettesService indexFacettesService;
+
+    @Autowired
+    private IndexTexteService indexTexteService;
+
+    @Autowired
+    private IndexAutocompletionService indexAutocompletionService;
+
+    @Autowired
+    private IndexCarteService indexCarteService;
+
+    @Autowired
+    private AnnonceDTOAssembleur annonceDTOAssembleur;
+
+    @Autowired
+    private ImageVariantesService imageVariantesService;
+
+    @Autowired
+    private DistanceJobService distanceJobService;
+
     @Autowired
     private AnnonceStadeDistanceService annonceStadeDistanceService;
 
+    @Autowired
+    private IndexDistancesStadesService indexDistancesStadesService;
+
+    @Autowired
+    private StadeService stadeService;
+
+    @Value("${app.pagination.taille-defaut:20}")
+    private int tailleDefaut;
+
+    @Value("${app.pagination.taille-max:100}")
+    private int tailleMax;
+
+    // Tris propres aux recherches servies par l'index spatial
+    private static final String TRI_DISTANCE = "DISTANCE";
+    private static final String TRI_ID = "ID";
+    private static final String TRI_TEMPS = "TEMPS";
+    // Tri par score de l'index plein texte
+    private static final String TRI_PERTINENCE = "PERTINENCE";
+    private static final int LONGUEUR_MAX_REQUETE = 200;
+    private static final int SUGGESTIONS_DEFAUT = 8;
+
     // Créer une annonce
+    @Transactional
     public AnnonceDTO creerAnnonce(CreerAnnonceDTO creerAnnonceDTO) {
         Locateur locateur = locateurRepository.findById(creerAnnonceDTO.getLocateurId())
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Locateur non trouvé"));
@@ -66,18 +129,16 @@ public class AnnonceService {
         annonce.setNombreChambres(creerAnnonceDTO.getNombreChambres());
         annonce.setNombreSallesDeBain(creerAnnonceDTO.getNombreSallesDeBain());
         annonce.setTypeMaison(creerAnnonceDTO.getTypeMaison());
-        annonce.setEquipements(creerAnnonceDTO.getEquipements());
+        annonce.definirEquipements(creerAnnonceDTO.getEquipements());
         annonce.setRegles(creerAnnonceDTO.getRegles());
 
         // Stocker les chemins d'images
         annonce.setImages(creerAnnonceDTO.getImages());
 
-        // Lire les images depuis le disque et les stocker comme BLOB
-        List<byte[]> imagesBytes = imageService.lireImagesDepuisDisque(creerAnnonceDTO.getImages());
-
-        // Assigner les images à la liste BLOB
-        if (imagesBytes != null && !imagesBytes.isEmpty()) {
-            annonce.setImagesBlob(imagesBytes);
+        // Importer les images du disque dans le stockage d'images
+        List<String> imageIds = imageService.importerImagesDepuisDisque(creerAnnonceDTO.getImages());
+        if (!imageIds.isEmpty()) {
+            annonce.setImageIds(imageIds);
         }
 
         // Définir les coordonnées géographiques
@@ -88,45 +149,45 @@ public class AnnonceService {
 
         // Sauvegarder l'annonce d'abord
         Annonce annonceSauvegardee = annonceRepository.save(annonce);
-
-        // Calculer et sauvegarder les distances avec tous les stades (ne pas faire
-        // échouer la création)
-        try {
-            annonceStadeDistanceService.calculerEtSauvegarderDistances(annonceSauvegardee);
-        } catch (Exception ex) {
-            System.err.println("Erreur lors du calcul des distances: " + ex.getMessage());
+        indexer(annonceSauvegardee);
+        // Variantes générées en arrière-plan, une fois les images validées en base
+        apresCommit(annonceSauvegardee.getId(),
+                () -> imageVariantesService.planifier(annonceSauvegardee.getImageIds()));
+
+        // Distances calculées en arrière-plan ; la réponse porte des estimations
+        if (annonceSauvegardee.getLatitude() != null && annonceSauvegardee.getLongitude() != null) {
+            distanceJobService.planifier(annonceSauvegardee.getId());
         }
-
-        // Renvoyer une version sans distances pour la réponse de création
-        return convertirEnDTOSansDistances(annonceSauvegardee);
+        return annonceDTOAssembleur.assembler(annonceSauvegardee);
     }
 
-    // Récupérer toutes les annonces actives
-    public List<AnnonceDTO> getAllAnnoncesActives() {
-        return annonceRepository.findByEstActiveTrue()
-                .stream()
-                .map(this::convertirEnDTO)
-                .collect(Collectors.toList());
+    // Récupérer les annonces actives, page par page (les plus récentes d'abord)
+    public PageCurseurDTO<AnnonceSummaryDTO> getAnnoncesActivesPage(String curseur, Integer taille) {
+        int tailleEffective = resoudreTaille(taille);
+        String[] cles = CurseurPagination.decoder(curseur, TriAnnonce.DATE.name(), 2);
+        List<AnnonceSummaryDTO> annonces = annonceRepository.findPageActivesParDate(
+                cles != null ? CurseurPagination.dateHeure(cles[0]) : null,
+                cles != null ? CurseurPagination.identifiant(cles[1]) : null,
+                PageRequest.of(0, tailleEffective + 1));
+        return construirePage(annonces, tailleEffective, TriAnnonce.DATE);
     }
 
     // Récupérer une annonce par ID
     public Optional<AnnonceDTO> getAnnonceById(UUID id) {
-        return annonceRepository.findById(id)
-                .map(this::convertirEnDTO);
+        return annonceDTOAssembleur.assemblerParId(id);
     }
 
     // Récupérer les annonces d'un locateur
-    public List<AnnonceDTO> getAnnoncesByLocateur(UUID locateurId) {
-        Locateur locateur = locateurRepository.findById(locateurId)
-                .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Locateur non trouvé"));
+    public List<AnnonceSummaryDTO> getAnnoncesByLocateur(UUID locateurId) {
+        if (!locateurRepository.existsById(locateurId)) {
+            throw new AnnonceException.AnnonceNotFoundException("Locateur non trouvé");
+        }
 
-        return annonceRepository.findByLocateur(locateur)
-                .stream()
-                .map(this::convertirEnDTO)
-                .collect(Collectors.toList());
+        return appliquerCouvertures(annonceRepository.findResumesByLocateurId(locateurId));
     }
 
     // Mettre à jour une annonce sans vérification d'autorisation
+    @Transactional
     public AnnonceDTO mettreAJourAnnonceSansVerification(UUID id, CreerAnnonceDTO creerAnnonceDTO) {
         Annonce annonce = annonceRepository.findById(id)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
@@ -155,40 +216,43 @@ public class AnnonceService {
         annonce.setNombreChambres(creerAnnonceDTO.getNombreChambres());
         annonce.setNombreSallesDeBain(creerAnnonceDTO.getNombreSallesDeBain());
         annonce.setTypeMaison(creerAnnonceDTO.getTypeMaison());
-        annonce.setEquipements(creerAnnonceDTO.getEquipements());
+        annonce.definirEquipements(creerAnnonceDTO.getEquipements());
         annonce.setRegles(creerAnnonceDTO.getRegles());
 
         // Stocker les chemins d'images
         annonce.setImages(creerAnnonceDTO.getImages());
 
-        // Lire les images depuis le disque et les stocker comme BLOB
-        List<byte[]> imagesBytes = imageService.lireImagesDepuisDisque(creerAnnonceDTO.getImages());
-
-        // Assigner les images à la liste BLOB
-        if (imagesBytes != null && !imagesBytes.isEmpty()) {
-            annonce.setImagesBlob(imagesBytes);
+        // Importer les images du disque dans le stockage d'images
+        List<String> imageIds = imageService.importerImagesDepuisDisque(creerAnnonceDTO.getImages());
+        if (!imageIds.isEmpty()) {
+            annonce.setImageIds(imageIds);
         }
 
         // Mettre à jour les coordonnées et recalculer les distances si elles ont changé
+        boolean coordonneesOntChange = false;
         if (creerAnnonceDTO.getLatitude() != null && creerAnnonceDTO.getLongitude() != null) {
-            boolean coordonneesOntChange = !creerAnnonceDTO.getLatitude().equals(annonce.getLatitude()) ||
+            coordonneesOntChange = !creerAnnonceDTO.getLatitude().equals(annonce.getLatitude()) ||
                     !creerAnnonceDTO.getLongitude().equals(annonce.getLongitude());
 
             annonce.setLatitude(creerAnnonceDTO.getLatitude());
             annonce.setLongitude(creerAnnonceDTO.getLongitude());
-
-            if (coordonneesOntChange) {
-                // Recalculer les distances avec tous les stades
-                annonceStadeDistanceService.mettreAJourDistances(annonce);
-            }
         }
         annonce.mettreAJour();
 
         Annonce annonceSauvegardee = annonceRepository.save(annonce);
-        return convertirEnDTO(annonceSauvegardee);
+        indexer(annonceSauvegardee);
+        // Variantes générées en arrière-plan, une fois les images validées en base
+        apresCommit(annonceSauvegardee.getId(),
+                () -> imageVariantesService.planifier(annonceSauvegardee.getImageIds()));
+        if (coordonneesOntChange) {
+            // Recalculer les distances avec tous les stades, en arrière-plan
+            distanceJobService.planifier(annonceSauvegardee.getId());
+        }
+        return annonceDTOAssembleur.assembler(annonceSauvegardee);
     }
 
     // Mettre à jour une annonce
+    @Transactional
     public AnnonceDTO mettreAJourAnnonce(UUID id, CreerAnnonceDTO creerAnnonceDTO) {
         Annonce annonce = annonceRepository.findById(id)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
@@ -229,40 +293,43 @@ public class AnnonceService {
         annonce.setNombreChambres(creerAnnonceDTO.getNombreChambres());
         annonce.setNombreSallesDeBain(creerAnnonceDTO.getNombreSallesDeBain());
         annonce.setTypeMaison(creerAnnonceDTO.getTypeMaison());
-        annonce.setEquipements(creerAnnonceDTO.getEquipements());
+        annonce.definirEquipements(creerAnnonceDTO.getEquipements());
         annonce.setRegles(creerAnnonceDTO.getRegles());
 
         // Stocker les chemins d'images
         annonce.setImages(creerAnnonceDTO.getImages());
 
-        // Lire les images depuis le disque et les stocker comme BLOB
-        List<byte[]> imagesBytes = imageService.lireImagesDepuisDisque(creerAnnonceDTO.getImages());
-
-        // Assigner les images à la liste BLOB
-        if (imagesBytes != null && !imagesBytes.isEmpty()) {
-            annonce.setImagesBlob(imagesBytes);
+        // Importer les images du disque dans le stockage d'images
+        List<String> imageIds = imageService.importerImagesDepuisDisque(creerAnnonceDTO.getImages());
+        if (!imageIds.isEmpty()) {
+            annonce.setImageIds(imageIds);
         }
 
         // Mettre à jour les coordonnées et recalculer les distances si elles ont changé
+        boolean coordonneesOntChange = false;
         if (creerAnnonceDTO.getLatitude() != null && creerAnnonceDTO.getLongitude() != null) {
-            boolean coordonneesOntChange = !creerAnnonceDTO.getLatitude().equals(annonce.getLatitude()) ||
+            coordonneesOntChange = !creerAnnonceDTO.getLatitude().equals(annonce.getLatitude()) ||
                     !creerAnnonceDTO.getLongitude().equals(annonce.getLongitude());
 
             annonce.setLatitude(creerAnnonceDTO.getLatitude());
             annonce.setLongitude(creerAnnonceDTO.getLongitude());
-
-            if (coordonneesOntChange) {
-                // Recalculer les distances avec tous les stades
-                annonceStadeDistanceService.mettreAJourDistances(annonce);
-            }
         }
         annonce.mettreAJour();
 
         Annonce annonceSauvegardee = annonceRepository.save(annonce);
-        return convertirEnDTO(annonceSauvegardee);
+        indexer(annonceSauvegardee);
+        // Variantes générées en arrière-plan, une fois les images validées en base
+        apresCommit(annonceSauvegardee.getId(),
+                () -> imageVariantesService.planifier(annonceSauvegardee.getImageIds()));
+        if (coordonneesOntChange) {
+            // Recalculer les distances avec tous les stades, en arrière-plan
+            distanceJobService.planifier(annonceSauvegardee.getId());
+        }
+        return annonceDTOAssembleur.assembler(annonceSauvegardee);
     }
 
     // Désactiver une annonce
+    @Transactional
     public boolean desactiverAnnonce(UUID id, UUID locateurId) {
         Annonce annonce = annonceRepository.findById(id)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
@@ -274,10 +341,12 @@ public class AnnonceService {
 
         annonce.desactiver();
         annonceRepository.save(annonce);
+        retirerDesIndex(id);
         return true;
     }
 
     // Supprimer une annonce
+    @Transactional
     public boolean supprimerAnnonce(UUID id, UUID locateurId) {
         Annonce annonce = annonceRepository.findById(id)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
@@ -289,224 +358,446 @@ public class AnnonceService {
 
         annonce.supprimer();
         annonceRepository.save(annonce);
+        retirerDesIndex(id);
         return true;
     }
 
     // Supprimer une annonce sans vérification d'autorisation
+    @Transactional
     public boolean supprimerAnnonceSansVerification(UUID id) {
         Annonce annonce = annonceRepository.findById(id)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
 
         annonce.supprimer();
         annonceRepository.save(annonce);
+        retirerDesIndex(id);
         return true;
     }
 
-    // Recherche d'annonces
-    public List<AnnonceDTO> rechercherAnnonces(String ville, TypeMaison typeMaison,
-            BigDecimal prixMax, Integer capaciteMin, Double noteMin) {
-        return annonceRepository.findByCritereRecherche(ville, typeMaison, prixMax, capaciteMin, noteMin)
-                .stream()
-                .map(this::convertirEnDTO)
-                .collect(Collectors.toList());
+    // Recherche d'annonces par critères, page par page ; avec des dates, seules
+    // les annonces libres sur tout le séjour ; avec des équipements, seules celles
+    // qui les ont tous
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherAnnoncesPage(String ville, TypeMaison typeMaison,
+            BigDecimal prixMax, Integer capaciteMin, Double noteMin, LocalDate dateArrivee, LocalDate dateDepart,
+            Collection<Equipement> equipements, TriAnnonce tri, String curseur, Integer taille) {
+        if ((dateArrivee == null) != (dateDepart == null)
+                || (dateArrivee != null && !dateArrivee.isBefore(dateDepart))) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "Les dates d'arrivée et de départ vont ensemble, l'arrivée avant le départ");
+        }
+        int tailleEffective = resoudreTaille(taille);
+        TriAnnonce triEffectif = tri != null ? tri : TriAnnonce.DATE;
+        String[] cles = CurseurPagination.decoder(curseur, triEffectif.name(), 2);
+        UUID curseurId = cles != null ? CurseurPagination.identifiant(cles[1]) : null;
+        long equipementsMasque = Equipement.masque(equipements);
+        List<AnnonceSummaryDTO> annonces;
+        if (triEffectif == TriAnnonce.PRIX) {
+            annonces = annonceRepository.findPageCritereRechercheParPrix(ville, typeMaison, prixMax, capaciteMin,
+                    noteMin, dateArrivee, dateDepart, equipementsMasque,
+                    cles != null ? CurseurPagination.decimal(cles[0]) : null, curseurId,
+                    PageRequest.of(0, tailleEffective + 1));
+        } else {
+            annonces = annonceRepository.findPageCritereRechercheParDate(ville, typeMaison, prixMax, capaciteMin,
+                    noteMin, dateArrivee, dateDepart, equipementsMasque,
+                    cles != null ? CurseurPagination.dateHeure(cles[0]) : null, curseurId,
+                    PageRequest.of(0, tailleEffective + 1));
+        }
+        return construirePage(annonces, tailleEffective, triEffectif);
     }
 
-    // Recherche par stade
-    public List<AnnonceDTO> rechercherParStade(String stade) {
-        return annonceRepository.findByStadeContaining(stade)
+    /**
+     * Recherche à facettes servie par l'index en mémoire : une page de résumés
+     * et, pour chaque facette, le nombre d'annonces par valeur
+     */
+    public RechercheFacetteeDTO rechercherAvecFacettesPage(Map<Facette, Collection<String>> selection,
+            TriAnnonce tri, String curseur, Integer taille) {
+        int tailleEffective = resoudreTaille(taille);
+        TriAnnonce triEffectif = tri != null ? tri : TriAnnonce.DATE;
+        String[] cles = CurseurPagination.decoder(curseur, triEffectif.name(), 2);
+        IndexFacettesService.Resultat resultat = indexFacettesService.rechercher(
+                new IndexFacettesService.Criteres(selection), triEffectif, cles != null ? cles[0] : null,
+                cles != null ? CurseurPagination.identifiant(cles[1]) : null, tailleEffective + 1);
+
+        boolean aSuivant = resultat.ids().size() > tailleEffective;
+        List<UUID> page = aSuivant ? resultat.ids().subList(0, tailleEffective) : resultat.ids();
+        String curseurSuivant = aSuivant
+                ? CurseurPagination.encoder(triEffectif.name(), resultat.clesTri().get(tailleEffective - 1),
+                        page.get(page.size() - 1))
+                : null;
+        List<AnnonceSummaryDTO> elements = resumesDansLOrdre(page);
+        return new RechercheFacetteeDTO(new PageCurseurDTO<>(elements, curseurSuivant, elements.size(), aSuivant),
+                resultat.total(), resultat.facettes());
+    }
+
+    /**
+     * Recherche plein texte (titre, ville, équipements, description) servie
+     * par l'index en mémoire : annonces classées par pertinence, avec les
+     * passages surlignés
+     */
+    public PageCurseurDTO<AnnonceTrouveeDTO> rechercherTextePage(String q, String curseur, Integer taille) {
+        if (q == null || q.isBlank() || q.length() > LONGUEUR_MAX_REQUETE) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "La recherche doit contenir entre 1 et " + LONGUEUR_MAX_REQUETE + " caractères");
+        }
+        int tailleEffective = resoudreTaille(taille);
+        String[] cles = CurseurPagination.decoder(curseur, TRI_PERTINENCE, 2);
+        List<IndexTexteService.Trouvee> trouvees = indexTexteService.rechercher(q,
+                cles != null ? CurseurPagination.reel(cles[0]) : null,
+                cles != null ? CurseurPagination.identifiant(cles[1]) : null, tailleEffective + 1);
+
+        boolean aSuivant = trouvees.size() > tailleEffective;
+        List<IndexTexteService.Trouvee> page = aSuivant ? trouvees.subList(0, tailleEffective) : trouvees;
+        String curseurSuivant = null;
+        if (aSuivant) {
+            IndexTexteService.Trouvee derniere = page.get(page.size() - 1);
+            curseurSuivant = CurseurPagination.encoder(TRI_PERTINENCE, derniere.score(), derniere.annonceId());
+        }
+        Map<UUID, AnnonceSummaryDTO> resumes = resumesDansLOrdre(page.stream()
+                .map(IndexTexteService.Trouvee::annonceId)
+                .collect(Collectors.toList()))
                 .stream()
-                .map(this::convertirEnDTO)
+                .collect(Collectors.toMap(AnnonceSummaryDTO::getId, r -> r));
+        List<AnnonceTrouveeDTO> elements = page.stream()
+                .filter(t -> resumes.containsKey(t.annonceId()))
+                .map(t -> new AnnonceTrouveeDTO(resumes.get(t.annonceId()), t.score(), t.surlignages()))
                 .collect(Collectors.toList());
+        return new PageCurseurDTO<>(elements, curseurSuivant, elements.size(), aSuivant);
+    }
+
+    /**
+     * Suggestions d'autocomplétion (villes, quartiers, stades) dont un mot
+     * commence par le texte saisi, les plus populaires d'abord
+     */
+    public List<SuggestionDTO> suggerer(String q, Collection<TypeSuggestion> types, Integer limite) {
+        int limiteEffective = limite != null ? limite : SUGGESTIONS_DEFAUT;
+        if (limiteEffective < 1 || limiteEffective > IndexAutocompletionService.K_MAX) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "Le nombre de suggestions doit être compris entre 1 et " + IndexAutocompletionService.K_MAX);
+        }
+        if (q != null && q.length() > LONGUEUR_MAX_REQUETE) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "La recherche doit contenir au plus " + LONGUEUR_MAX_REQUETE + " caractères");
+        }
+        return indexAutocompletionService.suggerer(q, types, limiteEffective);
+    }
+
+    // Recherche par stade, page par page
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherParStadePage(String stade, String curseur, Integer taille) {
+        int tailleEffective = resoudreTaille(taille);
+        String[] cles = CurseurPagination.decoder(curseur, TriAnnonce.DATE.name(), 2);
+        List<AnnonceSummaryDTO> annonces = annonceRepository.findPageParStade(stade,
+                cles != null ? CurseurPagination.dateHeure(cles[0]) : null,
+                cles != null ? CurseurPagination.identifiant(cles[1]) : null,
+                PageRequest.of(0, tailleEffective + 1));
+        return construirePage(annonces, tailleEffective, TriAnnonce.DATE);
+    }
+
+    /**
+     * Annonces à moins de minutes d'un stade (temps de trajet précalculé pour
+     * le mode donné), triées par temps de trajet croissant, page par page
+     */
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherParTempsTrajetPage(UUID stadeId, int minutes,
+            ModeTransport mode, String curseur, Integer taille) {
+        if (minutes <= 0 || minutes > Isochrones.budgetMax()) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "Le temps de trajet doit être compris entre 1 et " + Isochrones.budgetMax() + " minutes");
+        }
+        int tailleEffective = resoudreTaille(taille);
+        ModeTransport modeEffectif = mode != null ? mode : ModeTransport.VOITURE;
+        String[] cles = CurseurPagination.decoder(curseur, TRI_TEMPS, 2);
+        Integer curseurTemps = cles != null ? CurseurPagination.entier(cles[0]) : null;
+        UUID curseurId = cles != null ? CurseurPagination.identifiant(cles[1]) : null;
+        List<AnnonceSummaryDTO> annonces = annonceStadeDistanceService.estCompact()
+                ? pageIsochroneCompacte(stadeId, modeEffectif, minutes, curseurTemps, curseurId, tailleEffective + 1)
+                : annonceRepository.findPageIsochrone(stadeId, modeEffectif, Isochrones.bandeCouvrante(minutes),
+                        minutes, curseurTemps, curseurId, PageRequest.of(0, tailleEffective + 1));
+
+        boolean aSuivant = annonces.size() > tailleEffective;
+        List<AnnonceSummaryDTO> page = aSuivant ? new java.util.ArrayList<>(annonces.subList(0, tailleEffective))
+                : annonces;
+        String curseurSuivant = null;
+        if (aSuivant) {
+            AnnonceSummaryDTO derniere = page.get(page.size() - 1);
+            curseurSuivant = CurseurPagination.encoder(TRI_TEMPS, derniere.getTempsTrajetStadeMinutes(),
+                    derniere.getId());
+        }
+        return new PageCurseurDTO<>(appliquerCouvertures(page), curseurSuivant, page.size(), aSuivant);
+    }
+
+    /**
+     * Stockage COMPACT : trajets lus dans l'index par stade, dans l'ordre
+     * (minutes, id), puis résumés des annonces actives ; les annonces inactives
+     * sont sautées jusqu'à remplir la page.
+     */
+    private List<AnnonceSummaryDTO> pageIsochroneCompacte(UUID stadeId, ModeTransport mode, int minutes,
+            Integer curseurTemps, UUID curseurId, int limite) {
+        String nomStade = stadeService.obtenirStadeParId(stadeId).map(Stade::getNom).orElse(null);
+        List<AnnonceSummaryDTO> resultat = new java.util.ArrayList<>();
+        while (resultat.size() < limite) {
+            List<IndexDistancesStadesService.TrajetIndexe> trajets = indexDistancesStadesService
+                    .trajetsParTemps(stadeId, mode, minutes, curseurTemps, curseurId, limite);
+            if (trajets.isEmpty()) {
+                break;
+            }
+            Map<UUID, AnnonceSummaryDTO> resumes = annonceRepository.findResumesByIds(trajets.stream()
+                    .map(IndexDistancesStadesService.TrajetIndexe::annonceId)
+                    .collect(Collectors.toList()))
+                    .stream()
+                    .collect(Collectors.toMap(AnnonceSummaryDTO::getId, r -> r));
+            for (IndexDistancesStadesService.TrajetIndexe trajet : trajets) {
+                AnnonceSummaryDTO resume = resumes.get(trajet.annonceId());
+                if (resume != null && resultat.size() < limite) {
+                    resume.setStadeLePlusProcheId(stadeId);
+                    resume.setStadeLePlusProcheNom(nomStade);
+                    resume.setDistanceStadeKm(trajet.distance());
+                    resume.setTempsTrajetStadeMinutes(trajet.minutes());
+                    resultat.add(resume);
+                }
+            }
+            IndexDistancesStadesService.TrajetIndexe dernier = trajets.get(trajets.size() - 1);
+            curseurTemps = dernier.minutes();
+            curseurId = dernier.annonceId();
+        }
+        return resultat;
     }
 
     // ========== RECHERCHES GÉOGRAPHIQUES ==========
 
-    // Recherche par rayon autour d'un point
+    // Recherche par rayon autour d'un point (index spatial en mémoire), triée par
+    // distance croissante
     public List<Annonce> rechercherParRayon(BigDecimal latitude, BigDecimal longitude, double rayonKm) {
-        return annonceRepository.findByRayonGeographique(latitude, longitude, rayonKm);
+        List<UUID> ids = indexGeographiqueService
+                .rechercherDansRayon(latitude.doubleValue(), longitude.doubleValue(), rayonKm)
+                .stream()
+                .map(IndexGeographiqueService.ResultatProximite::annonceId)
+                .collect(Collectors.toList());
+        return chargerDansLOrdre(ids);
     }
 
-    // Recherche par zone géographique
+    // Recherche par zone géographique (index spatial en mémoire)
     public List<Annonce> rechercherParZone(BigDecimal latMin, BigDecimal latMax, BigDecimal lonMin, BigDecimal lonMax) {
-        return annonceRepository.findByZoneGeographique(latMin, latMax, lonMin, lonMax);
+        List<UUID> ids = indexGeographiqueService.rechercherDansZone(latMin.doubleValue(), latMax.doubleValue(),
+                lonMin.doubleValue(), lonMax.doubleValue());
+        return chargerDansLOrdre(ids);
     }
 
-    // Recherche par proximité
+    // Recherche par proximité (k plus proches voisins sans limite de distance)
     public List<Annonce> rechercherParProximite(BigDecimal latitude, BigDecimal longitude) {
-        List<Object[]> resultats = annonceRepository.findByProximite(latitude, longitude);
-        return resultats.stream()
-                .map(resultat -> (Annonce) resultat[0])
-                .collect(Collectors.toList());
+        return rechercherPlusProches(latitude, longitude, Integer.MAX_VALUE, null);
     }
 
     // Recherche par proximité avec limite de distance
     public List<Annonce> rechercherParProximiteAvecLimite(BigDecimal latitude, BigDecimal longitude,
             double distanceMax) {
-        return annonceRepository.findByProximiteAvecLimite(latitude, longitude, distanceMax);
+        return rechercherPlusProches(latitude, longitude, Integer.MAX_VALUE, distanceMax);
     }
 
-    // ========== VERSIONS DTO DES RECHERCHES GÉOGRAPHIQUES ==========
-
-    // Recherche par rayon autour d'un point (retourne des DTOs)
-    public List<AnnonceDTO> rechercherParRayonDTO(BigDecimal latitude, BigDecimal longitude, double rayonKm) {
-        return rechercherParRayon(latitude, longitude, rayonKm)
+    // k annonces les plus proches d'un point, triées par distance croissante
+    public List<Annonce> rechercherPlusProches(BigDecimal latitude, BigDecimal longitude, int k,
+            Double distanceMax) {
+        List<UUID> ids = indexGeographiqueService
+                .plusProchesVoisins(latitude.doubleValue(), longitude.doubleValue(), k, distanceMax)
                 .stream()
-                .map(this::convertirEnDTO)
+                .map(IndexGeographiqueService.ResultatProximite::annonceId)
                 .collect(Collectors.toList());
+        return chargerDansLOrdre(ids);
     }
 
-    // Recherche par zone géographique (retourne des DTOs)
-    public List<AnnonceDTO> rechercherParZoneDTO(BigDecimal latMin, BigDecimal latMax, BigDecimal lonMin,
-            BigDecimal lonMax) {
-        return rechercherParZone(latMin, latMax, lonMin, lonMax)
+    // Charger des annonces par identifiants en conservant l'ordre fourni par l'index
+    private List<Annonce> chargerDansLOrdre(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new java.util.ArrayList<>();
+        }
+        java.util.Map<UUID, Annonce> parId = annonceRepository.findAllById(ids)
                 .stream()
-                .map(this::convertirEnDTO)
+                .filter(Annonce::isEstActive)
+                .collect(Collectors.toMap(Annonce::getId, a -> a));
+        return ids.stream()
+                .map(parId::get)
+                .filter(java.util.Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
-    // Recherche par proximité (retourne des DTOs)
-    public List<AnnonceDTO> rechercherParProximiteDTO(BigDecimal latitude, BigDecimal longitude) {
-        return rechercherParProximite(latitude, longitude)
-                .stream()
-                .map(this::convertirEnDTO)
-                .collect(Collectors.toList());
+    // ========== VERSIONS PAGINÉES DES RECHERCHES GÉOGRAPHIQUES ==========
+
+    // Recherche par rayon autour d'un point, page par page (triée par distance)
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherParRayonPage(BigDecimal latitude, BigDecimal longitude,
+            double rayonKm, String curseur, Integer taille) {
+        return rechercherParProximitePage(latitude, longitude, rayonKm, curseur, taille);
     }
 
-    // Recherche par proximité avec limite de distance (retourne des DTOs)
-    public List<AnnonceDTO> rechercherParProximiteAvecLimiteDTO(BigDecimal latitude, BigDecimal longitude,
-            double distanceMax) {
-        return rechercherParProximiteAvecLimite(latitude, longitude, distanceMax)
+    // Recherche par proximité avec limite de distance optionnelle, page par page
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherParProximitePage(BigDecimal latitude, BigDecimal longitude,
+            Double distanceMax, String curseur, Integer taille) {
+        int tailleEffective = resoudreTaille(taille);
+        String[] cles = CurseurPagination.decoder(curseur, TRI_DISTANCE, 2);
+        List<IndexGeographiqueService.ResultatProximite> resultats = indexGeographiqueService.plusProchesVoisins(
+                latitude.doubleValue(), longitude.doubleValue(), tailleEffective + 1, distanceMax,
+                cles != null ? CurseurPagination.reel(cles[0]) : null,
+                cles != null ? CurseurPagination.identifiant(cles[1]) : null);
+
+        boolean aSuivant = resultats.size() > tailleEffective;
+        List<IndexGeographiqueService.ResultatProximite> page = aSuivant
+                ? resultats.subList(0, tailleEffective)
+                : resultats;
+        String curseurSuivant = null;
+        if (aSuivant) {
+            IndexGeographiqueService.ResultatProximite dernier = page.get(page.size() - 1);
+            curseurSuivant = CurseurPagination.encoder(TRI_DISTANCE, dernier.distanceKm(), dernier.annonceId());
+        }
+        List<AnnonceSummaryDTO> elements = resumesDansLOrdre(page.stream()
+                .map(IndexGeographiqueService.ResultatProximite::annonceId)
+                .collect(Collectors.toList()));
+        return new PageCurseurDTO<>(elements, curseurSuivant, elements.size(), aSuivant);
+    }
+
+    // Recherche par zone géographique, page par page (triée par id)
+    public PageCurseurDTO<AnnonceSummaryDTO> rechercherParZonePage(BigDecimal latMin, BigDecimal latMax,
+            BigDecimal lonMin, BigDecimal lonMax, String curseur, Integer taille) {
+        int tailleEffective = resoudreTaille(taille);
+        String[] cles = CurseurPagination.decoder(curseur, TRI_ID, 1);
+        UUID apresId = cles != null ? CurseurPagination.identifiant(cles[0]) : null;
+        List<UUID> ids = indexGeographiqueService.rechercherDansZone(latMin.doubleValue(), latMax.doubleValue(),
+                lonMin.doubleValue(), lonMax.doubleValue())
                 .stream()
-                .map(this::convertirEnDTO)
+                .filter(id -> apresId == null || id.compareTo(apresId) > 0)
+                .sorted()
+                .limit(tailleEffective + 1L)
                 .collect(Collectors.toList());
+
+        boolean aSuivant = ids.size() > tailleEffective;
+        List<UUID> page = aSuivant ? ids.subList(0, tailleEffective) : ids;
+        String curseurSuivant = aSuivant ? CurseurPagination.encoder(TRI_ID, page.get(page.size() - 1)) : null;
+        List<AnnonceSummaryDTO> elements = resumesDansLOrdre(page);
+        return new PageCurseurDTO<>(elements, curseurSuivant, elements.size(), aSuivant);
+    }
+
+    /**
+     * Carte d'une zone : grappes (nombre, centre, prix minimal) aux zooms
+     * faibles, marqueurs légers à partir de IndexCarteService.ZOOM_MARQUEURS ;
+     * aucune annonce n'est lue en base
+     */
+    public CarteZoneDTO carteZone(BigDecimal latMin, BigDecimal latMax, BigDecimal lonMin, BigDecimal lonMax,
+            int zoom) {
+        if (zoom < 0 || zoom > IndexCarteService.ZOOM_MAX) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "Le zoom doit être compris entre 0 et " + IndexCarteService.ZOOM_MAX);
+        }
+        if (latMin.compareTo(latMax) > 0 || lonMin.compareTo(lonMax) > 0) {
+            throw new AnnonceException.AnnonceValidationException(
+                    "Les bornes minimales de la zone doivent précéder les bornes maximales");
+        }
+        return indexCarteService.carte(latMin.doubleValue(), latMax.doubleValue(), lonMin.doubleValue(),
+                lonMax.doubleValue(), zoom);
+    }
+
+    // ========== INDEX EN MÉMOIRE ==========
+
+    // (Ré)indexer une annonce dans tous les index en mémoire
+    private void indexer(Annonce annonce) {
+        apresCommit(annonce.getId(), () -> {
+            indexGeographiqueService.indexer(annonce);
+            indexFacettesService.indexer(annonce);
+            indexTexteService.indexer(annonce);
+            indexAutocompletionService.indexer(annonce);
+            indexCarteService.indexer(annonce);
+        });
     }
 
-    // Méthodes de conversion
-    // Méthode utilitaire pour convertir en DTO
-    private AnnonceDTO convertirEnDTO(Annonce annonce) {
-        AnnonceDTO dto = new AnnonceDTO();
-        dto.setId(annonce.getId());
-        dto.setTitre(annonce.getTitre());
-        dto.setDescription(annonce.getDescription());
-        dto.setAdresse(convertirAdresseEnDTO(annonce.getAdresse()));
-        dto.setPrixParNuit(annonce.getPrixParNuit());
-        dto.setPrixParSemaine(annonce.getPrixParSemaine());
-        dto.setPrixParMois(annonce.getPrixParMois());
-        dto.setCapacite(annonce.getCapacite());
-        dto.setNombreChambres(annonce.getNombreChambres());
-        dto.setNombreSallesDeBain(annonce.getNombreSallesDeBain());
-        dto.setTypeMaison(annonce.getTypeMaison());
-        dto.setEstActive(annonce.isEstActive());
-        dto.setDateCreation(annonce.getDateCreation());
-        dto.setDateModification(annonce.getDateModification());
-        dto.setEquipements(annonce.getEquipements());
-        dto.setRegles(annonce.getRegles());
-        dto.setImages(annonce.getImages());
-        dto.setImagesBlob(annonce.getImagesBlob());
-        dto.setNoteMoyenne(annonce.getNoteMoyenne());
-        dto.setNombreAvis(annonce.getNombreAvis());
-
-        // Créer les informations du locateur
-        LocateurInfoDTO locateurInfo = new LocateurInfoDTO();
-        locateurInfo.setId(annonce.getLocateur().getId());
-        locateurInfo.setNom(annonce.getLocateur().getNom());
-        locateurInfo.setPrenom(annonce.getLocateur().getPrenom());
-        locateurInfo.setEmail(annonce.getLocateur().getEmail());
-        locateurInfo.setTelephone(annonce.getLocateur().getTelephone());
-        locateurInfo.setPhotoProfil(annonce.getLocateur().getPhotoProfil());
-        locateurInfo.setDescription(annonce.getLocateur().getDescription());
-        locateurInfo.setNoteMoyenne(annonce.getLocateur().getNoteMoyenne());
-        locateurInfo.setNombreAnnonces(annonce.getLocateur().getNombreAnnonces());
-        locateurInfo.setEstVerifie(annonce.getLocateur().isEstVerifie());
-        locateurInfo.setRaisonSociale(annonce.getLocateur().getRaisonSociale());
-
-        dto.setLocateur(locateurInfo);
-        dto.setLatitude(annonce.getLatitude());
-        dto.setLongitude(annonce.getLongitude());
-
-        // Convertir les distances avec les stades (robuste aux erreurs)
-        try {
-            List<AnnonceStadeDistance> distances = annonceStadeDistanceService.getDistancesParAnnonce(annonce);
-            List<AnnonceStadeDistanceDTO> distancesDTO = distances.stream()
-                    .map(this::convertirAnnonceStadeDistanceEnDTO)
-                    .collect(Collectors.toList());
-            dto.setDistancesStades(distancesDTO);
-
-            Optional<AnnonceStadeDistance> stadeLePlusProche = annonceStadeDistanceService
-                    .getStadeLePlusProche(annonce);
-            if (stadeLePlusProche.isPresent()) {
-                dto.setStadeLePlusProche(convertirAnnonceStadeDistanceEnDTO(stadeLePlusProche.get()));
+    // Retirer une annonce de tous les index en mémoire
+    private void retirerDesIndex(UUID id) {
+        apresCommit(id, () -> {
+            indexGeographiqueService.retirer(id);
+            indexFacettesService.retirer(id);
+            indexTexteService.retirer(id);
+            indexAutocompletionService.retirer(id);
+            indexCarteService.retirer(id);
+        });
+    }
+
+    // Exécuter une mise à jour dérivée (index, variantes) une fois l'écriture
+    // validée ; un échec n'annule pas l'écriture, le rechargement périodique des
+    // index et le balayage des images la rattraperont
+    private void apresCommit(UUID annonceId, Runnable miseAJour) {
+        Runnable protegee = () -> {
+            try {
+                miseAJour.run();
+            } catch (Exception e) {
+                log.warn("[Annonces] Mise à jour après validation non appliquée pour l'annonce {}: {}",
+                        annonceId, e.getMessage());
             }
-        } catch (Exception ex) {
-            System.err.println("Erreur lors de la récupération des distances: " + ex.getMessage());
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    protegee.run();
+                }
+            });
+        } else {
+            protegee.run();
+        }
+    }
+
+    // ========== PAGINATION ==========
+
+    private int resoudreTaille(Integer taille) {
+        if (taille == null || taille <= 0) {
+            return tailleDefaut;
+        }
+        return Math.min(taille, tailleMax);
+    }
+
+    // Construire une page à partir de taille + 1 résumés lus en base
+    private PageCurseurDTO<AnnonceSummaryDTO> construirePage(List<AnnonceSummaryDTO> annonces, int taille,
+            TriAnnonce tri) {
+        boolean aSuivant = annonces.size() > taille;
+        List<AnnonceSummaryDTO> page = aSuivant ? new java.util.ArrayList<>(annonces.subList(0, taille)) : annonces;
+        String curseurSuivant = null;
+        if (aSuivant) {
+            AnnonceSummaryDTO derniere = page.get(page.size() - 1);
+            curseurSuivant = tri == TriAnnonce.PRIX
+                    ? CurseurPagination.encoder(tri.name(), derniere.getPrixParNuit().toPlainString(),
+                            derniere.getId())
+                    : CurseurPagination.encoder(tri.name(), derniere.getDateCreation(), derniere.getId());
+        }
+        return new PageCurseurDTO<>(appliquerCouvertures(page), curseurSuivant, page.size(), aSuivant);
+    }
+
+    // Résumés d'annonces par identifiants, dans l'ordre fourni par l'index
+    private List<AnnonceSummaryDTO> resumesDansLOrdre(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new java.util.ArrayList<>();
         }
+        java.util.Map<UUID, AnnonceSummaryDTO> parId = annonceRepository.findResumesByIds(ids)
+                .stream()
+                .collect(Collectors.toMap(AnnonceSummaryDTO::getId, r -> r));
+        return appliquerCouvertures(ids.stream()
+                .map(parId::get)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
 
-        return dto;
-    }
-
-    // Version sans distances, utilisée pour la réponse de création
-    private AnnonceDTO convertirEnDTOSansDistances(Annonce annonce) {
-        AnnonceDTO dto = new AnnonceDTO();
-        dto.setId(annonce.getId());
-        dto.setTitre(annonce.getTitre());
-        dto.setDescription(annonce.getDescription());
-        dto.setAdresse(convertirAdresseEnDTO(annonce.getAdresse()));
-        dto.setPrixParNuit(annonce.getPrixParNuit());
-        dto.setPrixParSemaine(annonce.getPrixParSemaine());
-        dto.setPrixParMois(annonce.getPrixParMois());
-        dto.setCapacite(annonce.getCapacite());
-        dto.setNombreChambres(annonce.getNombreChambres());
-        dto.setNombreSallesDeBain(annonce.getNombreSallesDeBain());
-        dto.setTypeMaison(annonce.getTypeMaison());
-        dto.setEstActive(annonce.isEstActive());
-        dto.setDateCreation(annonce.getDateCreation());
-        dto.setDateModification(annonce.getDateModification());
-        dto.setEquipements(annonce.getEquipements());
-        dto.setRegles(annonce.getRegles());
-        dto.setImages(annonce.getImages());
-        dto.setImagesBlob(annonce.getImagesBlob());
-        dto.setNoteMoyenne(annonce.getNoteMoyenne());
-        dto.setNombreAvis(annonce.getNombreAvis());
-
-        LocateurInfoDTO locateurInfo = new LocateurInfoDTO();
-        locateurInfo.setId(annonce.getLocateur().getId());
-        locateurInfo.setNom(annonce.getLocateur().getNom());
-        locateurInfo.setPrenom(annonce.getLocateur().getPrenom());
-        locateurInfo.setEmail(annonce.getLocateur().getEmail());
-        locateurInfo.setTelephone(annonce.getLocateur().getTelephone());
-        locateurInfo.setPhotoProfil(annonce.getLocateur().getPhotoProfil());
-        locateurInfo.setDescription(annonce.getLocateur().getDescription());
-        locateurInfo.setNoteMoyenne(annonce.getLocateur().getNoteMoyenne());
-        locateurInfo.setNombreAnnonces(annonce.getLocateur().getNombreAnnonces());
-        locateurInfo.setEstVerifie(annonce.getLocateur().isEstVerifie());
-        locateurInfo.setRaisonSociale(annonce.getLocateur().getRaisonSociale());
-        dto.setLocateur(locateurInfo);
-
-        dto.setLatitude(annonce.getLatitude());
-        dto.setLongitude(annonce.getLongitude());
-        // distancesStades et stadeLePlusProche non renseignés ici
-        return dto;
+    // Remplacer la couverture par sa variante "carte" quand elle existe (une requête par page)
+    private List<AnnonceSummaryDTO> appliquerCouvertures(List<AnnonceSummaryDTO> resumes) {
+        java.util.Map<String, String> cartes = imageVariantesService.variantes(resumes.stream()
+                .map(AnnonceSummaryDTO::getImageCouvertureId)
+                .filter(java.util.Objects::nonNull)
+                .collect(Collectors.toSet()), TailleImage.CARTE);
+        for (AnnonceSummaryDTO resume : resumes) {
+            String variante = cartes.get(resume.getImageCouvertureId());
+            if (variante != null) {
+                resume.setImageCouverture(ImageStockageService.url(variante));
+            }
+        }
+        return resumes;
     }
 
     // Exposer les distances d'une annonce sous forme de DTOs
     public List<AnnonceStadeDistanceDTO> getDistancesAnnonce(UUID annonceId) {
         Annonce annonce = annonceRepository.findById(annonceId)
                 .orElseThrow(() -> new AnnonceException.AnnonceNotFoundException("Annonce non trouvée"));
-        List<AnnonceStadeDistance> distances = annonceStadeDistanceService.getDistancesParAnnonce(annonce);
-        return distances.stream().map(this::convertirAnnonceStadeDistanceEnDTO).collect(Collectors.toList());
-    }
-
-    private AnnonceStadeDistanceDTO convertirAnnonceStadeDistanceEnDTO(AnnonceStadeDistance distance) {
-        AnnonceStadeDistanceDTO dto = new AnnonceStadeDistanceDTO();
-        dto.setId(distance.getId());
-        dto.setStade(convertirStadeEnDTO(distance.getStade()));
-        dto.setDistance(distance.getDistance());
-        dto.setTempsTrajetMinutes(distance.getTempsTrajetMinutes());
-        dto.setModeTransport(distance.getModeTransport().name());
-        dto.setEstLePlusProche(distance.getEstLePlusProche());
-        dto.setDateCreation(distance.getDateCreation());
-        dto.setDateModification(distance.getDateModification());
-        return dto;
+        return annonceDTOAssembleur.assemblerDistances(annonce);
     }
 
     private Adresse convertirAdresseDTO(AdresseDTO adresseDTO) {
@@ -519,63 +810,4 @@ public class AnnonceService {
         adresse.setComplement(adresseDTO.getComplement());
         return adresse;
     }
-
-    private AdresseDTO convertirAdresseEnDTO(Adresse adresse) {
-        AdresseDTO dto = new AdresseDTO();
-        dto.setRue(adresse.getRue());
-        dto.setNumero(adresse.getNumero());
-        dto.setCodePostal(adresse.getCodePostal());
-        dto.setVille(adresse.getVille());
-        dto.setPays(adresse.getPays());
-        dto.setComplement(adresse.getComplement());
-        return dto;
-    }
-
-    private StadeDTO convertirStadeEnDTO(Stade stade) {
-        if (stade == null) {
-            return null;
-        }
-
-        StadeDTO dto = new StadeDTO();
-        dto.setId(stade.getId());
-        dto.setNom(stade.getNom());
-        dto.setVille(stade.getVille());
-        dto.setAdresseComplete(stade.getAdresseComplete());
-        dto.setLatitude(stade.getLatitude());
-        dto.setLongitude(stade.getLongitude());
-        dto.setCapacite(stade.getCapacite());
-        dto.setDescription(stade.getDescription());
-        dto.setEstActif(stade.isEstActif());
-        dto.setDateCreation(stade.getDateCreation());
-        dto.setDateModification(stade.getDateModification());
-        dto.setSurfaceMetresCarres(stade.getSurfaceMetresCarres());
-        dto.setCategories(stade.getCategories());
-        dto.setCategoriesPlaces(convertirCategories(stade.getCategoriesPlaces()));
-        dto.setPrixMin(stade.getPrixMin());
-        dto.setPrixMax(stade.getPrixMax());
-        dto.setImages(stade.getImages());
-        dto.setImagesBlob(stade.getImagesBlob());
-        dto.setSurfaceType(stade.getSurfaceType());
-        dto.setDimensions(stade.getDimensions());
-        dto.setSiteWeb(stade.getSiteWeb());
-        dto.setTelephone(stade.getTelephone());
-
-        return dto;
-    }
-
-    private java.util.List<CategorieStadeDTO> convertirCategories(java.util.List<CategorieStade> categories) {
-        if (categories == null)
-            return java.util.Collections.emptyList();
-        return categories.stream().map(c -> {
-            CategorieStadeDTO dto = new CategorieStadeDTO();
-            dto.setId(c.getId());
-            dto.setCategorie(c.getCategorie());
-            dto.setNom(c.getNom());
-            dto.setNombrePlaces(c.getNombrePlaces());
-            dto.setPrix(c.getPrix());
-            dto.setDateCreation(c.getDateCreation());
-            dto.setDateModification(c.getDateModification());
-            return dto;
-        }).collect(java.util.stream.Collectors.toList());
-    }
-}
\ No newline at end of file
+}
@@ -2,17 +2,38 @@ package com.example.Impression.services;
 
 import com.example.Impression.entities.Annonce;
 import com.example.Impression.entities.AnnonceStadeDistance;
+import com.example.Impression.entities.DistancesAnnonce;
 import com.example.Impression.entities.Stade;
 import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.enums.StockageDistances;
 import com.example.Impression.repositories.AnnonceStadeDistanceRepository;
+import com.example.Impression.repositories.DistancesAnnonceRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -25,50 +46,153 @@ public class AnnonceStadeDistanceService {
     @Autowired
     private StadeService stadeService;
 
-    @Autowired(required = false)
-    private GoogleDistanceMatrixService googleDistanceMatrixService;
+    @Autowired
+    private DistanceCacheService distanceCacheService;
+
+    @Autowired
+    private MoteurRoutageService moteurRoutageService;
+
+    @Autowired
+    private DistancesAnnonceRepository distancesAnnonceRepository;
+
+    @Autowired
+    private IndexDistancesStadesService indexDistancesStadesService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final int TAILLE_TRANCHE_COMPACTAGE = 500;
+
+    /**
+     * LIGNES : une ligne annonce_stade_distances par annonce, stade et mode.
+     * COMPACT : une ligne annonce_distances par annonce (DistancesCompactes),
+     * seule la ligne du stade le plus proche est gardée dans
+     * annonce_stade_distances pour les résumés ; rayons, comptages et
+     * recherches par temps de trajet passent par IndexDistancesStadesService.
+     */
+    @Value("${app.distances.stockage:LIGNES}")
+    private StockageDistances stockage = StockageDistances.LIGNES;
+
+    public boolean estCompact() {
+        return stockage == StockageDistances.COMPACT;
+    }
 
     public void calculerEtSauvegarderDistances(Annonce annonce) {
-        // Si les coordonnées ne sont pas renseignées, on ne calcule rien
-        log.info("[Distances] Début calcul pour annonce {} (lat={}, lon={})", annonce.getId(), annonce.getLatitude(),
-                annonce.getLongitude());
-        if (annonce.getLatitude() == null || annonce.getLongitude() == null) {
-            log.warn("[Distances] Abandon: coordonnées manquantes pour annonce {}", annonce.getId());
-            return;
-        }
-        // Supprimer les anciennes distances pour cette annonce
-        annonceStadeDistanceRepository.deleteByAnnonce(annonce);
+        enregistrerDistances(annonce,
+                mesurerDistances(List.of(annonce)).getOrDefault(annonce.getId(), new ArrayList<>()));
+    }
 
-        List<Stade> stadesActifs = stadeService.obtenirTousLesStades();
-        log.info("[Distances] Stades actifs trouvés: {}", stadesActifs != null ? stadesActifs.size() : 0);
+    /**
+     * Mesure les distances de plusieurs annonces vers les stades actifs : moteur
+     * de routage hors ligne (voiture et marche) s'il est chargé, sinon un seul
+     * appel matriciel (via le cache) pour tout le lot, repli Haversine pour les
+     * annonces restées sans mesure. Rien n'est écrit ici ; hors transaction
+     * pour ne pas garder de connexion ouverte pendant les appels réseau.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<UUID, List<StadeEtDistance>> mesurerDistances(List<Annonce> annonces) {
+        return mesurer(annonces, stadeService.snapshot());
+    }
 
-        boolean utiliseGoogle = googleDistanceMatrixService != null && googleDistanceMatrixService.isEnabled();
-        List<StadeEtDistance> mesures = new java.util.ArrayList<>();
+    // Mesures d'une tranche d'annonces vers un seul stade (RecalculStadeService)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<UUID, List<StadeEtDistance>> mesurerVersStade(List<Annonce> annonces, Stade stade) {
+        return mesurer(annonces, StadeSnapshot.de(List.of(stade)));
+    }
+
+    private Map<UUID, List<StadeEtDistance>> mesurer(List<Annonce> annonces, StadeSnapshot snapshot) {
+        Map<UUID, List<StadeEtDistance>> mesuresParAnnonce = new HashMap<>();
+        List<Annonce> geolocalisees = annonces.stream()
+                .filter(a -> a.getLatitude() != null && a.getLongitude() != null)
+                .collect(Collectors.toList());
+        if (geolocalisees.isEmpty() || snapshot.estVide()) {
+            return mesuresParAnnonce;
+        }
+        List<Stade> stadesActifs = snapshot.stades();
+        Set<UUID> stadeIds = stadesActifs.stream().map(Stade::getId).collect(Collectors.toSet());
+        log.info("[Distances] Mesure de {} annonce(s) vers {} stade(s) actif(s)", geolocalisees.size(),
+                stadesActifs.size());
 
-        if (utiliseGoogle) {
-            log.info("[Distances] Google Distance Matrix activé, tentative de calcul via API");
-            var resultats = googleDistanceMatrixService.calculerDistancesEtTemps(
-                    annonce.getLatitude(), annonce.getLongitude(), stadesActifs);
-            for (var r : resultats) {
-                mesures.add(new StadeEtDistance(r.getStade(), r.getDistanceKm(), r.getDureeMinutes()));
+        // Trajets marche conservés même quand la voiture passe par un repli
+        Map<UUID, List<StadeEtDistance>> marcheParAnnonce = new HashMap<>();
+        if (moteurRoutageService.isEnabled()) {
+            for (Annonce annonce : geolocalisees) {
+                List<StadeEtDistance> trajets = moteurRoutageService.calculer(annonce.getLatitude(),
+                        annonce.getLongitude());
+                trajets.removeIf(t -> !stadeIds.contains(t.stade.getId()));
+                if (trajets.stream().anyMatch(t -> t.mode == ModeTransport.VOITURE)) {
+                    mesuresParAnnonce.put(annonce.getId(), trajets);
+                } else if (!trajets.isEmpty()) {
+                    marcheParAnnonce.put(annonce.getId(), trajets);
+                }
             }
-            log.info("[Distances] Mesures via Google: {}", mesures.size());
         }
 
-        if (!utiliseGoogle || mesures.isEmpty()) {
-            // Repli: calcul Haversine + estimation
-            var stadesAvecDistances = stadeService.calculerDistancesAvecTousLesStades(
-                    annonce.getLatitude(), annonce.getLongitude());
-            for (var s : stadesAvecDistances) {
-                BigDecimal distance = s.getDistance();
-                Integer duree = distance != null ? distance.multiply(BigDecimal.valueOf(1.5)).intValue() : null;
-                mesures.add(new StadeEtDistance(s.getStade(), distance, duree));
+        List<Annonce> aMesurer = geolocalisees.stream()
+                .filter(a -> !mesuresParAnnonce.containsKey(a.getId()))
+                .collect(Collectors.toList());
+        if (distanceCacheService.isEnabled() && !aMesurer.isEmpty()) {
+            List<List<GoogleDistanceMatrixService.ResultatDistance>> matrice = distanceCacheService.calculerMatrice(
+                    aMesurer.stream()
+                            .map(a -> new GoogleDistanceMatrixService.Origine(a.getLatitude(), a.getLongitude()))
+                            .collect(Collectors.toList()),
+                    stadesActifs);
+            for (int i = 0; i < aMesurer.size(); i++) {
+                List<StadeEtDistance> mesures = matrice.get(i).stream()
+                        .map(r -> new StadeEtDistance(r.getStade(), r.getDistanceKm(), r.getDureeMinutes()))
+                        .collect(Collectors.toList());
+                if (!mesures.isEmpty()) {
+                    mesures.addAll(marcheParAnnonce.getOrDefault(aMesurer.get(i).getId(), List.of()));
+                    mesuresParAnnonce.put(aMesurer.get(i).getId(), mesures);
+                }
+            }
+        }
+
+        // Repli: calcul Haversine + estimation, en un passage pour tout le lot
+        List<Annonce> sansMesure = geolocalisees.stream()
+                .filter(a -> !mesuresParAnnonce.containsKey(a.getId()))
+                .collect(Collectors.toList());
+        if (sansMesure.isEmpty()) {
+            return mesuresParAnnonce;
+        }
+        int n = snapshot.taille();
+        double[] latitudes = new double[sansMesure.size()];
+        double[] longitudes = new double[sansMesure.size()];
+        for (int i = 0; i < sansMesure.size(); i++) {
+            latitudes[i] = sansMesure.get(i).getLatitude().doubleValue();
+            longitudes[i] = sansMesure.get(i).getLongitude().doubleValue();
+        }
+        double[] distances = new double[sansMesure.size() * n];
+        snapshot.distancesKm(latitudes, longitudes, sansMesure.size(), distances);
+        for (int i = 0; i < sansMesure.size(); i++) {
+            List<StadeEtDistance> mesures = new ArrayList<>(n);
+            for (int j = 0; j < n; j++) {
+                BigDecimal distance = StadeService.arrondirKm(distances[i * n + j]);
+                mesures.add(new StadeEtDistance(snapshot.stade(j), distance, estimerDuree(distance)));
             }
-            log.info("[Distances] Mesures via fallback (Haversine): {}", mesures.size());
+            mesures.addAll(marcheParAnnonce.getOrDefault(sansMesure.get(i).getId(), List.of()));
+            mesuresParAnnonce.put(sansMesure.get(i).getId(), mesures);
         }
+        log.info("[Distances] Mesures via fallback (Haversine) pour {} annonce(s)", sansMesure.size());
+        return mesuresParAnnonce;
+    }
+
+    // Remplacer les distances d'une annonce par des mesures déjà faites
+    public void enregistrerDistances(Annonce annonce, List<StadeEtDistance> mesures) {
+        // Si les coordonnées ne sont pas renseignées, on ne calcule rien
+        if (annonce.getLatitude() == null || annonce.getLongitude() == null) {
+            log.warn("[Distances] Abandon: coordonnées manquantes pour annonce {}", annonce.getId());
+            return;
+        }
+        // Supprimer les anciennes distances pour cette annonce
+        annonceStadeDistanceRepository.deleteByAnnonce(annonce);
 
         // Trier par distance croissante
-        mesures.sort((a, b) -> {
+        List<StadeEtDistance> triees = new ArrayList<>(mesures);
+        triees.sort((a, b) -> {
             if (a.distance == null && b.distance == null)
                 return 0;
             if (a.distance == null)
@@ -78,53 +202,386 @@ public class AnnonceStadeDistanceService {
             return a.distance.compareTo(b.distance);
         });
 
+        // Le stade le plus proche est celui du premier trajet en voiture
         boolean premierStade = true;
         int sauvegardees = 0;
-        for (var m : mesures) {
+        DistancesCompactes compactes = estCompact() ? new DistancesCompactes(triees.size()) : null;
+        for (var m : triees) {
             // Ne pas persister des valeurs incomplètes
             if (m.distance == null || m.dureeMinutes == null) {
                 log.warn("[Distances] Mesure ignorée (distance/durée null) pour stade={} distance={} duree={}",
                         m.stade != null ? m.stade.getNom() : null, m.distance, m.dureeMinutes);
                 continue;
             }
-            AnnonceStadeDistance asd = new AnnonceStadeDistance(
-                    annonce,
-                    m.stade,
-                    m.distance,
-                    m.dureeMinutes,
-                    ModeTransport.VOITURE,
-                    premierStade);
-            annonceStadeDistanceRepository.save(asd);
-            premierStade = false;
+            boolean plusProche = premierStade && m.mode == ModeTransport.VOITURE;
+            if (compactes != null) {
+                compactes.ajouter(m.stade.getId(), m.distance, m.dureeMinutes, m.mode);
+            }
+            if (compactes == null || plusProche) {
+                AnnonceStadeDistance asd = new AnnonceStadeDistance(annonce, m.stade, m.distance, m.dureeMinutes,
+                        m.mode, plusProche);
+                asd.setBandeIsochrone(Isochrones.bande(m.dureeMinutes));
+                annonceStadeDistanceRepository.save(asd);
+            }
+            if (m.mode == ModeTransport.VOITURE) {
+                premierStade = false;
+            }
             sauvegardees++;
         }
+        if (compactes != null) {
+            enregistrerCompactes(new DistancesAnnonce(annonce.getId(), null, null), compactes);
+        }
         // S'assurer que les insertions sont poussées en base avant toute lecture
         annonceStadeDistanceRepository.flush();
         log.info("[Distances] Distances sauvegardées pour annonce {}: {}", annonce.getId(), sauvegardees);
     }
 
+    /**
+     * Remplace, pour une tranche d'annonces, les distances vers un seul stade
+     * (mesures vide ou absente : stade retiré) puis rétablit estLePlusProche.
+     * Seules les annonces dont le stade le plus proche était ce stade relisent
+     * leurs autres distances ; pour les autres, la nouvelle mesure est comparée
+     * au plus proche actuel.
+     *
+     * @return le nombre de distances enregistrées
+     */
+    public int remplacerDistancesVersStade(List<Annonce> annonces, UUID stadeId,
+            Map<UUID, List<StadeEtDistance>> mesures) {
+        if (annonces.isEmpty()) {
+            return 0;
+        }
+        if (estCompact()) {
+            return remplacerDistancesCompactesVersStade(annonces, stadeId, mesures);
+        }
+        Set<UUID> annonceIds = annonces.stream().map(Annonce::getId).collect(Collectors.toSet());
+        annonceStadeDistanceRepository.supprimerParStadeEtAnnonces(stadeId, annonceIds);
+        Map<UUID, AnnonceStadeDistance> plusProches = new HashMap<>();
+        for (AnnonceStadeDistance d : annonceStadeDistanceRepository.findPlusProchesByAnnonceIdIn(annonceIds)) {
+            plusProches.put(d.getAnnonce().getId(), d);
+        }
+
+        List<AnnonceStadeDistance> nouvelles = new ArrayList<>();
+        Map<UUID, AnnonceStadeDistance> voitureParAnnonce = new HashMap<>();
+        for (Annonce annonce : annonces) {
+            for (StadeEtDistance m : mesures.getOrDefault(annonce.getId(), List.of())) {
+                if (m.distance == null || m.dureeMinutes == null) {
+                    continue;
+                }
+                AnnonceStadeDistance asd = new AnnonceStadeDistance(annonce, m.stade, m.distance, m.dureeMinutes,
+                        m.mode, false);
+                asd.setBandeIsochrone(Isochrones.bande(m.dureeMinutes));
+                nouvelles.add(asd);
+                if (m.mode == ModeTransport.VOITURE) {
+                    voitureParAnnonce.put(annonce.getId(), asd);
+                }
+            }
+        }
+
+        // Le plus proche actuel est un autre stade : une comparaison suffit
+        Set<UUID> aRelire = new HashSet<>();
+        for (Annonce annonce : annonces) {
+            AnnonceStadeDistance actuel = plusProches.get(annonce.getId());
+            AnnonceStadeDistance nouvelle = voitureParAnnonce.get(annonce.getId());
+            if (actuel == null) {
+                aRelire.add(annonce.getId());
+            } else if (nouvelle != null && nouvelle.getDistance().compareTo(actuel.getDistance()) < 0) {
+                actuel.setEstLePlusProche(false);
+                nouvelle.setEstLePlusProche(true);
+            }
+        }
+
+        // Sans plus proche (il vient d'être supprimé, ou aucune distance) : relire
+        // les autres trajets en voiture
+        if (!aRelire.isEmpty()) {
+            Map<UUID, AnnonceStadeDistance> meilleures = new HashMap<>();
+            for (AnnonceStadeDistance d : annonceStadeDistanceRepository.findByAnnonceIdInAndMode(aRelire,
+                    ModeTransport.VOITURE)) {
+                meilleures.putIfAbsent(d.getAnnonce().getId(), d);
+            }
+            for (UUID annonceId : aRelire) {
+                AnnonceStadeDistance meilleure = meilleures.get(annonceId);
+                AnnonceStadeDistance nouvelle = voitureParAnnonce.get(annonceId);
+                if (nouvelle != null
+                        && (meilleure == null || nouvelle.getDistance().compareTo(meilleure.getDistance()) < 0)) {
+                    meilleure = nouvelle;
+                }
+                if (meilleure != null) {
+                    meilleure.setEstLePlusProche(true);
+                }
+            }
+        }
+        annonceStadeDistanceRepository.saveAll(nouvelles);
+        annonceStadeDistanceRepository.flush();
+        return nouvelles.size();
+    }
+
+    // Stockage COMPACT : même remplacement, annonce par annonce dans sa ligne
+    // compacte ; le plus proche se relit dans la ligne, sans requête
+    private int remplacerDistancesCompactesVersStade(List<Annonce> annonces, UUID stadeId,
+            Map<UUID, List<StadeEtDistance>> mesures) {
+        Set<UUID> annonceIds = annonces.stream().map(Annonce::getId).collect(Collectors.toSet());
+        Map<UUID, DistancesAnnonce> existantes = distancesAnnonceRepository.findAllById(annonceIds)
+                .stream()
+                .collect(Collectors.toMap(DistancesAnnonce::getAnnonceId, d -> d));
+        Map<UUID, Stade> stades = stadesConnus();
+        DistancesCompactes tampon = new DistancesCompactes();
+        List<AnnonceStadeDistance> plusProches = new ArrayList<>();
+        int enregistrees = 0;
+        annonceStadeDistanceRepository.supprimerParAnnonces(annonceIds);
+        for (Annonce annonce : annonces) {
+            DistancesAnnonce ligne = existantes.get(annonce.getId());
+            List<StadeEtDistance> nouvelles = mesures.getOrDefault(annonce.getId(), List.of());
+            tampon.vider();
+            if (ligne != null) {
+                tampon.lire(ligne.getDonnees());
+                tampon.retirerStade(stadeId);
+            } else if (nouvelles.isEmpty()) {
+                continue;
+            } else {
+                ligne = new DistancesAnnonce(annonce.getId(), null, null);
+            }
+            for (StadeEtDistance m : nouvelles) {
+                if (m.distance != null && m.dureeMinutes != null) {
+                    tampon.ajouter(m.stade.getId(), m.distance, m.dureeMinutes, m.mode);
+                    stades.putIfAbsent(m.stade.getId(), m.stade);
+                    enregistrees++;
+                }
+            }
+            enregistrerCompactes(ligne, tampon);
+            AnnonceStadeDistance plusProche = lignePlusProche(annonce, tampon, stades);
+            if (plusProche != null) {
+                plusProches.add(plusProche);
+            }
+        }
+        annonceStadeDistanceRepository.saveAll(plusProches);
+        annonceStadeDistanceRepository.flush();
+        return enregistrees;
+    }
+
+    // Encode, enregistre et indexe (après validation) la ligne compacte d'une annonce
+    private void enregistrerCompactes(DistancesAnnonce ligne, DistancesCompactes compactes) {
+        byte[] donnees = compactes.ecrire();
+        ligne.setDonnees(donnees);
+        distancesAnnonceRepository.save(ligne);
+        UUID annonceId = ligne.getAnnonceId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indexDistancesStadesService.mettreAJour(annonceId, donnees);
+                }
+            });
+        } else {
+            indexDistancesStadesService.mettreAJour(annonceId, donnees);
+        }
+    }
+
+    // Ligne annonce_stade_distances du plus proche (résumés), null sans trajet en voiture
+    private AnnonceStadeDistance lignePlusProche(Annonce annonce, DistancesCompactes compactes,
+            Map<UUID, Stade> stades) {
+        int p = compactes.plusProche();
+        if (p < 0) {
+            return null;
+        }
+        Stade stade = stade(stades, compactes.stadeId(p));
+        if (stade == null) {
+            return null;
+        }
+        AnnonceStadeDistance asd = new AnnonceStadeDistance(annonce, stade, compactes.distance(p),
+                compactes.minutes(p), ModeTransport.VOITURE, true);
+        asd.setBandeIsochrone(Isochrones.bande(compactes.minutes(p)));
+        return asd;
+    }
+
+    // Stades de la photographie courante, complétés à la demande
+    private Map<UUID, Stade> stadesConnus() {
+        Map<UUID, Stade> stades = new HashMap<>();
+        for (Stade stade : stadeService.snapshot().stades()) {
+            stades.put(stade.getId(), stade);
+        }
+        return stades;
+    }
+
+    private Stade stade(Map<UUID, Stade> stades, UUID stadeId) {
+        return stades.computeIfAbsent(stadeId, id -> stadeService.obtenirStadeParId(id).orElse(null));
+    }
+
+    /**
+     * Distances de plusieurs annonces lues dans leurs lignes compactes, sous
+     * forme d'AnnonceStadeDistance non persistées (même rendu que les lignes),
+     * les plus courtes d'abord. Une annonce sans ligne compacte est absente.
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<AnnonceStadeDistance>> lireDistancesCompactes(List<Annonce> annonces) {
+        Map<UUID, Annonce> parId = annonces.stream().collect(Collectors.toMap(Annonce::getId, a -> a, (a, b) -> a));
+        Map<UUID, List<AnnonceStadeDistance>> parAnnonce = new HashMap<>();
+        Map<UUID, Stade> stades = null;
+        DistancesCompactes tampon = new DistancesCompactes();
+        for (DistancesAnnonce ligne : distancesAnnonceRepository.findAllById(parId.keySet())) {
+            if (stades == null) {
+                stades = stadesConnus();
+            }
+            Annonce annonce = parId.get(ligne.getAnnonceId());
+            tampon.lire(ligne.getDonnees());
+            List<AnnonceStadeDistance> distances = new ArrayList<>(tampon.nombre());
+            for (int i = 0; i < tampon.nombre(); i++) {
+                Stade stade = stade(stades, tampon.stadeId(i));
+                if (stade == null) {
+                    continue;
+                }
+                AnnonceStadeDistance asd = new AnnonceStadeDistance(annonce, stade, tampon.distance(i),
+                        tampon.minutes(i), tampon.mode(i), i == tampon.plusProche());
+                asd.setBandeIsochrone(Isochrones.bande(tampon.minutes(i)));
+                asd.setDateCreation(ligne.getDateModification());
+                asd.setDateModification(ligne.getDateModification());
+                distances.add(asd);
+            }
+            parAnnonce.put(annonce.getId(), distances);
+        }
+        return parAnnonce;
+    }
+
+    // Annonces à moins de rayonKm d'un stade, les plus proches d'abord
+    @Transactional(readOnly = true)
+    public List<UUID> findAnnoncesProchesStade(Stade stade, double rayonKm) {
+        if (estCompact()) {
+            return indexDistancesStadesService.annoncesProches(stade.getId(), rayonKm);
+        }
+        return annonceStadeDistanceRepository.findAnnoncesProchesStade(stade, rayonKm)
+                .stream()
+                .map(d -> d.getAnnonce().getId())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public long countAnnoncesProchesStade(Stade stade, double rayonKm) {
+        if (estCompact()) {
+            return indexDistancesStadesService.compterAnnoncesProches(stade.getId(), rayonKm);
+        }
+        return annonceStadeDistanceRepository.countAnnoncesProchesStade(stade, rayonKm);
+    }
+
     public void mettreAJourDistances(Annonce annonce) {
         // Cette méthode fait la même chose que calculerEtSauvegarderDistances
         // car nous recalculons toutes les distances
         calculerEtSauvegarderDistances(annonce);
     }
 
+    // Lecture seule : le calcul passe par la file DistanceJobService
     public List<AnnonceStadeDistance> getDistancesParAnnonce(Annonce annonce) {
-        List<AnnonceStadeDistance> distances = annonceStadeDistanceRepository.findByAnnonceOrderByDistanceAsc(annonce);
-        if ((distances == null || distances.isEmpty()) && annonce.getLatitude() != null
-                && annonce.getLongitude() != null) {
-            log.warn("[Distances] Aucune distance trouvée en BDD pour annonce {}. Recalcul et persistance...",
-                    annonce.getId());
-            try {
-                calculerEtSauvegarderDistances(annonce);
-                annonceStadeDistanceRepository.flush();
-                distances = annonceStadeDistanceRepository.findByAnnonceOrderByDistanceAsc(annonce);
-                log.info("[Distances] Distances recalculées retrouvées: {}", distances != null ? distances.size() : 0);
-            } catch (Exception ex) {
-                log.error("[Distances] Échec du recalcul: {}", ex.getMessage(), ex);
+        return annonceStadeDistanceRepository.findByAnnonceOrderByDistanceAsc(annonce);
+    }
+
+    /**
+     * Estimations affichées tant que le calcul des distances d'une annonce est
+     * en attente : trajets du moteur hors ligne s'il est chargé, sinon vol
+     * d'oiseau (Haversine, 1,5 min/km). Rien n'est persisté.
+     */
+    public List<AnnonceStadeDistance> estimerDistances(Annonce annonce, StadeSnapshot stades) {
+        List<AnnonceStadeDistance> estimations = new ArrayList<>();
+        if (annonce.getLatitude() == null || annonce.getLongitude() == null) {
+            return estimations;
+        }
+        if (moteurRoutageService.isEnabled()) {
+            List<StadeEtDistance> trajets = moteurRoutageService.calculer(annonce.getLatitude(),
+                    annonce.getLongitude());
+            if (!trajets.isEmpty()) {
+                trajets.sort(Comparator.comparing(t -> t.distance));
+                boolean premier = true;
+                for (StadeEtDistance t : trajets) {
+                    boolean plusProche = premier && t.mode == ModeTransport.VOITURE;
+                    estimations.add(new AnnonceStadeDistance(annonce, t.stade, t.distance, t.dureeMinutes, t.mode,
+                            plusProche));
+                    premier &= !plusProche;
+                }
+                return estimations;
             }
         }
-        return distances;
+        double[] distances = new double[stades.taille()];
+        stades.distancesKm(annonce.getLatitude().doubleValue(), annonce.getLongitude().doubleValue(), distances);
+        for (int j = 0; j < distances.length; j++) {
+            BigDecimal distance = StadeService.arrondirKm(distances[j]);
+            estimations.add(new AnnonceStadeDistance(annonce, stades.stade(j), distance, estimerDuree(distance),
+                    ModeTransport.VOITURE, false));
+        }
+        estimations.sort(Comparator.comparing(AnnonceStadeDistance::getDistance));
+        if (!estimations.isEmpty()) {
+            estimations.get(0).setEstLePlusProche(true);
+        }
+        return estimations;
+    }
+
+    // Durée estimée en voiture : 1,5 min/km
+    private static Integer estimerDuree(BigDecimal distance) {
+        return distance.multiply(BigDecimal.valueOf(1.5)).intValue();
+    }
+
+    /**
+     * Classe dans leur bande isochrone les distances enregistrées avant
+     * l'introduction des bandes (une mise à jour par bande, idempotente).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void classerDistancesSansBande() {
+        int precedente = -1;
+        int classees = 0;
+        for (int borne : Isochrones.BORNES_MINUTES) {
+            classees += annonceStadeDistanceRepository.classerDansBande(borne, precedente);
+            precedente = borne;
+        }
+        if (classees > 0) {
+            log.info("[Distances] {} distance(s) classée(s) dans leur bande isochrone", classees);
+        }
+    }
+
+    /**
+     * Passage au stockage COMPACT : les annonces qui n'ont encore que des
+     * lignes annonce_stade_distances reçoivent leur ligne compacte, puis seules
+     * les lignes des plus proches sont gardées. Une transaction par tranche de
+     * TAILLE_TRANCHE_COMPACTAGE annonces : reprend où il s'est arrêté.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void compacterDistancesExistantes() {
+        if (!estCompact()) {
+            return;
+        }
+        int compactees = 0;
+        DistancesCompactes tampon = new DistancesCompactes();
+        Integer tranche;
+        while ((tranche = transactionTemplate.execute(statut -> compacterTranche(tampon))) != null && tranche > 0) {
+            compactees += tranche;
+        }
+        if (compactees > 0) {
+            log.info("[Distances] {} annonce(s) passée(s) au stockage compact", compactees);
+        }
+        indexDistancesStadesService.recharger();
+    }
+
+    // Une tranche d'annonces à compacter ; le contexte de persistance est vidé
+    // pour que la mémoire ne croisse pas avec la table
+    private int compacterTranche(DistancesCompactes tampon) {
+        List<UUID> ids = distancesAnnonceRepository.findAnnonceIdsACompacter(
+                PageRequest.of(0, TAILLE_TRANCHE_COMPACTAGE));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, List<AnnonceStadeDistance>> parAnnonce = new HashMap<>();
+        for (AnnonceStadeDistance d : annonceStadeDistanceRepository.findAvecStadeByAnnonceIdIn(ids)) {
+            parAnnonce.computeIfAbsent(d.getAnnonce().getId(), k -> new ArrayList<>()).add(d);
+        }
+        for (Map.Entry<UUID, List<AnnonceStadeDistance>> e : parAnnonce.entrySet()) {
+            tampon.vider();
+            for (AnnonceStadeDistance d : e.getValue()) {
+                tampon.ajouter(d.getStade().getId(), d.getDistance(), d.getTempsTrajetMinutes(),
+                        d.getModeTransport());
+            }
+            distancesAnnonceRepository.save(new DistancesAnnonce(e.getKey(), tampon.ecrire(), null));
+        }
+        annonceStadeDistanceRepository.supprimerSaufPlusProches(ids);
+        distancesAnnonceRepository.flush();
+        entityManager.clear();
+        return ids.size();
     }
 
     public Optional<AnnonceStadeDistance> getStadeLePlusProche(Annonce annonce) {
@@ -133,17 +590,9 @@ public class AnnonceStadeDistanceService {
 
     public void supprimerDistancesParAnnonce(Annonce annonce) {
         annonceStadeDistanceRepository.deleteByAnnonce(annonce);
-    }
-}
-
-class StadeEtDistance {
-    public final Stade stade;
-    public final BigDecimal distance;
-    public final Integer dureeMinutes;
-
-    StadeEtDistance(Stade stade, BigDecimal distance, Integer dureeMinutes) {
-        this.stade = stade;
-        this.distance = distance;
-        this.dureeMinutes = dureeMinutes;
+        if (estCompact()) {
+            distancesAnnonceRepository.supprimerParAnnonce(annonce.getId());
+            indexDistancesStadesService.retirer(annonce.getId());
+        }
     }
 }
\ No newline at end of file
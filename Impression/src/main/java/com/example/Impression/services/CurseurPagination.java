@@ -0,0 +1,110 @@
+package com.example.Impression.services;
+
+import com.example.Impression.exception.AnnonceException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encodage des curseurs de pagination keyset.
+ *
+ * Un curseur contient le type de tri suivi des valeurs des clés de tri du
+ * dernier élément renvoyé (ex: date de création + id). Il est encodé en
+ * base64 URL pour rester opaque côté client. Les clés se lisent avec les
+ * accesseurs typés ci-dessous : une valeur altérée donne une erreur de
+ * validation (400), jamais une erreur serveur.
+ */
+public final class CurseurPagination {
+
+    private static final String SEPARATEUR = "|";
+
+    private CurseurPagination() {
+    }
+
+    public static String encoder(String tri, Object... cles) {
+        StringBuilder contenu = new StringBuilder(tri);
+        for (Object cle : cles) {
+            contenu.append(SEPARATEUR).append(cle);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(contenu.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur et vérifie qu'il a été produit pour le tri attendu.
+     *
+     * @return les valeurs des clés, ou null si aucun curseur n'est fourni
+     */
+    public static String[] decoder(String curseur, String triAttendu, int nombreCles) {
+        if (curseur == null || curseur.isBlank()) {
+            return null;
+        }
+        String contenu;
+        try {
+            contenu = new String(Base64.getUrlDecoder().decode(curseur), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new AnnonceException.AnnonceValidationException("Curseur de pagination invalide");
+        }
+        String[] parties = contenu.split("\\" + SEPARATEUR, -1);
+        if (parties.length != nombreCles + 1 || !parties[0].equals(triAttendu)) {
+            throw new AnnonceException.AnnonceValidationException("Curseur de pagination invalide");
+        }
+        String[] cles = new String[nombreCles];
+        System.arraycopy(parties, 1, cles, 0, nombreCles);
+        return cles;
+    }
+
+    // ========== LECTURE DES CLÉS ==========
+
+    public static LocalDateTime dateHeure(String cle) {
+        try {
+            return LocalDateTime.parse(cle);
+        } catch (RuntimeException e) {
+            throw invalide();
+        }
+    }
+
+    public static UUID identifiant(String cle) {
+        try {
+            return UUID.fromString(cle);
+        } catch (RuntimeException e) {
+            throw invalide();
+        }
+    }
+
+    public static BigDecimal decimal(String cle) {
+        try {
+            return new BigDecimal(cle);
+        } catch (RuntimeException e) {
+            throw invalide();
+        }
+    }
+
+    public static double reel(String cle) {
+        double valeur;
+        try {
+            valeur = Double.parseDouble(cle);
+        } catch (RuntimeException e) {
+            throw invalide();
+        }
+        if (!Double.isFinite(valeur)) {
+            throw invalide();
+        }
+        return valeur;
+    }
+
+    public static int entier(String cle) {
+        try {
+            return Integer.parseInt(cle);
+        } catch (RuntimeException e) {
+            throw invalide();
+        }
+    }
+
+    private static AnnonceException.AnnonceValidationException invalide() {
+        return new AnnonceException.AnnonceValidationException("Curseur de pagination invalide");
+    }
+}
@@ -0,0 +1,365 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.NuitReservee;
+import com.example.Impression.entities.Reservation;
+import com.example.Impression.enums.StatutReservation;
+import com.example.Impression.exception.ReservationException;
+import com.example.Impression.repositories.NuitReserveeRepository;
+import com.example.Impression.repositories.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disponibilité des annonces en mémoire : pour chaque annonce consultée, un
+ * bitmap des nuits occupées (réservations CONFIRMEE ou EN_COURS) sur
+ * app.disponibilite.horizon-jours à partir de sa date de construction. Une
+ * vérification teste les bits des nuits demandées, sans requête.
+ *
+ * Le bitmap d'une annonce est construit à la première vérification (une
+ * requête sur ses réservations actives), complété quand une réservation est
+ * confirmée et oublié quand une réservation active est annulée ou terminée
+ * (reconstruit à la vérification suivante). Les séjours hors de l'horizon
+ * passent par la requête de conflit. Une vérification périodique compare les
+ * bitmaps à la base et corrige les écarts (modifications faites par une autre
+ * instance, par exemple).
+ *
+ * Les nuits des réservations actives sont aussi enregistrées dans
+ * nuits_reservees, dont la contrainte unique (annonce, nuit) fait échouer à
+ * l'insertion une confirmation qui chevaucherait une autre réservation.
+ */
+@Service
+@Slf4j
+public class DisponibiliteService {
+
+    private static final List<StatutReservation> STATUTS_ACTIFS = List.of(StatutReservation.CONFIRMEE,
+            StatutReservation.EN_COURS);
+
+    private static final int TAILLE_PAGE_RATTRAPAGE = 500;
+
+    private final ReservationRepository reservationRepository;
+    private final NuitReserveeRepository nuitReserveeRepository;
+    private final int horizonJours;
+
+    private final Map<UUID, Calendrier> calendriers = new ConcurrentHashMap<>();
+    // Incrémenté à chaque changement d'occupation : un bitmap construit pendant un
+    // changement n'est pas gardé
+    private final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * Nuits occupées d'une annonce : bit i = nuit du jour origine + i
+     */
+    static final class Calendrier {
+        final LocalDate origine;
+        final long[] mots;
+
+        Calendrier(LocalDate origine, int jours) {
+            this.origine = origine;
+            this.mots = new long[(jours + 63) >>> 6];
+        }
+
+        int jours() {
+            return mots.length << 6;
+        }
+
+        // Les nuits [arrivee, depart) sont-elles toutes dans le bitmap ?
+        boolean couvre(LocalDate arrivee, LocalDate depart) {
+            return !arrivee.isBefore(origine) && ChronoUnit.DAYS.between(origine, depart) <= jours();
+        }
+
+        synchronized void occuper(LocalDate arrivee, LocalDate depart) {
+            int debut = (int) Math.max(0, ChronoUnit.DAYS.between(origine, arrivee));
+            int fin = (int) Math.min(jours(), ChronoUnit.DAYS.between(origine, depart));
+            for (int i = debut; i < fin; i++) {
+                mots[i >>> 6] |= 1L << i;
+            }
+        }
+
+        // Une nuit de [arrivee, depart) est-elle occupée ? Un mot de 64 nuits à la fois
+        synchronized boolean chevauche(LocalDate arrivee, LocalDate depart) {
+            int debut = (int) ChronoUnit.DAYS.between(origine, arrivee);
+            int fin = (int) ChronoUnit.DAYS.between(origine, depart);
+            if (debut >= fin) {
+                return false;
+            }
+            int premier = debut >>> 6;
+            int dernier = (fin - 1) >>> 6;
+            for (int m = premier; m <= dernier; m++) {
+                long masque = -1L;
+                if (m == premier) {
+                    masque &= -1L << debut;
+                }
+                if (m == dernier) {
+                    masque &= -1L >>> (63 - ((fin - 1) & 63));
+                }
+                if ((mots[m] & masque) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Nuits occupées à partir de debut : bit i = nuit debut + i
+        synchronized BitSet extraire(LocalDate debut, int jours) {
+            BitSet nuits = new BitSet(jours);
+            int decalage = (int) ChronoUnit.DAYS.between(origine, debut);
+            int fin = Math.min(jours, jours() - decalage);
+            for (int i = Math.max(0, -decalage); i < fin; i++) {
+                int j = decalage + i;
+                if ((mots[j >>> 6] & (1L << j)) != 0) {
+                    nuits.set(i);
+                }
+            }
+            return nuits;
+        }
+
+        synchronized boolean memesNuits(Calendrier autre) {
+            return origine.equals(autre.origine) && Arrays.equals(mots, autre.mots);
+        }
+    }
+
+    public DisponibiliteService(ReservationRepository reservationRepository,
+            NuitReserveeRepository nuitReserveeRepository,
+            @Value("${app.disponibilite.horizon-jours:730}") int horizonJours) {
+        this.reservationRepository = reservationRepository;
+        this.nuitReserveeRepository = nuitReserveeRepository;
+        this.horizonJours = horizonJours;
+    }
+
+    // ========== VÉRIFICATION ==========
+
+    /**
+     * Aucune réservation CONFIRMEE ou EN_COURS de l'annonce n'occupe une nuit de
+     * [dateArrivee, dateDepart)
+     */
+    public boolean estDisponible(UUID annonceId, LocalDate dateArrivee, LocalDate dateDepart) {
+        if (dateArrivee != null && dateDepart != null && dateArrivee.isBefore(dateDepart)) {
+            Calendrier calendrier = calendrier(annonceId);
+            if (calendrier.couvre(dateArrivee, dateDepart)) {
+                return !calendrier.chevauche(dateArrivee, dateDepart);
+            }
+        }
+        return !reservationRepository.existsConflitReservation(annonceId, dateArrivee, dateDepart);
+    }
+
+    /**
+     * Disponibilité de plusieurs annonces pour les mêmes dates, dans l'ordre
+     * donné. Les annonces dont le bitmap est en mémoire sont testées sans
+     * requête ; les autres par une seule requête sur nuits_reservees (les
+     * bitmaps manquants ne sont pas construits).
+     */
+    public Map<UUID, Boolean> disponibilites(Collection<UUID> annonceIds, LocalDate dateArrivee,
+            LocalDate dateDepart) {
+        Map<UUID, Boolean> disponibilites = new LinkedHashMap<>();
+        List<UUID> aVerifier = new ArrayList<>();
+        LocalDate aujourdHui = LocalDate.now();
+        for (UUID annonceId : annonceIds) {
+            Calendrier calendrier = calendriers.get(annonceId);
+            if (calendrier != null && estAJour(calendrier, aujourdHui) && calendrier.couvre(dateArrivee, dateDepart)) {
+                disponibilites.put(annonceId, !calendrier.chevauche(dateArrivee, dateDepart));
+            } else {
+                disponibilites.put(annonceId, null);
+                aVerifier.add(annonceId);
+            }
+        }
+        if (!aVerifier.isEmpty()) {
+            Set<UUID> occupees = new HashSet<>(
+                    nuitReserveeRepository.findAnnoncesOccupees(aVerifier, dateArrivee, dateDepart));
+            for (UUID annonceId : aVerifier) {
+                disponibilites.put(annonceId, !occupees.contains(annonceId));
+            }
+        }
+        return disponibilites;
+    }
+
+    /**
+     * Nuits occupées (CONFIRMEE ou EN_COURS) de [debut, fin) : bit i = nuit
+     * debut + i. Lu dans le bitmap de l'annonce quand il couvre la fenêtre,
+     * sinon construit par une seule requête.
+     */
+    public BitSet nuitsOccupees(UUID annonceId, LocalDate debut, LocalDate fin) {
+        int jours = (int) ChronoUnit.DAYS.between(debut, fin);
+        Calendrier calendrier = calendrier(annonceId);
+        if (!calendrier.couvre(debut, fin)) {
+            calendrier = construire(annonceId, debut, jours);
+        }
+        return calendrier.extraire(debut, jours);
+    }
+
+    private Calendrier calendrier(UUID annonceId) {
+        LocalDate aujourdHui = LocalDate.now();
+        Calendrier calendrier = calendriers.get(annonceId);
+        if (calendrier != null && estAJour(calendrier, aujourdHui)) {
+            return calendrier;
+        }
+        long avant = modifications.get();
+        calendrier = construire(annonceId, aujourdHui, horizonJours);
+        if (modifications.get() == avant) {
+            calendriers.put(annonceId, calendrier);
+        }
+        return calendrier;
+    }
+
+    // Reconstruit quand l'horizon restant devant aujourd'hui a trop raccourci
+    private boolean estAJour(Calendrier calendrier, LocalDate aujourdHui) {
+        return !calendrier.origine.plusDays(horizonJours / 4).isBefore(aujourdHui);
+    }
+
+    private Calendrier construire(UUID annonceId, LocalDate origine, int jours) {
+        Calendrier calendrier = new Calendrier(origine, jours);
+        for (Object[] sejour : reservationRepository.findSejoursActifs(annonceId, origine, STATUTS_ACTIFS)) {
+            calendrier.occuper((LocalDate) sejour[0], (LocalDate) sejour[1]);
+        }
+        return calendrier;
+    }
+
+    // ========== MISES À JOUR ==========
+
+    /**
+     * À appeler après chaque changement de statut d'une réservation, dans sa
+     * transaction : enregistre ou libère ses nuits, puis met à jour le bitmap
+     * après validation.
+     *
+     * @param etaitActive reservation.estActive() avant le changement
+     * @throws ReservationException si une nuit est déjà prise par une autre
+     *                              réservation
+     */
+    public void statutModifie(Reservation reservation, boolean etaitActive) {
+        boolean active = reservation.estActive();
+        if (active == etaitActive) {
+            return;
+        }
+        UUID annonceId = reservation.getAnnonce().getId();
+        LocalDate arrivee = reservation.getDateArrivee();
+        LocalDate depart = reservation.getDateDepart();
+        if (active) {
+            reserverNuits(reservation.getId(), annonceId, arrivee, depart);
+        } else {
+            nuitReserveeRepository.supprimerParReservation(reservation.getId());
+        }
+        Runnable miseAJour = () -> {
+            modifications.incrementAndGet();
+            if (active) {
+                Calendrier calendrier = calendriers.get(annonceId);
+                if (calendrier != null) {
+                    calendrier.occuper(arrivee, depart);
+                }
+            } else {
+                // Les nuits peuvent être partagées avec une autre réservation
+                // (données antérieures) : reconstruction à la prochaine vérification
+                calendriers.remove(annonceId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    miseAJour.run();
+                }
+            });
+        } else {
+            miseAJour.run();
+        }
+    }
+
+    // Insertion immédiate : la contrainte unique tranche entre deux confirmations
+    private void reserverNuits(UUID reservationId, UUID annonceId, LocalDate arrivee, LocalDate depart) {
+        try {
+            nuitReserveeRepository.saveAllAndFlush(nuits(reservationId, annonceId, arrivee, depart));
+        } catch (DataIntegrityViolationException e) {
+            throw new ReservationException("L'annonce n'est plus disponible pour les dates sélectionnées");
+        }
+    }
+
+    private static List<NuitReservee> nuits(UUID reservationId, UUID annonceId, LocalDate arrivee,
+            LocalDate depart) {
+        List<NuitReservee> nuits = new ArrayList<>();
+        for (LocalDate nuit = arrivee; nuit.isBefore(depart); nuit = nuit.plusDays(1)) {
+            nuits.add(new NuitReservee(null, annonceId, nuit, reservationId));
+        }
+        return nuits;
+    }
+
+    // ========== COHÉRENCE ==========
+
+    /**
+     * Enregistre les nuits des réservations actives qui n'en ont pas encore
+     * (réservations antérieures à la table). Une réservation en conflit avec
+     * une autre est signalée et laissée sans nuits.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void enregistrerNuitsExistantes() {
+        int enregistrees = 0;
+        UUID curseur = null;
+        List<Object[]> page;
+        do {
+            page = reservationRepository.findSansNuitsApres(curseur, STATUTS_ACTIFS,
+                    PageRequest.of(0, TAILLE_PAGE_RATTRAPAGE));
+            for (Object[] r : page) {
+                curseur = (UUID) r[0];
+                try {
+                    nuitReserveeRepository.saveAll(nuits(curseur, (UUID) r[1], (LocalDate) r[2], (LocalDate) r[3]));
+                    enregistrees++;
+                } catch (DataIntegrityViolationException e) {
+                    log.warn("[Disponibilité] Réservation {} en conflit avec une autre, nuits non enregistrées",
+                            curseur);
+                }
+            }
+        } while (page.size() == TAILLE_PAGE_RATTRAPAGE);
+        if (enregistrees > 0) {
+            log.info("[Disponibilité] Nuits enregistrées pour {} réservation(s) existante(s)", enregistrees);
+        }
+    }
+
+    /**
+     * Reconstruit chaque bitmap en mémoire depuis la base et remplace ceux qui
+     * divergent.
+     *
+     * @return le nombre d'annonces corrigées
+     */
+    @Scheduled(fixedDelayString = "${app.disponibilite.verification-ms:3600000}", initialDelayString = "${app.disponibilite.verification-ms:3600000}")
+    public int verifierCoherence() {
+        int corrigees = 0;
+        for (Map.Entry<UUID, Calendrier> e : calendriers.entrySet()) {
+            long avant = modifications.get();
+            Calendrier attendu = construire(e.getKey(), e.getValue().origine, horizonJours);
+            if (modifications.get() != avant || attendu.memesNuits(e.getValue())) {
+                continue;
+            }
+            if (calendriers.replace(e.getKey(), e.getValue(), attendu)) {
+                corrigees++;
+                log.warn("[Disponibilité] Bitmap de l'annonce {} corrigé depuis la base", e.getKey());
+            }
+        }
+        if (corrigees > 0) {
+            log.info("[Disponibilité] {} bitmap(s) corrigé(s) sur {}", corrigees, calendriers.size());
+        }
+        return corrigees;
+    }
+
+    public int taille() {
+        return calendriers.size();
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.DistanceCache;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.repositories.DistanceCacheRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cache à deux niveaux devant GoogleDistanceMatrixService. La clé est l'origine
+ * arrondie à sa cellule geohash + l'id du stade : toutes les annonces d'un même
+ * pâté de maisons réutilisent les mêmes mesures. Niveau 1 : LRU en mémoire ;
+ * niveau 2 : table distance_cache. Les mesures expirent après une durée
+ * configurable et l'API n'est appelée que pour les stades réellement absents.
+ *
+ * Métriques : distances.cache{niveau=memoire|base|api} (une incrémentation par
+ * couple cellule/stade) et distances.api.appels.
+ */
+@Service
+@Slf4j
+public class DistanceCacheService {
+
+    private final DistanceCacheRepository distanceCacheRepository;
+    private final GoogleDistanceMatrixService googleDistanceMatrixService;
+    private final TransactionTemplate transactionSeparee;
+
+    private final Counter succesMemoire;
+    private final Counter succesBase;
+    private final Counter echecs;
+    private final Counter appelsApi;
+
+    @Value("${app.distances.cache.precision:7}")
+    private int precision = 7;
+
+    @Value("${app.distances.cache.ttl-jours:30}")
+    private long ttlJours = 30;
+
+    private final Map<String, Mesure> memoire;
+
+    /**
+     * Mesure en cache pour un couple cellule/stade
+     */
+    record Mesure(BigDecimal distanceKm, Integer dureeMinutes, LocalDateTime dateCalcul) {
+    }
+
+    public DistanceCacheService(DistanceCacheRepository distanceCacheRepository,
+            GoogleDistanceMatrixService googleDistanceMatrixService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.distances.cache.taille-memoire:10000}") int tailleMemoire) {
+        this.distanceCacheRepository = distanceCacheRepository;
+        this.googleDistanceMatrixService = googleDistanceMatrixService;
+        this.transactionSeparee = new TransactionTemplate(transactionManager);
+        this.transactionSeparee.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.succesMemoire = meterRegistry.counter("distances.cache", "niveau", "memoire");
+        this.succesBase = meterRegistry.counter("distances.cache", "niveau", "base");
+        this.echecs = meterRegistry.counter("distances.cache", "niveau", "api");
+        this.appelsApi = meterRegistry.counter("distances.api.appels");
+        // LinkedHashMap en ordre d'accès : l'entrée la moins récemment lue est évincée
+        this.memoire = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Mesure> eldest) {
+                return size() > tailleMemoire;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return googleDistanceMatrixService.isEnabled();
+    }
+
+    /**
+     * Distances et temps de trajet d'une origine vers des stades, en passant par
+     * les deux niveaux de cache avant l'API.
+     */
+    public List<GoogleDistanceMatrixService.ResultatDistance> calculerDistancesEtTemps(BigDecimal origineLat,
+            BigDecimal origineLon, List<Stade> stades) {
+        return calculerMatrice(List.of(new GoogleDistanceMatrixService.Origine(origineLat, origineLon)), stades)
+                .get(0);
+    }
+
+    /**
+     * Version par lot : les origines sont regroupées par cellule, le niveau 2
+     * est interrogé en une requête et toutes les cellules manquantes partent
+     * dans un seul appel matriciel.
+     *
+     * @return une liste de résultats par origine, dans l'ordre des origines
+     */
+    public List<List<GoogleDistanceMatrixService.ResultatDistance>> calculerMatrice(
+            List<GoogleDistanceMatrixService.Origine> origines, List<Stade> stades) {
+        List<List<GoogleDistanceMatrixService.ResultatDistance>> resultats = new ArrayList<>(origines.size());
+        Map<String, List<Integer>> originesParCellule = new LinkedHashMap<>();
+        for (int i = 0; i < origines.size(); i++) {
+            resultats.add(new ArrayList<>());
+            GoogleDistanceMatrixService.Origine origine = origines.get(i);
+            if (origine.latitude() != null && origine.longitude() != null) {
+                String geohash = Geohash.encoder(origine.latitude().doubleValue(),
+                        origine.longitude().doubleValue(), precision);
+                originesParCellule.computeIfAbsent(geohash, g -> new ArrayList<>()).add(i);
+            }
+        }
+        if (stades == null || stades.isEmpty() || originesParCellule.isEmpty()) {
+            return resultats;
+        }
+        LocalDateTime limite = LocalDateTime.now().minusDays(ttlJours);
+        Map<String, List<GoogleDistanceMatrixService.ResultatDistance>> parCellule = new HashMap<>();
+        Map<String, List<Stade>> absentsParCellule = new LinkedHashMap<>();
+
+        // Niveau 1 : mémoire
+        for (String geohash : originesParCellule.keySet()) {
+            List<GoogleDistanceMatrixService.ResultatDistance> mesures = new ArrayList<>();
+            parCellule.put(geohash, mesures);
+            for (Stade stade : stades) {
+                Mesure mesure = lireMemoire(cle(geohash, stade.getId()), limite);
+                if (mesure != null) {
+                    succesMemoire.increment();
+                    mesures.add(new GoogleDistanceMatrixService.ResultatDistance(stade, mesure.distanceKm(),
+                            mesure.dureeMinutes()));
+                } else {
+                    absentsParCellule.computeIfAbsent(geohash, g -> new ArrayList<>()).add(stade);
+                }
+            }
+        }
+
+        // Niveau 2 : table distance_cache (une requête pour toutes les cellules)
+        Map<String, DistanceCache> enBase = new HashMap<>();
+        Map<String, List<Stade>> aMesurer = new LinkedHashMap<>();
+        if (!absentsParCellule.isEmpty()) {
+            Set<UUID> stadeIds = absentsParCellule.values().stream()
+                    .flatMap(List::stream)
+                    .map(Stade::getId)
+                    .collect(Collectors.toSet());
+            for (DistanceCache ligne : distanceCacheRepository.findByGeohashInAndStadeIdIn(absentsParCellule.keySet(),
+                    stadeIds)) {
+                enBase.put(cle(ligne.getGeohash(), ligne.getStadeId()), ligne);
+            }
+            absentsParCellule.forEach((geohash, absents) -> {
+                for (Stade stade : absents) {
+                    DistanceCache ligne = enBase.get(cle(geohash, stade.getId()));
+                    if (ligne != null && !ligne.getDateCalcul().isBefore(limite)) {
+                        succesBase.increment();
+                        Mesure mesure = new Mesure(ligne.getDistance(), ligne.getTempsTrajetMinutes(),
+                                ligne.getDateCalcul());
+                        ecrireMemoire(cle(geohash, stade.getId()), mesure);
+                        parCellule.get(geohash).add(new GoogleDistanceMatrixService.ResultatDistance(stade,
+                                mesure.distanceKm(), mesure.dureeMinutes()));
+                    } else {
+                        echecs.increment();
+                        aMesurer.computeIfAbsent(geohash, g -> new ArrayList<>()).add(stade);
+                    }
+                }
+            });
+        }
+
+        // Échecs réels : un appel matriciel depuis les centres des cellules, pour
+        // que la valeur en cache ne dépende pas de l'annonce qui l'a déclenchée
+        if (!aMesurer.isEmpty() && googleDistanceMatrixService.isEnabled()) {
+            List<String> cellules = new ArrayList<>(aMesurer.keySet());
+            Map<UUID, Stade> stadesAMesurer = new LinkedHashMap<>();
+            aMesurer.values().forEach(liste -> liste.forEach(s -> stadesAMesurer.put(s.getId(), s)));
+            List<GoogleDistanceMatrixService.Origine> centres = cellules.stream()
+                    .map(Geohash::centre)
+                    .map(c -> new GoogleDistanceMatrixService.Origine(BigDecimal.valueOf(c[0]),
+                            BigDecimal.valueOf(c[1])))
+                    .collect(Collectors.toList());
+            appelsApi.increment();
+            List<List<GoogleDistanceMatrixService.ResultatDistance>> matrice = googleDistanceMatrixService
+                    .calculerMatrice(centres, new ArrayList<>(stadesAMesurer.values()));
+            LocalDateTime maintenant = LocalDateTime.now();
+            List<DistanceCache> lignes = new ArrayList<>();
+            for (int c = 0; c < cellules.size(); c++) {
+                String geohash = cellules.get(c);
+                Set<UUID> manquants = aMesurer.get(geohash).stream().map(Stade::getId).collect(Collectors.toSet());
+                for (GoogleDistanceMatrixService.ResultatDistance r : matrice.get(c)) {
+                    UUID stadeId = r.getStade().getId();
+                    ecrireMemoire(cle(geohash, stadeId), new Mesure(r.getDistanceKm(), r.getDureeMinutes(),
+                            maintenant));
+                    lignes.add(ligne(enBase.get(cle(geohash, stadeId)), geohash, r, maintenant));
+                    if (manquants.contains(stadeId)) {
+                        parCellule.get(geohash).add(r);
+                    }
+                }
+            }
+            persister(lignes);
+        }
+
+        originesParCellule.forEach((geohash, indices) -> indices
+                .forEach(i -> resultats.get(i).addAll(parCellule.get(geohash))));
+        return resultats;
+    }
+
+    // Oublier les mesures d'un stade (coordonnées modifiées)
+    public void invaliderStade(UUID stadeId) {
+        String suffixe = "|" + stadeId;
+        synchronized (memoire) {
+            memoire.keySet().removeIf(cle -> cle.endsWith(suffixe));
+        }
+        transactionSeparee.executeWithoutResult(status -> distanceCacheRepository.supprimerParStade(stadeId));
+    }
+
+    // Purge quotidienne des mesures expirées
+    @Scheduled(cron = "${app.distances.cache.purge-cron:0 30 3 * * *}")
+    public void purgerExpirees() {
+        Integer supprimees = transactionSeparee.execute(
+                status -> distanceCacheRepository.supprimerExpirees(LocalDateTime.now().minusDays(ttlJours)));
+        log.info("[Distances] Cache: {} mesure(s) expirée(s) supprimée(s)", supprimees);
+    }
+
+    /**
+     * Écriture dans une transaction séparée : un conflit d'unicité (deux
+     * annonces de la même cellule mesurées en même temps) ne doit pas faire
+     * échouer l'enregistrement de l'annonce.
+     */
+    private void persister(List<DistanceCache> lignes) {
+        if (lignes.isEmpty()) {
+            return;
+        }
+        try {
+            transactionSeparee.executeWithoutResult(status -> distanceCacheRepository.saveAll(lignes));
+        } catch (RuntimeException e) {
+            log.warn("[Distances] Cache non persisté ({} mesure(s)): {}", lignes.size(), e.getMessage());
+        }
+    }
+
+    private static DistanceCache ligne(DistanceCache existante, String geohash,
+            GoogleDistanceMatrixService.ResultatDistance r, LocalDateTime dateCalcul) {
+        DistanceCache ligne = existante != null ? existante : new DistanceCache();
+        ligne.setGeohash(geohash);
+        ligne.setStadeId(r.getStade().getId());
+        ligne.setDistance(r.getDistanceKm());
+        ligne.setTempsTrajetMinutes(r.getDureeMinutes());
+        ligne.setDateCalcul(dateCalcul);
+        return ligne;
+    }
+
+    private Mesure lireMemoire(String cle, LocalDateTime limite) {
+        synchronized (memoire) {
+            Mesure mesure = memoire.get(cle);
+            if (mesure != null && mesure.dateCalcul().isBefore(limite)) {
+                memoire.remove(cle);
+                return null;
+            }
+            return mesure;
+        }
+    }
+
+    private void ecrireMemoire(String cle, Mesure mesure) {
+        synchronized (memoire) {
+            memoire.put(cle, mesure);
+        }
+    }
+
+    private static String cle(String geohash, UUID stadeId) {
+        return geohash + "|" + stadeId;
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.DistanceJob;
+import com.example.Impression.enums.StatutDistanceJob;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.DistanceJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * File persistée de calcul des distances annonce-stades. Les écritures
+ * d'annonces ne font qu'y déposer une demande ; des workers la vident par lots
+ * et enregistrent les AnnonceStadeDistance. Le chemin de lecture ne calcule
+ * jamais : tant qu'une demande est en attente, l'assembleur renvoie des
+ * estimations Haversine (AnnonceDTO.distancesPending).
+ *
+ * Réservation d'un lot : mise à jour conditionnelle statut EN_ATTENTE ->
+ * EN_COURS avec un jeton propre au lot, sûre entre plusieurs threads et
+ * plusieurs instances. Une réservation abandonnée est rendue après un délai.
+ */
+@Service
+@Slf4j
+public class DistanceJobService {
+
+    private final DistanceJobRepository distanceJobRepository;
+    private final AnnonceRepository annonceRepository;
+    private final AnnonceStadeDistanceService annonceStadeDistanceService;
+    private final ThreadPoolTaskExecutor distancesExecutor;
+    private final TransactionTemplate transaction;
+
+    @Value("${app.distances.jobs.workers:2}")
+    private int workers = 2;
+
+    @Value("${app.distances.jobs.taille-lot:20}")
+    private int tailleLot = 20;
+
+    @Value("${app.distances.jobs.tentatives-max:5}")
+    private int tentativesMax = 5;
+
+    @Value("${app.distances.jobs.reservation-max-minutes:10}")
+    private long reservationMaxMinutes = 10;
+
+    private final AtomicInteger workersActifs = new AtomicInteger();
+
+    public DistanceJobService(DistanceJobRepository distanceJobRepository, AnnonceRepository annonceRepository,
+            AnnonceStadeDistanceService annonceStadeDistanceService,
+            @Qualifier("distancesExecutor") ThreadPoolTaskExecutor distancesExecutor,
+            PlatformTransactionManager transactionManager) {
+        this.distanceJobRepository = distanceJobRepository;
+        this.annonceRepository = annonceRepository;
+        this.annonceStadeDistanceService = annonceStadeDistanceService;
+        this.distancesExecutor = distancesExecutor;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Demander le (re)calcul des distances d'une annonce
+    public void planifier(UUID annonceId) {
+        for (int essai = 0; essai < 2; essai++) {
+            try {
+                transaction.executeWithoutResult(status -> {
+                    LocalDateTime maintenant = LocalDateTime.now();
+                    int modifiees = distanceJobRepository.remettreEnAttente(annonceId, maintenant,
+                            StatutDistanceJob.EN_ATTENTE, StatutDistanceJob.EN_COURS)
+                            + distanceJobRepository.demanderRelance(annonceId, StatutDistanceJob.EN_COURS);
+                    if (modifiees == 0) {
+                        DistanceJob job = new DistanceJob();
+                        job.setAnnonceId(annonceId);
+                        job.setStatut(StatutDistanceJob.EN_ATTENTE);
+                        job.setDateDemande(maintenant);
+                        distanceJobRepository.saveAndFlush(job);
+                    }
+                });
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Demande créée en parallèle : la mise à jour s'appliquera au second essai
+            }
+        }
+        log.warn("[Distances] Demande de calcul non enregistrée pour l'annonce {}", annonceId);
+    }
+
+    // Annonces du lot dont les distances sont en attente de calcul
+    public Set<UUID> annoncesEnAttente(Collection<UUID> annonceIds) {
+        if (annonceIds == null || annonceIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(distanceJobRepository.findAnnonceIdsEnAttente(annonceIds, StatutDistanceJob.ECHEC));
+    }
+
+    /**
+     * Relève périodique : rend les réservations abandonnées puis démarre des
+     * workers (au plus app.distances.jobs.workers) s'il reste des demandes.
+     */
+    @Scheduled(fixedDelayString = "${app.distances.jobs.intervalle-ms:2000}", initialDelay = 10000)
+    public void demarrerWorkers() {
+        transaction.executeWithoutResult(status -> {
+            int rendues = distanceJobRepository.libererAbandonnees(
+                    LocalDateTime.now().minusMinutes(reservationMaxMinutes),
+                    StatutDistanceJob.EN_ATTENTE, StatutDistanceJob.EN_COURS);
+            if (rendues > 0) {
+                log.warn("[Distances] {} réservation(s) abandonnée(s) remise(s) en attente", rendues);
+            }
+        });
+        if (!distanceJobRepository.existsByStatut(StatutDistanceJob.EN_ATTENTE)) {
+            return;
+        }
+        while (workersActifs.get() < workers) {
+            workersActifs.incrementAndGet();
+            try {
+                distancesExecutor.execute(() -> {
+                    try {
+                        while (traiterLot() > 0) {
+                            // Continuer tant que la file n'est pas vide
+                        }
+                    } catch (Exception e) {
+                        log.error("[Distances] Worker interrompu: {}", e.getMessage(), e);
+                    } finally {
+                        workersActifs.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                workersActifs.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    // Annonces géolocalisées antérieures à la file : mises en attente au fil de l'eau
+    @Scheduled(fixedDelayString = "${app.distances.jobs.rattrapage-ms:3600000}", initialDelay = 30000)
+    public void rattraperAnnoncesSansDistances() {
+        List<UUID> ids = distanceJobRepository.findAnnonceIdsSansDistances(PageRequest.of(0, 500));
+        ids.forEach(this::planifier);
+        if (!ids.isEmpty()) {
+            log.info("[Distances] {} annonce(s) sans distances mise(s) en attente", ids.size());
+        }
+    }
+
+    /**
+     * Réserve un lot de demandes, mesure toutes leurs annonces d'un coup puis
+     * enregistre les distances annonce par annonce, chacune dans sa propre
+     * transaction.
+     *
+     * @return le nombre de demandes réservées (0 si la file est vide)
+     */
+    int traiterLot() {
+        String proprietaire = UUID.randomUUID().toString();
+        List<DistanceJob> jobs = transaction.execute(status -> {
+            List<UUID> ids = distanceJobRepository.findIdsParStatut(StatutDistanceJob.EN_ATTENTE,
+                    PageRequest.of(0, tailleLot));
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            distanceJobRepository.reserver(ids, proprietaire, LocalDateTime.now(), StatutDistanceJob.EN_ATTENTE,
+                    StatutDistanceJob.EN_COURS);
+            return distanceJobRepository.findByProprietaireAndStatut(proprietaire, StatutDistanceJob.EN_COURS);
+        });
+        if (jobs == null || jobs.isEmpty()) {
+            return 0;
+        }
+
+        // Mesure du lot entier (un appel matriciel), hors transaction
+        Map<UUID, Annonce> annonces = annonceRepository.findAllById(jobs.stream()
+                .map(DistanceJob::getAnnonceId)
+                .collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(Annonce::getId, Function.identity()));
+        Map<UUID, List<StadeEtDistance>> mesures;
+        try {
+            mesures = annonceStadeDistanceService.mesurerDistances(new ArrayList<>(annonces.values()));
+        } catch (RuntimeException e) {
+            jobs.forEach(job -> echouer(job, proprietaire, e));
+            return jobs.size();
+        }
+
+        // Enregistrement annonce par annonce
+        for (DistanceJob job : jobs) {
+            try {
+                transaction.executeWithoutResult(status -> {
+                    Annonce annonce = annonces.get(job.getAnnonceId());
+                    if (annonce != null) {
+                        annonceStadeDistanceService.enregistrerDistances(annonce,
+                                mesures.getOrDefault(annonce.getId(), new ArrayList<>()));
+                    }
+                    if (distanceJobRepository.supprimerTerminee(job.getId(), proprietaire) == 0) {
+                        // Coordonnées modifiées pendant le calcul : rejouer la demande
+                        distanceJobRepository.rendre(job.getId(), proprietaire, StatutDistanceJob.EN_ATTENTE, 0,
+                                null, LocalDateTime.now());
+                    }
+                });
+            } catch (RuntimeException e) {
+                echouer(job, proprietaire, e);
+            }
+        }
+        log.info("[Distances] Lot de {} demande(s) traité", jobs.size());
+        return jobs.size();
+    }
+
+    private void echouer(DistanceJob job, String proprietaire, RuntimeException e) {
+        int tentatives = job.getTentatives() + 1;
+        StatutDistanceJob statut = tentatives >= tentativesMax ? StatutDistanceJob.ECHEC
+                : StatutDistanceJob.EN_ATTENTE;
+        String message = e.getMessage() != null && e.getMessage().length() > 500
+                ? e.getMessage().substring(0, 500)
+                : e.getMessage();
+        log.warn("[Distances] Échec du calcul pour l'annonce {} (tentative {}): {}", job.getAnnonceId(), tentatives,
+                message);
+        transaction.executeWithoutResult(status -> distanceJobRepository.rendre(job.getId(), proprietaire, statut,
+                tentatives, message, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.Impression.services;
+
+import com.example.Impression.enums.ModeTransport;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Distances d'une annonce vers les stades, sous forme de tableaux primitifs
+ * réutilisables, et leur format binaire (colonne annonce_distances.donnees).
+ *
+ * Format, entiers big-endian : en-tête de 4 octets (version, réservé, nombre
+ * d'entrées sur 2 octets) puis 24 octets par entrée : id du stade (2 × 8),
+ * distance en centièmes de km (4), minutes (2, non signé), mode (1), drapeaux
+ * (1, bit 0 : stade le plus proche). Les entrées sont écrites par distance
+ * croissante ; le plus proche est le premier trajet en voiture.
+ *
+ * lire() décode dans les tableaux existants : aucune allocation une fois la
+ * capacité atteinte. Une instance n'est pas partagée entre threads.
+ */
+public final class DistancesCompactes {
+
+    static final byte VERSION = 1;
+    static final int ENTETE = 4;
+    static final int TAILLE_ENTREE = 24;
+    // Taille de la colonne annonce_distances.donnees
+    static final int TAILLE_MAX = 8192;
+
+    private static final ModeTransport[] MODES = ModeTransport.values();
+    private static final int MINUTES_MAX = 0xFFFF;
+
+    private int nombre;
+    private long[] stadesMsb;
+    private long[] stadesLsb;
+    private int[] centiemes;
+    private int[] minutes;
+    private byte[] modes;
+    private int plusProche = -1;
+
+    public DistancesCompactes() {
+        this(16);
+    }
+
+    public DistancesCompactes(int capacite) {
+        int c = Math.max(1, capacite);
+        stadesMsb = new long[c];
+        stadesLsb = new long[c];
+        centiemes = new int[c];
+        minutes = new int[c];
+        modes = new byte[c];
+    }
+
+    public void vider() {
+        nombre = 0;
+        plusProche = -1;
+    }
+
+    public int nombre() {
+        return nombre;
+    }
+
+    // Indice du stade le plus proche en voiture, -1 s'il n'y en a pas
+    public int plusProche() {
+        return plusProche;
+    }
+
+    public boolean estStade(int i, UUID stadeId) {
+        return stadesMsb[i] == stadeId.getMostSignificantBits() && stadesLsb[i] == stadeId.getLeastSignificantBits();
+    }
+
+    public UUID stadeId(int i) {
+        return new UUID(stadesMsb[i], stadesLsb[i]);
+    }
+
+    public int centiemes(int i) {
+        return centiemes[i];
+    }
+
+    public BigDecimal distance(int i) {
+        return BigDecimal.valueOf(centiemes[i], 2);
+    }
+
+    public int minutes(int i) {
+        return minutes[i];
+    }
+
+    public ModeTransport mode(int i) {
+        return MODES[modes[i]];
+    }
+
+    public void ajouter(UUID stadeId, BigDecimal distance, int dureeMinutes, ModeTransport mode) {
+        if (nombre == centiemes.length) {
+            agrandir(nombre * 2);
+        }
+        stadesMsb[nombre] = stadeId.getMostSignificantBits();
+        stadesLsb[nombre] = stadeId.getLeastSignificantBits();
+        centiemes[nombre] = distance.setScale(2, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+        minutes[nombre] = Math.max(0, Math.min(MINUTES_MAX, dureeMinutes));
+        modes[nombre] = (byte) mode.ordinal();
+        nombre++;
+        plusProche = -1;
+    }
+
+    // Retire toutes les entrées d'un stade ; renvoie le nombre d'entrées retirées
+    public int retirerStade(UUID stadeId) {
+        int gardees = 0;
+        for (int i = 0; i < nombre; i++) {
+            if (estStade(i, stadeId)) {
+                continue;
+            }
+            if (gardees != i) {
+                deplacer(i, gardees);
+            }
+            gardees++;
+        }
+        int retirees = nombre - gardees;
+        nombre = gardees;
+        if (retirees > 0) {
+            plusProche = -1;
+        }
+        return retirees;
+    }
+
+    /**
+     * Décode une colonne donnees dans cette instance (contenu précédent
+     * remplacé).
+     */
+    public void lire(byte[] donnees) {
+        if (donnees.length < ENTETE || donnees[0] != VERSION) {
+            throw new IllegalArgumentException("Format de distances compactes inconnu");
+        }
+        int n = ((donnees[2] & 0xFF) << 8) | (donnees[3] & 0xFF);
+        if (donnees.length != ENTETE + n * TAILLE_ENTREE) {
+            throw new IllegalArgumentException("Distances compactes tronquées");
+        }
+        if (n > centiemes.length) {
+            agrandir(n);
+        }
+        vider();
+        int p = ENTETE;
+        for (int i = 0; i < n; i++, p += TAILLE_ENTREE) {
+            stadesMsb[i] = lireLong(donnees, p);
+            stadesLsb[i] = lireLong(donnees, p + 8);
+            centiemes[i] = lireInt(donnees, p + 16);
+            minutes[i] = ((donnees[p + 20] & 0xFF) << 8) | (donnees[p + 21] & 0xFF);
+            modes[i] = donnees[p + 22];
+            if ((donnees[p + 23] & 1) != 0) {
+                plusProche = i;
+            }
+        }
+        nombre = n;
+    }
+
+    /**
+     * Trie les entrées par distance croissante (tri stable : à distance égale,
+     * l'ordre d'ajout est conservé), désigne le plus proche puis encode.
+     */
+    public byte[] ecrire() {
+        trier();
+        int taille = ENTETE + nombre * TAILLE_ENTREE;
+        if (taille > TAILLE_MAX) {
+            throw new IllegalStateException("Trop de distances pour une annonce: " + nombre);
+        }
+        byte[] donnees = new byte[taille];
+        donnees[0] = VERSION;
+        donnees[2] = (byte) (nombre >>> 8);
+        donnees[3] = (byte) nombre;
+        int p = ENTETE;
+        for (int i = 0; i < nombre; i++, p += TAILLE_ENTREE) {
+            ecrireLong(donnees, p, stadesMsb[i]);
+            ecrireLong(donnees, p + 8, stadesLsb[i]);
+            ecrireInt(donnees, p + 16, centiemes[i]);
+            donnees[p + 20] = (byte) (minutes[i] >>> 8);
+            donnees[p + 21] = (byte) minutes[i];
+            donnees[p + 22] = modes[i];
+            donnees[p + 23] = (byte) (i == plusProche ? 1 : 0);
+        }
+        return donnees;
+    }
+
+    // Tri par insertion (quelques dizaines d'entrées au plus), puis plus proche
+    private void trier() {
+        for (int i = 1; i < nombre; i++) {
+            for (int j = i; j > 0 && centiemes[j - 1] > centiemes[j]; j--) {
+                echanger(j - 1, j);
+            }
+        }
+        plusProche = -1;
+        for (int i = 0; i < nombre; i++) {
+            if (modes[i] == ModeTransport.VOITURE.ordinal()) {
+                plusProche = i;
+                break;
+            }
+        }
+    }
+
+    private void agrandir(int capacite) {
+        stadesMsb = Arrays.copyOf(stadesMsb, capacite);
+        stadesLsb = Arrays.copyOf(stadesLsb, capacite);
+        centiemes = Arrays.copyOf(centiemes, capacite);
+        minutes = Arrays.copyOf(minutes, capacite);
+        modes = Arrays.copyOf(modes, capacite);
+    }
+
+    private void deplacer(int de, int vers) {
+        stadesMsb[vers] = stadesMsb[de];
+        stadesLsb[vers] = stadesLsb[de];
+        centiemes[vers] = centiemes[de];
+        minutes[vers] = minutes[de];
+        modes[vers] = modes[de];
+    }
+
+    private void echanger(int a, int b) {
+        long l = stadesMsb[a];
+        stadesMsb[a] = stadesMsb[b];
+        stadesMsb[b] = l;
+        l = stadesLsb[a];
+        stadesLsb[a] = stadesLsb[b];
+        stadesLsb[b] = l;
+        int x = centiemes[a];
+        centiemes[a] = centiemes[b];
+        centiemes[b] = x;
+        x = minutes[a];
+        minutes[a] = minutes[b];
+        minutes[b] = x;
+        byte m = modes[a];
+        modes[a] = modes[b];
+        modes[b] = m;
+    }
+
+    private static long lireLong(byte[] b, int p) {
+        return ((long) lireInt(b, p) << 32) | (lireInt(b, p + 4) & 0xFFFFFFFFL);
+    }
+
+    private static int lireInt(byte[] b, int p) {
+        return ((b[p] & 0xFF) << 24) | ((b[p + 1] & 0xFF) << 16) | ((b[p + 2] & 0xFF) << 8) | (b[p + 3] & 0xFF);
+    }
+
+    private static void ecrireLong(byte[] b, int p, long v) {
+        ecrireInt(b, p, (int) (v >>> 32));
+        ecrireInt(b, p + 4, (int) v);
+    }
+
+    private static void ecrireInt(byte[] b, int p, int v) {
+        b[p] = (byte) (v >>> 24);
+        b[p + 1] = (byte) (v >>> 16);
+        b[p + 2] = (byte) (v >>> 8);
+        b[p + 3] = (byte) v;
+    }
+}
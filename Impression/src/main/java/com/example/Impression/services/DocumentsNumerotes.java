@@ -0,0 +1,71 @@
+package com.example.Impression.services;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Numéros de documents d'un index en mémoire : chaque annonce indexée reçoit
+ * un petit entier (position dans les BitSet et listes de l'index) ; les
+ * numéros libérés par un retrait sont réattribués en priorité pour que les
+ * structures ne croissent pas avec les modifications. Non synchronisé : les
+ * appels se font sous le verrou de l'index.
+ *
+ * @param <D> document indexé
+ */
+final class DocumentsNumerotes<D> {
+
+    private final Map<UUID, Integer> numeros = new HashMap<>();
+    private final List<D> parNumero = new ArrayList<>();
+    private final ArrayDeque<Integer> numerosLibres = new ArrayDeque<>();
+
+    // Numéro attribué au document d'une annonce (non indexée)
+    int attribuer(UUID id, D document) {
+        Integer libre = numerosLibres.poll();
+        int numero = libre != null ? libre : parNumero.size();
+        if (libre != null) {
+            parNumero.set(numero, document);
+        } else {
+            parNumero.add(document);
+        }
+        numeros.put(id, numero);
+        return numero;
+    }
+
+    // Libère le numéro d'une annonce ; null si elle n'est pas indexée
+    Integer liberer(UUID id) {
+        Integer numero = numeros.remove(id);
+        if (numero != null) {
+            parNumero.set(numero, null);
+            numerosLibres.push(numero);
+        }
+        return numero;
+    }
+
+    Integer numero(UUID id) {
+        return numeros.get(id);
+    }
+
+    D document(int numero) {
+        return parNumero.get(numero);
+    }
+
+    // Numéros attribués, sans ordre
+    Collection<Integer> numeros() {
+        return numeros.values();
+    }
+
+    int taille() {
+        return numeros.size();
+    }
+
+    void vider() {
+        numeros.clear();
+        parNumero.clear();
+        numerosLibres.clear();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.Impression.services;
+
+/**
+ * Encodage geohash (base32) d'une position. Deux points proches partagent le
+ * même préfixe : à la précision 7, une cellule mesure environ 150 m x 150 m.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    public static String encoder(double latitude, double longitude, int precision) {
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean longitudeEnCours = true;
+        int bit = 0;
+        int valeur = 0;
+        while (hash.length() < precision) {
+            if (longitudeEnCours) {
+                double milieu = (lonMin + lonMax) / 2;
+                if (longitude >= milieu) {
+                    valeur = (valeur << 1) | 1;
+                    lonMin = milieu;
+                } else {
+                    valeur <<= 1;
+                    lonMax = milieu;
+                }
+            } else {
+                double milieu = (latMin + latMax) / 2;
+                if (latitude >= milieu) {
+                    valeur = (valeur << 1) | 1;
+                    latMin = milieu;
+                } else {
+                    valeur <<= 1;
+                    latMax = milieu;
+                }
+            }
+            longitudeEnCours = !longitudeEnCours;
+            if (++bit == 5) {
+                hash.append(BASE32[valeur]);
+                bit = 0;
+                valeur = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Centre de la cellule d'un geohash : {latitude, longitude}
+     */
+    public static double[] centre(String hash) {
+        double latMin = -90, latMax = 90;
+        double lonMin = -180, lonMax = 180;
+        boolean longitudeEnCours = true;
+        for (char c : hash.toCharArray()) {
+            int valeur = indexBase32(c);
+            for (int masque = 16; masque > 0; masque >>= 1) {
+                boolean haut = (valeur & masque) != 0;
+                if (longitudeEnCours) {
+                    double milieu = (lonMin + lonMax) / 2;
+                    if (haut) {
+                        lonMin = milieu;
+                    } else {
+                        lonMax = milieu;
+                    }
+                } else {
+                    double milieu = (latMin + latMax) / 2;
+                    if (haut) {
+                        latMin = milieu;
+                    } else {
+                        latMax = milieu;
+                    }
+                }
+                longitudeEnCours = !longitudeEnCours;
+            }
+        }
+        return new double[] { (latMin + latMax) / 2, (lonMin + lonMax) / 2 };
+    }
+
+    private static int indexBase32(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Caractère geohash invalide: " + c);
+    }
+}
@@ -3,87 +3,254 @@ package com.example.Impression.services;
 import com.example.Impression.entities.Stade;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * Client Google Distance Matrix. Les origines sont regroupées en requêtes
+ * matricielles (25 origines x 25 destinations au plus, dans la limite
+ * d'éléments par requête), cadencées par un seau à jetons. Le client HTTP du
+ * JDK réutilise les connexions ; délais de connexion et de lecture explicites.
+ * Les éléments en échec transitoire sont redemandés seuls, avec un délai
+ * croissant. L'URL de base est configurable (serveur de test local).
+ */
 @Service
+@Slf4j
 public class GoogleDistanceMatrixService {
 
-    @Value("${google.maps.api.key:}")
-    private String apiKey;
+    static final int MAX_DIMENSION = 25;
+    private static final String CHEMIN = "/maps/api/distancematrix/json";
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    // Statuts d'élément sans espoir de succès en redemandant
+    private static final Set<String> ECHECS_DEFINITIFS = Set.of("NOT_FOUND", "ZERO_RESULTS",
+            "MAX_ROUTE_LENGTH_EXCEEDED");
+    // Statuts de réponse justifiant un nouvel essai
+    private static final Set<String> STATUTS_TRANSITOIRES = Set.of("OVER_QUERY_LIMIT", "UNKNOWN_ERROR");
+
+    private final String apiKey;
+    private final String urlBase;
+    private final int maxElements;
+    private final int tentativesMax;
+    private final long delaiInitialMs;
+    private final LimiteurDebit limiteur;
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * Point de départ d'une mesure
+     */
+    public record Origine(BigDecimal latitude, BigDecimal longitude) {
+    }
+
+    public GoogleDistanceMatrixService(
+            @Value("${google.maps.api.key:}") String apiKey,
+            @Value("${google.maps.api.url-base:https://maps.googleapis.com}") String urlBase,
+            @Value("${google.maps.api.timeout-connexion-ms:2000}") long timeoutConnexionMs,
+            @Value("${google.maps.api.timeout-lecture-ms:5000}") long timeoutLectureMs,
+            @Value("${google.maps.api.requetes-par-seconde:10}") double requetesParSeconde,
+            @Value("${google.maps.api.max-elements:100}") int maxElements,
+            @Value("${google.maps.api.tentatives-max:3}") int tentativesMax,
+            @Value("${google.maps.api.delai-initial-ms:250}") long delaiInitialMs) {
+        this.apiKey = apiKey;
+        this.urlBase = urlBase.endsWith("/") ? urlBase.substring(0, urlBase.length() - 1) : urlBase;
+        this.maxElements = Math.max(1, maxElements);
+        this.tentativesMax = Math.max(1, tentativesMax);
+        this.delaiInitialMs = delaiInitialMs;
+        this.limiteur = new LimiteurDebit(requetesParSeconde, Math.max(1, (int) Math.ceil(requetesParSeconde)));
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutConnexionMs))
+                .build();
+        JdkClientHttpRequestFactory fabrique = new JdkClientHttpRequestFactory(httpClient);
+        fabrique.setReadTimeout(Duration.ofMillis(timeoutLectureMs));
+        this.restTemplate = new RestTemplate(fabrique);
+    }
+
     public boolean isEnabled() {
         return apiKey != null && !apiKey.isBlank();
     }
 
     public List<ResultatDistance> calculerDistancesEtTemps(BigDecimal origineLat, BigDecimal origineLon,
             List<Stade> stades) {
-        List<ResultatDistance> resultats = new ArrayList<>();
-        if (!isEnabled() || stades == null || stades.isEmpty()) {
+        return calculerMatrice(List.of(new Origine(origineLat, origineLon)), stades).get(0);
+    }
+
+    /**
+     * Distances et durées de chaque origine vers chaque stade.
+     *
+     * @return une liste de résultats par origine, dans l'ordre des origines ;
+     *         les couples sans mesure sont absents
+     */
+    public List<List<ResultatDistance>> calculerMatrice(List<Origine> origines, List<Stade> stades) {
+        List<List<ResultatDistance>> resultats = new ArrayList<>(origines.size());
+        for (int i = 0; i < origines.size(); i++) {
+            resultats.add(new ArrayList<>());
+        }
+        if (!isEnabled() || stades == null || stades.isEmpty() || origines.isEmpty()) {
             return resultats;
         }
 
-        try {
-            String origins = URLEncoder.encode(origineLat + "," + origineLon, StandardCharsets.UTF_8);
-
-            StringBuilder destinationsBuilder = new StringBuilder();
-            for (int i = 0; i < stades.size(); i++) {
-                Stade s = stades.get(i);
-                if (i > 0)
-                    destinationsBuilder.append("|");
-                destinationsBuilder.append(s.getLatitude()).append(",").append(s.getLongitude());
-            }
-            String destinations = URLEncoder.encode(destinationsBuilder.toString(), StandardCharsets.UTF_8);
-
-            String url = "https://maps.googleapis.com/maps/api/distancematrix/json?origins=" + origins
-                    + "&destinations=" + destinations
-                    + "&mode=driving&units=metric&key=" + apiKey;
-
-            String response = restTemplate.getForObject(url, String.class);
-            if (response == null)
-                return resultats;
-
-            JsonNode root = objectMapper.readTree(response);
-            if (!"OK".equals(root.path("status").asText())) {
-                return resultats;
+        List<Stade> destinations = stades.stream()
+                .filter(s -> s.getLatitude() != null && s.getLongitude() != null)
+                .collect(Collectors.toList());
+        for (int d = 0; d < destinations.size(); d += MAX_DIMENSION) {
+            List<Stade> blocDestinations = destinations.subList(d, Math.min(d + MAX_DIMENSION, destinations.size()));
+            int originesParRequete = Math.max(1, Math.min(MAX_DIMENSION, maxElements / blocDestinations.size()));
+            for (int o = 0; o < origines.size(); o += originesParRequete) {
+                List<Integer> indices = new ArrayList<>();
+                for (int i = o; i < Math.min(o + originesParRequete, origines.size()); i++) {
+                    indices.add(i);
+                }
+                mesurerBloc(origines, indices, blocDestinations, resultats);
             }
+        }
+        return resultats;
+    }
 
-            JsonNode rows = root.path("rows");
-            if (!rows.isArray() || rows.size() == 0)
-                return resultats;
-            JsonNode elements = rows.get(0).path("elements");
+    /**
+     * Mesure un bloc origines x destinations. Après une réponse partielle, seuls
+     * les origines et stades ayant des éléments en échec transitoire sont
+     * redemandés (les couples déjà mesurés sont ignorés).
+     */
+    private void mesurerBloc(List<Origine> origines, List<Integer> indices, List<Stade> stades,
+            List<List<ResultatDistance>> resultats) {
+        Set<String> termines = new HashSet<>();
+        List<Integer> originesAMesurer = indices;
+        List<Stade> stadesAMesurer = stades;
 
-            for (int i = 0; i < stades.size() && i < elements.size(); i++) {
-                JsonNode elem = elements.get(i);
-                String status = elem.path("status").asText();
-                if (!"OK".equals(status)) {
-                    continue;
+        for (int tentative = 1; tentative <= tentativesMax; tentative++) {
+            Set<Integer> originesEnEchec = new LinkedHashSet<>();
+            Map<UUID, Stade> stadesEnEchec = new LinkedHashMap<>();
+            JsonNode rows = appeler(originesAMesurer.stream().map(origines::get).collect(Collectors.toList()),
+                    stadesAMesurer);
+            if (rows == null) {
+                // Échec transitoire de toute la requête
+                originesEnEchec.addAll(originesAMesurer);
+                stadesAMesurer.forEach(s -> stadesEnEchec.put(s.getId(), s));
+            } else if (rows.isMissingNode()) {
+                return; // Échec définitif (clé refusée, requête invalide...)
+            } else {
+                for (int i = 0; i < originesAMesurer.size(); i++) {
+                    int indexOrigine = originesAMesurer.get(i);
+                    JsonNode elements = rows.path(i).path("elements");
+                    for (int j = 0; j < stadesAMesurer.size(); j++) {
+                        Stade stade = stadesAMesurer.get(j);
+                        String cle = indexOrigine + "|" + stade.getId();
+                        if (termines.contains(cle)) {
+                            continue;
+                        }
+                        JsonNode element = elements.path(j);
+                        String statut = element.path("status").asText("");
+                        if ("OK".equals(statut)) {
+                            resultats.get(indexOrigine).add(convertir(stade, element));
+                            termines.add(cle);
+                        } else if (ECHECS_DEFINITIFS.contains(statut)) {
+                            termines.add(cle);
+                        } else {
+                            originesEnEchec.add(indexOrigine);
+                            stadesEnEchec.put(stade.getId(), stade);
+                        }
+                    }
                 }
-                long meters = elem.path("distance").path("value").asLong(0);
-                long seconds = elem.path("duration").path("value").asLong(0);
-
-                BigDecimal distanceKm = BigDecimal.valueOf(meters).divide(BigDecimal.valueOf(1000), 2,
-                        RoundingMode.HALF_UP);
-                Integer dureeMinutes = BigDecimal.valueOf(seconds)
-                        .divide(BigDecimal.valueOf(60), 0, RoundingMode.HALF_UP).intValue();
+            }
+            if (originesEnEchec.isEmpty()) {
+                return;
+            }
+            if (tentative < tentativesMax && !patienter(delaiInitialMs << (tentative - 1))) {
+                return;
+            }
+            originesAMesurer = new ArrayList<>(originesEnEchec);
+            stadesAMesurer = new ArrayList<>(stadesEnEchec.values());
+        }
+        log.warn("[Distances] Éléments non mesurés après {} tentatives", tentativesMax);
+    }
 
-                resultats.add(new ResultatDistance(stades.get(i), distanceKm, dureeMinutes));
+    /**
+     * Une requête matricielle.
+     *
+     * @return le tableau rows ; null pour un échec transitoire (réseau, 5xx,
+     *         429, quota) ; MissingNode pour un échec définitif
+     */
+    private JsonNode appeler(List<Origine> origines, List<Stade> stades) {
+        String origins = origines.stream()
+                .map(o -> o.latitude().toPlainString() + "," + o.longitude().toPlainString())
+                .collect(Collectors.joining("|"));
+        String destinations = stades.stream()
+                .map(s -> s.getLatitude().toPlainString() + "," + s.getLongitude().toPlainString())
+                .collect(Collectors.joining("|"));
+        URI uri = URI.create(urlBase + CHEMIN
+                + "?origins=" + URLEncoder.encode(origins, StandardCharsets.UTF_8)
+                + "&destinations=" + URLEncoder.encode(destinations, StandardCharsets.UTF_8)
+                + "&mode=driving&units=metric&key=" + URLEncoder.encode(apiKey, StandardCharsets.UTF_8));
+        try {
+            limiteur.acquerir();
+            String reponse = restTemplate.getForObject(uri, String.class);
+            if (reponse == null) {
+                return null;
+            }
+            JsonNode racine = objectMapper.readTree(reponse);
+            String statut = racine.path("status").asText();
+            if ("OK".equals(statut)) {
+                return racine.path("rows");
             }
-        } catch (Exception ignored) {
+            log.warn("[Distances] Distance Matrix a répondu {}: {}", statut, racine.path("error_message").asText());
+            return STATUTS_TRANSITOIRES.contains(statut) ? null : objectMapper.missingNode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return objectMapper.missingNode();
+        } catch (HttpClientErrorException e) {
+            log.warn("[Distances] Distance Matrix HTTP {}", e.getStatusCode().value());
+            return e.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS) ? null : objectMapper.missingNode();
+        } catch (RestClientException e) {
+            log.warn("[Distances] Distance Matrix indisponible: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            log.warn("[Distances] Réponse Distance Matrix illisible: {}", e.getMessage());
+            return null;
         }
+    }
 
-        return resultats;
+    private static boolean patienter(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static ResultatDistance convertir(Stade stade, JsonNode element) {
+        long meters = element.path("distance").path("value").asLong(0);
+        long seconds = element.path("duration").path("value").asLong(0);
+        BigDecimal distanceKm = BigDecimal.valueOf(meters).divide(BigDecimal.valueOf(1000), 2,
+                RoundingMode.HALF_UP);
+        Integer dureeMinutes = BigDecimal.valueOf(seconds)
+                .divide(BigDecimal.valueOf(60), 0, RoundingMode.HALF_UP).intValue();
+        return new ResultatDistance(stade, distanceKm, dureeMinutes);
     }
 
     public static class ResultatDistance {
@@ -0,0 +1,398 @@
+package com.example.Impression.services;
+
+import com.example.Impression.enums.ModeTransport;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Réseau routier et piéton chargé depuis un fichier texte (extrait OSM
+ * préparé hors ligne), stocké en tableaux primitifs au format CSR : pour
+ * chaque nœud, la liste de ses arcs entrants. Un parcours de Dijkstra depuis
+ * un stade sur ces arcs inversés donne en une passe le trajet de chaque nœud
+ * du réseau vers ce stade.
+ *
+ * Format du fichier (séparateur espace ou tabulation, # pour les
+ * commentaires, .gz accepté) :
+ *
+ * <pre>
+ * N &lt;id&gt; &lt;latitude&gt; &lt;longitude&gt;
+ * A &lt;id_depart&gt; &lt;id_arrivee&gt; &lt;longueur_m&gt; &lt;vitesse_voiture_kmh&gt; &lt;sens_unique&gt; &lt;pieton&gt;
+ * </pre>
+ *
+ * Une vitesse nulle interdit l'arc aux voitures ; sens_unique (0/1) ne
+ * concerne que les voitures ; pieton (0/1) ouvre l'arc à la marche dans les
+ * deux sens. Les nœuds doivent précéder les arcs qui les utilisent.
+ *
+ * Une instance n'est jamais modifiée après chargement.
+ */
+public final class GrapheRoutier {
+
+    private static final double RAYON_TERRE_M = 6_371_000.0;
+    // Côté d'une cellule de la grille d'accrochage (~500 m)
+    private static final double CELLULE_DEGRES = 0.005;
+
+    final int nbNoeuds;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final Reseau voiture;
+    private final Reseau marche;
+
+    // Grille d'accrochage : cellules triées, nœuds regroupés par cellule
+    private final long[] cellules;
+    private final int[] debutCellules;
+    private final int[] noeudsParCellule;
+
+    /**
+     * Arcs inversés d'un mode : les arcs entrant dans le nœud v occupent les
+     * positions debut[v] .. debut[v + 1] - 1. Le poids est en secondes pour la
+     * voiture et en mètres pour la marche (vitesse constante).
+     */
+    static final class Reseau {
+        final int[] debut;
+        final int[] origines;
+        final float[] poids;
+        final float[] metres;
+        // Nœuds touchés par au moins un arc du mode (accrochage possible)
+        final boolean[] desservis;
+
+        Reseau(int[] debut, int[] origines, float[] poids, float[] metres, boolean[] desservis) {
+            this.debut = debut;
+            this.origines = origines;
+            this.poids = poids;
+            this.metres = metres;
+            this.desservis = desservis;
+        }
+    }
+
+    private GrapheRoutier(double[] latitudes, double[] longitudes, Reseau voiture, Reseau marche) {
+        this.nbNoeuds = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.voiture = voiture;
+        this.marche = marche;
+
+        long[] cles = new long[nbNoeuds];
+        Integer[] ordre = new Integer[nbNoeuds];
+        for (int i = 0; i < nbNoeuds; i++) {
+            cles[i] = cle(ligne(latitudes[i]), colonne(longitudes[i]));
+            ordre[i] = i;
+        }
+        Arrays.sort(ordre, (a, b) -> Long.compare(cles[a], cles[b]));
+        this.noeudsParCellule = new int[nbNoeuds];
+        long[] distinctes = new long[nbNoeuds];
+        int[] debuts = new int[nbNoeuds + 1];
+        int nbCellules = 0;
+        for (int i = 0; i < nbNoeuds; i++) {
+            noeudsParCellule[i] = ordre[i];
+            if (i == 0 || cles[ordre[i]] != cles[ordre[i - 1]]) {
+                distinctes[nbCellules] = cles[ordre[i]];
+                debuts[nbCellules++] = i;
+            }
+        }
+        debuts[nbCellules] = nbNoeuds;
+        this.cellules = Arrays.copyOf(distinctes, nbCellules);
+        this.debutCellules = Arrays.copyOf(debuts, nbCellules + 1);
+    }
+
+    // ========== CHARGEMENT ==========
+
+    public static GrapheRoutier charger(Path fichier) throws IOException {
+        try (InputStream brut = Files.newInputStream(fichier);
+                InputStream entree = fichier.toString().endsWith(".gz") ? new GZIPInputStream(brut) : brut;
+                BufferedReader lecteur = new BufferedReader(new InputStreamReader(entree, StandardCharsets.UTF_8))) {
+            return lire(lecteur);
+        }
+    }
+
+    static GrapheRoutier lire(BufferedReader lecteur) throws IOException {
+        Map<Long, Integer> indices = new HashMap<>();
+        double[] lats = new double[1024];
+        double[] lons = new double[1024];
+        int nbNoeuds = 0;
+        Arcs arcs = new Arcs();
+
+        String ligne;
+        int numero = 0;
+        while ((ligne = lecteur.readLine()) != null) {
+            numero++;
+            ligne = ligne.trim();
+            if (ligne.isEmpty() || ligne.startsWith("#")) {
+                continue;
+            }
+            String[] champs = ligne.split("\\s+");
+            try {
+                if ("N".equals(champs[0])) {
+                    if (nbNoeuds == lats.length) {
+                        lats = Arrays.copyOf(lats, nbNoeuds * 2);
+                        lons = Arrays.copyOf(lons, nbNoeuds * 2);
+                    }
+                    lats[nbNoeuds] = Double.parseDouble(champs[2]);
+                    lons[nbNoeuds] = Double.parseDouble(champs[3]);
+                    indices.put(Long.parseLong(champs[1]), nbNoeuds++);
+                } else if ("A".equals(champs[0])) {
+                    Integer de = indices.get(Long.parseLong(champs[1]));
+                    Integer vers = indices.get(Long.parseLong(champs[2]));
+                    if (de == null || vers == null) {
+                        throw new IOException("Nœud inconnu ligne " + numero);
+                    }
+                    arcs.ajouter(de, vers, Float.parseFloat(champs[3]), Float.parseFloat(champs[4]),
+                            "1".equals(champs[5]), "1".equals(champs[6]));
+                } else {
+                    throw new IOException("Type d'enregistrement inconnu ligne " + numero);
+                }
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Ligne " + numero + " illisible: " + ligne, e);
+            }
+        }
+        return new GrapheRoutier(Arrays.copyOf(lats, nbNoeuds), Arrays.copyOf(lons, nbNoeuds),
+                arcs.reseau(nbNoeuds, ModeTransport.VOITURE), arcs.reseau(nbNoeuds, ModeTransport.MARCHE));
+    }
+
+    // Arcs lus, en tableaux extensibles
+    private static final class Arcs {
+        int taille;
+        int[] de = new int[1024];
+        int[] vers = new int[1024];
+        float[] metres = new float[1024];
+        float[] vitesses = new float[1024];
+        boolean[] sensUnique = new boolean[1024];
+        boolean[] pieton = new boolean[1024];
+
+        void ajouter(int depart, int arrivee, float longueur, float vitesse, boolean unique, boolean marche) {
+            if (taille == de.length) {
+                int capacite = taille * 2;
+                de = Arrays.copyOf(de, capacite);
+                vers = Arrays.copyOf(vers, capacite);
+                metres = Arrays.copyOf(metres, capacite);
+                vitesses = Arrays.copyOf(vitesses, capacite);
+                sensUnique = Arrays.copyOf(sensUnique, capacite);
+                pieton = Arrays.copyOf(pieton, capacite);
+            }
+            de[taille] = depart;
+            vers[taille] = arrivee;
+            metres[taille] = longueur;
+            vitesses[taille] = vitesse;
+            sensUnique[taille] = unique;
+            pieton[taille] = marche;
+            taille++;
+        }
+
+        // Arcs inversés d'un mode au format CSR (deux passes : comptage puis remplissage)
+        Reseau reseau(int nbNoeuds, ModeTransport mode) {
+            int[] debut = new int[nbNoeuds + 1];
+            boolean[] desservis = new boolean[nbNoeuds];
+            for (int k = 0; k < taille; k++) {
+                if (ouvert(k, mode)) {
+                    debut[vers[k] + 1]++;
+                    if (!sensUnique[k] || mode == ModeTransport.MARCHE) {
+                        debut[de[k] + 1]++;
+                    }
+                    desservis[de[k]] = true;
+                    desservis[vers[k]] = true;
+                }
+            }
+            for (int v = 0; v < nbNoeuds; v++) {
+                debut[v + 1] += debut[v];
+            }
+            int[] position = Arrays.copyOf(debut, nbNoeuds);
+            int[] origines = new int[debut[nbNoeuds]];
+            float[] poids = new float[debut[nbNoeuds]];
+            float[] longueurs = new float[debut[nbNoeuds]];
+            for (int k = 0; k < taille; k++) {
+                if (!ouvert(k, mode)) {
+                    continue;
+                }
+                float cout = mode == ModeTransport.VOITURE ? metres[k] / (vitesses[k] / 3.6f) : metres[k];
+                int p = position[vers[k]]++;
+                origines[p] = de[k];
+                poids[p] = cout;
+                longueurs[p] = metres[k];
+                if (!sensUnique[k] || mode == ModeTransport.MARCHE) {
+                    p = position[de[k]]++;
+                    origines[p] = vers[k];
+                    poids[p] = cout;
+                    longueurs[p] = metres[k];
+                }
+            }
+            return new Reseau(debut, origines, poids, longueurs, desservis);
+        }
+
+        private boolean ouvert(int k, ModeTransport mode) {
+            return mode == ModeTransport.VOITURE ? vitesses[k] > 0 : pieton[k];
+        }
+    }
+
+    // ========== ACCROCHAGE ==========
+
+    /**
+     * Nœud desservi par le mode le plus proche d'une position, -1 si aucun
+     * n'est à moins de distanceMaxMetres.
+     */
+    public int noeudLePlusProche(double latitude, double longitude, ModeTransport mode, double distanceMaxMetres) {
+        boolean[] desservis = reseau(mode).desservis;
+        int anneaux = (int) Math.ceil(distanceMaxMetres / (CELLULE_DEGRES * Math.PI / 180 * RAYON_TERRE_M
+                * Math.max(0.1, Math.cos(Math.toRadians(latitude))))) + 1;
+        long ligne0 = ligne(latitude);
+        long colonne0 = colonne(longitude);
+        int meilleur = -1;
+        double minimum = distanceMaxMetres;
+        for (long l = ligne0 - anneaux; l <= ligne0 + anneaux; l++) {
+            for (long c = colonne0 - anneaux; c <= colonne0 + anneaux; c++) {
+                int cellule = Arrays.binarySearch(cellules, cle(l, c));
+                if (cellule < 0) {
+                    continue;
+                }
+                for (int p = debutCellules[cellule]; p < debutCellules[cellule + 1]; p++) {
+                    int noeud = noeudsParCellule[p];
+                    if (!desservis[noeud]) {
+                        continue;
+                    }
+                    double distance = distanceMetres(latitude, longitude, noeud);
+                    if (distance <= minimum) {
+                        minimum = distance;
+                        meilleur = noeud;
+                    }
+                }
+            }
+        }
+        return meilleur;
+    }
+
+    // Distance à vol d'oiseau entre une position et un nœud
+    public double distanceMetres(double latitude, double longitude, int noeud) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(latitudes[noeud]);
+        double sinDeltaLat = Math.sin((lat2 - lat1) / 2);
+        double sinDeltaLon = Math.sin(Math.toRadians(longitudes[noeud] - longitude) / 2);
+        double a = sinDeltaLat * sinDeltaLat + Math.cos(lat1) * Math.cos(lat2) * sinDeltaLon * sinDeltaLon;
+        return RAYON_TERRE_M * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    // ========== PLUS COURTS CHEMINS ==========
+
+    /**
+     * Dijkstra sur les arcs inversés depuis la cible : coût (secondes en
+     * voiture, mètres à pied) et longueur en mètres du meilleur trajet de
+     * chaque nœud vers la cible. Les nœuds non atteints, ou au-delà de
+     * coutMax, restent à l'infini.
+     */
+    public void cheminsVers(int cible, ModeTransport mode, float coutMax, float[] couts, float[] longueurs) {
+        Reseau reseau = reseau(mode);
+        Arrays.fill(couts, Float.POSITIVE_INFINITY);
+        Arrays.fill(longueurs, Float.POSITIVE_INFINITY);
+        TasBinaire tas = new TasBinaire(1024);
+        couts[cible] = 0;
+        longueurs[cible] = 0;
+        tas.ajouter(cible, 0);
+        while (!tas.estVide()) {
+            float cout = tas.cleMin();
+            int v = tas.extraireMin();
+            if (cout > couts[v]) {
+                continue; // Entrée périmée
+            }
+            for (int p = reseau.debut[v]; p < reseau.debut[v + 1]; p++) {
+                int u = reseau.origines[p];
+                float nouveau = cout + reseau.poids[p];
+                if (nouveau < couts[u] && nouveau <= coutMax) {
+                    couts[u] = nouveau;
+                    longueurs[u] = longueurs[v] + reseau.metres[p];
+                    tas.ajouter(u, nouveau);
+                }
+            }
+        }
+    }
+
+    private Reseau reseau(ModeTransport mode) {
+        return switch (mode) {
+            case VOITURE -> voiture;
+            case MARCHE -> marche;
+            default -> throw new IllegalArgumentException("Mode non routé hors ligne: " + mode);
+        };
+    }
+
+    private static long ligne(double latitude) {
+        return (long) Math.floor(latitude / CELLULE_DEGRES);
+    }
+
+    private static long colonne(double longitude) {
+        return (long) Math.floor(longitude / CELLULE_DEGRES);
+    }
+
+    private static long cle(long ligne, long colonne) {
+        return (ligne << 32) ^ (colonne & 0xffffffffL);
+    }
+
+    // Tas binaire de nœuds (suppression paresseuse des entrées périmées)
+    private static final class TasBinaire {
+        private int[] noeuds;
+        private float[] cles;
+        private int taille;
+
+        TasBinaire(int capacite) {
+            noeuds = new int[capacite];
+            cles = new float[capacite];
+        }
+
+        boolean estVide() {
+            return taille == 0;
+        }
+
+        float cleMin() {
+            return cles[0];
+        }
+
+        void ajouter(int noeud, float cle) {
+            if (taille == noeuds.length) {
+                noeuds = Arrays.copyOf(noeuds, taille * 2);
+                cles = Arrays.copyOf(cles, taille * 2);
+            }
+            int i = taille++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (cles[parent] <= cle) {
+                    break;
+                }
+                noeuds[i] = noeuds[parent];
+                cles[i] = cles[parent];
+                i = parent;
+            }
+            noeuds[i] = noeud;
+            cles[i] = cle;
+        }
+
+        int extraireMin() {
+            int min = noeuds[0];
+            int dernier = noeuds[--taille];
+            float cleDernier = cles[taille];
+            int i = 0;
+            while (true) {
+                int enfant = 2 * i + 1;
+                if (enfant >= taille) {
+                    break;
+                }
+                if (enfant + 1 < taille && cles[enfant + 1] < cles[enfant]) {
+                    enfant++;
+                }
+                if (cles[enfant] >= cleDernier) {
+                    break;
+                }
+                noeuds[i] = noeuds[enfant];
+                cles[i] = cles[enfant];
+                i = enfant;
+            }
+            noeuds[i] = dernier;
+            cles[i] = cleDernier;
+            return min;
+        }
+    }
+}
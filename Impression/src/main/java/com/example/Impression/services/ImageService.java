@@ -1,9 +1,12 @@
 package com.example.Impression.services;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -13,42 +16,45 @@ import java.util.List;
 @Service
 public class ImageService {
 
+    @Autowired
+    private ImageStockageService imageStockageService;
+
     /**
-     * Lit une image depuis le disque et la convertit en byte[]
+     * Importe une image du disque dans le stockage d'images et renvoie son
+     * identifiant (SHA-256), ou null si le fichier est absent ou illisible
      */
-    public byte[] lireImageDepuisDisque(String cheminImage) {
-        try {
-            // Utiliser File pour gérer les chemins Windows
-            File file = new File(cheminImage);
+    public String importerImageDepuisDisque(String cheminImage) {
+        // Utiliser File pour gérer les chemins Windows
+        File file = new File(cheminImage);
 
-            if (file.exists() && file.isFile()) {
-                return Files.readAllBytes(file.toPath());
-            } else {
-                System.err.println("Fichier non trouvé: " + cheminImage);
-                return null;
-            }
-        } catch (IOException e) {
+        if (!file.exists() || !file.isFile()) {
+            System.err.println("Fichier non trouvé: " + cheminImage);
+            return null;
+        }
+        try (InputStream entree = Files.newInputStream(file.toPath())) {
+            return imageStockageService.stocker(entree).getHash();
+        } catch (IOException | UncheckedIOException e) {
             System.err.println("Erreur lors de la lecture du fichier: " + cheminImage + " - " + e.getMessage());
             return null;
         }
     }
 
     /**
-     * Lit une liste d'images depuis le disque et les convertit en byte[]
+     * Importe une liste d'images du disque dans le stockage d'images
      */
-    public List<byte[]> lireImagesDepuisDisque(List<String> cheminsImages) {
-        List<byte[]> imagesBytes = new ArrayList<>();
+    public List<String> importerImagesDepuisDisque(List<String> cheminsImages) {
+        List<String> imageIds = new ArrayList<>();
 
         if (cheminsImages != null) {
             for (String chemin : cheminsImages) {
-                byte[] imageBytes = lireImageDepuisDisque(chemin);
-                if (imageBytes != null) {
-                    imagesBytes.add(imageBytes);
+                String imageId = importerImageDepuisDisque(chemin);
+                if (imageId != null && !imageIds.contains(imageId)) {
+                    imageIds.add(imageId);
                 }
             }
         }
 
-        return imagesBytes;
+        return imageIds;
     }
 
     /**
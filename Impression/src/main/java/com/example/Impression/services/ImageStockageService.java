@@ -0,0 +1,167 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.repositories.ImageAssetRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Stockage d'images adressé par contenu sur le système de fichiers local.
+ * Chaque fichier est rangé sous {racine}/ab/cd/{sha256} et décrit par un
+ * ImageAsset. L'écriture passe par un fichier temporaire haché au fil de l'eau
+ * puis déplacé : les octets ne sont jamais entièrement chargés en mémoire et un
+ * contenu déjà connu n'est pas dupliqué.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageStockageService {
+
+    private final ImageAssetRepository imageAssetRepository;
+
+    @Value("${app.images.repertoire:donnees/images}")
+    private String repertoire;
+
+    /**
+     * Source d'octets écrite directement dans le fichier temporaire du stockage
+     */
+    @FunctionalInterface
+    public interface SourceImage {
+        void ecrire(OutputStream sortie) throws IOException;
+    }
+
+    // Stocker le contenu d'un flux
+    public ImageAsset stocker(InputStream entree) {
+        return stocker(entree::transferTo);
+    }
+
+    // Stocker le contenu produit par une source (décodage base64, redimensionnement...)
+    public ImageAsset stocker(SourceImage source) {
+        Path racine = racine();
+        Path temporaire = null;
+        try {
+            Files.createDirectories(racine.resolve("tmp"));
+            temporaire = Files.createTempFile(racine.resolve("tmp"), "image-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream sortie = new DigestOutputStream(Files.newOutputStream(temporaire), digest)) {
+                source.ecrire(sortie);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+
+            Optional<ImageAsset> existant = imageAssetRepository.findById(hash);
+            if (existant.isPresent() && Files.exists(racine.resolve(existant.get().getCheminRelatif()))) {
+                return existant.get();
+            }
+
+            String cheminRelatif = cheminRelatif(hash);
+            Path destination = racine.resolve(cheminRelatif);
+            Files.createDirectories(destination.getParent());
+            deplacer(temporaire, destination);
+
+            ImageAsset asset = existant.orElseGet(ImageAsset::new);
+            asset.setHash(hash);
+            asset.setCheminRelatif(cheminRelatif);
+            asset.setTaille(Files.size(destination));
+            asset.setTypeContenu(detecterTypeContenu(destination));
+            return imageAssetRepository.save(asset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur lors du stockage de l'image", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        } finally {
+            if (temporaire != null) {
+                try {
+                    Files.deleteIfExists(temporaire);
+                } catch (IOException e) {
+                    log.warn("[Images] Fichier temporaire non supprimé: {}", temporaire);
+                }
+            }
+        }
+    }
+
+    // URL publique d'une image (ImageController)
+    public static String url(String hash) {
+        return "/api/images/" + hash;
+    }
+
+    public static List<String> urls(List<String> hashes) {
+        if (hashes == null) {
+            return new ArrayList<>();
+        }
+        return hashes.stream().map(ImageStockageService::url).collect(Collectors.toList());
+    }
+
+    public Optional<ImageAsset> trouver(String hash) {
+        return imageAssetRepository.findById(hash);
+    }
+
+    // Écarter définitivement une image non décodable de la génération des variantes
+    public void marquerIllisible(ImageAsset asset) {
+        asset.setIllisible(true);
+        imageAssetRepository.save(asset);
+    }
+
+    // Chemin absolu du fichier d'un asset
+    public Path chemin(ImageAsset asset) {
+        return racine().resolve(asset.getCheminRelatif());
+    }
+
+    private Path racine() {
+        return Paths.get(repertoire).toAbsolutePath().normalize();
+    }
+
+    static String cheminRelatif(String hash) {
+        return hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+
+    private static void deplacer(Path source, Path destination) throws IOException {
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Type MIME déduit des premiers octets du fichier
+    static String detecterTypeContenu(Path fichier) throws IOException {
+        byte[] entete = new byte[12];
+        int lus;
+        try (InputStream entree = Files.newInputStream(fichier)) {
+            lus = entree.readNBytes(entete, 0, entete.length);
+        }
+        if (lus >= 3 && (entete[0] & 0xFF) == 0xFF && (entete[1] & 0xFF) == 0xD8 && (entete[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (lus >= 8 && (entete[0] & 0xFF) == 0x89 && entete[1] == 'P' && entete[2] == 'N' && entete[3] == 'G') {
+            return "image/png";
+        }
+        if (lus >= 6 && entete[0] == 'G' && entete[1] == 'I' && entete[2] == 'F') {
+            return "image/gif";
+        }
+        if (lus >= 12 && entete[0] == 'R' && entete[1] == 'I' && entete[2] == 'F' && entete[3] == 'F'
+                && entete[8] == 'W' && entete[9] == 'E' && entete[10] == 'B' && entete[11] == 'P') {
+            return "image/webp";
+        }
+        return "application/octet-stream";
+    }
+}
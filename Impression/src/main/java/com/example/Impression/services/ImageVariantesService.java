@@ -0,0 +1,270 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.ImageVariantesDTO;
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.entities.ImageVariante;
+import com.example.Impression.enums.TailleImage;
+import com.example.Impression.repositories.ImageVarianteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Génération asynchrone des variantes redimensionnées (miniature, carte,
+ * complète) des images du stockage. Les photos d'origine restent intactes ;
+ * chaque variante est un JPEG progressif recompressé, enregistré dans le
+ * stockage et référencé par une ligne ImageVariante.
+ *
+ * Les tâches sont planifiées à l'import des images (création et mise à jour
+ * d'annonce) sur un exécuteur borné ; seules les tailles manquantes sont
+ * générées. Un balayage périodique rattrape les images dont la tâche a été
+ * refusée, interrompue ou n'a produit qu'une partie des tailles.
+ */
+@Service
+@Slf4j
+public class ImageVariantesService {
+
+    static final String TYPE_VARIANTE = "image/jpeg";
+
+    @Autowired
+    private ImageVarianteRepository imageVarianteRepository;
+
+    @Autowired
+    private ImageStockageService imageStockageService;
+
+    @Autowired
+    @Qualifier("imageVariantesExecutor")
+    private ThreadPoolTaskExecutor imageVariantesExecutor;
+
+    @Value("${app.images.variantes.qualite:0.78}")
+    private float qualite;
+
+    // Images en cours de traitement (planifiées ou en exécution)
+    private final Set<String> enCours = ConcurrentHashMap.newKeySet();
+
+    // Planifier la génération des variantes manquantes
+    public void planifier(Collection<String> hashes) {
+        if (hashes == null) {
+            return;
+        }
+        for (String hash : hashes) {
+            if (!enCours.add(hash)) {
+                continue;
+            }
+            try {
+                imageVariantesExecutor.execute(() -> {
+                    try {
+                        Set<TailleImage> manquantes = taillesManquantes(hash);
+                        if (!manquantes.isEmpty()) {
+                            imageStockageService.trouver(hash)
+                                    .filter(asset -> !asset.isIllisible())
+                                    .ifPresent(asset -> genererVariantes(asset, manquantes));
+                        }
+                    } catch (Exception e) {
+                        log.warn("[Images] Variantes non générées pour {}: {}", hash, e.getMessage());
+                    } finally {
+                        enCours.remove(hash);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // File pleine : l'image reste sans variantes, le balayage la reprendra
+                enCours.remove(hash);
+                log.warn("[Images] File de génération des variantes pleine, {} reportée au prochain balayage",
+                        hash);
+            }
+        }
+    }
+
+    // Rattrapage périodique des images sans variantes ou à variantes incomplètes
+    @Scheduled(fixedDelayString = "${app.images.variantes.balayage-ms:600000}", initialDelay = 60000)
+    public void balayer() {
+        List<String> hashes = imageVarianteRepository.findHashesVariantesIncompletes(TailleImage.values().length,
+                PageRequest.of(0, 100));
+        if (!hashes.isEmpty()) {
+            log.info("[Images] {} image(s) à variantes manquantes planifiée(s)", hashes.size());
+            planifier(hashes);
+        }
+    }
+
+    // Générer et enregistrer les tailles manquantes d'une image (synchrone)
+    public List<ImageVariante> genererVariantes(ImageAsset source) {
+        return genererVariantes(source, taillesManquantes(source.getHash()));
+    }
+
+    private Set<TailleImage> taillesManquantes(String hash) {
+        Set<TailleImage> manquantes = EnumSet.allOf(TailleImage.class);
+        manquantes.removeAll(imageVarianteRepository.findTaillesBySourceHash(hash));
+        return manquantes;
+    }
+
+    /**
+     * Chaque taille est enregistrée dès qu'elle est produite : après un échec
+     * en cours de route, l'image reste incomplète et le prochain balayage ne
+     * génère que les tailles qui lui manquent.
+     */
+    private List<ImageVariante> genererVariantes(ImageAsset source, Set<TailleImage> tailles) {
+        if (tailles.isEmpty()) {
+            return new ArrayList<>();
+        }
+        BufferedImage image;
+        try {
+            image = lireReduite(imageStockageService.chemin(source), TailleImage.COMPLETE.getLargeurMax());
+        } catch (IOException e) {
+            image = null;
+        }
+        if (image == null) {
+            imageStockageService.marquerIllisible(source);
+            log.warn("[Images] Format non décodable pour {} ({})", source.getHash(), source.getTypeContenu());
+            return new ArrayList<>();
+        }
+
+        List<ImageVariante> variantes = new ArrayList<>();
+        for (TailleImage taille : tailles) {
+            BufferedImage redimensionnee = redimensionner(image, taille.getLargeurMax());
+            ImageAsset asset = imageStockageService.stocker(sortie -> ecrireJpeg(redimensionnee, sortie));
+
+            ImageVariante variante = new ImageVariante();
+            variante.setSourceHash(source.getHash());
+            variante.setTaille(taille);
+            variante.setVarianteHash(asset.getHash());
+            variante.setTypeContenu(TYPE_VARIANTE);
+            variante.setLargeur(redimensionnee.getWidth());
+            variante.setHauteur(redimensionnee.getHeight());
+            variante.setOctets(asset.getTaille());
+            try {
+                variantes.add(imageVarianteRepository.save(variante));
+            } catch (DataIntegrityViolationException e) {
+                // Variante déjà produite par un autre traitement
+            }
+        }
+        return variantes;
+    }
+
+    // Variantes de plusieurs images, indexées par hash d'origine
+    public Map<String, ImageVariantesDTO> variantesParImage(Collection<String> hashes) {
+        Map<String, ImageVariantesDTO> resultat = new HashMap<>();
+        if (hashes == null || hashes.isEmpty()) {
+            return resultat;
+        }
+        for (String hash : hashes) {
+            String url = ImageStockageService.url(hash);
+            resultat.put(hash, new ImageVariantesDTO(hash, url, url, url, url));
+        }
+        for (ImageVariante variante : imageVarianteRepository.findBySourceHashIn(hashes)) {
+            ImageVariantesDTO dto = resultat.get(variante.getSourceHash());
+            String url = ImageStockageService.url(variante.getVarianteHash());
+            switch (variante.getTaille()) {
+                case MINIATURE -> dto.setUrlMiniature(url);
+                case CARTE -> dto.setUrlCarte(url);
+                case COMPLETE -> dto.setUrlComplete(url);
+            }
+        }
+        return resultat;
+    }
+
+    // Hash de la variante d'une taille donnée, par hash d'origine
+    public Map<String, String> variantes(Collection<String> hashes, TailleImage taille) {
+        if (hashes == null || hashes.isEmpty()) {
+            return new HashMap<>();
+        }
+        return imageVarianteRepository.findBySourceHashInAndTaille(hashes, taille)
+                .stream()
+                .collect(Collectors.toMap(ImageVariante::getSourceHash, ImageVariante::getVarianteHash,
+                        (premiere, seconde) -> premiere));
+    }
+
+    /**
+     * Décode l'image en sous-échantillonnant à la lecture les très grandes
+     * photos : le tampon décodé reste de l'ordre de deux fois la plus grande
+     * variante au lieu de la taille du capteur.
+     */
+    static BufferedImage lireReduite(Path fichier, int largeurCible) throws IOException {
+        try (ImageInputStream entree = ImageIO.createImageInputStream(fichier.toFile())) {
+            if (entree == null) {
+                return null;
+            }
+            Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(entree);
+            if (!lecteurs.hasNext()) {
+                return null;
+            }
+            ImageReader lecteur = lecteurs.next();
+            try {
+                lecteur.setInput(entree, true, true);
+                int largeur = lecteur.getWidth(0);
+                ImageReadParam param = lecteur.getDefaultReadParam();
+                int pas = Math.max(1, largeur / (2 * largeurCible));
+                if (pas > 1) {
+                    param.setSourceSubsampling(pas, pas, 0, 0);
+                }
+                return lecteur.read(0, param);
+            } finally {
+                lecteur.dispose();
+            }
+        }
+    }
+
+    // Réduire à la largeur maximale (jamais d'agrandissement), fond opaque
+    static BufferedImage redimensionner(BufferedImage source, int largeurMax) {
+        int largeur = Math.min(largeurMax, source.getWidth());
+        int hauteur = Math.max(1, Math.round(source.getHeight() * (largeur / (float) source.getWidth())));
+        BufferedImage cible = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = cible.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, largeur, hauteur);
+            g.drawImage(source, 0, 0, largeur, hauteur, null);
+        } finally {
+            g.dispose();
+        }
+        return cible;
+    }
+
+    private void ecrireJpeg(BufferedImage image, OutputStream sortie) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(sortie)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(qualite);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.SuggestionDTO;
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.TypeSuggestion;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.AnnonceStadeDistanceRepository;
+import com.example.Impression.repositories.StadeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Autocomplétion des villes, quartiers et stades : arbre préfixe (trie) en
+ * mémoire sur les libellés pliés (casse et accents, comme les facettes).
+ * Chaque libellé est inséré à partir de chacun de ses mots ("mohammed"
+ * trouve "Stade Mohammed V") et chaque nœud garde les K_MAX entrées les plus
+ * populaires de son sous-arbre : une suggestion ne coûte que la descente du
+ * préfixe.
+ *
+ * Popularité : nombre d'annonces actives de la ville ou du quartier (rue ou
+ * complément d'adresse contenant le nom du quartier), maintenu à chaque
+ * écriture d'annonce ; pour un stade, nombre d'annonces dont il est le plus
+ * proche, mis à jour au rechargement périodique.
+ */
+@Service
+@Slf4j
+public class IndexAutocompletionService extends IndexEnMemoire<IndexAutocompletionService.Lecture> {
+
+    static final int K_MAX = 10;
+    private static final Entree[] AUCUNE = new Entree[0];
+
+    private static final Comparator<Entree> PAR_POPULARITE = Comparator
+            .comparingLong((Entree e) -> e.poids).reversed()
+            .thenComparing(e -> e.type)
+            .thenComparing(e -> e.libelle);
+
+    private final AnnonceRepository annonceRepository;
+    private final StadeRepository stadeRepository;
+    private final AnnonceStadeDistanceRepository annonceStadeDistanceRepository;
+    // Quartiers proposés : { nom, ville }
+    private final List<String[]> quartiers = new ArrayList<>();
+
+    private Noeud racine = new Noeud();
+    private final Map<String, Entree> entrees = new HashMap<>();
+    // Entrées (ville, quartiers) dont chaque annonce indexée augmente le poids
+    private final Map<UUID, List<Entree>> contributions = new HashMap<>();
+
+    static final class Entree {
+        final TypeSuggestion type;
+        final String libelle;
+        final String ville;
+        final UUID stadeId;
+        final List<String> chemins;
+        long poids;
+
+        Entree(TypeSuggestion type, String libelle, String ville, UUID stadeId) {
+            this.type = type;
+            this.libelle = libelle;
+            this.ville = ville;
+            this.stadeId = stadeId;
+            this.chemins = chemins(IndexFacettesService.cle(libelle));
+        }
+    }
+
+    private static final class Noeud {
+        final Map<Character, Noeud> enfants = new HashMap<>(4);
+        final List<Entree> ici = new ArrayList<>(1);
+        Entree[] meilleures = AUCUNE;
+    }
+
+    public IndexAutocompletionService(AnnonceRepository annonceRepository, StadeRepository stadeRepository,
+            AnnonceStadeDistanceRepository annonceStadeDistanceRepository,
+            @Value("${app.autocompletion.quartiers:Maârif|Casablanca,Anfa|Casablanca,Agdal|Rabat,Hay Riad|Rabat,Guéliz|Marrakech,Hivernage|Marrakech,Malabata|Tanger,Talborjt|Agadir}") String[] quartiers) {
+        super("Autocomplétion", "app.autocompletion.rechargement-ms");
+        this.annonceRepository = annonceRepository;
+        this.stadeRepository = stadeRepository;
+        this.annonceStadeDistanceRepository = annonceStadeDistanceRepository;
+        for (String quartier : quartiers) {
+            String[] parties = quartier.split("\\|");
+            if (parties.length == 2 && !parties[0].isBlank() && !parties[1].isBlank()) {
+                this.quartiers.add(new String[] { parties[0].trim(), parties[1].trim() });
+            }
+        }
+    }
+
+    // ========== CHARGEMENT ==========
+
+    // Données lues en base pour un rechargement ; les stades sont rechargés pour leur popularité
+    record Lecture(List<Object[]> adresses, List<Stade> stades, Map<UUID, Long> annoncesParStade) {
+    }
+
+    @Override
+    protected Lecture lire() {
+        List<Object[]> adresses = annonceRepository.findAdressesAnnoncesActives();
+        List<Stade> stades = stadeRepository.findByEstActifTrue();
+        Map<UUID, Long> annoncesParStade = new HashMap<>();
+        for (Object[] l : annonceStadeDistanceRepository.compterAnnoncesActivesParStadeLePlusProche()) {
+            annoncesParStade.put((UUID) l[0], (Long) l[1]);
+        }
+        return new Lecture(adresses, stades, annoncesParStade);
+    }
+
+    @Override
+    protected void reconstruire(Lecture lecture) {
+        racine = new Noeud();
+        entrees.clear();
+        contributions.clear();
+        for (String[] quartier : quartiers) {
+            entree(TypeSuggestion.QUARTIER, quartier[0], quartier[1], null, false);
+        }
+        for (Stade stade : lecture.stades()) {
+            if (stade.getNom() == null || stade.getNom().isBlank()) {
+                continue;
+            }
+            Entree entree = entree(TypeSuggestion.STADE, stade.getNom(), stade.getVille(), stade.getId(), false);
+            entree.poids = lecture.annoncesParStade().getOrDefault(stade.getId(), 0L);
+        }
+        for (Object[] l : lecture.adresses()) {
+            contribuerSansVerrou((UUID) l[0], (String) l[1], (String) l[2], (String) l[3], false);
+        }
+        recalculerSousArbre(racine);
+        log.info("[Autocomplétion] {} suggestions indexées", entrees.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Compte (ou recompte) l'adresse d'une annonce ; une annonce inactive
+     * n'est plus comptée. Si l'index est chargé par cette mise à jour,
+     * l'annonce enregistrée y est déjà comptée : le recomptage ne la double pas.
+     */
+    public void indexer(Annonce annonce) {
+        if (annonce == null || annonce.getId() == null) {
+            return;
+        }
+        if (!annonce.isEstActive() || annonce.getAdresse() == null) {
+            retirer(annonce.getId());
+            return;
+        }
+        UUID id = annonce.getId();
+        Adresse adresse = annonce.getAdresse();
+        String ville = adresse.getVille();
+        String rue = adresse.getRue();
+        String complement = adresse.getComplement();
+        appliquer(() -> {
+            retirerSansVerrou(id);
+            contribuerSansVerrou(id, ville, rue, complement, true);
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        if (annonceId == null) {
+            return;
+        }
+        appliquer(() -> retirerSansVerrou(annonceId));
+    }
+
+    // Ajoute, renomme ou retire (stade inactif) la suggestion d'un stade
+    public void stadeModifie(Stade stade) {
+        if (stade == null || stade.getId() == null) {
+            return;
+        }
+        UUID id = stade.getId();
+        String nom = stade.getNom();
+        String ville = stade.getVille();
+        boolean propose = stade.isEstActif() && nom != null && !nom.isBlank();
+        appliquer(() -> {
+            Entree existante = entrees.get(cle(TypeSuggestion.STADE, null, null, id));
+            long poids = existante != null ? existante.poids : 0;
+            if (existante != null) {
+                supprimer(existante);
+            }
+            if (propose) {
+                modifierPoids(entree(TypeSuggestion.STADE, nom, ville, id, true), poids);
+            }
+        });
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return entrees.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void contribuerSansVerrou(UUID annonceId, String ville, String rue, String complement,
+            boolean recalculer) {
+        if (ville == null || ville.isBlank()) {
+            return;
+        }
+        List<Entree> comptees = new ArrayList<>(1);
+        comptees.add(entree(TypeSuggestion.VILLE, ville.trim(), ville.trim(), null, recalculer));
+        String cleVille = IndexFacettesService.cle(ville);
+        String adresse = mots((rue != null ? rue : "") + " " + (complement != null ? complement : ""));
+        for (String[] quartier : quartiers) {
+            if (IndexFacettesService.cle(quartier[1]).equals(cleVille) && adresse.contains(mots(quartier[0]))) {
+                comptees.add(entree(TypeSuggestion.QUARTIER, quartier[0], quartier[1], null, recalculer));
+            }
+        }
+        for (Entree entree : comptees) {
+            if (recalculer) {
+                modifierPoids(entree, entree.poids + 1);
+            } else {
+                entree.poids++;
+            }
+        }
+        contributions.put(annonceId, comptees);
+    }
+
+    private void retirerSansVerrou(UUID annonceId) {
+        List<Entree> comptees = contributions.remove(annonceId);
+        if (comptees == null) {
+            return;
+        }
+        for (Entree entree : comptees) {
+            // Une ville sans annonce n'est plus proposée
+            if (entree.type == TypeSuggestion.VILLE && entree.poids <= 1) {
+                supprimer(entree);
+            } else {
+                modifierPoids(entree, entree.poids - 1);
+            }
+        }
+    }
+
+    // Mots pliés d'un texte, encadrés d'espaces pour une recherche par mot entier
+    private static String mots(String texte) {
+        return " " + IndexFacettesService.cle(texte.replaceAll("[^\\p{L}\\p{N}]+", " ")) + " ";
+    }
+
+    // ========== ARBRE ==========
+
+    // Identifiant d'une entrée : id du stade, ville, ou quartier et sa ville
+    private static String cle(TypeSuggestion type, String libelle, String ville, UUID stadeId) {
+        return switch (type) {
+            case STADE -> type + ":" + stadeId;
+            case VILLE -> type + ":" + IndexFacettesService.cle(libelle);
+            case QUARTIER -> type + ":" + IndexFacettesService.cle(libelle) + "|" + IndexFacettesService.cle(ville);
+        };
+    }
+
+    // Entrée existante ou créée et insérée dans l'arbre
+    private Entree entree(TypeSuggestion type, String libelle, String ville, UUID stadeId, boolean recalculer) {
+        String cle = cle(type, libelle, ville, stadeId);
+        Entree existante = entrees.get(cle);
+        if (existante != null) {
+            return existante;
+        }
+        Entree entree = new Entree(type, libelle, ville, stadeId);
+        entrees.put(cle, entree);
+        for (String chemin : entree.chemins) {
+            List<Noeud> parcours = descendre(chemin, true);
+            parcours.get(parcours.size() - 1).ici.add(entree);
+            if (recalculer) {
+                recalculer(parcours);
+            }
+        }
+        return entree;
+    }
+
+    private void supprimer(Entree entree) {
+        entrees.remove(cle(entree.type, entree.libelle, entree.ville, entree.stadeId));
+        for (String chemin : entree.chemins) {
+            List<Noeud> parcours = descendre(chemin, false);
+            if (parcours == null) {
+                continue;
+            }
+            parcours.get(parcours.size() - 1).ici.remove(entree);
+            recalculer(parcours);
+            // Élaguer les nœuds devenus vides
+            for (int i = parcours.size() - 1; i > 0; i--) {
+                Noeud noeud = parcours.get(i);
+                if (!noeud.ici.isEmpty() || !noeud.enfants.isEmpty()) {
+                    break;
+                }
+                parcours.get(i - 1).enfants.remove(chemin.charAt(i - 1));
+            }
+        }
+    }
+
+    private void modifierPoids(Entree entree, long poids) {
+        entree.poids = poids;
+        for (String chemin : entree.chemins) {
+            List<Noeud> parcours = descendre(chemin, false);
+            if (parcours != null) {
+                recalculer(parcours);
+            }
+        }
+    }
+
+    // Nœuds de la racine au bout du chemin ; null si absent et creer est faux
+    private List<Noeud> descendre(String chemin, boolean creer) {
+        List<Noeud> parcours = new ArrayList<>(chemin.length() + 1);
+        Noeud noeud = racine;
+        parcours.add(noeud);
+        for (int i = 0; i < chemin.length(); i++) {
+            Noeud enfant = noeud.enfants.get(chemin.charAt(i));
+            if (enfant == null) {
+                if (!creer) {
+                    return null;
+                }
+                enfant = new Noeud();
+                noeud.enfants.put(chemin.charAt(i), enfant);
+            }
+            noeud = enfant;
+            parcours.add(noeud);
+        }
+        return parcours;
+    }
+
+    // Meilleures entrées de chaque nœud du parcours, du plus profond à la racine
+    private static void recalculer(List<Noeud> parcours) {
+        for (int i = parcours.size() - 1; i >= 0; i--) {
+            recalculerNoeud(parcours.get(i));
+        }
+    }
+
+    private static void recalculerSousArbre(Noeud noeud) {
+        for (Noeud enfant : noeud.enfants.values()) {
+            recalculerSousArbre(enfant);
+        }
+        recalculerNoeud(noeud);
+    }
+
+    private static void recalculerNoeud(Noeud noeud) {
+        Set<Entree> candidates = new LinkedHashSet<>(noeud.ici);
+        for (Noeud enfant : noeud.enfants.values()) {
+            candidates.addAll(Arrays.asList(enfant.meilleures));
+        }
+        noeud.meilleures = candidates.stream()
+                .sorted(PAR_POPULARITE)
+                .limit(K_MAX)
+                .toArray(Entree[]::new);
+    }
+
+    // Clé pliée à partir de chaque début de mot
+    static List<String> chemins(String cle) {
+        List<String> chemins = new ArrayList<>();
+        for (int i = 0; i < cle.length(); i++) {
+            if ((i == 0 || " -'".indexOf(cle.charAt(i - 1)) >= 0) && " -'".indexOf(cle.charAt(i)) < 0) {
+                chemins.add(cle.substring(i));
+            }
+        }
+        return chemins;
+    }
+
+    // ========== SUGGESTIONS ==========
+
+    /**
+     * Au plus limite suggestions dont un mot commence par le préfixe, les plus
+     * populaires d'abord ; types vide : tous les types
+     */
+    public List<SuggestionDTO> suggerer(String prefixe, Collection<TypeSuggestion> types, int limite) {
+        chargerSiNecessaire();
+        String cle = prefixe != null ? IndexFacettesService.cle(prefixe) : "";
+        List<SuggestionDTO> suggestions = new ArrayList<>();
+        if (cle.isEmpty()) {
+            return suggestions;
+        }
+        verrou.readLock().lock();
+        try {
+            List<Noeud> parcours = descendre(cle, false);
+            if (parcours == null) {
+                return suggestions;
+            }
+            Noeud noeud = parcours.get(parcours.size() - 1);
+            List<Entree> retenues;
+            if (types == null || types.isEmpty() || types.containsAll(List.of(TypeSuggestion.values()))) {
+                retenues = List.of(noeud.meilleures);
+            } else {
+                // Filtre par type : parcours du sous-arbre
+                Set<Entree> trouvees = new LinkedHashSet<>();
+                collecter(noeud, types, trouvees);
+                retenues = trouvees.stream().sorted(PAR_POPULARITE).toList();
+            }
+            for (Entree entree : retenues.subList(0, Math.min(limite, retenues.size()))) {
+                suggestions.add(new SuggestionDTO(entree.type, entree.libelle, entree.ville, entree.stadeId,
+                        entree.poids));
+            }
+            return suggestions;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private static void collecter(Noeud noeud, Collection<TypeSuggestion> types, Set<Entree> trouvees) {
+        for (Entree entree : noeud.ici) {
+            if (types.contains(entree.type)) {
+                trouvees.add(entree);
+            }
+        }
+        for (Noeud enfant : noeud.enfants.values()) {
+            collecter(enfant, types, trouvees);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.CarteZoneDTO;
+import com.example.Impression.dto.GrappeDTO;
+import com.example.Impression.dto.MarqueurDTO;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.repositories.AnnonceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index multi-résolution des annonces actives pour la carte.
+ *
+ * Les positions sont projetées en Mercator (la projection des tuiles de la
+ * carte) puis agrégées dans une pyramide de grilles : au niveau n, le monde
+ * compte 2^n x 2^n cellules et chaque cellule résume ses quatre cellules
+ * filles du niveau n + 1 (nombre d'annonces, centre de gravité, prix
+ * minimal). Seul le niveau le plus fin conserve les annonces elles-mêmes.
+ *
+ * Au zoom z, une grappe est une cellule du niveau z + 2, soit un carré
+ * d'environ 64 pixels à l'écran : une requête ne lit que les cellules
+ * visibles d'un seul niveau, quel que soit le nombre d'annonces regroupées.
+ * À partir de ZOOM_MARQUEURS, les annonces visibles sont renvoyées une par
+ * une.
+ */
+@Service
+@Slf4j
+public class IndexCarteService extends IndexEnMemoire<List<Object[]>> {
+
+    public static final int ZOOM_MAX = 22;
+
+    // Premier zoom servi par des marqueurs individuels
+    public static final int ZOOM_MARQUEURS = 15;
+
+    // Au-delà, les annonces visibles restent regroupées même à zoom élevé
+    static final int MARQUEURS_MAX = 500;
+
+    // Niveau de grille d'un zoom : 2^2 x 2^2 grappes par tuile de 256 pixels
+    private static final int DECALAGE_NIVEAU = 2;
+    static final int NIVEAU_MAX = ZOOM_MARQUEURS - 1 + DECALAGE_NIVEAU;
+
+    // Limite de la projection Mercator
+    private static final double LATITUDE_MAX = 85.05112878;
+
+    private final AnnonceRepository annonceRepository;
+
+    private final List<Map<Long, Cellule>> niveaux = creerNiveaux();
+    private final Map<UUID, Marqueur> marqueurs = new HashMap<>();
+
+    /**
+     * Annonce indexée, avec sa position projetée (x, y dans [0, 1])
+     */
+    private static final class Marqueur {
+        final UUID id;
+        final double latitude;
+        final double longitude;
+        final BigDecimal prix;
+        final String titre;
+        final double x;
+        final double y;
+
+        Marqueur(UUID id, double latitude, double longitude, BigDecimal prix, String titre) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.prix = prix;
+            this.titre = titre;
+            this.x = mercatorX(longitude);
+            this.y = mercatorY(latitude);
+        }
+
+        MarqueurDTO versDTO() {
+            return new MarqueurDTO(id, latitude, longitude, prix, titre);
+        }
+    }
+
+    /**
+     * Agrégat d'une cellule de la grille
+     */
+    private static final class Cellule {
+        final int colonne;
+        final int ligne;
+        int nombre;
+        double sommeLatitudes;
+        double sommeLongitudes;
+        BigDecimal prixMin;
+        // Renseigné au niveau le plus fin uniquement
+        List<Marqueur> marqueurs;
+
+        Cellule(int colonne, int ligne) {
+            this.colonne = colonne;
+            this.ligne = ligne;
+        }
+
+        void ajouter(Marqueur marqueur) {
+            nombre++;
+            sommeLatitudes += marqueur.latitude;
+            sommeLongitudes += marqueur.longitude;
+            prixMin = minimum(prixMin, marqueur.prix);
+        }
+
+        void fusionner(Cellule fille) {
+            nombre += fille.nombre;
+            sommeLatitudes += fille.sommeLatitudes;
+            sommeLongitudes += fille.sommeLongitudes;
+            prixMin = minimum(prixMin, fille.prixMin);
+        }
+
+        void vider() {
+            nombre = 0;
+            sommeLatitudes = 0;
+            sommeLongitudes = 0;
+            prixMin = null;
+        }
+
+        GrappeDTO versDTO() {
+            return new GrappeDTO(sommeLatitudes / nombre, sommeLongitudes / nombre, nombre, prixMin);
+        }
+    }
+
+    // Grappes les plus peuplées d'abord, puis de haut en bas et de gauche à droite
+    private static final Comparator<Cellule> ORDRE_GRAPPES = Comparator
+            .comparingInt((Cellule c) -> c.nombre).reversed()
+            .thenComparingInt(c -> c.ligne)
+            .thenComparingInt(c -> c.colonne);
+
+    public IndexCarteService(AnnonceRepository annonceRepository) {
+        super("IndexCarte", "app.index-carte.rechargement-ms");
+        this.annonceRepository = annonceRepository;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @Override
+    protected List<Object[]> lire() {
+        return annonceRepository.findMarqueursAnnoncesActives();
+    }
+
+    @Override
+    protected void reconstruire(List<Object[]> lignes) {
+        niveaux.forEach(Map::clear);
+        marqueurs.clear();
+        for (Object[] l : lignes) {
+            ajouterSansVerrou(new Marqueur((UUID) l[0], ((BigDecimal) l[1]).doubleValue(),
+                    ((BigDecimal) l[2]).doubleValue(), (BigDecimal) l[3], (String) l[4]));
+        }
+        log.info("[IndexCarte] {} annonces actives indexées", lignes.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Indexe (ou réindexe) une annonce. Une annonce inactive ou sans
+     * coordonnées est retirée de l'index.
+     */
+    public void indexer(Annonce annonce) {
+        if (annonce == null || annonce.getId() == null) {
+            return;
+        }
+        if (!annonce.isEstActive() || annonce.getLatitude() == null || annonce.getLongitude() == null) {
+            retirer(annonce.getId());
+            return;
+        }
+        Marqueur marqueur = new Marqueur(annonce.getId(), annonce.getLatitude().doubleValue(),
+                annonce.getLongitude().doubleValue(), annonce.getPrixParNuit(), annonce.getTitre());
+        appliquer(() -> {
+            retirerSansVerrou(marqueur.id);
+            ajouterSansVerrou(marqueur);
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        if (annonceId == null) {
+            return;
+        }
+        appliquer(() -> retirerSansVerrou(annonceId));
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return marqueurs.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void ajouterSansVerrou(Marqueur marqueur) {
+        marqueurs.put(marqueur.id, marqueur);
+        for (int niveau = NIVEAU_MAX; niveau >= 0; niveau--) {
+            int colonne = indice(marqueur.x, niveau);
+            int ligne = indice(marqueur.y, niveau);
+            Cellule cellule = niveaux.get(niveau).computeIfAbsent(cle(colonne, ligne),
+                    c -> new Cellule(colonne, ligne));
+            cellule.ajouter(marqueur);
+            if (niveau == NIVEAU_MAX) {
+                if (cellule.marqueurs == null) {
+                    cellule.marqueurs = new ArrayList<>();
+                }
+                cellule.marqueurs.add(marqueur);
+            }
+        }
+    }
+
+    // Les agrégats sont recalculés (annonces de la cellule fine, puis quatre
+    // filles par niveau) : le prix minimal ne se décrémente pas
+    private void retirerSansVerrou(UUID annonceId) {
+        Marqueur existant = marqueurs.remove(annonceId);
+        if (existant == null) {
+            return;
+        }
+        int colonne = indice(existant.x, NIVEAU_MAX);
+        int ligne = indice(existant.y, NIVEAU_MAX);
+        Cellule fine = niveaux.get(NIVEAU_MAX).get(cle(colonne, ligne));
+        if (fine != null) {
+            fine.marqueurs.removeIf(m -> m.id.equals(annonceId));
+        }
+        for (int niveau = NIVEAU_MAX; niveau >= 0; niveau--) {
+            recalculer(niveau, colonne, ligne);
+            colonne >>= 1;
+            ligne >>= 1;
+        }
+    }
+
+    private void recalculer(int niveau, int colonne, int ligne) {
+        Map<Long, Cellule> grille = niveaux.get(niveau);
+        Cellule cellule = grille.get(cle(colonne, ligne));
+        if (cellule == null) {
+            return;
+        }
+        cellule.vider();
+        if (niveau == NIVEAU_MAX) {
+            cellule.marqueurs.forEach(cellule::ajouter);
+        } else {
+            Map<Long, Cellule> filles = niveaux.get(niveau + 1);
+            for (int dc = 0; dc < 2; dc++) {
+                for (int dl = 0; dl < 2; dl++) {
+                    Cellule fille = filles.get(cle(2 * colonne + dc, 2 * ligne + dl));
+                    if (fille != null) {
+                        cellule.fusionner(fille);
+                    }
+                }
+            }
+        }
+        if (cellule.nombre == 0) {
+            grille.remove(cle(colonne, ligne));
+        }
+    }
+
+    // ========== REQUÊTES ==========
+
+    /**
+     * Contenu de la carte pour le rectangle affiché et le zoom donnés. Les
+     * grappes sont les cellules qui recoupent le rectangle : une grappe du
+     * bord peut compter des annonces situées juste à l'extérieur. Les
+     * marqueurs, eux, sont strictement dans le rectangle.
+     */
+    public CarteZoneDTO carte(double latMin, double latMax, double lonMin, double lonMax, int zoom) {
+        chargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            if (zoom >= ZOOM_MARQUEURS) {
+                List<Marqueur> visibles = new ArrayList<>();
+                for (Cellule cellule : cellulesDansZone(NIVEAU_MAX, latMin, latMax, lonMin, lonMax)) {
+                    for (Marqueur marqueur : cellule.marqueurs) {
+                        if (marqueur.latitude >= latMin && marqueur.latitude <= latMax
+                                && marqueur.longitude >= lonMin && marqueur.longitude <= lonMax) {
+                            visibles.add(marqueur);
+                        }
+                    }
+                }
+                if (visibles.size() <= MARQUEURS_MAX) {
+                    visibles.sort(Comparator.comparing(m -> m.id));
+                    return new CarteZoneDTO(zoom, visibles.size(), new ArrayList<>(),
+                            visibles.stream().map(Marqueur::versDTO).toList());
+                }
+            }
+            int niveau = Math.min(zoom + DECALAGE_NIVEAU, NIVEAU_MAX);
+            List<Cellule> cellules = cellulesDansZone(niveau, latMin, latMax, lonMin, lonMax);
+            cellules.sort(ORDRE_GRAPPES);
+            int total = cellules.stream().mapToInt(c -> c.nombre).sum();
+            return new CarteZoneDTO(zoom, total, cellules.stream().map(Cellule::versDTO).toList(),
+                    new ArrayList<>());
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cellules occupées d'un niveau qui recoupent le rectangle ; si le
+     * rectangle couvre plus de cellules qu'il n'en existe, parcourt
+     * directement les cellules occupées
+     */
+    private List<Cellule> cellulesDansZone(int niveau, double latMin, double latMax, double lonMin,
+            double lonMax) {
+        List<Cellule> resultats = new ArrayList<>();
+        Map<Long, Cellule> grille = niveaux.get(niveau);
+        if (grille.isEmpty() || latMin > latMax || lonMin > lonMax) {
+            return resultats;
+        }
+        int cMin = indice(mercatorX(lonMin), niveau);
+        int cMax = indice(mercatorX(lonMax), niveau);
+        // L'axe y de Mercator est orienté vers le sud
+        int lMin = indice(mercatorY(latMax), niveau);
+        int lMax = indice(mercatorY(latMin), niveau);
+        long nombreCellules = (long) (cMax - cMin + 1) * (lMax - lMin + 1);
+        if (nombreCellules > grille.size()) {
+            for (Cellule cellule : grille.values()) {
+                if (cellule.colonne >= cMin && cellule.colonne <= cMax
+                        && cellule.ligne >= lMin && cellule.ligne <= lMax) {
+                    resultats.add(cellule);
+                }
+            }
+            return resultats;
+        }
+        for (int l = lMin; l <= lMax; l++) {
+            for (int c = cMin; c <= cMax; c++) {
+                Cellule cellule = grille.get(cle(c, l));
+                if (cellule != null) {
+                    resultats.add(cellule);
+                }
+            }
+        }
+        return resultats;
+    }
+
+    // ========== UTILITAIRES ==========
+
+    private static List<Map<Long, Cellule>> creerNiveaux() {
+        List<Map<Long, Cellule>> niveaux = new ArrayList<>();
+        for (int niveau = 0; niveau <= NIVEAU_MAX; niveau++) {
+            niveaux.add(new HashMap<>());
+        }
+        return niveaux;
+    }
+
+    static double mercatorX(double longitude) {
+        return (longitude + 180.0) / 360.0;
+    }
+
+    static double mercatorY(double latitude) {
+        double phi = Math.toRadians(Math.max(-LATITUDE_MAX, Math.min(LATITUDE_MAX, latitude)));
+        return (1 - Math.log(Math.tan(phi) + 1 / Math.cos(phi)) / Math.PI) / 2;
+    }
+
+    // Colonne ou ligne d'une coordonnée projetée au niveau donné
+    static int indice(double projete, int niveau) {
+        int cotes = 1 << niveau;
+        return Math.max(0, Math.min(cotes - 1, (int) Math.floor(projete * cotes)));
+    }
+
+    private static long cle(int colonne, int ligne) {
+        return ((long) colonne << 32) | (ligne & 0xffffffffL);
+    }
+
+    private static BigDecimal minimum(BigDecimal a, BigDecimal b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.compareTo(b) <= 0 ? a : b;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.DistancesAnnonce;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.enums.StockageDistances;
+import com.example.Impression.repositories.DistancesAnnonceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index en mémoire, par stade, des distances compactes (stockage COMPACT) :
+ * pour chaque stade, les annonces triées par distance en voiture et, pour
+ * chaque mode, par temps de trajet. Un rayon ou un budget de temps se résout
+ * par recherche dichotomique ; le comptage ne parcourt aucune entrée.
+ *
+ * Chargé depuis annonce_distances, puis maintenu par
+ * AnnonceStadeDistanceService à chaque écriture de distances.
+ */
+@Service
+@Slf4j
+public class IndexDistancesStadesService extends IndexEnMemoire<Map<UUID, byte[]>> {
+
+    private static final int TAILLE_PAGE_CHARGEMENT = 1000;
+    private static final ModeTransport[] MODES = ModeTransport.values();
+
+    private final DistancesAnnonceRepository distancesAnnonceRepository;
+
+    @Value("${app.distances.stockage:LIGNES}")
+    private StockageDistances stockage = StockageDistances.LIGNES;
+
+    private final Map<UUID, Listes> parStade = new HashMap<>();
+    // Contenu indexé de chaque annonce, pour la retirer sans relire la base
+    private final Map<UUID, byte[]> contenus = new HashMap<>();
+    private final DistancesCompactes tampon = new DistancesCompactes();
+
+    /**
+     * Trajet d'une annonce vers le stade interrogé
+     */
+    public record TrajetIndexe(UUID annonceId, int minutes, BigDecimal distance) {
+    }
+
+    // Listes triées d'un stade
+    private static final class Listes {
+        // Trajets en voiture : clé = centièmes de km, valeur = minutes
+        final ListeTriee parDistance = new ListeTriee();
+        // Par mode : clé = minutes, valeur = centièmes de km
+        final ListeTriee[] parTemps = new ListeTriee[MODES.length];
+
+        ListeTriee parTemps(int mode) {
+            if (parTemps[mode] == null) {
+                parTemps[mode] = new ListeTriee();
+            }
+            return parTemps[mode];
+        }
+    }
+
+    /**
+     * Entrées triées par (clé, id d'annonce) dans des tableaux parallèles.
+     * Insertion et retrait par décalage : quelques dizaines de milliers
+     * d'entrées par stade au plus.
+     */
+    static final class ListeTriee {
+        int taille;
+        int[] cles = new int[16];
+        int[] valeurs = new int[16];
+        UUID[] annonces = new UUID[16];
+
+        // Position de la première entrée >= (cle, id)
+        int rang(int cle, UUID id) {
+            int bas = 0;
+            int haut = taille;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                int c = cles[milieu] != cle ? Integer.compare(cles[milieu], cle) : annonces[milieu].compareTo(id);
+                if (c < 0) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return bas;
+        }
+
+        // Nombre d'entrées de clé <= cleMax
+        int jusqua(int cleMax) {
+            int bas = 0;
+            int haut = taille;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (cles[milieu] <= cleMax) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            return bas;
+        }
+
+        void inserer(int cle, int valeur, UUID id) {
+            if (taille == cles.length) {
+                cles = Arrays.copyOf(cles, taille * 2);
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+                annonces = Arrays.copyOf(annonces, taille * 2);
+            }
+            int r = rang(cle, id);
+            System.arraycopy(cles, r, cles, r + 1, taille - r);
+            System.arraycopy(valeurs, r, valeurs, r + 1, taille - r);
+            System.arraycopy(annonces, r, annonces, r + 1, taille - r);
+            cles[r] = cle;
+            valeurs[r] = valeur;
+            annonces[r] = id;
+            taille++;
+        }
+
+        void retirer(int cle, UUID id) {
+            int r = rang(cle, id);
+            if (r == taille || cles[r] != cle || !annonces[r].equals(id)) {
+                return;
+            }
+            System.arraycopy(cles, r + 1, cles, r, taille - r - 1);
+            System.arraycopy(valeurs, r + 1, valeurs, r, taille - r - 1);
+            System.arraycopy(annonces, r + 1, annonces, r, taille - r - 1);
+            taille--;
+            annonces[taille] = null;
+        }
+    }
+
+    public IndexDistancesStadesService(DistancesAnnonceRepository distancesAnnonceRepository) {
+        super("Distances", "app.distances.index.rechargement-ms");
+        this.distancesAnnonceRepository = distancesAnnonceRepository;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @Override
+    protected boolean actif() {
+        return stockage == StockageDistances.COMPACT;
+    }
+
+    // Chargé par AnnonceStadeDistanceService une fois les lignes existantes compactées
+    @Override
+    public void chargerAuDemarrage() {
+    }
+
+    // Lignes compactes de toutes les annonces, par tranches d'id croissant
+    @Override
+    protected Map<UUID, byte[]> lire() {
+        Map<UUID, byte[]> lus = new HashMap<>();
+        UUID curseur = null;
+        List<DistancesAnnonce> page;
+        do {
+            page = distancesAnnonceRepository.findApres(curseur, PageRequest.of(0, TAILLE_PAGE_CHARGEMENT));
+            for (DistancesAnnonce d : page) {
+                lus.put(d.getAnnonceId(), d.getDonnees());
+                curseur = d.getAnnonceId();
+            }
+        } while (page.size() == TAILLE_PAGE_CHARGEMENT);
+        return lus;
+    }
+
+    @Override
+    protected void reconstruire(Map<UUID, byte[]> lus) {
+        parStade.clear();
+        contenus.clear();
+        for (Map.Entry<UUID, byte[]> e : lus.entrySet()) {
+            ajouterSansVerrou(e.getKey(), e.getValue());
+        }
+        log.info("[Distances] Index des stades: {} annonce(s), {} stade(s)", lus.size(), parStade.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    // Remplace les distances indexées d'une annonce (format DistancesCompactes)
+    public void mettreAJour(UUID annonceId, byte[] donnees) {
+        appliquer(() -> {
+            retirerSansVerrou(annonceId);
+            ajouterSansVerrou(annonceId, donnees);
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        appliquer(() -> retirerSansVerrou(annonceId));
+    }
+
+    private void ajouterSansVerrou(UUID annonceId, byte[] donnees) {
+        tampon.lire(donnees);
+        for (int i = 0; i < tampon.nombre(); i++) {
+            Listes listes = parStade.computeIfAbsent(tampon.stadeId(i), s -> new Listes());
+            int mode = tampon.mode(i).ordinal();
+            if (tampon.mode(i) == ModeTransport.VOITURE) {
+                listes.parDistance.inserer(tampon.centiemes(i), tampon.minutes(i), annonceId);
+            }
+            listes.parTemps(mode).inserer(tampon.minutes(i), tampon.centiemes(i), annonceId);
+        }
+        contenus.put(annonceId, donnees);
+    }
+
+    private void retirerSansVerrou(UUID annonceId) {
+        byte[] existant = contenus.remove(annonceId);
+        if (existant == null) {
+            return;
+        }
+        tampon.lire(existant);
+        for (int i = 0; i < tampon.nombre(); i++) {
+            Listes listes = parStade.get(tampon.stadeId(i));
+            if (listes == null) {
+                continue;
+            }
+            if (tampon.mode(i) == ModeTransport.VOITURE) {
+                listes.parDistance.retirer(tampon.centiemes(i), annonceId);
+            }
+            listes.parTemps(tampon.mode(i).ordinal()).retirer(tampon.minutes(i), annonceId);
+        }
+    }
+
+    // ========== REQUÊTES ==========
+
+    // Annonces à moins de rayonKm d'un stade en voiture, les plus proches d'abord
+    public List<UUID> annoncesProches(UUID stadeId, double rayonKm) {
+        chargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            Listes listes = parStade.get(stadeId);
+            if (listes == null) {
+                return new ArrayList<>();
+            }
+            int fin = listes.parDistance.jusqua(centiemesMax(rayonKm));
+            return new ArrayList<>(Arrays.asList(listes.parDistance.annonces).subList(0, fin));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public long compterAnnoncesProches(UUID stadeId, double rayonKm) {
+        chargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            Listes listes = parStade.get(stadeId);
+            return listes == null ? 0 : listes.parDistance.jusqua(centiemesMax(rayonKm));
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Trajets d'au plus minutesMax vers un stade pour un mode, triés par
+     * (minutes, id d'annonce), strictement après le curseur s'il est fourni.
+     */
+    public List<TrajetIndexe> trajetsParTemps(UUID stadeId, ModeTransport mode, int minutesMax,
+            Integer curseurTemps, UUID curseurId, int limite) {
+        chargerSiNecessaire();
+        verrou.readLock().lock();
+        try {
+            Listes listes = parStade.get(stadeId);
+            List<TrajetIndexe> trajets = new ArrayList<>();
+            if (listes == null || listes.parTemps[mode.ordinal()] == null) {
+                return trajets;
+            }
+            ListeTriee liste = listes.parTemps[mode.ordinal()];
+            int debut = 0;
+            if (curseurTemps != null) {
+                debut = liste.rang(curseurTemps, curseurId);
+                if (debut < liste.taille && liste.cles[debut] == curseurTemps
+                        && liste.annonces[debut].equals(curseurId)) {
+                    debut++;
+                }
+            }
+            int fin = Math.min(liste.jusqua(minutesMax), debut + limite);
+            for (int i = debut; i < fin; i++) {
+                trajets.add(new TrajetIndexe(liste.annonces[i], liste.cles[i],
+                        BigDecimal.valueOf(liste.valeurs[i], 2)));
+            }
+            return trajets;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return contenus.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Distance enregistrée arrondie au centième : un rayon de 2.5 km garde 2.50
+    private static int centiemesMax(double rayonKm) {
+        return (int) Math.floor(rayonKm * 100 + 1e-9);
+    }
+}
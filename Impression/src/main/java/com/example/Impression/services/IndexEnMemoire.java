@@ -0,0 +1,129 @@
+package com.example.Impression.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Chargement commun des index en mémoire des annonces : chargement complet au
+ * démarrage, rechargement périodique (rattrape les modifications faites par
+ * d'autres instances de l'application), chargement à la première utilisation
+ * si le démarrage a échoué, et mises à jour incrémentales.
+ *
+ * Une sous-classe lit la base (lire, hors verrou) puis reconstruit ses
+ * structures (reconstruire, sous le verrou d'écriture). Toute mise à jour
+ * incrémentale passe par appliquer : l'index est d'abord chargé, puis la mise
+ * à jour est appliquée sous le verrou d'écriture et rejouée si un
+ * rechargement est en cours (JournalRechargement).
+ *
+ * @param <L> données lues en base pour un rechargement
+ */
+@Slf4j
+public abstract class IndexEnMemoire<L> implements SchedulingConfigurer {
+
+    private static final long RECHARGEMENT_DEFAUT_MS = 300000;
+
+    protected final ReentrantReadWriteLock verrou = new ReentrantReadWriteLock();
+    private final JournalRechargement journal = new JournalRechargement(verrou);
+    private volatile boolean charge = false;
+
+    // Préfixe des journaux, ex. "Facettes"
+    private final String nom;
+    // Clé de l'intervalle du rechargement périodique, ex. "app.facettes.rechargement-ms"
+    private final String proprieteRechargement;
+
+    @Autowired
+    private Environment environment;
+
+    protected IndexEnMemoire(String nom, String proprieteRechargement) {
+        this.nom = nom;
+        this.proprieteRechargement = proprieteRechargement;
+    }
+
+    // Lecture en base d'un rechargement complet, hors verrou
+    protected abstract L lire();
+
+    // Remplace le contenu de l'index par les données lues (sous le verrou d'écriture)
+    protected abstract void reconstruire(L lecture);
+
+    // Index utilisé dans la configuration courante (chargé et rechargé)
+    protected boolean actif() {
+        return true;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        if (!actif()) {
+            return;
+        }
+        try {
+            recharger();
+        } catch (Exception e) {
+            log.error("[{}] Échec du chargement initial: {}", nom, e.getMessage(), e);
+        }
+    }
+
+    public void rechargementPeriodique() {
+        if (!actif()) {
+            return;
+        }
+        try {
+            recharger();
+        } catch (Exception e) {
+            log.error("[{}] Échec du rechargement périodique: {}", nom, e.getMessage(), e);
+        }
+    }
+
+    // Rechargement périodique, premier passage après un intervalle
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        Duration intervalle = Duration.ofMillis(
+                environment.getProperty(proprieteRechargement, Long.class, RECHARGEMENT_DEFAUT_MS));
+        registrar.addFixedDelayTask(new FixedDelayTask(this::rechargementPeriodique, intervalle, intervalle));
+    }
+
+    // Les rechargements d'un même index ne se chevauchent pas
+    public synchronized void recharger() {
+        L lecture = journal.lire(this::lire);
+        verrou.writeLock().lock();
+        try {
+            reconstruire(lecture);
+            journal.rejouer();
+            charge = true;
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    protected void chargerSiNecessaire() {
+        if (!charge) {
+            synchronized (this) {
+                if (!charge) {
+                    recharger();
+                }
+            }
+        }
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Applique une mise à jour incrémentale, l'index étant chargé au besoin.
+     * La mise à jour ne doit dépendre que de valeurs capturées à l'appel : elle
+     * peut être rejouée sur l'index reconstruit.
+     */
+    protected void appliquer(Runnable miseAJour) {
+        chargerSiNecessaire();
+        journal.appliquer(miseAJour);
+    }
+}
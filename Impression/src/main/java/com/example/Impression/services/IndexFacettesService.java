@@ -0,0 +1,446 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.enums.Facette;
+import com.example.Impression.enums.TriAnnonce;
+import com.example.Impression.enums.TypeMaison;
+import com.example.Impression.repositories.AnnonceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Index à facettes en mémoire des annonces actives : type de maison, ville,
+ * tranche de prix, tranche de capacité et équipements. Chaque annonce reçoit
+ * un numéro de document ; chaque valeur de facette, la liste de ses documents
+ * sous forme de BitSet. Filtrer revient à combiner des BitSet (OU entre les
+ * valeurs choisies d'une facette, ET entre facettes et entre équipements) et
+ * compter une valeur, à compter l'intersection.
+ *
+ * Les comptes d'une facette ignorent sa propre sélection (les autres valeurs
+ * restent proposées avec leur nombre), sauf pour les équipements, cumulatifs.
+ * Chargé au démarrage puis maintenu par AnnonceService, comme l'index spatial.
+ */
+@Service
+@Slf4j
+public class IndexFacettesService extends IndexEnMemoire<List<Object[]>> {
+
+    private static final Facette[] FACETTES = Facette.values();
+
+    private final AnnonceRepository annonceRepository;
+    // Bornes hautes (incluses) des tranches ; la dernière tranche est ouverte
+    private final int[] bornesPrix;
+    private final int[] bornesCapacite;
+
+    private final DocumentsNumerotes<Document> documents = new DocumentsNumerotes<>();
+    private final BitSet actifs = new BitSet();
+    private final Map<Facette, Map<String, Valeur>> valeurs = new EnumMap<>(Facette.class);
+    // Numéros de documents dans l'ordre de chaque tri, reconstruits après modification
+    private final Map<TriAnnonce, int[]> ordres = new EnumMap<>(TriAnnonce.class);
+
+    /**
+     * Annonce indexée ; cles[f] : clés de ses valeurs pour la facette f
+     */
+    static final class Document {
+        final UUID id;
+        final BigDecimal prix;
+        final LocalDateTime dateCreation;
+        final String[][] cles = new String[FACETTES.length][];
+
+        Document(UUID id, BigDecimal prix, LocalDateTime dateCreation) {
+            this.id = id;
+            this.prix = prix;
+            this.dateCreation = dateCreation;
+        }
+    }
+
+    // Valeur d'une facette : libellé affiché et documents qui la portent
+    private static final class Valeur {
+        final String libelle;
+        final BitSet documents = new BitSet();
+
+        Valeur(String libelle) {
+            this.libelle = libelle;
+        }
+    }
+
+    // Ordre DATE : les plus récentes d'abord ; ordre PRIX : les moins chères d'abord
+    private static final Comparator<Document> ORDRE_DATE = Comparator
+            .comparing((Document d) -> d.dateCreation, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(d -> d.id, Comparator.reverseOrder());
+    private static final Comparator<Document> ORDRE_PRIX = Comparator
+            .comparing((Document d) -> d.prix, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(d -> d.id);
+
+    /**
+     * Valeurs choisies par facette (libellés ou clés) ; une facette absente ou
+     * vide ne filtre pas
+     */
+    public record Criteres(Map<Facette, Collection<String>> selection) {
+    }
+
+    /**
+     * Une page de résultats : ids dans l'ordre du tri et clé de tri de chacun
+     * (date ISO ou prix), nombre total de résultats et comptes par facette
+     * (libellé → nombre, du plus fréquent au moins fréquent)
+     */
+    public record Resultat(List<UUID> ids, List<String> clesTri, int total,
+            Map<Facette, Map<String, Integer>> facettes) {
+    }
+
+    public IndexFacettesService(AnnonceRepository annonceRepository,
+            @Value("${app.facettes.tranches-prix:300,600,1000,2000}") int[] bornesPrix,
+            @Value("${app.facettes.tranches-capacite:2,4,6}") int[] bornesCapacite) {
+        super("Facettes", "app.facettes.rechargement-ms");
+        this.annonceRepository = annonceRepository;
+        this.bornesPrix = bornesPrix;
+        this.bornesCapacite = bornesCapacite;
+        for (Facette facette : FACETTES) {
+            valeurs.put(facette, new HashMap<>());
+        }
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @Override
+    protected List<Object[]> lire() {
+        return annonceRepository.findFacettesAnnoncesActives();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void reconstruire(List<Object[]> lignes) {
+        documents.vider();
+        actifs.clear();
+        valeurs.values().forEach(Map::clear);
+        for (Object[] l : lignes) {
+            ajouterSansVerrou((UUID) l[0], (TypeMaison) l[1], (String) l[2], (BigDecimal) l[3], (Integer) l[4],
+                    Equipement.libelles((Long) l[7], (List<String>) l[5]), (LocalDateTime) l[6]);
+        }
+        ordres.clear();
+        log.info("[Facettes] {} annonces actives indexées", lignes.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Indexe (ou réindexe) une annonce ; une annonce inactive est retirée
+     */
+    public void indexer(Annonce annonce) {
+        if (annonce == null || annonce.getId() == null) {
+            return;
+        }
+        if (!annonce.isEstActive()) {
+            retirer(annonce.getId());
+            return;
+        }
+        // Valeurs lues une fois : la mise à jour peut être rejouée après un rechargement
+        UUID id = annonce.getId();
+        TypeMaison type = annonce.getTypeMaison();
+        String ville = annonce.getAdresse() != null ? annonce.getAdresse().getVille() : null;
+        BigDecimal prix = annonce.getPrixParNuit();
+        int capacite = annonce.getCapacite();
+        List<String> equipements = annonce.listeEquipements();
+        LocalDateTime dateCreation = annonce.getDateCreation();
+        appliquer(() -> {
+            retirerSansVerrou(id);
+            ajouterSansVerrou(id, type, ville, prix, capacite, equipements, dateCreation);
+            ordres.clear();
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        if (annonceId == null) {
+            return;
+        }
+        appliquer(() -> {
+            if (retirerSansVerrou(annonceId)) {
+                ordres.clear();
+            }
+        });
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return documents.taille();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void ajouterSansVerrou(UUID id, TypeMaison type, String ville, BigDecimal prix, Integer capacite,
+            List<String> equipements, LocalDateTime dateCreation) {
+        Document document = new Document(id, prix, dateCreation);
+        int numero = documents.attribuer(id, document);
+        actifs.set(numero);
+
+        if (type != null) {
+            lier(document, numero, Facette.TYPE_MAISON, type.name(), type.name());
+        }
+        if (ville != null && !ville.isBlank()) {
+            lier(document, numero, Facette.VILLE, cle(ville), ville.trim());
+        }
+        if (prix != null) {
+            // Arrondi au dirham supérieur : 300,50 dépasse la borne incluse 300
+            String tranche = tranche(bornesPrix, prix.setScale(0, RoundingMode.CEILING).intValue(), 0);
+            lier(document, numero, Facette.PRIX, tranche, tranche);
+        }
+        if (capacite != null) {
+            String tranche = tranche(bornesCapacite, capacite, 1);
+            lier(document, numero, Facette.CAPACITE, tranche, tranche);
+        }
+        if (equipements != null) {
+            for (String equipement : equipements) {
+                if (equipement != null && !equipement.isBlank()) {
+                    lier(document, numero, Facette.EQUIPEMENT, cle(equipement), equipement.trim());
+                }
+            }
+        }
+    }
+
+    private void lier(Document document, int numero, Facette facette, String cle, String libelle) {
+        String[] existantes = document.cles[facette.ordinal()];
+        if (existantes != null && Arrays.asList(existantes).contains(cle)) {
+            return;
+        }
+        document.cles[facette.ordinal()] = existantes == null ? new String[] { cle }
+                : copieAvec(existantes, cle);
+        valeurs.get(facette).computeIfAbsent(cle, c -> new Valeur(libelle)).documents.set(numero);
+    }
+
+    private static String[] copieAvec(String[] tableau, String element) {
+        String[] copie = Arrays.copyOf(tableau, tableau.length + 1);
+        copie[tableau.length] = element;
+        return copie;
+    }
+
+    private boolean retirerSansVerrou(UUID annonceId) {
+        Integer numero = documents.numero(annonceId);
+        if (numero == null) {
+            return false;
+        }
+        Document document = documents.document(numero);
+        for (Facette facette : FACETTES) {
+            String[] cles = document.cles[facette.ordinal()];
+            if (cles == null) {
+                continue;
+            }
+            Map<String, Valeur> parCle = valeurs.get(facette);
+            for (String cle : cles) {
+                Valeur valeur = parCle.get(cle);
+                if (valeur != null) {
+                    valeur.documents.clear(numero);
+                    if (valeur.documents.isEmpty()) {
+                        parCle.remove(cle);
+                    }
+                }
+            }
+        }
+        documents.liberer(annonceId);
+        actifs.clear(numero);
+        return true;
+    }
+
+    // ========== RECHERCHE ==========
+
+    /**
+     * Filtre par facettes, compte chaque valeur et renvoie au plus limite
+     * résultats strictement après le curseur (clé de tri + id) s'il est fourni.
+     */
+    public Resultat rechercher(Criteres criteres, TriAnnonce tri, String curseurCle, UUID curseurId, int limite) {
+        chargerSiNecessaire();
+        TriAnnonce triEffectif = tri != null ? tri : TriAnnonce.DATE;
+        while (true) {
+            int[] ordre = ordre(triEffectif);
+            verrou.readLock().lock();
+            try {
+                // Ordre invalidé par une écriture entre-temps : on le reconstruit
+                if (ordres.get(triEffectif) == ordre) {
+                    return rechercherSansVerrou(criteres, triEffectif, ordre, curseurCle, curseurId, limite);
+                }
+            } finally {
+                verrou.readLock().unlock();
+            }
+        }
+    }
+
+    private Resultat rechercherSansVerrou(Criteres criteres, TriAnnonce triEffectif, int[] ordre,
+            String curseurCle, UUID curseurId, int limite) {
+        // Documents retenus par chaque facette sélectionnée (null : pas de filtre)
+        BitSet[] filtres = new BitSet[FACETTES.length];
+        for (Facette facette : FACETTES) {
+            Collection<String> choisies = criteres.selection().get(facette);
+            if (choisies != null && !choisies.isEmpty()) {
+                filtres[facette.ordinal()] = filtre(facette, choisies);
+            }
+        }
+        BitSet resultat = sauf(filtres, -1);
+
+        Map<Facette, Map<String, Integer>> comptes = new EnumMap<>(Facette.class);
+        for (Facette facette : FACETTES) {
+            // Équipements cumulatifs : comptés sur le résultat complet
+            BitSet base = facette == Facette.EQUIPEMENT ? resultat : sauf(filtres, facette.ordinal());
+            comptes.put(facette, compter(facette, base));
+        }
+
+        List<UUID> ids = new ArrayList<>();
+        List<String> clesTri = new ArrayList<>();
+        int debut = curseurCle != null ? apresCurseur(ordre, triEffectif, curseurCle, curseurId) : 0;
+        for (int i = debut; i < ordre.length && ids.size() < limite; i++) {
+            if (resultat.get(ordre[i])) {
+                Document document = documents.document(ordre[i]);
+                ids.add(document.id);
+                clesTri.add(cleTri(document, triEffectif));
+            }
+        }
+        return new Resultat(ids, clesTri, resultat.cardinality(), comptes);
+    }
+
+    // OU des valeurs choisies (ET pour les équipements)
+    private BitSet filtre(Facette facette, Collection<String> choisies) {
+        Map<String, Valeur> parCle = valeurs.get(facette);
+        BitSet filtre = null;
+        for (String choisie : choisies) {
+            Valeur valeur = parCle.get(cleDeSelection(facette, choisie));
+            BitSet docs = valeur != null ? valeur.documents : new BitSet();
+            if (filtre == null) {
+                filtre = (BitSet) docs.clone();
+            } else if (facette == Facette.EQUIPEMENT) {
+                filtre.and(docs);
+            } else {
+                filtre.or(docs);
+            }
+        }
+        return filtre;
+    }
+
+    // ET des filtres de toutes les facettes sauf celle d'indice exclue
+    private BitSet sauf(BitSet[] filtres, int exclue) {
+        BitSet base = (BitSet) actifs.clone();
+        for (int f = 0; f < filtres.length; f++) {
+            if (f != exclue && filtres[f] != null) {
+                base.and(filtres[f]);
+            }
+        }
+        return base;
+    }
+
+    private Map<String, Integer> compter(Facette facette, BitSet base) {
+        List<Map.Entry<String, Integer>> comptes = new ArrayList<>();
+        BitSet intersection = new BitSet();
+        for (Valeur valeur : valeurs.get(facette).values()) {
+            intersection.clear();
+            intersection.or(valeur.documents);
+            intersection.and(base);
+            int n = intersection.cardinality();
+            if (n > 0) {
+                comptes.add(Map.entry(valeur.libelle, n));
+            }
+        }
+        comptes.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> tries = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : comptes) {
+            tries.put(e.getKey(), e.getValue());
+        }
+        return tries;
+    }
+
+    // Ordre du tri, reconstruit au premier usage après une modification
+    private int[] ordre(TriAnnonce tri) {
+        verrou.readLock().lock();
+        try {
+            int[] ordre = ordres.get(tri);
+            if (ordre != null) {
+                return ordre;
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+        verrou.writeLock().lock();
+        try {
+            return ordres.computeIfAbsent(tri, t -> {
+                Comparator<Document> comparateur = t == TriAnnonce.PRIX ? ORDRE_PRIX : ORDRE_DATE;
+                return documents.numeros().stream()
+                        .sorted(Comparator.comparing(documents::document, comparateur))
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+            });
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Première position strictement après le curseur dans l'ordre
+    private int apresCurseur(int[] ordre, TriAnnonce tri, String curseurCle, UUID curseurId) {
+        Document curseur = tri == TriAnnonce.PRIX
+                ? new Document(curseurId, CurseurPagination.decimal(curseurCle), null)
+                : new Document(curseurId, null, CurseurPagination.dateHeure(curseurCle));
+        Comparator<Document> comparateur = tri == TriAnnonce.PRIX ? ORDRE_PRIX : ORDRE_DATE;
+        int bas = 0;
+        int haut = ordre.length;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (comparateur.compare(documents.document(ordre[milieu]), curseur) <= 0) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    private static String cleTri(Document document, TriAnnonce tri) {
+        return tri == TriAnnonce.PRIX ? document.prix.toPlainString() : String.valueOf(document.dateCreation);
+    }
+
+    // ========== VALEURS ==========
+
+    private static String cleDeSelection(Facette facette, String valeur) {
+        return switch (facette) {
+            case VILLE, EQUIPEMENT -> cle(valeur);
+            case TYPE_MAISON -> valeur.trim().toUpperCase(Locale.ROOT);
+            default -> valeur.trim();
+        };
+    }
+
+    // Clé insensible à la casse, aux accents et aux espaces superflus
+    static String cle(String texte) {
+        String sansAccents = Normalizer.normalize(texte, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sansAccents.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Libellé de la tranche d'une valeur : "min-max" (bornes incluses) ou
+     * "min+" pour la dernière. minimum : plus petite valeur possible.
+     */
+    static String tranche(int[] bornes, int valeur, int minimum) {
+        int bas = minimum;
+        for (int borne : bornes) {
+            if (valeur <= borne) {
+                return bas + "-" + borne;
+            }
+            bas = borne + 1;
+        }
+        return bas + "+";
+    }
+}
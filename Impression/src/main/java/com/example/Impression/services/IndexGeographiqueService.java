@@ -0,0 +1,412 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.repositories.AnnonceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Index spatial en mémoire des annonces actives (grille régulière en degrés).
+ *
+ * Remplace les requêtes JPQL acos/cos/sin qui parcouraient toute la table
+ * annonces : les recherches par rayon, par zone et par proximité (k plus
+ * proches voisins) ne visitent que les cellules de la grille concernées.
+ * L'index est chargé au démarrage puis maintenu par AnnonceService à chaque
+ * création, modification ou désactivation d'annonce.
+ */
+@Service
+@Slf4j
+public class IndexGeographiqueService extends IndexEnMemoire<List<Object[]>> {
+
+    static final double RAYON_TERRE_KM = 6371.0;
+    private static final double KM_PAR_DEGRE = Math.PI * RAYON_TERRE_KM / 180.0;
+
+    // Taille d'une cellule de la grille en degrés (~2 km de côté au Maroc)
+    static final double PAS_DEGRES = 0.02;
+
+    private final AnnonceRepository annonceRepository;
+
+    private final Map<Long, List<Entree>> cellules = new HashMap<>();
+    private final Map<UUID, Entree> entrees = new HashMap<>();
+
+    // Bornes des cellules occupées, pour arrêter l'expansion des anneaux en kNN
+    private int ligneMin = Integer.MAX_VALUE;
+    private int ligneMax = Integer.MIN_VALUE;
+    private int colonneMin = Integer.MAX_VALUE;
+    private int colonneMax = Integer.MIN_VALUE;
+
+    /**
+     * Position indexée d'une annonce
+     */
+    static final class Entree {
+        final UUID id;
+        final double latitude;
+        final double longitude;
+        final long cellule;
+
+        Entree(UUID id, double latitude, double longitude) {
+            this.id = id;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cellule = cle(ligne(latitude), colonne(longitude));
+        }
+    }
+
+    /**
+     * Résultat d'une recherche : identifiant de l'annonce et distance au point
+     * de recherche en kilomètres
+     */
+    public record ResultatProximite(UUID annonceId, double distanceKm) {
+    }
+
+    // Ordre total (distance, id) : stable entre deux pages
+    private static final Comparator<ResultatProximite> ORDRE_PROXIMITE = Comparator
+            .comparingDouble(ResultatProximite::distanceKm)
+            .thenComparing(ResultatProximite::annonceId);
+
+    private record Curseur(double distanceKm, UUID id) {
+    }
+
+    public IndexGeographiqueService(AnnonceRepository annonceRepository) {
+        super("IndexGeo", "app.index-geo.rechargement-ms");
+        this.annonceRepository = annonceRepository;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @Override
+    protected List<Object[]> lire() {
+        return annonceRepository.findCoordonneesAnnoncesActives();
+    }
+
+    @Override
+    protected void reconstruire(List<Object[]> coordonnees) {
+        cellules.clear();
+        entrees.clear();
+        ligneMin = Integer.MAX_VALUE;
+        ligneMax = Integer.MIN_VALUE;
+        colonneMin = Integer.MAX_VALUE;
+        colonneMax = Integer.MIN_VALUE;
+        for (Object[] ligne : coordonnees) {
+            ajouterSansVerrou(new Entree((UUID) ligne[0], ((BigDecimal) ligne[1]).doubleValue(),
+                    ((BigDecimal) ligne[2]).doubleValue()));
+        }
+        log.info("[IndexGeo] {} annonces actives indexées", coordonnees.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Indexe (ou réindexe) une annonce. Une annonce inactive ou sans
+     * coordonnées est retirée de l'index.
+     */
+    public void indexer(Annonce annonce) {
+        if (annonce == null || annonce.getId() == null) {
+            return;
+        }
+        if (!annonce.isEstActive() || annonce.getLatitude() == null || annonce.getLongitude() == null) {
+            retirer(annonce.getId());
+            return;
+        }
+        Entree entree = new Entree(annonce.getId(), annonce.getLatitude().doubleValue(),
+                annonce.getLongitude().doubleValue());
+        appliquer(() -> {
+            retirerSansVerrou(entree.id);
+            ajouterSansVerrou(entree);
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        if (annonceId == null) {
+            return;
+        }
+        appliquer(() -> retirerSansVerrou(annonceId));
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return entrees.size();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void ajouterSansVerrou(Entree entree) {
+        entrees.put(entree.id, entree);
+        cellules.computeIfAbsent(entree.cellule, c -> new ArrayList<>()).add(entree);
+        int l = ligne(entree.latitude);
+        int c = colonne(entree.longitude);
+        ligneMin = Math.min(ligneMin, l);
+        ligneMax = Math.max(ligneMax, l);
+        colonneMin = Math.min(colonneMin, c);
+        colonneMax = Math.max(colonneMax, c);
+    }
+
+    private void retirerSansVerrou(UUID annonceId) {
+        Entree existante = entrees.remove(annonceId);
+        if (existante == null) {
+            return;
+        }
+        List<Entree> cellule = cellules.get(existante.cellule);
+        if (cellule != null) {
+            cellule.removeIf(e -> e.id.equals(annonceId));
+            if (cellule.isEmpty()) {
+                cellules.remove(existante.cellule);
+            }
+        }
+    }
+
+    // ========== REQUÊTES ==========
+
+    /**
+     * Annonces situées à moins de rayonKm du point, triées par distance
+     * croissante
+     */
+    public List<ResultatProximite> rechercherDansRayon(double latitude, double longitude, double rayonKm) {
+        chargerSiNecessaire();
+        List<ResultatProximite> resultats = new ArrayList<>();
+        double deltaLat = rayonKm / KM_PAR_DEGRE;
+        double cosLat = Math.cos(Math.toRadians(Math.min(89.9, Math.abs(latitude) + deltaLat)));
+        double deltaLon = cosLat > 0 ? rayonKm / (KM_PAR_DEGRE * cosLat) : 360.0;
+
+        verrou.readLock().lock();
+        try {
+            parcourirZone(latitude - deltaLat, latitude + deltaLat, longitude - deltaLon, longitude + deltaLon,
+                    entree -> {
+                        double d = distanceKm(latitude, longitude, entree.latitude, entree.longitude);
+                        if (d <= rayonKm) {
+                            resultats.add(new ResultatProximite(entree.id, d));
+                        }
+                    });
+        } finally {
+            verrou.readLock().unlock();
+        }
+        resultats.sort(ORDRE_PROXIMITE);
+        return resultats;
+    }
+
+    /**
+     * Annonces situées dans le rectangle donné (bornes incluses)
+     */
+    public List<UUID> rechercherDansZone(double latMin, double latMax, double lonMin, double lonMax) {
+        chargerSiNecessaire();
+        List<UUID> resultats = new ArrayList<>();
+        verrou.readLock().lock();
+        try {
+            parcourirZone(latMin, latMax, lonMin, lonMax, entree -> {
+                if (entree.latitude >= latMin && entree.latitude <= latMax
+                        && entree.longitude >= lonMin && entree.longitude <= lonMax) {
+                    resultats.add(entree.id);
+                }
+            });
+        } finally {
+            verrou.readLock().unlock();
+        }
+        return resultats;
+    }
+
+    /**
+     * k plus proches voisins du point, éventuellement limités à distanceMaxKm
+     * (null = sans limite), triés par distance croissante. Les cellules sont
+     * visitées par anneaux concentriques et la recherche s'arrête dès que
+     * l'anneau suivant ne peut plus contenir de meilleur candidat.
+     */
+    public List<ResultatProximite> plusProchesVoisins(double latitude, double longitude, int k,
+            Double distanceMaxKm) {
+        return plusProchesVoisins(latitude, longitude, k, distanceMaxKm, null, null);
+    }
+
+    /**
+     * k plus proches voisins situés strictement après le couple (apresDistanceKm,
+     * apresId) dans l'ordre (distance, id) : sert à la pagination keyset des
+     * recherches par proximité. Les anneaux entièrement plus proches que le
+     * curseur ne sont pas visités.
+     */
+    public List<ResultatProximite> plusProchesVoisins(double latitude, double longitude, int k,
+            Double distanceMaxKm, Double apresDistanceKm, UUID apresId) {
+        chargerSiNecessaire();
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        double limite = distanceMaxKm != null ? distanceMaxKm : Double.POSITIVE_INFINITY;
+        // Tas max borné à k éléments : la racine est le pire candidat retenu
+        PriorityQueue<ResultatProximite> meilleurs = new PriorityQueue<>(ORDRE_PROXIMITE.reversed());
+        Curseur curseur = apresDistanceKm != null && apresId != null ? new Curseur(apresDistanceKm, apresId) : null;
+
+        verrou.readLock().lock();
+        try {
+            if (entrees.isEmpty()) {
+                return new ArrayList<>();
+            }
+            int l0 = ligne(latitude);
+            int c0 = colonne(longitude);
+            int anneauMax = Math.max(
+                    Math.max(Math.abs(l0 - ligneMin), Math.abs(ligneMax - l0)),
+                    Math.max(Math.abs(c0 - colonneMin), Math.abs(colonneMax - c0)));
+
+            for (int r = 0; r <= anneauMax; r++) {
+                // Distance minimale possible pour tout point hors des anneaux 0..r-1
+                double borne = borneInferieureAnneauKm(latitude, r);
+                if (borne > limite) {
+                    break;
+                }
+                if (meilleurs.size() == k && borne > meilleurs.peek().distanceKm()) {
+                    break;
+                }
+                // Anneau plus grand que la grille occupée : un parcours complet coûte moins cher
+                if (8L * r > cellules.size()) {
+                    meilleurs.clear();
+                    for (Entree entree : entrees.values()) {
+                        retenir(meilleurs, k, limite, curseur, entree, latitude, longitude);
+                    }
+                    break;
+                }
+                // Anneau entièrement plus proche que le curseur : déjà servi par les pages précédentes
+                if (curseur != null && borneSuperieureAnneauKm(r) < curseur.distanceKm) {
+                    continue;
+                }
+                if (r == 0) {
+                    visiterCellule(meilleurs, k, limite, curseur, l0, c0, latitude, longitude);
+                    continue;
+                }
+                for (int c = c0 - r; c <= c0 + r; c++) {
+                    visiterCellule(meilleurs, k, limite, curseur, l0 - r, c, latitude, longitude);
+                    visiterCellule(meilleurs, k, limite, curseur, l0 + r, c, latitude, longitude);
+                }
+                for (int l = l0 - r + 1; l <= l0 + r - 1; l++) {
+                    visiterCellule(meilleurs, k, limite, curseur, l, c0 - r, latitude, longitude);
+                    visiterCellule(meilleurs, k, limite, curseur, l, c0 + r, latitude, longitude);
+                }
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+
+        List<ResultatProximite> resultats = new ArrayList<>(meilleurs);
+        resultats.sort(ORDRE_PROXIMITE);
+        return resultats;
+    }
+
+    private void visiterCellule(PriorityQueue<ResultatProximite> meilleurs, int k, double limite, Curseur curseur,
+            int ligne, int colonne, double latitude, double longitude) {
+        List<Entree> cellule = cellules.get(cle(ligne, colonne));
+        if (cellule == null) {
+            return;
+        }
+        for (Entree entree : cellule) {
+            retenir(meilleurs, k, limite, curseur, entree, latitude, longitude);
+        }
+    }
+
+    private static void retenir(PriorityQueue<ResultatProximite> meilleurs, int k, double limite, Curseur curseur,
+            Entree entree, double latitude, double longitude) {
+        double d = distanceKm(latitude, longitude, entree.latitude, entree.longitude);
+        if (d > limite) {
+            return;
+        }
+        if (curseur != null && (d < curseur.distanceKm
+                || (d == curseur.distanceKm && entree.id.compareTo(curseur.id) <= 0))) {
+            return;
+        }
+        ResultatProximite candidat = new ResultatProximite(entree.id, d);
+        if (meilleurs.size() < k) {
+            meilleurs.add(candidat);
+        } else if (ORDRE_PROXIMITE.compare(candidat, meilleurs.peek()) < 0) {
+            meilleurs.poll();
+            meilleurs.add(candidat);
+        }
+    }
+
+    // ========== UTILITAIRES ==========
+
+    private interface VisiteurEntree {
+        void visiter(Entree entree);
+    }
+
+    /**
+     * Visite les entrées des cellules recouvrant le rectangle ; si le rectangle
+     * couvre plus de cellules qu'il n'en existe, parcourt directement les
+     * entrées
+     */
+    private void parcourirZone(double latMin, double latMax, double lonMin, double lonMax,
+            VisiteurEntree visiteur) {
+        if (entrees.isEmpty() || latMin > latMax || lonMin > lonMax) {
+            return;
+        }
+        int lMin = Math.max(ligne(latMin), ligneMin);
+        int lMax = Math.min(ligne(latMax), ligneMax);
+        int cMin = Math.max(colonne(lonMin), colonneMin);
+        int cMax = Math.min(colonne(lonMax), colonneMax);
+        if (lMin > lMax || cMin > cMax) {
+            return;
+        }
+        long nombreCellules = (long) (lMax - lMin + 1) * (cMax - cMin + 1);
+        if (nombreCellules > cellules.size()) {
+            for (List<Entree> cellule : cellules.values()) {
+                for (Entree entree : cellule) {
+                    visiteur.visiter(entree);
+                }
+            }
+            return;
+        }
+        for (int l = lMin; l <= lMax; l++) {
+            for (int c = cMin; c <= cMax; c++) {
+                List<Entree> cellule = cellules.get(cle(l, c));
+                if (cellule != null) {
+                    for (Entree entree : cellule) {
+                        visiteur.visiter(entree);
+                    }
+                }
+            }
+        }
+    }
+
+    private static double borneInferieureAnneauKm(double latitude, int anneau) {
+        if (anneau <= 1) {
+            return 0.0;
+        }
+        double ecartDegres = (anneau - 1) * PAS_DEGRES;
+        double latExtreme = Math.min(89.9, Math.abs(latitude) + anneau * PAS_DEGRES);
+        double kmParDegreLon = KM_PAR_DEGRE * Math.cos(Math.toRadians(latExtreme));
+        return ecartDegres * Math.min(KM_PAR_DEGRE, kmParDegreLon);
+    }
+
+    private static double borneSuperieureAnneauKm(int anneau) {
+        // Écart maximal de (anneau + 1) cellules sur chaque axe, avec une marge
+        return (anneau + 1) * PAS_DEGRES * KM_PAR_DEGRE * Math.sqrt(2) * 1.01;
+    }
+
+    static int ligne(double latitude) {
+        return (int) Math.floor(latitude / PAS_DEGRES);
+    }
+
+    static int colonne(double longitude) {
+        return (int) Math.floor(longitude / PAS_DEGRES);
+    }
+
+    static long cle(int ligne, int colonne) {
+        return ((long) ligne << 32) | (colonne & 0xffffffffL);
+    }
+
+    /**
+     * Distance de Haversine en kilomètres
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2);
+        return 2 * RAYON_TERRE_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.repositories.AnnonceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Index plein texte en mémoire des annonces actives (titre, ville,
+ * équipements, description), analysés par AnalyseurTexte. Index inversé :
+ * pour chaque terme, les documents qui le contiennent et le nombre
+ * d'occurrences par champ.
+ *
+ * Classement BM25F : les occurrences de chaque champ sont normalisées par la
+ * longueur du champ, pondérées (le titre compte plus que la description),
+ * puis saturées. Les correspondances par squelette (graphie arabe / latine)
+ * comptent moins qu'une correspondance exacte de racine.
+ *
+ * Chargé au démarrage puis maintenu par AnnonceService, comme l'index spatial.
+ */
+@Service
+@Slf4j
+public class IndexTexteService extends IndexEnMemoire<List<Object[]>> {
+
+    static final String CHAMP_TITRE = "titre";
+    static final String CHAMP_VILLE = "ville";
+    static final String CHAMP_EQUIPEMENTS = "equipements";
+    static final String CHAMP_DESCRIPTION = "description";
+
+    private static final String[] CHAMPS = { CHAMP_TITRE, CHAMP_VILLE, CHAMP_EQUIPEMENTS, CHAMP_DESCRIPTION };
+    private static final double[] POIDS = { 3.0, 2.0, 1.5, 1.0 };
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double POIDS_SQUELETTE = 0.3;
+    private static final int LONGUEUR_EXTRAIT = 160;
+    private static final int MARGE_EXTRAIT = 40;
+
+    private final AnnonceRepository annonceRepository;
+
+    private final DocumentsNumerotes<Document> documents = new DocumentsNumerotes<>();
+    // Terme → numéro de document → occurrences par champ
+    private final Map<String, Map<Integer, int[]>> postings = new HashMap<>();
+    private final long[] longueursTotales = new long[CHAMPS.length];
+
+    /**
+     * Annonce indexée : textes d'origine (pour le surlignage), nombre de
+     * termes par champ et termes distincts (pour la retirer)
+     */
+    private static final class Document {
+        final UUID id;
+        final String[] textes;
+        final int[] longueurs = new int[CHAMPS.length];
+        final Set<String> termes = new HashSet<>();
+
+        Document(UUID id, String[] textes) {
+            this.id = id;
+            this.textes = textes;
+        }
+    }
+
+    /**
+     * Annonce trouvée : score BM25 et, par champ où un terme de la requête
+     * apparaît, le texte surligné (balises mark, le reste échappé en HTML)
+     */
+    public record Trouvee(UUID annonceId, double score, Map<String, String> surlignages) {
+    }
+
+    public IndexTexteService(AnnonceRepository annonceRepository) {
+        super("Texte", "app.texte.rechargement-ms");
+        this.annonceRepository = annonceRepository;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @Override
+    protected List<Object[]> lire() {
+        return annonceRepository.findTexteAnnoncesActives();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void reconstruire(List<Object[]> lignes) {
+        documents.vider();
+        postings.clear();
+        Arrays.fill(longueursTotales, 0);
+        for (Object[] l : lignes) {
+            ajouterSansVerrou((UUID) l[0], (String) l[1], (String) l[2], (String) l[3],
+                    Equipement.libelles((Long) l[5], (List<String>) l[4]));
+        }
+        log.info("[Texte] {} annonces actives indexées, {} termes", lignes.size(), postings.size());
+    }
+
+    // ========== MISES À JOUR INCRÉMENTALES ==========
+
+    /**
+     * Indexe (ou réindexe) une annonce ; une annonce inactive est retirée
+     */
+    public void indexer(Annonce annonce) {
+        if (annonce == null || annonce.getId() == null) {
+            return;
+        }
+        if (!annonce.isEstActive()) {
+            retirer(annonce.getId());
+            return;
+        }
+        UUID id = annonce.getId();
+        String titre = annonce.getTitre();
+        String description = annonce.getDescription();
+        String ville = annonce.getAdresse() != null ? annonce.getAdresse().getVille() : null;
+        List<String> equipements = annonce.listeEquipements();
+        appliquer(() -> {
+            retirerSansVerrou(id);
+            ajouterSansVerrou(id, titre, description, ville, equipements);
+        });
+    }
+
+    public void retirer(UUID annonceId) {
+        if (annonceId == null) {
+            return;
+        }
+        appliquer(() -> retirerSansVerrou(annonceId));
+    }
+
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return documents.taille();
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    private void ajouterSansVerrou(UUID id, String titre, String description, String ville,
+            List<String> equipements) {
+        String[] textes = { titre, ville, equipements != null ? String.join(", ", equipements) : null,
+                description };
+        Document document = new Document(id, textes);
+        int numero = documents.attribuer(id, document);
+
+        for (int champ = 0; champ < CHAMPS.length; champ++) {
+            for (AnalyseurTexte.Terme terme : AnalyseurTexte.analyser(textes[champ])) {
+                postings.computeIfAbsent(terme.texte(), t -> new HashMap<>())
+                        .computeIfAbsent(numero, n -> new int[CHAMPS.length])[champ]++;
+                document.termes.add(terme.texte());
+                // La longueur d'un champ compte les mots, pas leurs squelettes
+                if (!terme.texte().startsWith(AnalyseurTexte.PREFIXE_SQUELETTE)) {
+                    document.longueurs[champ]++;
+                }
+            }
+            longueursTotales[champ] += document.longueurs[champ];
+        }
+    }
+
+    private void retirerSansVerrou(UUID annonceId) {
+        Integer numero = documents.numero(annonceId);
+        if (numero == null) {
+            return;
+        }
+        Document document = documents.document(numero);
+        for (String terme : document.termes) {
+            Map<Integer, int[]> docs = postings.get(terme);
+            if (docs != null) {
+                docs.remove(numero);
+                if (docs.isEmpty()) {
+                    postings.remove(terme);
+                }
+            }
+        }
+        for (int champ = 0; champ < CHAMPS.length; champ++) {
+            longueursTotales[champ] -= document.longueurs[champ];
+        }
+        documents.liberer(annonceId);
+    }
+
+    // ========== RECHERCHE ==========
+
+    /**
+     * Annonces contenant au moins un terme de la requête, par score
+     * décroissant puis id, strictement après le curseur (score + id) s'il est
+     * fourni ; au plus limite résultats, surlignés.
+     */
+    public List<Trouvee> rechercher(String requete, Double curseurScore, UUID curseurId, int limite) {
+        chargerSiNecessaire();
+        Set<String> termesRequete = new LinkedHashSet<>();
+        for (AnalyseurTexte.Terme terme : AnalyseurTexte.analyser(requete)) {
+            termesRequete.add(terme.texte());
+        }
+        List<Trouvee> trouvees = new ArrayList<>();
+        if (termesRequete.isEmpty()) {
+            return trouvees;
+        }
+
+        List<Document> retenus = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        verrou.readLock().lock();
+        try {
+            Map<Integer, Double> parNumeroScore = scorer(termesRequete);
+            List<Map.Entry<Integer, Double>> classes = new ArrayList<>(parNumeroScore.entrySet());
+            Comparator<Map.Entry<Integer, Double>> ordre = Comparator
+                    .comparing((Map.Entry<Integer, Double> e) -> e.getValue(), Comparator.reverseOrder())
+                    .thenComparing(e -> documents.document(e.getKey()).id);
+            classes.sort(ordre);
+            for (Map.Entry<Integer, Double> e : classes) {
+                if (retenus.size() == limite) {
+                    break;
+                }
+                Document document = documents.document(e.getKey());
+                if (curseurScore != null && !apresCurseur(e.getValue(), document.id, curseurScore, curseurId)) {
+                    continue;
+                }
+                retenus.add(document);
+                scores.add(e.getValue());
+            }
+        } finally {
+            verrou.readLock().unlock();
+        }
+
+        // Documents immuables : surlignage hors verrou
+        for (int i = 0; i < retenus.size(); i++) {
+            Document document = retenus.get(i);
+            Set<String> communs = new HashSet<>(termesRequete);
+            communs.retainAll(document.termes);
+            trouvees.add(new Trouvee(document.id, scores.get(i), surlignages(document, communs)));
+        }
+        return trouvees;
+    }
+
+    private Map<Integer, Double> scorer(Set<String> termesRequete) {
+        int n = documents.taille();
+        double[] longueursMoyennes = new double[CHAMPS.length];
+        for (int champ = 0; champ < CHAMPS.length; champ++) {
+            longueursMoyennes[champ] = n == 0 ? 1 : Math.max(1.0, (double) longueursTotales[champ] / n);
+        }
+        Map<Integer, Double> scores = new HashMap<>();
+        for (String terme : termesRequete) {
+            Map<Integer, int[]> docs = postings.get(terme);
+            if (docs == null) {
+                continue;
+            }
+            double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+            double poidsTerme = terme.startsWith(AnalyseurTexte.PREFIXE_SQUELETTE) ? POIDS_SQUELETTE : 1.0;
+            for (Map.Entry<Integer, int[]> e : docs.entrySet()) {
+                Document document = documents.document(e.getKey());
+                double tf = 0;
+                for (int champ = 0; champ < CHAMPS.length; champ++) {
+                    int occurrences = e.getValue()[champ];
+                    if (occurrences > 0) {
+                        double normalisation = 1 - B + B * document.longueurs[champ] / longueursMoyennes[champ];
+                        tf += POIDS[champ] * occurrences / normalisation;
+                    }
+                }
+                scores.merge(e.getKey(), poidsTerme * idf * tf / (K1 + tf), Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    private static boolean apresCurseur(double score, UUID id, double curseurScore, UUID curseurId) {
+        return score < curseurScore || (score == curseurScore && id.compareTo(curseurId) > 0);
+    }
+
+    // ========== SURLIGNAGE ==========
+
+    private static Map<String, String> surlignages(Document document, Set<String> termes) {
+        Map<String, String> surlignages = new LinkedHashMap<>();
+        for (int champ = 0; champ < CHAMPS.length; champ++) {
+            String texte = document.textes[champ];
+            if (texte == null) {
+                continue;
+            }
+            List<int[]> mots = motsTrouves(texte, termes);
+            if (mots.isEmpty()) {
+                continue;
+            }
+            surlignages.put(CHAMPS[champ], champ == CHAMPS.length - 1
+                    ? extrait(texte, mots)
+                    : surligner(texte, mots, 0, texte.length()));
+        }
+        return surlignages;
+    }
+
+    // Positions [debut, fin) des mots du texte dont un terme est cherché
+    private static List<int[]> motsTrouves(String texte, Set<String> termes) {
+        List<int[]> mots = new ArrayList<>();
+        for (AnalyseurTexte.Terme terme : AnalyseurTexte.analyser(texte)) {
+            if (termes.contains(terme.texte())
+                    && (mots.isEmpty() || mots.get(mots.size() - 1)[0] != terme.debut())) {
+                mots.add(new int[] { terme.debut(), terme.fin() });
+            }
+        }
+        return mots;
+    }
+
+    /**
+     * Fenêtre de la description contenant le plus de mots trouvés, coupée
+     * entre deux mots
+     */
+    static String extrait(String texte, List<int[]> mots) {
+        int meilleur = 0;
+        int meilleurCompte = 0;
+        for (int i = 0, j = 0; i < mots.size(); i++) {
+            while (j < mots.size() && mots.get(j)[1] - mots.get(i)[0] <= LONGUEUR_EXTRAIT - MARGE_EXTRAIT) {
+                j++;
+            }
+            if (j - i > meilleurCompte) {
+                meilleurCompte = j - i;
+                meilleur = i;
+            }
+        }
+        int debut = Math.max(0, mots.get(meilleur)[0] - MARGE_EXTRAIT);
+        int fin = Math.min(texte.length(), debut + LONGUEUR_EXTRAIT);
+        if (debut > 0) {
+            int espace = texte.indexOf(' ', debut);
+            debut = espace >= 0 && espace < mots.get(meilleur)[0] ? espace + 1 : mots.get(meilleur)[0];
+        }
+        if (fin < texte.length()) {
+            int espace = texte.lastIndexOf(' ', fin);
+            fin = espace > debut ? espace : fin;
+        }
+        return (debut > 0 ? "…" : "") + surligner(texte, mots, debut, fin).strip()
+                + (fin < texte.length() ? "…" : "");
+    }
+
+    private static String surligner(String texte, List<int[]> mots, int debut, int fin) {
+        StringBuilder resultat = new StringBuilder();
+        int position = debut;
+        for (int[] mot : mots) {
+            if (mot[0] < debut || mot[1] > fin) {
+                continue;
+            }
+            echapper(texte, position, mot[0], resultat);
+            resultat.append("<mark>");
+            echapper(texte, mot[0], mot[1], resultat);
+            resultat.append("</mark>");
+            position = mot[1];
+        }
+        echapper(texte, position, fin, resultat);
+        return resultat.toString();
+    }
+
+    private static void echapper(String texte, int debut, int fin, StringBuilder resultat) {
+        for (int i = debut; i < fin; i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '<' -> resultat.append("&lt;");
+                case '>' -> resultat.append("&gt;");
+                case '&' -> resultat.append("&amp;");
+                case '"' -> resultat.append("&quot;");
+                case '\'' -> resultat.append("&#39;");
+                default -> resultat.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.Impression.services;
+
+/**
+ * Bandes isochrones (en minutes) dans lesquelles sont classés les trajets
+ * annonce-stade. Une bande est désignée par sa borne haute : un trajet de
+ * 14 min est dans la bande 20, un trajet de 20 min aussi. Au-delà de la
+ * dernière borne, le trajet n'a pas de bande.
+ */
+public final class Isochrones {
+
+    static final int[] BORNES_MINUTES = { 10, 20, 30, 45, 60, 90 };
+
+    private Isochrones() {
+    }
+
+    // Bande d'un temps de trajet, null au-delà de la dernière borne
+    public static Integer bande(Integer minutes) {
+        if (minutes == null) {
+            return null;
+        }
+        for (int borne : BORNES_MINUTES) {
+            if (minutes <= borne) {
+                return borne;
+            }
+        }
+        return null;
+    }
+
+    // Plus petite bande contenant tous les trajets d'au plus budgetMinutes
+    public static int bandeCouvrante(int budgetMinutes) {
+        Integer bande = bande(budgetMinutes);
+        if (bande == null) {
+            throw new IllegalArgumentException("Budget au-delà de la dernière bande: " + budgetMinutes);
+        }
+        return bande;
+    }
+
+    // Plus long temps de trajet classé dans une bande
+    public static int budgetMax() {
+        return BORNES_MINUTES[BORNES_MINUTES.length - 1];
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.Impression.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Mises à jour incrémentales d'un index en mémoire reçues pendant son
+ * rechargement complet. La lecture en base précède la reconstruction : une
+ * mise à jour appliquée entre les deux serait perdue avec l'ancien index.
+ * Elle est donc notée, puis rejouée sur l'index reconstruit avant qu'il ne
+ * serve.
+ *
+ * Les mises à jour sont idempotentes (retrait puis ajout) : rejouer une
+ * modification déjà présente dans l'image lue est sans effet. Les
+ * rechargements d'un même index ne doivent pas se chevaucher
+ * (IndexEnMemoire.recharger est synchronisé).
+ */
+final class JournalRechargement {
+
+    private final ReentrantReadWriteLock verrou;
+    // Mises à jour à rejouer, null hors rechargement ; gardé par le verrou d'écriture
+    private List<Runnable> enAttente;
+
+    JournalRechargement(ReentrantReadWriteLock verrou) {
+        this.verrou = verrou;
+    }
+
+    // Applique une mise à jour sous le verrou d'écriture et la note si un rechargement est en cours
+    void appliquer(Runnable miseAJour) {
+        verrou.writeLock().lock();
+        try {
+            miseAJour.run();
+            if (enAttente != null) {
+                enAttente.add(miseAJour);
+            }
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    // Lecture en base d'un rechargement, hors verrou ; les mises à jour appliquées pendant la lecture sont notées
+    <T> T lire(Supplier<T> lecture) {
+        verrou.writeLock().lock();
+        try {
+            enAttente = new ArrayList<>();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+        try {
+            return lecture.get();
+        } catch (RuntimeException e) {
+            verrou.writeLock().lock();
+            try {
+                enAttente = null;
+            } finally {
+                verrou.writeLock().unlock();
+            }
+            throw e;
+        }
+    }
+
+    // Sous le verrou d'écriture, une fois l'index reconstruit : rejoue les mises à jour notées
+    void rejouer() {
+        List<Runnable> aRejouer = enAttente;
+        enAttente = null;
+        if (aRejouer != null) {
+            aRejouer.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.Impression.services;
+
+/**
+ * Seau à jetons : au plus {capacite} appels en rafale, puis {debitParSeconde}
+ * appels par seconde en régime permanent. acquerir() bloque le thread appelant
+ * jusqu'à ce qu'un jeton soit disponible ; partagé entre threads.
+ */
+public final class LimiteurDebit {
+
+    private final double debitParNano;
+    private final double capacite;
+    private double jetons;
+    private long dernierRemplissage;
+
+    public LimiteurDebit(double debitParSeconde, int capacite) {
+        if (debitParSeconde <= 0 || capacite <= 0) {
+            throw new IllegalArgumentException("Débit et capacité doivent être positifs");
+        }
+        this.debitParNano = debitParSeconde / 1_000_000_000d;
+        this.capacite = capacite;
+        this.jetons = capacite;
+        this.dernierRemplissage = System.nanoTime();
+    }
+
+    // Prendre un jeton, en attendant si nécessaire
+    public void acquerir() throws InterruptedException {
+        while (true) {
+            long attenteNanos;
+            synchronized (this) {
+                remplir();
+                if (jetons >= 1) {
+                    jetons -= 1;
+                    return;
+                }
+                attenteNanos = (long) Math.ceil((1 - jetons) / debitParNano);
+            }
+            Thread.sleep(attenteNanos / 1_000_000, (int) (attenteNanos % 1_000_000));
+        }
+    }
+
+    private void remplir() {
+        long maintenant = System.nanoTime();
+        jetons = Math.min(capacite, jetons + (maintenant - dernierRemplissage) * debitParNano);
+        dernierRemplissage = maintenant;
+    }
+}
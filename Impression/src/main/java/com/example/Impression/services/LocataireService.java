@@ -4,15 +4,8 @@ import com.example.Impression.dto.CreationLocataireDTO;
 import com.example.Impression.dto.ModificationLocataireDTO;
 import com.example.Impression.dto.UtilisateurDTO;
 import com.example.Impression.dto.AnnonceDTO;
-import com.example.Impression.dto.AdresseDTO;
-import com.example.Impression.dto.LocateurInfoDTO;
-import com.example.Impression.dto.StadeDTO;
-import com.example.Impression.dto.AnnonceStadeDistanceDTO;
 import com.example.Impression.entities.Locataire;
 import com.example.Impression.entities.Utilisateur;
-import com.example.Impression.entities.Annonce;
-import com.example.Impression.entities.Adresse;
-import com.example.Impression.entities.AnnonceStadeDistance;
 import com.example.Impression.repositories.LocataireRepository;
 import com.example.Impression.repositories.UtilisateurRepository;
 import com.example.Impression.repositories.AnnonceRepository;
@@ -45,7 +38,7 @@ public class LocataireService {
     private AnnonceRepository annonceRepository;
 
     @Autowired
-    private AnnonceStadeDistanceService annonceStadeDistanceService;
+    private AnnonceDTOAssembleur annonceDTOAssembleur;
 
     // EmailService non utilisé directement depuis l'introduction du
     // VerificationService
@@ -224,10 +217,7 @@ public class LocataireService {
             return new ArrayList<>();
         }
 
-        return annonceRepository.findAllById(locataire.getFavoris())
-                .stream()
-                .map(this::convertirAnnonceEnDTO)
-                .collect(Collectors.toList());
+        return annonceDTOAssembleur.assemblerParIds(locataire.getFavoris());
     }
 
     // Vérifier si une annonce est dans les favoris
@@ -255,110 +245,4 @@ public class LocataireService {
         dto.setDateModification(locataire.getDateModification());
         return dto;
     }
-
-    // Méthode utilitaire pour convertir une annonce en DTO
-    private AnnonceDTO convertirAnnonceEnDTO(Annonce annonce) {
-        AnnonceDTO dto = new AnnonceDTO();
-        dto.setId(annonce.getId());
-        dto.setTitre(annonce.getTitre());
-        dto.setDescription(annonce.getDescription());
-        dto.setAdresse(convertirAdresseEnDTO(annonce.getAdresse()));
-        dto.setPrixParNuit(annonce.getPrixParNuit());
-        dto.setPrixParSemaine(annonce.getPrixParSemaine());
-        dto.setPrixParMois(annonce.getPrixParMois());
-        dto.setCapacite(annonce.getCapacite());
-        dto.setNombreChambres(annonce.getNombreChambres());
-        dto.setNombreSallesDeBain(annonce.getNombreSallesDeBain());
-        dto.setTypeMaison(annonce.getTypeMaison());
-        dto.setEstActive(annonce.isEstActive());
-        dto.setDateCreation(annonce.getDateCreation());
-        dto.setDateModification(annonce.getDateModification());
-        dto.setEquipements(annonce.getEquipements());
-        dto.setRegles(annonce.getRegles());
-        dto.setImages(annonce.getImages());
-        dto.setImagesBlob(annonce.getImagesBlob());
-        dto.setNoteMoyenne(annonce.getNoteMoyenne());
-        dto.setNombreAvis(annonce.getNombreAvis());
-
-        // Créer les informations du locateur
-        LocateurInfoDTO locateurInfo = new LocateurInfoDTO();
-        locateurInfo.setId(annonce.getLocateur().getId());
-        locateurInfo.setNom(annonce.getLocateur().getNom());
-        locateurInfo.setPrenom(annonce.getLocateur().getPrenom());
-        locateurInfo.setEmail(annonce.getLocateur().getEmail());
-        locateurInfo.setTelephone(annonce.getLocateur().getTelephone());
-        locateurInfo.setPhotoProfil(annonce.getLocateur().getPhotoProfil());
-        locateurInfo.setDescription(annonce.getLocateur().getDescription());
-        locateurInfo.setNoteMoyenne(annonce.getLocateur().getNoteMoyenne());
-        locateurInfo.setNombreAnnonces(annonce.getLocateur().getNombreAnnonces());
-        locateurInfo.setEstVerifie(annonce.getLocateur().isEstVerifie());
-        locateurInfo.setRaisonSociale(annonce.getLocateur().getRaisonSociale());
-
-        dto.setLocateur(locateurInfo);
-        dto.setLatitude(annonce.getLatitude());
-        dto.setLongitude(annonce.getLongitude());
-
-        // Convertir les distances avec les stades
-        List<AnnonceStadeDistance> distances = annonceStadeDistanceService.getDistancesParAnnonce(annonce);
-        List<AnnonceStadeDistanceDTO> distancesDTO = distances.stream()
-                .map(this::convertirAnnonceStadeDistanceEnDTO)
-                .collect(Collectors.toList());
-
-        dto.setDistancesStades(distancesDTO);
-
-        // Trouver le stade le plus proche
-        Optional<AnnonceStadeDistance> stadeLePlusProche = annonceStadeDistanceService.getStadeLePlusProche(annonce);
-        if (stadeLePlusProche.isPresent()) {
-            dto.setStadeLePlusProche(convertirAnnonceStadeDistanceEnDTO(stadeLePlusProche.get()));
-        }
-
-        return dto;
-    }
-
-    private AnnonceStadeDistanceDTO convertirAnnonceStadeDistanceEnDTO(AnnonceStadeDistance distance) {
-        AnnonceStadeDistanceDTO dto = new AnnonceStadeDistanceDTO();
-        dto.setId(distance.getId());
-        dto.setStade(convertirStadeEnDTO(distance.getStade()));
-        dto.setDistance(distance.getDistance());
-        dto.setTempsTrajetMinutes(distance.getTempsTrajetMinutes());
-        dto.setModeTransport(distance.getModeTransport().name());
-        dto.setEstLePlusProche(distance.getEstLePlusProche());
-        dto.setDateCreation(distance.getDateCreation());
-        dto.setDateModification(distance.getDateModification());
-        return dto;
-    }
-
-    // Méthode utilitaire pour convertir une adresse en DTO
-    private AdresseDTO convertirAdresseEnDTO(Adresse adresse) {
-        AdresseDTO dto = new AdresseDTO();
-        dto.setRue(adresse.getRue());
-        dto.setNumero(adresse.getNumero());
-        dto.setCodePostal(adresse.getCodePostal());
-        dto.setVille(adresse.getVille());
-        dto.setPays(adresse.getPays());
-        dto.setComplement(adresse.getComplement());
-        return dto;
-    }
-
-    // Méthode utilitaire pour convertir un stade en DTO
-    private StadeDTO convertirStadeEnDTO(com.example.Impression.entities.Stade stade) {
-        if (stade == null) {
-            return null;
-        }
-
-        StadeDTO dto = new StadeDTO();
-        dto.setId(stade.getId());
-        dto.setNom(stade.getNom());
-        dto.setVille(stade.getVille());
-        dto.setAdresseComplete(stade.getAdresseComplete());
-        dto.setLatitude(stade.getLatitude());
-        dto.setLongitude(stade.getLongitude());
-        dto.setCapacite(stade.getCapacite());
-        dto.setDescription(stade.getDescription());
-        dto.setEstActif(stade.isEstActif());
-        dto.setDateCreation(stade.getDateCreation());
-        dto.setDateModification(stade.getDateModification());
-
-        return dto;
-    }
-}
\ No newline at end of file
+}
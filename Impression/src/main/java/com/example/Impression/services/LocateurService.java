@@ -481,10 +481,11 @@ public class LocateurService {
         dto.setEstActive(annonce.isEstActive());
         dto.setDateCreation(annonce.getDateCreation());
         dto.setDateModification(annonce.getDateModification());
-        dto.setEquipements(annonce.getEquipements());
+        dto.setEquipements(annonce.listeEquipements());
         dto.setRegles(annonce.getRegles());
         dto.setImages(annonce.getImages());
-        dto.setImagesBlob(annonce.getImagesBlob());
+        dto.setImageIds(annonce.getImageIds());
+        dto.setImageUrls(ImageStockageService.urls(annonce.getImageIds()));
         dto.setNoteMoyenne(annonce.getNoteMoyenne());
         dto.setNombreAvis(annonce.getNombreAvis());
         dto.setLatitude(annonce.getLatitude());
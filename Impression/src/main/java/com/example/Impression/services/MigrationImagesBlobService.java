@@ -0,0 +1,138 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.entities.StringListConverter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migration des anciennes colonnes images_blob (tableau JSON de chaînes
+ * base64 en LONGTEXT) vers le stockage d'images adressé par contenu.
+ *
+ * Les colonnes ne sont plus mappées par les entités : elles sont lues en JDBC,
+ * ligne par ligne, via un flux de caractères analysé par Jackson en mode
+ * streaming. Chaque image est décodée directement dans le fichier du stockage,
+ * une seule image à la fois transite donc par le décodeur. La ligne reçoit
+ * ensuite les identifiants dans image_ids et sa colonne images_blob est vidée,
+ * ce qui rend la migration reprenable après interruption.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MigrationImagesBlobService {
+
+    private static final String COLONNE_BLOB = "images_blob";
+    private static final List<String> TABLES = List.of("annonces", "stades");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ImageStockageService imageStockageService;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final StringListConverter stringListConverter = new StringListConverter();
+
+    @Value("${app.images.migration-blobs.active:true}")
+    private boolean active;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrerAuDemarrage() {
+        if (!active) {
+            return;
+        }
+        for (String table : TABLES) {
+            try {
+                migrer(table);
+            } catch (Exception e) {
+                log.error("[Images] Migration des blobs de {} interrompue: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    // Migrer toutes les lignes d'une table ; renvoie le nombre de lignes traitées
+    public int migrer(String table) {
+        if (!TABLES.contains(table) || !colonneExiste(table, COLONNE_BLOB)) {
+            return 0;
+        }
+
+        // Seuls les identifiants sont chargés d'avance ; les blobs sont lus un par un
+        List<Object> ids = jdbcTemplate.query(
+                "SELECT id FROM " + table + " WHERE " + COLONNE_BLOB + " IS NOT NULL",
+                (rs, i) -> rs.getObject(1));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        log.info("[Images] Migration de {} ligne(s) de {} vers le stockage d'images", ids.size(), table);
+
+        int migrees = 0;
+        for (Object id : ids) {
+            List<String> imageIds = jdbcTemplate.query(
+                    "SELECT image_ids, " + COLONNE_BLOB + " FROM " + table + " WHERE id = ?",
+                    rs -> rs.next() ? extraireImages(rs) : null,
+                    id);
+            if (imageIds == null) {
+                continue;
+            }
+            jdbcTemplate.update("UPDATE " + table + " SET image_ids = ?, " + COLONNE_BLOB + " = NULL WHERE id = ?",
+                    stringListConverter.convertToDatabaseColumn(imageIds), id);
+            migrees++;
+        }
+        log.info("[Images] {} ligne(s) de {} migrée(s)", migrees, table);
+        return migrees;
+    }
+
+    // Stocker chaque image du tableau JSON en la décodant à la volée
+    private List<String> extraireImages(ResultSet rs) throws SQLException {
+        List<String> imageIds = new ArrayList<>(stringListConverter.convertToEntityAttribute(rs.getString(1)));
+        try (Reader lecteur = rs.getCharacterStream(2)) {
+            if (lecteur == null) {
+                return imageIds;
+            }
+            try (JsonParser parser = jsonFactory.createParser(lecteur)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    return imageIds;
+                }
+                while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                    ImageAsset asset = imageStockageService.stocker(parser::readBinaryValue);
+                    if (asset.getTaille() > 0 && !imageIds.contains(asset.getHash())) {
+                        imageIds.add(asset.getHash());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du blob d'images impossible", e);
+        }
+        return imageIds;
+    }
+
+    private boolean colonneExiste(String table, String colonne) {
+        Boolean existe = jdbcTemplate.execute((ConnectionCallback<Boolean>) connexion -> {
+            DatabaseMetaData meta = connexion.getMetaData();
+            for (String[] nom : new String[][] { { table, colonne }, { table.toUpperCase(), colonne.toUpperCase() } }) {
+                try (ResultSet colonnes = meta.getColumns(connexion.getCatalog(), null, nom[0], nom[1])) {
+                    if (colonnes.next()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(existe);
+    }
+}
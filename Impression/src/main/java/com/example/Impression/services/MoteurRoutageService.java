@@ -0,0 +1,210 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.ModeTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Temps de trajet hors ligne, en voiture et à pied, vers les stades actifs.
+ *
+ * Le réseau (GrapheRoutier) est chargé au démarrage depuis
+ * app.routage.graphe ; pour chaque stade et chaque mode, un Dijkstra inversé
+ * précalcule le trajet de tous les nœuds du réseau vers le stade. Une requête
+ * se réduit alors à accrocher l'annonce au nœud le plus proche puis à lire une
+ * case par stade. Les arbres sont recalculés quand les stades changent. Sans
+ * fichier configuré, le moteur reste inactif et les distances passent par
+ * Distance Matrix.
+ *
+ * Mémoire : deux float par nœud, par stade et par mode.
+ */
+@Service
+@Slf4j
+public class MoteurRoutageService {
+
+    private final StadeService stadeService;
+    private final String cheminGraphe;
+    private final double vitesseMarche;
+    private final double vitesseAccesVoiture;
+    private final double accesMaxMetres;
+    private final double marcheMaxMetres;
+
+    private volatile GrapheRoutier graphe;
+    private volatile Arbres arbres;
+
+    /**
+     * Trajets précalculés pour une photographie des stades. Pour le stade s et
+     * le nœud v : cout[s][v] (secondes en voiture, mètres à pied) et
+     * longueur[s][v] en mètres ; tableaux null si le stade n'est pas accroché
+     * au réseau du mode. sortie[s] est la distance du stade à son nœud.
+     */
+    private static final class Arbres {
+        final StadeSnapshot stades;
+        final float[][] coutsVoiture;
+        final float[][] longueursVoiture;
+        final double[] sortieVoiture;
+        final float[][] longueursMarche;
+        final double[] sortieMarche;
+
+        Arbres(StadeSnapshot stades) {
+            this.stades = stades;
+            int n = stades.taille();
+            this.coutsVoiture = new float[n][];
+            this.longueursVoiture = new float[n][];
+            this.sortieVoiture = new double[n];
+            this.longueursMarche = new float[n][];
+            this.sortieMarche = new double[n];
+        }
+    }
+
+    public MoteurRoutageService(StadeService stadeService,
+            @Value("${app.routage.graphe:}") String cheminGraphe,
+            @Value("${app.routage.vitesse-marche-kmh:4.8}") double vitesseMarcheKmh,
+            @Value("${app.routage.vitesse-acces-voiture-kmh:20}") double vitesseAccesVoitureKmh,
+            @Value("${app.routage.acces-max-m:1500}") double accesMaxMetres,
+            @Value("${app.routage.marche-max-minutes:120}") int marcheMaxMinutes) {
+        this.stadeService = stadeService;
+        this.cheminGraphe = cheminGraphe;
+        this.vitesseMarche = vitesseMarcheKmh / 3.6;
+        this.vitesseAccesVoiture = vitesseAccesVoitureKmh / 3.6;
+        this.accesMaxMetres = accesMaxMetres;
+        this.marcheMaxMetres = marcheMaxMinutes * 60 * this.vitesseMarche;
+    }
+
+    public boolean isEnabled() {
+        return arbres != null;
+    }
+
+    // ========== CHARGEMENT ==========
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void chargerAuDemarrage() {
+        if (cheminGraphe == null || cheminGraphe.isBlank()) {
+            log.info("[Routage] Aucun graphe configuré (app.routage.graphe), moteur hors ligne inactif");
+            return;
+        }
+        try {
+            charger(GrapheRoutier.charger(Path.of(cheminGraphe)));
+        } catch (Exception e) {
+            log.error("[Routage] Échec du chargement du graphe {}: {}", cheminGraphe, e.getMessage(), e);
+        }
+    }
+
+    public void charger(GrapheRoutier nouveauGraphe) {
+        graphe = nouveauGraphe;
+        log.info("[Routage] Graphe chargé: {} nœuds", nouveauGraphe.nbNoeuds);
+        precalculer(stadeService.snapshot());
+    }
+
+    // Recalcul des arbres quand un stade a été ajouté, retiré ou déplacé
+    @Scheduled(fixedDelayString = "${app.routage.verification-ms:60000}", initialDelayString = "${app.routage.verification-ms:60000}")
+    public void verifierStades() {
+        if (graphe == null) {
+            return;
+        }
+        try {
+            StadeSnapshot stades = stadeService.snapshot();
+            Arbres courants = arbres;
+            if (courants == null || !courants.stades.memesPositions(stades)) {
+                precalculer(stades);
+            }
+        } catch (Exception e) {
+            log.error("[Routage] Échec du recalcul des arbres: {}", e.getMessage(), e);
+        }
+    }
+
+    private void precalculer(StadeSnapshot stades) {
+        GrapheRoutier reseau = graphe;
+        long debut = System.currentTimeMillis();
+        Arbres nouveaux = new Arbres(stades);
+        for (int s = 0; s < stades.taille(); s++) {
+            Stade stade = stades.stade(s);
+            double lat = stade.getLatitude().doubleValue();
+            double lon = stade.getLongitude().doubleValue();
+
+            int noeud = reseau.noeudLePlusProche(lat, lon, ModeTransport.VOITURE, accesMaxMetres);
+            if (noeud >= 0) {
+                nouveaux.coutsVoiture[s] = new float[reseau.nbNoeuds];
+                nouveaux.longueursVoiture[s] = new float[reseau.nbNoeuds];
+                reseau.cheminsVers(noeud, ModeTransport.VOITURE, Float.MAX_VALUE, nouveaux.coutsVoiture[s],
+                        nouveaux.longueursVoiture[s]);
+                nouveaux.sortieVoiture[s] = reseau.distanceMetres(lat, lon, noeud);
+            }
+            noeud = reseau.noeudLePlusProche(lat, lon, ModeTransport.MARCHE, accesMaxMetres);
+            if (noeud >= 0) {
+                float[] couts = new float[reseau.nbNoeuds];
+                nouveaux.longueursMarche[s] = new float[reseau.nbNoeuds];
+                reseau.cheminsVers(noeud, ModeTransport.MARCHE, (float) marcheMaxMetres, couts,
+                        nouveaux.longueursMarche[s]);
+                nouveaux.sortieMarche[s] = reseau.distanceMetres(lat, lon, noeud);
+            }
+            if (nouveaux.coutsVoiture[s] == null && nouveaux.longueursMarche[s] == null) {
+                log.warn("[Routage] Stade {} hors du réseau chargé", stade.getNom());
+            }
+        }
+        arbres = nouveaux;
+        log.info("[Routage] Arbres de {} stade(s) précalculés en {} ms", stades.taille(),
+                System.currentTimeMillis() - debut);
+    }
+
+    // ========== REQUÊTES ==========
+
+    /**
+     * Trajets en voiture et à pied d'une position vers chaque stade atteignable
+     * (une mesure par stade et par mode). Liste vide si le moteur est inactif
+     * ou la position hors du réseau.
+     */
+    List<StadeEtDistance> calculer(BigDecimal latitude, BigDecimal longitude) {
+        List<StadeEtDistance> trajets = new ArrayList<>();
+        Arbres courants = arbres;
+        GrapheRoutier reseau = graphe;
+        if (courants == null || latitude == null || longitude == null) {
+            return trajets;
+        }
+        double lat = latitude.doubleValue();
+        double lon = longitude.doubleValue();
+
+        int noeud = reseau.noeudLePlusProche(lat, lon, ModeTransport.VOITURE, accesMaxMetres);
+        if (noeud >= 0) {
+            double acces = reseau.distanceMetres(lat, lon, noeud);
+            for (int s = 0; s < courants.stades.taille(); s++) {
+                float[] couts = courants.coutsVoiture[s];
+                if (couts == null || Float.isInfinite(couts[noeud])) {
+                    continue;
+                }
+                double approche = acces + courants.sortieVoiture[s];
+                double metres = courants.longueursVoiture[s][noeud] + approche;
+                double secondes = couts[noeud] + approche / vitesseAccesVoiture;
+                trajets.add(mesure(courants.stades.stade(s), metres, secondes, ModeTransport.VOITURE));
+            }
+        }
+
+        noeud = reseau.noeudLePlusProche(lat, lon, ModeTransport.MARCHE, accesMaxMetres);
+        if (noeud >= 0) {
+            double acces = reseau.distanceMetres(lat, lon, noeud);
+            for (int s = 0; s < courants.stades.taille(); s++) {
+                float[] longueurs = courants.longueursMarche[s];
+                if (longueurs == null || Float.isInfinite(longueurs[noeud])) {
+                    continue;
+                }
+                double metres = longueurs[noeud] + acces + courants.sortieMarche[s];
+                trajets.add(mesure(courants.stades.stade(s), metres, metres / vitesseMarche, ModeTransport.MARCHE));
+            }
+        }
+        return trajets;
+    }
+
+    private static StadeEtDistance mesure(Stade stade, double metres, double secondes, ModeTransport mode) {
+        return new StadeEtDistance(stade, StadeService.arrondirKm(metres / 1000),
+                (int) Math.max(1, Math.round(secondes / 60)), mode);
+    }
+}
@@ -38,6 +38,7 @@ public class PaiementService {
 
     private final PaiementRepository paiementRepository;
     private final ReservationRepository reservationRepository;
+    private final DisponibiliteService disponibiliteService;
     private final PayoutService payoutService;
     private final com.example.Impression.repositories.RibRepository ribRepository;
 
@@ -484,6 +485,7 @@ public class PaiementService {
             if (reservation.getStatut() == StatutReservation.CONFIRMEE) {
                 reservation.annuler("Paiement non effectué dans les délais");
                 reservationRepository.save(reservation);
+                disponibiliteService.statutModifie(reservation, true);
             }
         }
 
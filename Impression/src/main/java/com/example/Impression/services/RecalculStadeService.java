@@ -0,0 +1,205 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.RecalculStadeDTO;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.RecalculStade;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.RecalculStadeRepository;
+import com.example.Impression.repositories.StadeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Recalcul incrémental des distances après l'ajout, le déplacement ou le
+ * retrait d'un stade (demandé par StadeService). Seuls les couples
+ * (annonce, stade modifié) sont recalculés, tranche par tranche d'annonces :
+ * un nouveau stade coûte une mesure par annonce, sans toucher aux distances
+ * vers les autres stades. estLePlusProche est rétabli au passage.
+ *
+ * Chaque passage de la relève traite une tranche du recalcul réservé par
+ * cette instance : mesure hors transaction, puis écriture des distances et de
+ * l'avancement dans une même transaction. Si le stade est modifié à nouveau
+ * entre-temps, l'avancement est refusé, la tranche annulée et le parcours
+ * reprend du début.
+ */
+@Service
+@Slf4j
+public class RecalculStadeService {
+
+    private final RecalculStadeRepository recalculStadeRepository;
+    private final AnnonceRepository annonceRepository;
+    private final StadeRepository stadeRepository;
+    private final AnnonceStadeDistanceService annonceStadeDistanceService;
+    private final MoteurRoutageService moteurRoutageService;
+    private final TransactionTemplate transaction;
+
+    // Jeton de cette instance pour la réservation des recalculs
+    private final String proprietaire = UUID.randomUUID().toString();
+
+    @Value("${app.distances.recalcul-stades.taille-tranche:200}")
+    private int tailleTranche = 200;
+
+    @Value("${app.distances.recalcul-stades.tentatives-max:5}")
+    private int tentativesMax = 5;
+
+    @Value("${app.distances.recalcul-stades.reservation-max-minutes:10}")
+    private long reservationMaxMinutes = 10;
+
+    public RecalculStadeService(RecalculStadeRepository recalculStadeRepository,
+            AnnonceRepository annonceRepository, StadeRepository stadeRepository,
+            AnnonceStadeDistanceService annonceStadeDistanceService, MoteurRoutageService moteurRoutageService,
+            PlatformTransactionManager transactionManager) {
+        this.recalculStadeRepository = recalculStadeRepository;
+        this.annonceRepository = annonceRepository;
+        this.stadeRepository = stadeRepository;
+        this.annonceStadeDistanceService = annonceStadeDistanceService;
+        this.moteurRoutageService = moteurRoutageService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ========== AVANCEMENT ==========
+
+    public Optional<RecalculStadeDTO> avancement(UUID stadeId) {
+        return recalculStadeRepository.findByStadeId(stadeId).map(this::convertir);
+    }
+
+    public List<RecalculStadeDTO> derniers(int nombre) {
+        return recalculStadeRepository.findAllByOrderByDateDemandeDesc(PageRequest.of(0, nombre))
+                .stream()
+                .map(this::convertir)
+                .collect(Collectors.toList());
+    }
+
+    private RecalculStadeDTO convertir(RecalculStade recalcul) {
+        RecalculStadeDTO dto = new RecalculStadeDTO();
+        dto.setId(recalcul.getId());
+        dto.setStadeId(recalcul.getStadeId());
+        dto.setType(recalcul.getType());
+        dto.setStatut(recalcul.getStatut());
+        dto.setTotal(recalcul.getTotal());
+        dto.setTraitees(recalcul.getTraitees());
+        dto.setPourcentage(recalcul.getStatut() == StatutRecalculStade.TERMINE ? 100
+                : recalcul.getTotal() > 0
+                        ? (int) Math.min(99, recalcul.getTraitees() * 100 / recalcul.getTotal())
+                        : 0);
+        dto.setDateDemande(recalcul.getDateDemande());
+        dto.setDateFin(recalcul.getDateFin());
+        dto.setDernierMessage(recalcul.getDernierMessage());
+        return dto;
+    }
+
+    // ========== TRAITEMENT ==========
+
+    @Scheduled(fixedDelayString = "${app.distances.recalcul-stades.intervalle-ms:1000}", initialDelay = 15000)
+    public void relever() {
+        try {
+            traiterTranche();
+        } catch (Exception e) {
+            log.error("[Distances] Recalcul de stade interrompu: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Traite une tranche du recalcul réservé par cette instance (en réserve un
+     * au besoin).
+     *
+     * @return false s'il n'y avait rien à faire
+     */
+    boolean traiterTranche() {
+        RecalculStade recalcul = reserver();
+        if (recalcul == null) {
+            return false;
+        }
+        Optional<Stade> stade = stadeRepository.findById(recalcul.getStadeId());
+        TypeRecalculStade type = stade.isPresent() ? recalcul.getType() : TypeRecalculStade.RETRAIT;
+        if (recalcul.getCurseur() == null && type != TypeRecalculStade.RETRAIT) {
+            // Premier passage : arbres du moteur hors ligne à jour pour le stade
+            moteurRoutageService.verifierStades();
+        }
+
+        try {
+            List<Annonce> tranche = annonceRepository.findGeolocaliseesApres(recalcul.getCurseur(),
+                    PageRequest.of(0, tailleTranche));
+            if (tranche.isEmpty()) {
+                transaction.executeWithoutResult(status -> recalculStadeRepository.rendre(recalcul.getId(),
+                        proprietaire, StatutRecalculStade.TERMINE, recalcul.getTentatives(), null,
+                        LocalDateTime.now(), StatutRecalculStade.EN_COURS));
+                log.info("[Distances] Recalcul terminé pour le stade {} ({} annonce(s))", recalcul.getStadeId(),
+                        recalcul.getTraitees());
+                return true;
+            }
+
+            // Mesure hors transaction (appels réseau éventuels)
+            Map<UUID, List<StadeEtDistance>> mesures = type == TypeRecalculStade.RETRAIT
+                    ? Map.of()
+                    : annonceStadeDistanceService.mesurerVersStade(tranche, stade.get());
+
+            // Total compté au début de chaque passe
+            long total = recalcul.getTotal() > 0 ? recalcul.getTotal() : annonceRepository.countGeolocalisees();
+            UUID dernier = tranche.get(tranche.size() - 1).getId();
+            transaction.executeWithoutResult(status -> {
+                annonceStadeDistanceService.remplacerDistancesVersStade(tranche, recalcul.getStadeId(), mesures);
+                if (recalculStadeRepository.avancer(recalcul.getId(), proprietaire, dernier, tranche.size(), total,
+                        LocalDateTime.now(), StatutRecalculStade.EN_COURS) == 0) {
+                    // Stade modifié à nouveau ou recalcul repris : annuler la tranche
+                    status.setRollbackOnly();
+                }
+            });
+        } catch (RuntimeException e) {
+            echouer(recalcul, e);
+        }
+        return true;
+    }
+
+    // Recalcul déjà réservé par cette instance, sinon le plus ancien disponible
+    private RecalculStade reserver() {
+        return transaction.execute(status -> {
+            List<RecalculStade> enCours = recalculStadeRepository.findByProprietaireAndStatut(proprietaire,
+                    StatutRecalculStade.EN_COURS);
+            if (!enCours.isEmpty()) {
+                return enCours.get(0);
+            }
+            LocalDateTime maintenant = LocalDateTime.now();
+            LocalDateTime limite = maintenant.minusMinutes(reservationMaxMinutes);
+            for (UUID id : recalculStadeRepository.findIdsAReserver(StatutRecalculStade.EN_ATTENTE,
+                    StatutRecalculStade.EN_COURS, limite, PageRequest.of(0, 5))) {
+                if (recalculStadeRepository.reserver(id, proprietaire, maintenant, limite,
+                        StatutRecalculStade.EN_ATTENTE, StatutRecalculStade.EN_COURS) > 0) {
+                    return recalculStadeRepository.findById(id).orElse(null);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void echouer(RecalculStade recalcul, RuntimeException e) {
+        int tentatives = recalcul.getTentatives() + 1;
+        StatutRecalculStade statut = tentatives >= tentativesMax ? StatutRecalculStade.ECHEC
+                : StatutRecalculStade.EN_ATTENTE;
+        String message = e.getMessage() != null && e.getMessage().length() > 500
+                ? e.getMessage().substring(0, 500)
+                : e.getMessage();
+        log.warn("[Distances] Échec d'une tranche du recalcul du stade {} (tentative {}): {}",
+                recalcul.getStadeId(), tentatives, message);
+        transaction.executeWithoutResult(status -> recalculStadeRepository.rendre(recalcul.getId(), proprietaire,
+                statut, tentatives, message, statut == StatutRecalculStade.ECHEC ? LocalDateTime.now() : null,
+                StatutRecalculStade.EN_COURS));
+    }
+}
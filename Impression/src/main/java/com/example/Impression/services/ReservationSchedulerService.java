@@ -28,6 +28,7 @@ import java.util.List;
 public class ReservationSchedulerService {
 
     private final ReservationRepository reservationRepository;
+    private final DisponibiliteService disponibiliteService;
 
     /**
      * Tâche planifiée qui s'exécute toutes les heures
@@ -112,6 +113,7 @@ public class ReservationSchedulerService {
 
             reservation.terminer();
             reservationRepository.save(reservation);
+            disponibiliteService.statutModifie(reservation, true);
         }
 
         if (!reservationsATerminer.isEmpty()) {
@@ -123,6 +125,7 @@ public class ReservationSchedulerService {
      * Méthode de test pour déclencher manuellement la gestion automatique
      * Utile pour les tests et le debugging
      */
+    @Transactional
     public void declencherGestionManuelle() {
         log.info("Déclenchement manuel de la gestion automatique des statuts");
         gererTransitionsAutomatiques();
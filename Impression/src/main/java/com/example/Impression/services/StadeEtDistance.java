@@ -0,0 +1,28 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.ModeTransport;
+
+import java.math.BigDecimal;
+
+/**
+ * Mesure d'un trajet annonce → stade (distance en km, durée en minutes) pour
+ * un mode de transport, avant son enregistrement en AnnonceStadeDistance
+ */
+class StadeEtDistance {
+    public final Stade stade;
+    public final BigDecimal distance;
+    public final Integer dureeMinutes;
+    public final ModeTransport mode;
+
+    StadeEtDistance(Stade stade, BigDecimal distance, Integer dureeMinutes) {
+        this(stade, distance, dureeMinutes, ModeTransport.VOITURE);
+    }
+
+    StadeEtDistance(Stade stade, BigDecimal distance, Integer dureeMinutes, ModeTransport mode) {
+        this.stade = stade;
+        this.distance = distance;
+        this.dureeMinutes = dureeMinutes;
+        this.mode = mode;
+    }
+}
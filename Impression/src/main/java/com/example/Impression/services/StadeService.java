@@ -1,13 +1,22 @@
 package com.example.Impression.services;
 
+import com.example.Impression.entities.RecalculStade;
 import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import com.example.Impression.repositories.RecalculStadeRepository;
 import com.example.Impression.repositories.StadeRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,11 +24,24 @@ import java.util.ArrayList;
 
 @Service
 @Transactional
+@Slf4j
 public class StadeService {
 
     @Autowired
     private StadeRepository stadeRepository;
 
+    @Autowired
+    private DistanceCacheService distanceCacheService;
+
+    @Autowired
+    private RecalculStadeRepository recalculStadeRepository;
+
+    @Autowired
+    private IndexAutocompletionService indexAutocompletionService;
+
+    // Stades actifs en tableaux primitifs, remplacés en bloc (jamais modifiés)
+    private volatile StadeSnapshot snapshot;
+
     /**
      * Calcule la distance entre deux points géographiques en utilisant la formule
      * de Haversine
@@ -63,24 +85,16 @@ public class StadeService {
      * @return Le stade le plus proche avec sa distance
      */
     public StadeAvecDistance trouverStadeLePlusProche(BigDecimal latitude, BigDecimal longitude) {
-        List<Stade> stades = stadeRepository.findByEstActifTrue();
-
-        if (stades.isEmpty()) {
+        if (latitude == null || longitude == null) {
             return null;
         }
-
-        Stade stadeLePlusProche = null;
-        BigDecimal distanceMin = null;
-
-        for (Stade stade : stades) {
-            BigDecimal distance = calculerDistance(latitude, longitude, stade.getLatitude(), stade.getLongitude());
-            if (distance != null && (distanceMin == null || distance.compareTo(distanceMin) < 0)) {
-                distanceMin = distance;
-                stadeLePlusProche = stade;
-            }
+        StadeSnapshot stades = snapshot();
+        int index = stades.plusProche(latitude.doubleValue(), longitude.doubleValue());
+        if (index < 0) {
+            return null;
         }
-
-        return stadeLePlusProche != null ? new StadeAvecDistance(stadeLePlusProche, distanceMin) : null;
+        double distance = stades.distanceKm(latitude.doubleValue(), longitude.doubleValue(), index);
+        return new StadeAvecDistance(stades.stade(index), arrondirKm(distance));
     }
 
     /**
@@ -91,18 +105,15 @@ public class StadeService {
      * @return Liste de tous les stades avec leurs distances, triée par distance
      */
     public List<StadeAvecDistance> calculerDistancesAvecTousLesStades(BigDecimal latitude, BigDecimal longitude) {
-        List<Stade> stades = stadeRepository.findByEstActifTrue();
-        if (stades == null || stades.isEmpty()) {
-            // Fallback: utiliser tous les stades si aucun n'est marqué actif
-            stades = stadeRepository.findAll();
-        }
         List<StadeAvecDistance> stadesAvecDistances = new ArrayList<>();
-
-        for (Stade stade : stades) {
-            BigDecimal distance = calculerDistance(latitude, longitude, stade.getLatitude(), stade.getLongitude());
-            if (distance != null) {
-                stadesAvecDistances.add(new StadeAvecDistance(stade, distance));
-            }
+        if (latitude == null || longitude == null) {
+            return stadesAvecDistances;
+        }
+        StadeSnapshot stades = snapshot();
+        double[] distances = new double[stades.taille()];
+        stades.distancesKm(latitude.doubleValue(), longitude.doubleValue(), distances);
+        for (int j = 0; j < distances.length; j++) {
+            stadesAvecDistances.add(new StadeAvecDistance(stades.stade(j), arrondirKm(distances[j])));
         }
 
         // Trier par distance croissante
@@ -111,6 +122,66 @@ public class StadeService {
         return stadesAvecDistances;
     }
 
+    // Même arrondi que calculerDistance
+    static BigDecimal arrondirKm(double distanceKm) {
+        return BigDecimal.valueOf(distanceKm).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Photographie des stades actifs (tous les stades si aucun n'est marqué
+     * actif), chargée au premier usage puis rafraîchie périodiquement et après
+     * chaque modification de stade.
+     */
+    @Transactional(readOnly = true)
+    public StadeSnapshot snapshot() {
+        StadeSnapshot courant = snapshot;
+        if (courant == null) {
+            synchronized (this) {
+                courant = snapshot;
+                if (courant == null) {
+                    courant = chargerSnapshot();
+                    snapshot = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stades.snapshot.rafraichissement-ms:300000}", initialDelayString = "${app.stades.snapshot.rafraichissement-ms:300000}")
+    @Transactional(readOnly = true)
+    public void rafraichirSnapshot() {
+        try {
+            snapshot = chargerSnapshot();
+        } catch (Exception e) {
+            log.error("[Stades] Échec du rafraîchissement du snapshot: {}", e.getMessage(), e);
+        }
+    }
+
+    private StadeSnapshot chargerSnapshot() {
+        List<Stade> stades = stadeRepository.findByEstActifTrue();
+        if (stades == null || stades.isEmpty()) {
+            // Fallback: utiliser tous les stades si aucun n'est marqué actif
+            stades = stadeRepository.findAll();
+        }
+        StadeSnapshot nouveau = StadeSnapshot.de(stades);
+        log.debug("[Stades] Snapshot chargé: {} stade(s)", nouveau.taille());
+        return nouveau;
+    }
+
+    // Oublier le snapshot une fois la modification visible des autres transactions
+    private void invaliderSnapshot() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    snapshot = null;
+                }
+            });
+        } else {
+            snapshot = null;
+        }
+    }
+
     /**
      * Récupère tous les stades actifs
      */
@@ -133,10 +204,60 @@ public class StadeService {
     }
 
     /**
-     * Sauvegarde un stade
+     * Sauvegarde un stade. Un ajout, un déplacement ou un retrait (désactivation)
+     * programme le recalcul des distances vers ce stade seulement
+     * (RecalculStadeService).
      */
     public Stade sauvegarderStade(Stade stade) {
-        return stadeRepository.save(stade);
+        StadeSnapshot avant = snapshot();
+        int index = -1;
+        if (stade.getId() != null) {
+            // Les mesures en cache ne valent plus si le stade a été déplacé
+            distanceCacheService.invaliderStade(stade.getId());
+            index = avant.indexDe(stade.getId());
+        }
+        Stade sauvegarde = stadeRepository.save(stade);
+        TypeRecalculStade type = typeRecalcul(avant, index, sauvegarde);
+        if (type != null) {
+            planifierRecalcul(sauvegarde.getId(), type);
+        }
+        invaliderSnapshot();
+        indexAutocompletionService.stadeModifie(sauvegarde);
+        return sauvegarde;
+    }
+
+    public List<Stade> sauvegarderStades(List<Stade> stades) {
+        List<Stade> sauvegardes = new ArrayList<>(stades.size());
+        for (Stade stade : stades) {
+            sauvegardes.add(sauvegarderStade(stade));
+        }
+        return sauvegardes;
+    }
+
+    // Changement visible des annonces, d'après la photographie précédente
+    static TypeRecalculStade typeRecalcul(StadeSnapshot avant, int index, Stade stade) {
+        boolean actif = stade.isEstActif() && stade.getLatitude() != null && stade.getLongitude() != null;
+        if (index < 0) {
+            return actif ? TypeRecalculStade.AJOUT : null;
+        }
+        if (!actif) {
+            return TypeRecalculStade.RETRAIT;
+        }
+        return avant.memePosition(index, stade) ? null : TypeRecalculStade.DEPLACEMENT;
+    }
+
+    // Au plus un recalcul par stade : une nouvelle modification le relance
+    private void planifierRecalcul(UUID stadeId, TypeRecalculStade type) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        if (recalculStadeRepository.relancer(stadeId, type, maintenant, StatutRecalculStade.EN_ATTENTE) == 0) {
+            RecalculStade recalcul = new RecalculStade();
+            recalcul.setStadeId(stadeId);
+            recalcul.setType(type);
+            recalcul.setStatut(StatutRecalculStade.EN_ATTENTE);
+            recalcul.setDateDemande(maintenant);
+            recalculStadeRepository.save(recalcul);
+        }
+        log.info("[Stades] Recalcul des distances programmé pour le stade {} ({})", stadeId, type);
     }
 
     /**
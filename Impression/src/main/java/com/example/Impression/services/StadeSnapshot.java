@@ -0,0 +1,180 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Photographie immuable des stades géolocalisés, stockée en tableaux
+ * primitifs : latitudes et longitudes en radians et cosinus des latitudes
+ * précalculés. Le noyau Haversine parcourt ces tableaux sans allouer ni
+ * convertir de BigDecimal, pour une origine ou pour des milliers d'origines
+ * d'un coup (recalculs en lot). Les tableaux de sortie sont fournis par
+ * l'appelant.
+ *
+ * Une instance n'est jamais modifiée : StadeService en publie une nouvelle à
+ * chaque rafraîchissement.
+ */
+public final class StadeSnapshot {
+
+    static final double RAYON_TERRE_KM = 6371.0;
+
+    private final List<Stade> stades;
+    private final double[] latitudesRad;
+    private final double[] longitudesRad;
+    private final double[] cosLatitudes;
+    private final Instant dateCreation;
+
+    private StadeSnapshot(List<Stade> stades) {
+        this.stades = Collections.unmodifiableList(stades);
+        int n = stades.size();
+        this.latitudesRad = new double[n];
+        this.longitudesRad = new double[n];
+        this.cosLatitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            Stade stade = stades.get(i);
+            latitudesRad[i] = Math.toRadians(stade.getLatitude().doubleValue());
+            longitudesRad[i] = Math.toRadians(stade.getLongitude().doubleValue());
+            cosLatitudes[i] = Math.cos(latitudesRad[i]);
+        }
+        this.dateCreation = Instant.now();
+    }
+
+    // Les stades sans coordonnées sont écartés
+    public static StadeSnapshot de(List<Stade> stades) {
+        List<Stade> geolocalises = new ArrayList<>(stades.size());
+        for (Stade stade : stades) {
+            if (stade.getLatitude() != null && stade.getLongitude() != null) {
+                geolocalises.add(stade);
+            }
+        }
+        return new StadeSnapshot(geolocalises);
+    }
+
+    public int taille() {
+        return latitudesRad.length;
+    }
+
+    public boolean estVide() {
+        return latitudesRad.length == 0;
+    }
+
+    public Stade stade(int index) {
+        return stades.get(index);
+    }
+
+    public List<Stade> stades() {
+        return stades;
+    }
+
+    public Instant getDateCreation() {
+        return dateCreation;
+    }
+
+    // Indice d'un stade, -1 s'il n'est pas dans le snapshot
+    public int indexDe(UUID stadeId) {
+        for (int i = 0; i < stades.size(); i++) {
+            if (stades.get(i).getId().equals(stadeId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Le stade d'indice donné était-il à cette position ?
+    public boolean memePosition(int index, Stade stade) {
+        return stade.getLatitude() != null && stade.getLongitude() != null
+                && latitudesRad[index] == Math.toRadians(stade.getLatitude().doubleValue())
+                && longitudesRad[index] == Math.toRadians(stade.getLongitude().doubleValue());
+    }
+
+    // Mêmes stades aux mêmes positions (un rechargement sans changement)
+    public boolean memesPositions(StadeSnapshot autre) {
+        if (autre == null || autre.taille() != taille()) {
+            return false;
+        }
+        for (int i = 0; i < taille(); i++) {
+            if (!Objects.equals(stades.get(i).getId(), autre.stades.get(i).getId())
+                    || latitudesRad[i] != autre.latitudesRad[i] || longitudesRad[i] != autre.longitudesRad[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Distances (km) d'une origine vers chaque stade, dans l'ordre du snapshot.
+     *
+     * @param sortie tableau d'au moins taille() cases
+     */
+    public void distancesKm(double latitude, double longitude, double[] sortie) {
+        double latRad = Math.toRadians(latitude);
+        double lonRad = Math.toRadians(longitude);
+        double cosLat = Math.cos(latRad);
+        for (int j = 0; j < latitudesRad.length; j++) {
+            sortie[j] = versKm(haversine(latRad, lonRad, cosLat, j));
+        }
+    }
+
+    /**
+     * Distances (km) de plusieurs origines vers chaque stade. La ligne de
+     * l'origine i occupe sortie[i * taille() .. (i + 1) * taille() - 1].
+     *
+     * @param sortie tableau d'au moins nbOrigines * taille() cases
+     */
+    public void distancesKm(double[] latitudes, double[] longitudes, int nbOrigines, double[] sortie) {
+        int n = latitudesRad.length;
+        for (int i = 0; i < nbOrigines; i++) {
+            double latRad = Math.toRadians(latitudes[i]);
+            double lonRad = Math.toRadians(longitudes[i]);
+            double cosLat = Math.cos(latRad);
+            int base = i * n;
+            for (int j = 0; j < n; j++) {
+                sortie[base + j] = versKm(haversine(latRad, lonRad, cosLat, j));
+            }
+        }
+    }
+
+    /**
+     * Indice du stade le plus proche, -1 si le snapshot est vide. La
+     * comparaison porte sur le terme intermédiaire de Haversine, croissant avec
+     * la distance : une seule conversion en km est nécessaire.
+     */
+    public int plusProche(double latitude, double longitude) {
+        double latRad = Math.toRadians(latitude);
+        double lonRad = Math.toRadians(longitude);
+        double cosLat = Math.cos(latRad);
+        int meilleur = -1;
+        double minimum = Double.MAX_VALUE;
+        for (int j = 0; j < latitudesRad.length; j++) {
+            double a = haversine(latRad, lonRad, cosLat, j);
+            if (a < minimum) {
+                minimum = a;
+                meilleur = j;
+            }
+        }
+        return meilleur;
+    }
+
+    // Distance (km) d'une origine au stade d'indice donné
+    public double distanceKm(double latitude, double longitude, int index) {
+        double latRad = Math.toRadians(latitude);
+        return versKm(haversine(latRad, Math.toRadians(longitude), Math.cos(latRad), index));
+    }
+
+    // Terme a de Haversine entre une origine et le stade j
+    private double haversine(double latRad, double lonRad, double cosLat, int j) {
+        double sinDeltaLat = Math.sin((latitudesRad[j] - latRad) / 2);
+        double sinDeltaLon = Math.sin((longitudesRad[j] - lonRad) / 2);
+        return sinDeltaLat * sinDeltaLat + cosLat * cosLatitudes[j] * sinDeltaLon * sinDeltaLon;
+    }
+
+    private static double versKm(double a) {
+        return RAYON_TERRE_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.Impression.config;
+
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EquipementsDataLoaderTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EquipementsDataLoader equipementsDataLoader;
+
+    @BeforeEach
+    void setUp() {
+        equipementsDataLoader = new EquipementsDataLoader(annonceRepository,
+                new TransactionTemplate(transactionManager));
+    }
+
+    @Test
+    void testRepartir_CatalogueEtTexteLibre() {
+        Equipement.Repartition repartition = Equipement.repartir(
+                List.of("wi-fi", "Clim", "Hammam", "hammam", " ", "PISCINE"));
+
+        assertEquals(Equipement.WIFI.masque() | Equipement.CLIMATISATION.masque() | Equipement.PISCINE.masque(),
+                repartition.masque());
+        assertEquals(List.of("Hammam"), repartition.libres());
+        assertEquals(List.of("WiFi", "Climatisation", "Piscine", "Hammam"),
+                Equipement.libelles(repartition.masque(), repartition.libres()));
+    }
+
+    @Test
+    void testRun_MarqueAussiLesAnnoncesSansEquipementReconnu() {
+        UUID reconnue = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID libresSeulement = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        List<Object[]> page = new ArrayList<>();
+        page.add(new Object[] { reconnue, List.of("WiFi", "Vue sur mer") });
+        page.add(new Object[] { libresSeulement, List.of("Hammam") });
+        when(annonceRepository.findEquipementsNonRepartisApres(isNull(), any(Pageable.class))).thenReturn(page);
+
+        equipementsDataLoader.run(null);
+
+        verify(annonceRepository).definirEquipements(reconnue, Equipement.WIFI.masque(), List.of("Vue sur mer"));
+        // Masque nul : l'annonce est tout de même marquée répartie pour ne plus être relue
+        verify(annonceRepository).definirEquipements(libresSeulement, 0L, List.of("Hammam"));
+        // Page incomplète : pas de seconde lecture
+        verify(annonceRepository, never()).findEquipementsNonRepartisApres(eq(libresSeulement), any(Pageable.class));
+    }
+
+    @Test
+    void testRun_RienAMigrer() {
+        when(annonceRepository.findEquipementsNonRepartisApres(isNull(), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        equipementsDataLoader.run(null);
+
+        verify(annonceRepository, never()).definirEquipements(any(), anyLong(), anyList());
+    }
+}
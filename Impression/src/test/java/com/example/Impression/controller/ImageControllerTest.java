@@ -0,0 +1,93 @@
+package com.example.Impression.controller;
+
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.services.ImageStockageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class ImageControllerTest {
+
+    private static final String HASH = "a".repeat(64);
+
+    @Mock
+    private ImageStockageService imageStockageService;
+
+    @InjectMocks
+    private ImageController imageController;
+
+    @TempDir
+    Path racine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path fichier = racine.resolve(HASH);
+        Files.write(fichier, "0123456789".getBytes());
+        ImageAsset asset = new ImageAsset();
+        asset.setHash(HASH);
+        asset.setTypeContenu("image/jpeg");
+        lenient().when(imageStockageService.trouver(HASH)).thenReturn(Optional.of(asset));
+        lenient().when(imageStockageService.chemin(asset)).thenReturn(fichier);
+    }
+
+    @Test
+    void testTelecharger_ContenuCompletAvecCachePermanent() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.telechargerImage(HASH, new MockHttpServletRequest("GET", "/api/images/" + HASH), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals("\"" + HASH + "\"", response.getHeader("ETag"));
+        assertTrue(response.getHeader("Cache-Control").contains("immutable"));
+    }
+
+    @Test
+    void testTelecharger_IfNoneMatchRenvoie304() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + HASH);
+        request.addHeader("If-None-Match", "\"" + HASH + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.telechargerImage(HASH, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void testTelecharger_PlagePartielle() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/images/" + HASH);
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        imageController.telechargerImage(HASH, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void testAnalyserPlage() {
+        assertArrayEquals(new long[] { 7, 9 }, ImageController.analyserPlage("bytes=-3", 10));
+        assertArrayEquals(new long[] { 4, 9 }, ImageController.analyserPlage("bytes=4-", 10));
+        assertArrayEquals(new long[] { 8, 9 }, ImageController.analyserPlage("bytes=8-100", 10));
+        assertNull(ImageController.analyserPlage("bytes=10-", 10));
+        assertEquals(0, ImageController.analyserPlage("bytes=0-1,4-5", 10).length);
+        assertEquals(0, ImageController.analyserPlage("items=0-1", 10).length);
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.Impression.repositories;
+
+import com.example.Impression.dto.AnnonceSummaryDTO;
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.AnnonceStadeDistance;
+import com.example.Impression.entities.Locateur;
+import com.example.Impression.entities.NuitReservee;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.enums.TypeMaison;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Requêtes de recherche d'AnnonceRepository sur une base H2 en mémoire
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class AnnonceRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AnnonceRepository annonceRepository;
+
+    private Locateur locateur;
+
+    private final LocalDate arrivee = LocalDate.of(2026, 7, 10);
+    private final LocalDate depart = LocalDate.of(2026, 7, 13);
+
+    @BeforeEach
+    void setUp() {
+        locateur = entityManager.persist(new Locateur("Alaoui", "Sara", "sara.alaoui@example.com", "hash"));
+    }
+
+    private Annonce annonce(String titre) {
+        Adresse adresse = new Adresse();
+        adresse.setRue("Rue Ibnou Mounir");
+        adresse.setCodePostal("20100");
+        adresse.setVille("Casablanca");
+        adresse.setPays("Maroc");
+        adresse.setLocateur(locateur);
+        entityManager.persist(adresse);
+
+        Annonce annonce = new Annonce();
+        annonce.setTitre(titre);
+        annonce.setAdresse(adresse);
+        annonce.setPrixParNuit(new BigDecimal("500.00"));
+        annonce.setCapacite(4);
+        annonce.setTypeMaison(TypeMaison.APPARTEMENT);
+        annonce.setLocateur(locateur);
+        return entityManager.persist(annonce);
+    }
+
+    private void reserver(Annonce annonce, LocalDate nuit) {
+        entityManager.persist(new NuitReservee(null, annonce.getId(), nuit, UUID.randomUUID()));
+    }
+
+    private Set<UUID> rechercher(LocalDate dateArrivee, LocalDate dateDepart, long equipementsMasque) {
+        entityManager.flush();
+        return annonceRepository.findPageCritereRechercheParDate(null, null, null, null, null, dateArrivee,
+                dateDepart, equipementsMasque, null, null, PageRequest.of(0, 10))
+                .stream()
+                .map(AnnonceSummaryDTO::getId)
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    void testRechercheParDates_ExclutLesAnnoncesAvecUneNuitReservee() {
+        Annonce libre = annonce("Libre");
+        Annonce occupee = annonce("Occupée la deuxième nuit");
+        Annonce reserveeLeJourDuDepart = annonce("Réservée à partir du départ");
+        Annonce reserveeLaVeille = annonce("Réservée jusqu'à l'arrivée");
+        reserver(occupee, arrivee.plusDays(1));
+        reserver(reserveeLeJourDuDepart, depart);
+        reserver(reserveeLaVeille, arrivee.minusDays(1));
+
+        // La nuit du départ n'appartient pas au séjour [arrivée, départ)
+        assertEquals(Set.of(libre.getId(), reserveeLeJourDuDepart.getId(), reserveeLaVeille.getId()),
+                rechercher(arrivee, depart, 0L));
+    }
+
+    @Test
+    void testRechercheSansDates_IgnoreLesNuitsReservees() {
+        Annonce libre = annonce("Libre");
+        Annonce occupee = annonce("Occupée");
+        reserver(occupee, arrivee);
+
+        assertEquals(Set.of(libre.getId(), occupee.getId()), rechercher(null, null, 0L));
+    }
+
+    @Test
+    void testRechercheParDates_AnnonceInactiveExclue() {
+        Annonce inactive = annonce("Inactive");
+        inactive.desactiver();
+
+        assertTrue(rechercher(arrivee, depart, 0L).isEmpty());
+    }
+
+    @Test
+    void testRechercheParEquipements_TousLesEquipementsDemandes() {
+        Annonce wifiEtParking = annonce("WiFi et parking");
+        wifiEtParking.definirEquipements(List.of("wifi", "Garage", "Hammam"));
+        Annonce wifi = annonce("WiFi");
+        wifi.definirEquipements(List.of("WiFi"));
+        Annonce sansEquipement = annonce("Sans équipement");
+
+        assertEquals(Set.of(wifiEtParking.getId()),
+                rechercher(null, null, Equipement.masque(List.of(Equipement.WIFI, Equipement.PARKING))));
+        assertEquals(Set.of(wifiEtParking.getId(), wifi.getId()),
+                rechercher(null, null, Equipement.WIFI.masque()));
+        assertEquals(Set.of(wifiEtParking.getId(), wifi.getId(), sansEquipement.getId()),
+                rechercher(null, null, 0L));
+    }
+
+    @Test
+    void testFindPageParStade_SeulementLeStadeLePlusProche() {
+        Stade mohammedV = entityManager.persist(new Stade("Stade Mohammed V", "Casablanca", "Bd Ziraoui",
+                new BigDecimal("33.582700"), new BigDecimal("-7.647000"), 45000));
+        Stade larbiZaouli = entityManager.persist(new Stade("Stade Larbi Zaouli", "Casablanca", "Hay Mohammadi",
+                new BigDecimal("33.590000"), new BigDecimal("-7.560000"), 30000));
+        Annonce procheMohammedV = annonce("Près de Mohammed V");
+        Annonce procheLarbiZaouli = annonce("Près de Larbi Zaouli");
+        entityManager.persist(new AnnonceStadeDistance(procheMohammedV, mohammedV, new BigDecimal("1.20"), 4,
+                ModeTransport.VOITURE, true));
+        entityManager.persist(new AnnonceStadeDistance(procheMohammedV, larbiZaouli, new BigDecimal("8.40"), 19,
+                ModeTransport.VOITURE, false));
+        entityManager.persist(new AnnonceStadeDistance(procheLarbiZaouli, larbiZaouli, new BigDecimal("0.90"), 3,
+                ModeTransport.VOITURE, true));
+        entityManager.persist(new AnnonceStadeDistance(procheLarbiZaouli, mohammedV, new BigDecimal("8.10"), 18,
+                ModeTransport.VOITURE, false));
+        entityManager.flush();
+
+        // Une ligne vers un stade qui n'est pas le plus proche ne compte pas (même résultat qu'en COMPACT)
+        assertEquals(List.of(procheMohammedV.getId()),
+                annonceRepository.findPageParStade("Mohammed", null, null, PageRequest.of(0, 10))
+                        .stream().map(AnnonceSummaryDTO::getId).toList());
+        assertEquals(List.of(procheLarbiZaouli.getId()),
+                annonceRepository.findPageParStade("Zaouli", null, null, PageRequest.of(0, 10))
+                        .stream().map(AnnonceSummaryDTO::getId).toList());
+    }
+
+    @Test
+    void testFindEquipementsNonRepartisApres_IgnoreLesAnnoncesMigrees() {
+        Annonce migree = annonce("Migrée sans équipement reconnu");
+        migree.definirEquipements(List.of("Hammam"));
+        Annonce ancienne = annonce("Antérieure au catalogue");
+        ancienne.setEquipements(List.of("WiFi", "Hammam"));
+        entityManager.flush();
+
+        List<Object[]> aMigrer = annonceRepository.findEquipementsNonRepartisApres(null, PageRequest.of(0, 10));
+
+        assertEquals(1, aMigrer.size());
+        assertEquals(ancienne.getId(), aMigrer.get(0)[0]);
+        assertEquals(List.of("WiFi", "Hammam"), aMigrer.get(0)[1]);
+
+        annonceRepository.definirEquipements(ancienne.getId(), Equipement.WIFI.masque(), List.of("Hammam"));
+        assertTrue(annonceRepository.findEquipementsNonRepartisApres(null, PageRequest.of(0, 10)).isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.AnnonceDTO;
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.AnnonceStadeDistance;
+import com.example.Impression.entities.Locateur;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.AnnonceStadeDistanceRepository;
+import com.example.Impression.repositories.StadeRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnnonceDTOAssembleurTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private AnnonceStadeDistanceRepository annonceStadeDistanceRepository;
+
+    @Mock
+    private StadeRepository stadeRepository;
+
+    @Mock
+    private AnnonceStadeDistanceService annonceStadeDistanceService;
+
+    @Mock
+    private ImageVariantesService imageVariantesService;
+
+    @Mock
+    private DistanceJobService distanceJobService;
+
+    @Mock
+    private StadeService stadeService;
+
+    @InjectMocks
+    private AnnonceDTOAssembleur annonceDTOAssembleur;
+
+    @Test
+    void testAssemblerParIds_NombreDeRequetesIndependantDeLaTaille() {
+        Locateur locateur = new Locateur();
+        locateur.setId(UUID.randomUUID());
+        Stade stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setNom("Stade Mohammed V");
+
+        List<Annonce> annonces = new ArrayList<>();
+        List<AnnonceStadeDistance> distances = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Annonce annonce = new Annonce();
+            annonce.setId(UUID.randomUUID());
+            annonce.setTitre("Annonce " + i);
+            annonce.setAdresse(new Adresse());
+            annonce.setLocateur(locateur);
+            annonces.add(annonce);
+            AnnonceStadeDistance distance = new AnnonceStadeDistance(annonce, stade, BigDecimal.ONE, 5,
+                    ModeTransport.VOITURE, true);
+            distances.add(distance);
+        }
+        List<UUID> ids = annonces.stream().map(Annonce::getId).toList();
+
+        // Le dépôt renvoie les annonces dans un ordre quelconque
+        List<Annonce> desordre = new ArrayList<>(annonces);
+        Collections.reverse(desordre);
+        when(annonceRepository.findAvecAdresseEtLocateurByIdIn(anyCollection())).thenReturn(desordre);
+        when(annonceStadeDistanceRepository.findAvecStadeByAnnonceIdIn(anyCollection())).thenReturn(distances);
+        when(stadeRepository.findAvecCategoriesByIdIn(anyCollection())).thenReturn(List.of(stade));
+
+        List<AnnonceDTO> dtos = annonceDTOAssembleur.assemblerParIds(ids);
+
+        assertEquals(ids, dtos.stream().map(AnnonceDTO::getId).toList());
+        assertTrue(dtos.stream().allMatch(d -> d.getStadeLePlusProche() != null
+                && "Stade Mohammed V".equals(d.getStadeLePlusProche().getStade().getNom())));
+        verify(annonceRepository, times(1)).findAvecAdresseEtLocateurByIdIn(anyCollection());
+        verify(annonceStadeDistanceRepository, times(1)).findAvecStadeByAnnonceIdIn(anyCollection());
+        verify(stadeRepository, times(1)).findAvecCategoriesByIdIn(anyCollection());
+        assertTrue(dtos.stream().noneMatch(AnnonceDTO::isDistancesPending));
+        verify(annonceStadeDistanceService, never()).estimerDistances(any(), any());
+    }
+
+    @Test
+    void testAssembler_CalculEnAttenteRenvoieDesEstimations() {
+        Locateur locateur = new Locateur();
+        locateur.setId(UUID.randomUUID());
+        Stade stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setNom("Stade Adrar");
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setAdresse(new Adresse());
+        annonce.setLocateur(locateur);
+        annonce.setLatitude(new BigDecimal("30.4278"));
+        annonce.setLongitude(new BigDecimal("-9.5981"));
+        AnnonceStadeDistance estimation = new AnnonceStadeDistance(annonce, stade, new BigDecimal("6.10"), 9,
+                ModeTransport.VOITURE, true);
+
+        when(annonceStadeDistanceRepository.findAvecStadeByAnnonceIdIn(anyCollection())).thenReturn(List.of());
+        when(distanceJobService.annoncesEnAttente(anyCollection())).thenReturn(Set.of(annonce.getId()));
+        StadeSnapshot snapshot = StadeSnapshot.de(List.of(stade));
+        when(stadeService.snapshot()).thenReturn(snapshot);
+        when(annonceStadeDistanceService.estimerDistances(annonce, snapshot)).thenReturn(List.of(estimation));
+        when(stadeRepository.findAvecCategoriesByIdIn(anyCollection())).thenReturn(List.of(stade));
+
+        AnnonceDTO dto = annonceDTOAssembleur.assembler(annonce);
+
+        assertTrue(dto.isDistancesPending());
+        assertEquals(new BigDecimal("6.10"), dto.getStadeLePlusProche().getDistance());
+        verify(annonceStadeDistanceService, never()).calculerEtSauvegarderDistances(any());
+    }
+}
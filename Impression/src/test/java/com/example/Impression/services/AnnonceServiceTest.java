@@ -0,0 +1,78 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.AnnonceSummaryDTO;
+import com.example.Impression.dto.PageCurseurDTO;
+import com.example.Impression.enums.TriAnnonce;
+import com.example.Impression.exception.AnnonceException;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnnonceServiceTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private ImageVariantesService imageVariantesService;
+
+    @InjectMocks
+    private AnnonceService annonceService;
+
+    private final LocalDate arrivee = LocalDate.of(2026, 7, 10);
+    private final LocalDate depart = LocalDate.of(2026, 7, 13);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(annonceService, "tailleDefaut", 20);
+        ReflectionTestUtils.setField(annonceService, "tailleMax", 100);
+    }
+
+    private PageCurseurDTO<AnnonceSummaryDTO> rechercher(LocalDate dateArrivee, LocalDate dateDepart) {
+        return annonceService.rechercherAnnoncesPage(null, null, null, null, null, dateArrivee, dateDepart, null,
+                TriAnnonce.DATE, null, 10);
+    }
+
+    @Test
+    void testRechercherAnnoncesPage_ArriveeSansDepartRefusee() {
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> rechercher(arrivee, null));
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> rechercher(null, depart));
+        verifyNoInteractions(annonceRepository);
+    }
+
+    @Test
+    void testRechercherAnnoncesPage_DepartAvantOuLeJourDeLArriveeRefuse() {
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> rechercher(arrivee, arrivee));
+        assertThrows(AnnonceException.AnnonceValidationException.class,
+                () -> rechercher(arrivee, arrivee.minusDays(1)));
+        verifyNoInteractions(annonceRepository);
+    }
+
+    @Test
+    void testRechercherAnnoncesPage_DatesTransmisesALaRequete() {
+        when(annonceRepository.findPageCritereRechercheParDate(isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(arrivee), eq(depart), anyLong(), isNull(), isNull(), any())).thenReturn(List.of());
+
+        PageCurseurDTO<AnnonceSummaryDTO> page = rechercher(arrivee, depart);
+
+        assertTrue(page.getElements().isEmpty());
+        assertFalse(page.isPageSuivante());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.Impression.services;
+
+import com.example.Impression.exception.AnnonceException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CurseurPaginationTest {
+
+    @Test
+    void testEncoderDecoder_AllerRetour() {
+        UUID id = UUID.randomUUID();
+        LocalDateTime date = LocalDateTime.of(2026, 5, 1, 12, 30);
+        String[] cles = CurseurPagination.decoder(CurseurPagination.encoder("DATE", date, id), "DATE", 2);
+
+        assertEquals(date, CurseurPagination.dateHeure(cles[0]));
+        assertEquals(id, CurseurPagination.identifiant(cles[1]));
+        assertNull(CurseurPagination.decoder(null, "DATE", 2));
+    }
+
+    @Test
+    void testDecoder_CurseurAltereRefuse() {
+        assertThrows(AnnonceException.AnnonceValidationException.class,
+                () -> CurseurPagination.decoder("%%%", "DATE", 2));
+        assertThrows(AnnonceException.AnnonceValidationException.class,
+                () -> CurseurPagination.decoder(CurseurPagination.encoder("PRIX", "1", "x"), "DATE", 2));
+
+        // Curseur bien formé mais valeurs de clés altérées
+        String[] cles = CurseurPagination.decoder(CurseurPagination.encoder("DATE", "hier", "pas-un-uuid"),
+                "DATE", 2);
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> CurseurPagination.dateHeure(cles[0]));
+        assertThrows(AnnonceException.AnnonceValidationException.class,
+                () -> CurseurPagination.identifiant(cles[1]));
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> CurseurPagination.decimal("12,5"));
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> CurseurPagination.reel("NaN"));
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> CurseurPagination.entier("3.5"));
+        assertEquals(new BigDecimal("300.50"), CurseurPagination.decimal("300.50"));
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.Reservation;
+import com.example.Impression.enums.StatutReservation;
+import com.example.Impression.exception.ReservationException;
+import com.example.Impression.repositories.NuitReserveeRepository;
+import com.example.Impression.repositories.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DisponibiliteServiceTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private NuitReserveeRepository nuitReserveeRepository;
+
+    private DisponibiliteService disponibiliteService;
+
+    private UUID annonceId;
+    private LocalDate aujourdHui;
+
+    @BeforeEach
+    void setUp() {
+        disponibiliteService = new DisponibiliteService(reservationRepository, nuitReserveeRepository, 365);
+        annonceId = UUID.randomUUID();
+        aujourdHui = LocalDate.now();
+    }
+
+    private void sejours(LocalDate... bornes) {
+        List<Object[]> lignes = new ArrayList<>();
+        for (int i = 0; i < bornes.length; i += 2) {
+            lignes.add(new Object[] { bornes[i], bornes[i + 1] });
+        }
+        when(reservationRepository.findSejoursActifs(eq(annonceId), any(), any())).thenReturn(lignes);
+    }
+
+    private Reservation reservation(StatutReservation statut, LocalDate arrivee, LocalDate depart) {
+        Annonce annonce = new Annonce();
+        annonce.setId(annonceId);
+        Reservation reservation = new Reservation();
+        reservation.setId(UUID.randomUUID());
+        reservation.setAnnonce(annonce);
+        reservation.setStatut(statut);
+        reservation.setDateArrivee(arrivee);
+        reservation.setDateDepart(depart);
+        return reservation;
+    }
+
+    @Test
+    void testEstDisponible_ChevauchementEtSejoursAdjacents() {
+        // Nuits occupées : J+10 à J+14, et J+70 (autre mot du bitmap)
+        sejours(aujourdHui.plusDays(10), aujourdHui.plusDays(15), aujourdHui.plusDays(70), aujourdHui.plusDays(71));
+
+        assertFalse(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(14), aujourdHui.plusDays(16)));
+        assertFalse(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(5), aujourdHui.plusDays(80)));
+        assertTrue(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(15), aujourdHui.plusDays(20)));
+        assertTrue(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(5), aujourdHui.plusDays(10)));
+        assertTrue(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(20), aujourdHui.plusDays(70)));
+
+        // Bitmap construit une seule fois, aucune requête de conflit
+        verify(reservationRepository, times(1)).findSejoursActifs(eq(annonceId), any(), any());
+        verify(reservationRepository, never()).existsConflitReservation(any(), any(), any());
+        assertEquals(1, disponibiliteService.taille());
+    }
+
+    @Test
+    void testEstDisponible_HorsHorizonParLaRequete() {
+        sejours();
+        when(reservationRepository.existsConflitReservation(any(), any(), any())).thenReturn(true);
+
+        assertFalse(disponibiliteService.estDisponible(annonceId, aujourdHui.plusDays(360), aujourdHui.plusDays(400)));
+        verify(reservationRepository).existsConflitReservation(annonceId, aujourdHui.plusDays(360),
+                aujourdHui.plusDays(400));
+    }
+
+    @Test
+    void testNuitsOccupees_DansLeBitmapEtAuDela() {
+        sejours(aujourdHui.plusDays(2), aujourdHui.plusDays(4));
+
+        BitSet nuits = disponibiliteService.nuitsOccupees(annonceId, aujourdHui.plusDays(1), aujourdHui.plusDays(6));
+        assertEquals("{1, 2}", nuits.toString());
+
+        // Fenêtre commençant avant le bitmap : construite par la requête
+        nuits = disponibiliteService.nuitsOccupees(annonceId, aujourdHui.minusDays(1), aujourdHui.plusDays(3));
+        assertEquals("{3}", nuits.toString());
+        verify(reservationRepository).findSejoursActifs(annonceId, aujourdHui.minusDays(1),
+                List.of(StatutReservation.CONFIRMEE, StatutReservation.EN_COURS));
+    }
+
+    @Test
+    void testDisponibilites_BitmapsEnMemoireEtUneRequetePourLesAutres() {
+        sejours(aujourdHui.plusDays(2), aujourdHui.plusDays(4));
+        LocalDate arrivee = aujourdHui.plusDays(3);
+        LocalDate depart = aujourdHui.plusDays(5);
+        assertTrue(disponibiliteService.estDisponible(annonceId, aujourdHui, aujourdHui.plusDays(1)));
+        UUID libre = UUID.randomUUID();
+        UUID occupee = UUID.randomUUID();
+        when(nuitReserveeRepository.findAnnoncesOccupees(List.of(libre, occupee), arrivee, depart))
+                .thenReturn(List.of(occupee));
+
+        Map<UUID, Boolean> disponibilites = disponibiliteService.disponibilites(List.of(annonceId, libre, occupee),
+                arrivee, depart);
+
+        assertEquals(List.of(annonceId, libre, occupee), List.copyOf(disponibilites.keySet()));
+        assertFalse(disponibilites.get(annonceId));
+        assertTrue(disponibilites.get(libre));
+        assertFalse(disponibilites.get(occupee));
+        assertEquals(1, disponibiliteService.taille());
+    }
+
+    @Test
+    void testStatutModifie_ConfirmationPuisAnnulation() {
+        sejours();
+        LocalDate arrivee = aujourdHui.plusDays(3);
+        LocalDate depart = aujourdHui.plusDays(6);
+        assertTrue(disponibiliteService.estDisponible(annonceId, arrivee, depart));
+
+        Reservation reservation = reservation(StatutReservation.CONFIRMEE, arrivee, depart);
+        disponibiliteService.statutModifie(reservation, false);
+        assertFalse(disponibiliteService.estDisponible(annonceId, arrivee.plusDays(1), depart.plusDays(1)));
+        verify(nuitReserveeRepository).saveAllAndFlush(argThat(nuits -> ((List<?>) nuits).size() == 3));
+
+        // L'annulation libère les nuits et oublie le bitmap : reconstruit depuis la base
+        reservation.annuler("Test");
+        disponibiliteService.statutModifie(reservation, true);
+        verify(nuitReserveeRepository).supprimerParReservation(reservation.getId());
+        assertEquals(0, disponibiliteService.taille());
+        assertTrue(disponibiliteService.estDisponible(annonceId, arrivee, depart));
+        verify(reservationRepository, times(2)).findSejoursActifs(eq(annonceId), any(), any());
+    }
+
+    @Test
+    void testStatutModifie_NuitDejaPrise() {
+        Reservation reservation = reservation(StatutReservation.CONFIRMEE, aujourdHui.plusDays(3),
+                aujourdHui.plusDays(6));
+        when(nuitReserveeRepository.saveAllAndFlush(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_nuit_reservee"));
+
+        assertThrows(ReservationException.class, () -> disponibiliteService.statutModifie(reservation, false));
+        assertEquals(0, disponibiliteService.taille());
+    }
+
+    @Test
+    void testVerifierCoherence_CorrigeUnBitmapDivergent() {
+        sejours();
+        LocalDate arrivee = aujourdHui.plusDays(3);
+        LocalDate depart = aujourdHui.plusDays(6);
+        assertTrue(disponibiliteService.estDisponible(annonceId, arrivee, depart));
+        assertEquals(0, disponibiliteService.verifierCoherence());
+
+        // Réservation confirmée par une autre instance
+        sejours(arrivee, depart);
+        assertEquals(1, disponibiliteService.verifierCoherence());
+        assertFalse(disponibiliteService.estDisponible(annonceId, arrivee, depart));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.DistanceCache;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.repositories.DistanceCacheRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DistanceCacheServiceTest {
+
+    @Mock
+    private DistanceCacheRepository distanceCacheRepository;
+
+    @Mock
+    private GoogleDistanceMatrixService googleDistanceMatrixService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DistanceCacheService distanceCacheService;
+
+    private Stade stade;
+
+    // Cellule de précision 7 des origines utilisées ci-dessous
+    private static final String CELLULE = Geohash.encoder(33.58290, -7.62000, 7);
+
+    @BeforeEach
+    void setUp() {
+        distanceCacheService = new DistanceCacheService(distanceCacheRepository, googleDistanceMatrixService,
+                transactionManager, meterRegistry, 100);
+        stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setNom("Stade Mohammed V");
+        lenient().when(googleDistanceMatrixService.isEnabled()).thenReturn(true);
+    }
+
+    private double compteur(String niveau) {
+        return meterRegistry.counter("distances.cache", "niveau", niveau).count();
+    }
+
+    @Test
+    void testGeohash_ValeurDeReference() {
+        assertEquals("u4pruydqqvj", Geohash.encoder(57.64911, 10.40744, 11));
+        double[] centre = Geohash.centre("u4pruydqqvj");
+        assertEquals(57.64911, centre[0], 1e-5);
+        assertEquals(10.40744, centre[1], 1e-5);
+    }
+
+    @Test
+    void testCalculer_AnnoncesVoisinesReutilisentLaMesure() {
+        when(distanceCacheRepository.findByGeohashInAndStadeIdIn(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(googleDistanceMatrixService.calculerMatrice(anyList(), anyList())).thenReturn(List.of(List.of(
+                new GoogleDistanceMatrixService.ResultatDistance(stade, new BigDecimal("4.20"), 11))));
+
+        // Deux annonces à une vingtaine de mètres l'une de l'autre
+        var premiere = distanceCacheService.calculerDistancesEtTemps(new BigDecimal("33.58290"),
+                new BigDecimal("-7.62000"), List.of(stade));
+        var seconde = distanceCacheService.calculerDistancesEtTemps(new BigDecimal("33.58300"),
+                new BigDecimal("-7.62010"), List.of(stade));
+
+        verify(googleDistanceMatrixService, times(1)).calculerMatrice(anyList(), anyList());
+        assertEquals(new BigDecimal("4.20"), premiere.get(0).getDistanceKm());
+        assertEquals(11, seconde.get(0).getDureeMinutes());
+        assertEquals(1, compteur("api"));
+        assertEquals(1, compteur("memoire"));
+        assertEquals(1, meterRegistry.counter("distances.api.appels").count());
+    }
+
+    @Test
+    void testCalculer_MesureEnBaseSansAppelApi() {
+        DistanceCache ligne = new DistanceCache(UUID.randomUUID(), CELLULE, stade.getId(), new BigDecimal("3.10"),
+                8, LocalDateTime.now().minusDays(1));
+        when(distanceCacheRepository.findByGeohashInAndStadeIdIn(anyCollection(), anyCollection())).thenReturn(List.of(ligne));
+
+        var resultats = distanceCacheService.calculerDistancesEtTemps(new BigDecimal("33.58290"),
+                new BigDecimal("-7.62000"), List.of(stade));
+
+        assertEquals(new BigDecimal("3.10"), resultats.get(0).getDistanceKm());
+        assertSame(stade, resultats.get(0).getStade());
+        assertEquals(1, compteur("base"));
+        verify(googleDistanceMatrixService, never()).calculerMatrice(anyList(), anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCalculer_MesureExpireeRemesureeEtMiseAJour() {
+        DistanceCache ligne = new DistanceCache(UUID.randomUUID(), CELLULE, stade.getId(), new BigDecimal("3.10"),
+                8, LocalDateTime.now().minusDays(90));
+        when(distanceCacheRepository.findByGeohashInAndStadeIdIn(anyCollection(), anyCollection())).thenReturn(List.of(ligne));
+        when(googleDistanceMatrixService.calculerMatrice(anyList(), anyList())).thenReturn(List.of(List.of(
+                new GoogleDistanceMatrixService.ResultatDistance(stade, new BigDecimal("3.40"), 9))));
+
+        var resultats = distanceCacheService.calculerDistancesEtTemps(new BigDecimal("33.58290"),
+                new BigDecimal("-7.62000"), List.of(stade));
+
+        assertEquals(new BigDecimal("3.40"), resultats.get(0).getDistanceKm());
+        ArgumentCaptor<List<DistanceCache>> captor = ArgumentCaptor.forClass(List.class);
+        verify(distanceCacheRepository).saveAll(captor.capture());
+        DistanceCache sauvegardee = captor.getValue().get(0);
+        assertEquals(ligne.getId(), sauvegardee.getId());
+        assertEquals(new BigDecimal("3.40"), sauvegardee.getDistance());
+        assertTrue(sauvegardee.getDateCalcul().isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCalculerMatrice_CellulesRegroupeesEnUnAppel() {
+        Stade autre = new Stade();
+        autre.setId(UUID.randomUUID());
+        when(distanceCacheRepository.findByGeohashInAndStadeIdIn(anyCollection(), anyCollection())).thenReturn(List.of());
+        when(googleDistanceMatrixService.calculerMatrice(anyList(), anyList())).thenAnswer(invocation -> {
+            List<GoogleDistanceMatrixService.Origine> centres = invocation.getArgument(0);
+            return centres.stream()
+                    .map(c -> List.of(new GoogleDistanceMatrixService.ResultatDistance(stade, BigDecimal.ONE, 2),
+                            new GoogleDistanceMatrixService.ResultatDistance(autre, BigDecimal.TEN, 15)))
+                    .toList();
+        });
+
+        // Trois annonces dont deux dans la même cellule
+        var resultats = distanceCacheService.calculerMatrice(List.of(
+                new GoogleDistanceMatrixService.Origine(new BigDecimal("33.58290"), new BigDecimal("-7.62000")),
+                new GoogleDistanceMatrixService.Origine(new BigDecimal("33.58300"), new BigDecimal("-7.62010")),
+                new GoogleDistanceMatrixService.Origine(new BigDecimal("34.02000"), new BigDecimal("-6.84000"))),
+                List.of(stade, autre));
+
+        ArgumentCaptor<List<GoogleDistanceMatrixService.Origine>> centres = ArgumentCaptor.forClass(List.class);
+        verify(googleDistanceMatrixService, times(1)).calculerMatrice(centres.capture(), anyList());
+        assertEquals(2, centres.getValue().size());
+        assertEquals(3, resultats.size());
+        assertTrue(resultats.stream().allMatch(r -> r.size() == 2));
+        assertEquals(4, compteur("api"));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.DistanceJob;
+import com.example.Impression.enums.StatutDistanceJob;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.DistanceJobRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DistanceJobServiceTest {
+
+    @Mock
+    private DistanceJobRepository distanceJobRepository;
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private AnnonceStadeDistanceService annonceStadeDistanceService;
+
+    @Mock
+    private ThreadPoolTaskExecutor distancesExecutor;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DistanceJobService distanceJobService;
+
+    private Annonce annonce;
+    private DistanceJob job;
+    private final List<StadeEtDistance> mesures = List.of(new StadeEtDistance(null, BigDecimal.ONE, 2));
+
+    @BeforeEach
+    void setUp() {
+        distanceJobService = new DistanceJobService(distanceJobRepository, annonceRepository,
+                annonceStadeDistanceService, distancesExecutor, transactionManager);
+        annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        job = new DistanceJob();
+        job.setId(UUID.randomUUID());
+        job.setAnnonceId(annonce.getId());
+        job.setStatut(StatutDistanceJob.EN_COURS);
+    }
+
+    private void reserverLeJob() {
+        when(distanceJobRepository.findIdsParStatut(eq(StatutDistanceJob.EN_ATTENTE), any()))
+                .thenReturn(List.of(job.getId()));
+        when(distanceJobRepository.findByProprietaireAndStatut(anyString(), eq(StatutDistanceJob.EN_COURS)))
+                .thenReturn(List.of(job));
+        when(annonceRepository.findAllById(List.of(annonce.getId()))).thenReturn(List.of(annonce));
+        when(annonceStadeDistanceService.mesurerDistances(List.of(annonce))).thenReturn(Map.of(annonce.getId(),
+                mesures));
+    }
+
+    @Test
+    void testPlanifier_NouvelleDemande() {
+        UUID annonceId = UUID.randomUUID();
+
+        distanceJobService.planifier(annonceId);
+
+        ArgumentCaptor<DistanceJob> captor = ArgumentCaptor.forClass(DistanceJob.class);
+        verify(distanceJobRepository).saveAndFlush(captor.capture());
+        assertEquals(annonceId, captor.getValue().getAnnonceId());
+        assertEquals(StatutDistanceJob.EN_ATTENTE, captor.getValue().getStatut());
+    }
+
+    @Test
+    void testPlanifier_DemandeEnCoursMarqueeARelancer() {
+        UUID annonceId = UUID.randomUUID();
+        when(distanceJobRepository.demanderRelance(annonceId, StatutDistanceJob.EN_COURS)).thenReturn(1);
+
+        distanceJobService.planifier(annonceId);
+
+        verify(distanceJobRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testTraiterLot_CalculePuisSupprimeLaDemande() {
+        reserverLeJob();
+        when(distanceJobRepository.supprimerTerminee(eq(job.getId()), anyString())).thenReturn(1);
+
+        assertEquals(1, distanceJobService.traiterLot());
+
+        verify(distanceJobRepository).reserver(eq(List.of(job.getId())), anyString(), any(),
+                eq(StatutDistanceJob.EN_ATTENTE), eq(StatutDistanceJob.EN_COURS));
+        verify(annonceStadeDistanceService).enregistrerDistances(annonce, mesures);
+        verify(distanceJobRepository, never()).rendre(any(), any(), any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void testTraiterLot_RelanceDemandeePendantLeCalcul() {
+        reserverLeJob();
+        when(distanceJobRepository.supprimerTerminee(eq(job.getId()), anyString())).thenReturn(0);
+
+        distanceJobService.traiterLot();
+
+        verify(distanceJobRepository).rendre(eq(job.getId()), anyString(), eq(StatutDistanceJob.EN_ATTENTE), eq(0),
+                isNull(), any());
+    }
+
+    @Test
+    void testTraiterLot_EchecCompteLesTentatives() {
+        reserverLeJob();
+        doThrow(new IllegalStateException("API indisponible")).when(annonceStadeDistanceService)
+                .enregistrerDistances(annonce, mesures);
+
+        distanceJobService.traiterLot();
+
+        verify(distanceJobRepository).rendre(eq(job.getId()), anyString(), eq(StatutDistanceJob.EN_ATTENTE), eq(1),
+                eq("API indisponible"), any());
+    }
+
+    @Test
+    void testTraiterLot_FileVide() {
+        when(distanceJobRepository.findIdsParStatut(eq(StatutDistanceJob.EN_ATTENTE), any())).thenReturn(List.of());
+
+        assertEquals(0, distanceJobService.traiterLot());
+
+        verify(distanceJobRepository, never()).reserver(any(), any(), any(), any(), any());
+    }
+}
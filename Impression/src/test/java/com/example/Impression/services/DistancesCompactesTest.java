@@ -0,0 +1,58 @@
+package com.example.Impression.services;
+
+import com.example.Impression.enums.ModeTransport;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistancesCompactesTest {
+
+    private final UUID stadeA = UUID.randomUUID();
+    private final UUID stadeB = UUID.randomUUID();
+
+    @Test
+    void testEcrireLire_AllerRetour() {
+        DistancesCompactes distances = new DistancesCompactes(1);
+        distances.ajouter(stadeA, new BigDecimal("12.40"), 18, ModeTransport.VOITURE);
+        distances.ajouter(stadeB, new BigDecimal("3.05"), 38, ModeTransport.MARCHE);
+        distances.ajouter(stadeB, new BigDecimal("4.10"), 9, ModeTransport.VOITURE);
+
+        byte[] donnees = distances.ecrire();
+        assertEquals(DistancesCompactes.ENTETE + 3 * DistancesCompactes.TAILLE_ENTREE, donnees.length);
+
+        DistancesCompactes lues = new DistancesCompactes();
+        lues.lire(donnees);
+        assertEquals(3, lues.nombre());
+        // Par distance croissante ; le plus proche est le premier trajet en voiture
+        assertEquals(new BigDecimal("3.05"), lues.distance(0));
+        assertEquals(ModeTransport.MARCHE, lues.mode(0));
+        assertEquals(1, lues.plusProche());
+        assertTrue(lues.estStade(1, stadeB));
+        assertEquals(9, lues.minutes(1));
+        assertEquals(stadeA, lues.stadeId(2));
+    }
+
+    @Test
+    void testRetirerStade_ChangeLePlusProche() {
+        DistancesCompactes distances = new DistancesCompactes();
+        distances.ajouter(stadeA, new BigDecimal("12.40"), 18, ModeTransport.VOITURE);
+        distances.ajouter(stadeB, new BigDecimal("4.10"), 9, ModeTransport.VOITURE);
+        distances.ajouter(stadeB, new BigDecimal("3.05"), 38, ModeTransport.MARCHE);
+        distances.lire(distances.ecrire());
+
+        assertEquals(2, distances.retirerStade(stadeB));
+        distances.lire(distances.ecrire());
+
+        assertEquals(1, distances.nombre());
+        assertEquals(0, distances.plusProche());
+        assertTrue(distances.estStade(0, stadeA));
+    }
+
+    @Test
+    void testLire_FormatInconnu() {
+        assertThrows(IllegalArgumentException.class, () -> new DistancesCompactes().lire(new byte[] { 9, 0, 0, 0 }));
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Client testé contre un serveur HTTP local qui imite l'API Distance Matrix :
+ * la distance renvoyée vaut la latitude de la destination x 1000 m.
+ */
+class GoogleDistanceMatrixServiceTest {
+
+    private HttpServer serveur;
+
+    // Dimensions (origines, destinations) de chaque requête reçue
+    private final List<int[]> requetes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicBoolean premiereReponsePartielle = new AtomicBoolean();
+
+    @BeforeEach
+    void demarrerServeur() throws Exception {
+        serveur = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serveur.createContext("/maps/api/distancematrix/json", echange -> {
+            Map<String, String> parametres = new HashMap<>();
+            for (String paire : echange.getRequestURI().getRawQuery().split("&")) {
+                String[] cleValeur = paire.split("=", 2);
+                parametres.put(cleValeur[0], URLDecoder.decode(cleValeur[1], StandardCharsets.UTF_8));
+            }
+            String[] origines = parametres.get("origins").split("\\|");
+            String[] destinations = parametres.get("destinations").split("\\|");
+            boolean partielle = premiereReponsePartielle.getAndSet(false);
+            requetes.add(new int[] { origines.length, destinations.length });
+
+            StringBuilder json = new StringBuilder("{\"status\":\"OK\",\"rows\":[");
+            for (int i = 0; i < origines.length; i++) {
+                json.append(i > 0 ? "," : "").append("{\"elements\":[");
+                for (int j = 0; j < destinations.length; j++) {
+                    json.append(j > 0 ? "," : "");
+                    if (partielle && i == 0 && j == 1) {
+                        json.append("{\"status\":\"UNKNOWN_ERROR\"}");
+                    } else {
+                        long metres = Math.round(Double.parseDouble(destinations[j].split(",")[0]) * 1000);
+                        json.append("{\"status\":\"OK\",\"distance\":{\"value\":").append(metres)
+                                .append("},\"duration\":{\"value\":600}}");
+                    }
+                }
+                json.append("]}");
+            }
+            json.append("]}");
+            byte[] corps = json.toString().getBytes(StandardCharsets.UTF_8);
+            echange.getResponseHeaders().add("Content-Type", "application/json");
+            echange.sendResponseHeaders(200, corps.length);
+            try (OutputStream sortie = echange.getResponseBody()) {
+                sortie.write(corps);
+            }
+        });
+        serveur.start();
+    }
+
+    @AfterEach
+    void arreterServeur() {
+        serveur.stop(0);
+    }
+
+    private GoogleDistanceMatrixService client(String cle) {
+        return new GoogleDistanceMatrixService(cle, "http://127.0.0.1:" + serveur.getAddress().getPort(), 1000,
+                2000, 1000, 100, 3, 1);
+    }
+
+    private static List<Stade> stades(int nombre) {
+        List<Stade> stades = new ArrayList<>();
+        for (int j = 0; j < nombre; j++) {
+            Stade stade = new Stade();
+            stade.setId(UUID.randomUUID());
+            stade.setLatitude(BigDecimal.valueOf(30 + j));
+            stade.setLongitude(BigDecimal.valueOf(-7));
+            stades.add(stade);
+        }
+        return stades;
+    }
+
+    private static List<GoogleDistanceMatrixService.Origine> origines(int nombre) {
+        List<GoogleDistanceMatrixService.Origine> origines = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            origines.add(new GoogleDistanceMatrixService.Origine(new BigDecimal("33.5").add(BigDecimal.valueOf(i)),
+                    new BigDecimal("-7.6")));
+        }
+        return origines;
+    }
+
+    @Test
+    void testCalculerMatrice_OriginesRegroupeesDansLaLimiteDElements() {
+        List<Stade> stades = stades(4);
+
+        List<List<GoogleDistanceMatrixService.ResultatDistance>> resultats = client("cle")
+                .calculerMatrice(origines(30), stades);
+
+        // 100 éléments max : 25 origines x 4 stades, puis 5 x 4
+        assertEquals(2, requetes.size());
+        assertArrayEquals(new int[] { 25, 4 }, requetes.get(0));
+        assertArrayEquals(new int[] { 5, 4 }, requetes.get(1));
+        assertEquals(30, resultats.size());
+        for (List<GoogleDistanceMatrixService.ResultatDistance> ligne : resultats) {
+            assertEquals(4, ligne.size());
+            for (GoogleDistanceMatrixService.ResultatDistance r : ligne) {
+                assertEquals(r.getStade().getLatitude().setScale(2), r.getDistanceKm());
+                assertEquals(10, r.getDureeMinutes());
+            }
+        }
+    }
+
+    @Test
+    void testCalculerMatrice_ElementEnEchecRedemandeSeul() {
+        premiereReponsePartielle.set(true);
+        List<Stade> stades = stades(3);
+
+        List<List<GoogleDistanceMatrixService.ResultatDistance>> resultats = client("cle")
+                .calculerMatrice(origines(2), stades);
+
+        assertEquals(2, requetes.size());
+        assertArrayEquals(new int[] { 1, 1 }, requetes.get(1));
+        assertEquals(3, resultats.get(0).size());
+        assertEquals(3, resultats.get(1).size());
+        assertTrue(resultats.get(0).stream().anyMatch(r -> r.getStade() == stades.get(1)));
+    }
+
+    @Test
+    void testCalculerMatrice_SansCleAucunAppel() {
+        List<List<GoogleDistanceMatrixService.ResultatDistance>> resultats = client("")
+                .calculerMatrice(origines(2), stades(2));
+
+        assertTrue(requetes.isEmpty());
+        assertTrue(resultats.stream().allMatch(List::isEmpty));
+    }
+
+    @Test
+    void testLimiteurDebit_RafalePuisAttente() {
+        LimiteurDebit limiteur = new LimiteurDebit(10, 3);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> {
+            long debut = System.nanoTime();
+            for (int i = 0; i < 3; i++) {
+                limiteur.acquerir();
+            }
+            long rafale = System.nanoTime() - debut;
+            // Seau vide : le quatrième jeton arrive après 1 / 10 s
+            limiteur.acquerir();
+            long attente = System.nanoTime() - debut - rafale;
+            assertTrue(rafale < 50_000_000L, "rafale: " + rafale);
+            assertTrue(attente >= 80_000_000L, "attente: " + attente);
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.repositories.ImageAssetRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageStockageServiceTest {
+
+    @Mock
+    private ImageAssetRepository imageAssetRepository;
+
+    @InjectMocks
+    private ImageStockageService imageStockageService;
+
+    @TempDir
+    Path racine;
+
+    // En-tête PNG suivi de quelques octets quelconques
+    private final byte[] png = new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3, 4 };
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(imageStockageService, "repertoire", racine.toString());
+    }
+
+    @Test
+    void testStocker_AdresseParContenu() throws Exception {
+        when(imageAssetRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(imageAssetRepository.save(any(ImageAsset.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ImageAsset asset = imageStockageService.stocker(new ByteArrayInputStream(png));
+
+        String attendu = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png));
+        assertEquals(attendu, asset.getHash());
+        assertEquals("image/png", asset.getTypeContenu());
+        assertEquals(png.length, asset.getTaille());
+        Path fichier = imageStockageService.chemin(asset);
+        assertEquals(racine.resolve(attendu.substring(0, 2)).resolve(attendu.substring(2, 4)).resolve(attendu),
+                fichier);
+        assertArrayEquals(png, Files.readAllBytes(fichier));
+        try (var temporaires = Files.list(racine.resolve("tmp"))) {
+            assertEquals(0, temporaires.count());
+        }
+    }
+
+    @Test
+    void testStocker_ContenuDejaConnuNonDuplique() throws Exception {
+        when(imageAssetRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(imageAssetRepository.save(any(ImageAsset.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ImageAsset premier = imageStockageService.stocker(new ByteArrayInputStream(png));
+
+        when(imageAssetRepository.findById(premier.getHash())).thenReturn(Optional.of(premier));
+        ImageAsset second = imageStockageService.stocker(sortie -> sortie.write(png));
+
+        assertSame(premier, second);
+        verify(imageAssetRepository, times(1)).save(any(ImageAsset.class));
+    }
+
+    @Test
+    void testDetecterTypeContenu_Jpeg() throws Exception {
+        Path fichier = racine.resolve("photo");
+        Files.write(fichier, new byte[] { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0 });
+
+        assertEquals("image/jpeg", ImageStockageService.detecterTypeContenu(fichier));
+        verify(imageAssetRepository, never()).save(any());
+    }
+}
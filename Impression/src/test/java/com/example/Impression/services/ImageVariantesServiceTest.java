@@ -0,0 +1,244 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.ImageVariantesDTO;
+import com.example.Impression.entities.ImageAsset;
+import com.example.Impression.entities.ImageVariante;
+import com.example.Impression.enums.TailleImage;
+import com.example.Impression.repositories.ImageVarianteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImageVariantesServiceTest {
+
+    @Mock
+    private ImageVarianteRepository imageVarianteRepository;
+
+    @Mock
+    private ImageStockageService imageStockageService;
+
+    @InjectMocks
+    private ImageVariantesService imageVariantesService;
+
+    @TempDir
+    Path racine;
+
+    // Octets écrits dans le stockage, dans l'ordre des tailles
+    private final List<byte[]> stockes = new ArrayList<>();
+    private final List<ImageVariante> enregistrees = new ArrayList<>();
+    private int appelsStockage;
+    // Numéro de l'appel au stockage qui échoue (0 : aucun)
+    private int appelEnEchec;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(imageVariantesService, "qualite", 0.78f);
+    }
+
+    private ImageAsset source(int largeur, int hauteur) throws Exception {
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < largeur; x++) {
+            for (int y = 0; y < hauteur; y++) {
+                image.setRGB(x, y, 0xFF000000 | (x * 255 / largeur) << 16 | (y * 255 / hauteur) << 8);
+            }
+        }
+        Path fichier = racine.resolve("source.png");
+        ImageIO.write(image, "png", fichier.toFile());
+
+        ImageAsset asset = new ImageAsset();
+        asset.setHash("s".repeat(64));
+        asset.setTypeContenu("image/png");
+        when(imageStockageService.chemin(asset)).thenReturn(fichier);
+        when(imageStockageService.stocker(any(ImageStockageService.SourceImage.class))).thenAnswer(invocation -> {
+            if (++appelsStockage == appelEnEchec) {
+                throw new UncheckedIOException("Erreur lors du stockage de l'image", new IOException("Disque plein"));
+            }
+            ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+            invocation.<ImageStockageService.SourceImage>getArgument(0).ecrire(sortie);
+            stockes.add(sortie.toByteArray());
+            ImageAsset variante = new ImageAsset();
+            variante.setHash("v" + stockes.size());
+            variante.setTaille(sortie.size());
+            return variante;
+        });
+        when(imageVarianteRepository.save(any(ImageVariante.class))).thenAnswer(invocation -> {
+            enregistrees.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        return asset;
+    }
+
+    @Test
+    void testGenererVariantes_TroisTaillesJpegProportionnelles() throws Exception {
+        ImageAsset asset = source(2600, 1300);
+
+        List<ImageVariante> variantes = imageVariantesService.genererVariantes(asset);
+
+        assertEquals(TailleImage.values().length, variantes.size());
+        for (int i = 0; i < variantes.size(); i++) {
+            ImageVariante variante = variantes.get(i);
+            TailleImage taille = TailleImage.values()[i];
+            assertEquals(taille, variante.getTaille());
+            assertEquals(asset.getHash(), variante.getSourceHash());
+            assertEquals(taille.getLargeurMax(), variante.getLargeur());
+            assertEquals(taille.getLargeurMax() / 2, variante.getHauteur());
+
+            // Le contenu stocké est un JPEG décodable aux dimensions annoncées
+            byte[] octets = stockes.get(i);
+            assertEquals(0xFF, octets[0] & 0xFF);
+            assertEquals(0xD8, octets[1] & 0xFF);
+            BufferedImage relue = ImageIO.read(new ByteArrayInputStream(octets));
+            assertEquals(variante.getLargeur(), relue.getWidth());
+            assertEquals(variante.getOctets(), octets.length);
+        }
+    }
+
+    @Test
+    void testGenererVariantes_PetiteImageNonAgrandie() throws Exception {
+        ImageAsset asset = source(300, 200);
+
+        List<ImageVariante> variantes = imageVariantesService.genererVariantes(asset);
+
+        assertEquals(160, variantes.get(0).getLargeur());
+        assertEquals(300, variantes.get(1).getLargeur());
+        assertEquals(300, variantes.get(2).getLargeur());
+        assertEquals(200, variantes.get(2).getHauteur());
+    }
+
+    @Test
+    void testVariantesParImage_RepliSurOriginal() {
+        String avec = "a".repeat(64);
+        String sans = "b".repeat(64);
+        ImageVariante carte = new ImageVariante();
+        carte.setSourceHash(avec);
+        carte.setTaille(TailleImage.CARTE);
+        carte.setVarianteHash("c".repeat(64));
+        when(imageVarianteRepository.findBySourceHashIn(any())).thenReturn(List.of(carte));
+
+        Map<String, ImageVariantesDTO> resultat = imageVariantesService.variantesParImage(Set.of(avec, sans));
+
+        assertEquals("/api/images/" + "c".repeat(64), resultat.get(avec).getUrlCarte());
+        assertEquals("/api/images/" + avec, resultat.get(avec).getUrlMiniature());
+        assertEquals("/api/images/" + sans, resultat.get(sans).getUrlCarte());
+    }
+
+    @Test
+    void testGenererVariantes_FormatIllisibleMarqueEnBase() throws Exception {
+        Path fichier = racine.resolve("image.webp");
+        Files.write(fichier, "RIFF....WEBPVP8 ".getBytes());
+        ImageAsset asset = new ImageAsset();
+        asset.setHash("w".repeat(64));
+        asset.setTypeContenu("image/webp");
+        when(imageStockageService.chemin(asset)).thenReturn(fichier);
+
+        assertTrue(imageVariantesService.genererVariantes(asset).isEmpty());
+        verify(imageStockageService).marquerIllisible(asset);
+    }
+
+    @Test
+    void testPlanifier_FilePleineReplanifiable() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        ReflectionTestUtils.setField(imageVariantesService, "imageVariantesExecutor", executor);
+        CountDownLatch liberation = new CountDownLatch(1);
+        when(imageVarianteRepository.findTaillesBySourceHash(anyString())).thenAnswer(invocation -> {
+            liberation.await(5, TimeUnit.SECONDS);
+            return List.of(TailleImage.values());
+        });
+
+        // Une tâche en cours, une en file : la troisième est refusée
+        imageVariantesService.planifier(List.of("h1", "h2", "h3"));
+        liberation.countDown();
+        executor.getThreadPoolExecutor().shutdown();
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+        verify(imageVarianteRepository, never()).findTaillesBySourceHash("h3");
+
+        // L'image refusée n'est pas restée bloquée « en cours »
+        ThreadPoolTaskExecutor suivant = new ThreadPoolTaskExecutor();
+        suivant.initialize();
+        ReflectionTestUtils.setField(imageVariantesService, "imageVariantesExecutor", suivant);
+        imageVariantesService.planifier(List.of("h3"));
+        suivant.getThreadPoolExecutor().shutdown();
+        assertTrue(suivant.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+        verify(imageVarianteRepository, times(1)).findTaillesBySourceHash("h3");
+    }
+
+    @Test
+    void testBalayer_CompleteLesTaillesManquantesApresUnEchec() throws Exception {
+        ImageAsset asset = source(2600, 1300);
+        when(imageVarianteRepository.findTaillesBySourceHash(asset.getHash()))
+                .thenAnswer(invocation -> enregistrees.stream().map(ImageVariante::getTaille).toList());
+
+        // Le stockage de la taille CARTE échoue : seule la miniature est enregistrée
+        appelEnEchec = 2;
+        assertThrows(UncheckedIOException.class, () -> imageVariantesService.genererVariantes(asset));
+        assertEquals(List.of(TailleImage.MINIATURE), enregistrees.stream().map(ImageVariante::getTaille).toList());
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        ReflectionTestUtils.setField(imageVariantesService, "imageVariantesExecutor", executor);
+        when(imageVarianteRepository.findHashesVariantesIncompletes(eq((long) TailleImage.values().length), any()))
+                .thenReturn(List.of(asset.getHash()));
+        when(imageStockageService.trouver(asset.getHash())).thenReturn(Optional.of(asset));
+
+        imageVariantesService.balayer();
+        executor.getThreadPoolExecutor().shutdown();
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+
+        // Seules les tailles manquantes sont générées, la miniature n'est pas refaite
+        assertEquals(List.of(TailleImage.MINIATURE, TailleImage.CARTE, TailleImage.COMPLETE),
+                enregistrees.stream().map(ImageVariante::getTaille).toList());
+        assertEquals(3, stockes.size());
+    }
+
+    @Test
+    void testPlanifier_ImageIllisibleIgnoree() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.initialize();
+        ReflectionTestUtils.setField(imageVariantesService, "imageVariantesExecutor", executor);
+        ImageAsset asset = new ImageAsset();
+        asset.setHash("w".repeat(64));
+        asset.setIllisible(true);
+        when(imageStockageService.trouver(asset.getHash())).thenReturn(Optional.of(asset));
+
+        imageVariantesService.planifier(List.of(asset.getHash()));
+        executor.getThreadPoolExecutor().shutdown();
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+        verify(imageStockageService, never()).chemin(any());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.SuggestionDTO;
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.TypeSuggestion;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.AnnonceStadeDistanceRepository;
+import com.example.Impression.repositories.StadeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexAutocompletionServiceTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private StadeRepository stadeRepository;
+
+    @Mock
+    private AnnonceStadeDistanceRepository annonceStadeDistanceRepository;
+
+    private IndexAutocompletionService indexAutocompletionService;
+
+    private Stade stadeMohammedV;
+
+    @BeforeEach
+    void setUp() {
+        indexAutocompletionService = new IndexAutocompletionService(annonceRepository, stadeRepository,
+                annonceStadeDistanceRepository, new String[] { "Maârif|Casablanca", "Agdal|Rabat", "Agdal|Fès" });
+        stadeMohammedV = new Stade("Stade Mohammed V", "Casablanca", "Boulevard Zerktouni",
+                new BigDecimal("33.5292"), new BigDecimal("-7.4612"), 45000);
+        stadeMohammedV.setId(UUID.randomUUID());
+        List<Object[]> adresses = new ArrayList<>();
+        adresses.add(new Object[] { UUID.randomUUID(), "Casablanca", "Rue Ibnou Mounir, Maârif", null });
+        adresses.add(new Object[] { UUID.randomUUID(), "casablanca", "Boulevard d'Anfa", null });
+        adresses.add(new Object[] { UUID.randomUUID(), "Casablanca", "Rue 12", "Quartier Maarif" });
+        adresses.add(new Object[] { UUID.randomUUID(), "Rabat", "Avenue de France", "Agdal" });
+        adresses.add(new Object[] { UUID.randomUUID(), "Marrakech", "Guéliz", null });
+        when(annonceRepository.findAdressesAnnoncesActives()).thenReturn(adresses);
+        when(stadeRepository.findByEstActifTrue()).thenReturn(List.of(stadeMohammedV));
+        List<Object[]> parStade = new ArrayList<>();
+        parStade.add(new Object[] { stadeMohammedV.getId(), 2L });
+        when(annonceStadeDistanceRepository.compterAnnoncesActivesParStadeLePlusProche()).thenReturn(parStade);
+        indexAutocompletionService.recharger();
+    }
+
+    private List<String> libelles(List<SuggestionDTO> suggestions) {
+        return suggestions.stream().map(s -> s.getType() + " " + s.getLibelle() + " " + s.getPoids()).toList();
+    }
+
+    @Test
+    void testSuggerer_ParPopulariteSansAccentNiCasse() {
+        assertEquals(List.of("VILLE Casablanca 3"),
+                libelles(indexAutocompletionService.suggerer("CASA", null, 5)));
+        assertEquals(List.of("QUARTIER Maârif 2"), libelles(indexAutocompletionService.suggerer("maar", null, 5)));
+        // Début d'un mot quelconque du libellé
+        assertEquals(List.of("STADE Stade Mohammed V 2"),
+                libelles(indexAutocompletionService.suggerer("moham", null, 5)));
+        assertEquals(List.of("QUARTIER Agdal 1", "QUARTIER Agdal 0"),
+                libelles(indexAutocompletionService.suggerer("agd", null, 5)));
+        assertEquals(1, indexAutocompletionService.suggerer("a", null, 1).size());
+        assertTrue(indexAutocompletionService.suggerer("xyz", null, 5).isEmpty());
+        assertTrue(indexAutocompletionService.suggerer("  ", null, 5).isEmpty());
+    }
+
+    @Test
+    void testSuggerer_FiltreParType() {
+        List<SuggestionDTO> stades = indexAutocompletionService.suggerer("s", List.of(TypeSuggestion.STADE), 5);
+        assertEquals(List.of("STADE Stade Mohammed V 2"), libelles(stades));
+        assertEquals(stadeMohammedV.getId(), stades.get(0).getStadeId());
+        assertEquals(List.of("VILLE Marrakech 1"),
+                libelles(indexAutocompletionService.suggerer("m", List.of(TypeSuggestion.VILLE), 5)));
+    }
+
+    @Test
+    void testIndexerEtRetirer_MetAJourLaPopularite() {
+        Adresse adresse = new Adresse();
+        adresse.setVille("Tanger");
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setAdresse(adresse);
+        indexAutocompletionService.indexer(annonce);
+        assertEquals(List.of("VILLE Tanger 1"), libelles(indexAutocompletionService.suggerer("tan", null, 5)));
+
+        // Déménagement vers le quartier Agdal de Rabat
+        adresse.setVille("Rabat");
+        adresse.setRue("Rue d'Agdal");
+        indexAutocompletionService.indexer(annonce);
+        assertTrue(indexAutocompletionService.suggerer("tan", null, 5).isEmpty());
+        assertEquals(List.of("VILLE Rabat 2"), libelles(indexAutocompletionService.suggerer("rab", null, 5)));
+        assertEquals("QUARTIER Agdal 2", libelles(indexAutocompletionService.suggerer("agdal", null, 5)).get(0));
+
+        indexAutocompletionService.retirer(annonce.getId());
+        assertEquals(List.of("VILLE Rabat 1"), libelles(indexAutocompletionService.suggerer("rab", null, 5)));
+    }
+
+    @Test
+    void testIndexer_ChargeLIndexAvantLePremierComptage() {
+        IndexAutocompletionService nonCharge = new IndexAutocompletionService(annonceRepository, stadeRepository,
+                annonceStadeDistanceRepository, new String[] { "Maârif|Casablanca" });
+        Adresse adresse = new Adresse();
+        adresse.setVille("Casablanca");
+        adresse.setRue("Rue du Maârif");
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setAdresse(adresse);
+
+        nonCharge.indexer(annonce);
+
+        assertEquals(List.of("QUARTIER Maârif 3"), libelles(nonCharge.suggerer("maar", null, 5)));
+        nonCharge.retirer(annonce.getId());
+        assertEquals(List.of("QUARTIER Maârif 2"), libelles(nonCharge.suggerer("maar", null, 5)));
+    }
+
+    @Test
+    void testStadeModifie_RenommeEtDesactive() {
+        stadeMohammedV.setNom("Grand Stade de Casablanca");
+        indexAutocompletionService.stadeModifie(stadeMohammedV);
+        assertTrue(indexAutocompletionService.suggerer("mohammed", null, 5).isEmpty());
+        assertEquals(List.of("STADE Grand Stade de Casablanca 2"),
+                libelles(indexAutocompletionService.suggerer("grand", null, 5)));
+
+        stadeMohammedV.setEstActif(false);
+        indexAutocompletionService.stadeModifie(stadeMohammedV);
+        assertTrue(indexAutocompletionService.suggerer("grand", null, 5).isEmpty());
+        assertEquals(List.of("VILLE Casablanca 3"),
+                libelles(indexAutocompletionService.suggerer("casa", null, 5)));
+    }
+}
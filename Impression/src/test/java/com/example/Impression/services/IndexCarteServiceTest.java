@@ -0,0 +1,117 @@
+package com.example.Impression.services;
+
+import com.example.Impression.dto.CarteZoneDTO;
+import com.example.Impression.dto.GrappeDTO;
+import com.example.Impression.dto.MarqueurDTO;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexCarteServiceTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    private IndexCarteService indexCarteService;
+
+    private final UUID casaCentre = UUID.randomUUID();
+    private final UUID casaGare = UUID.randomUUID();
+    private final UUID casaAnfa = UUID.randomUUID();
+    private final UUID marrakech = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        indexCarteService = new IndexCarteService(annonceRepository);
+        List<Object[]> lignes = new ArrayList<>();
+        lignes.add(ligne(casaCentre, "33.5731", "-7.5898", 500, "Appartement centre"));
+        lignes.add(ligne(casaGare, "33.5740", "-7.5880", 300, "Studio gare"));
+        lignes.add(ligne(casaAnfa, "33.5890", "-7.6030", 800, "Villa Anfa"));
+        lignes.add(ligne(marrakech, "31.6295", "-7.9811", 400, "Riad médina"));
+        when(annonceRepository.findMarqueursAnnoncesActives()).thenReturn(lignes);
+        indexCarteService.recharger();
+    }
+
+    private static Object[] ligne(UUID id, String latitude, String longitude, int prix, String titre) {
+        return new Object[] { id, new BigDecimal(latitude), new BigDecimal(longitude), BigDecimal.valueOf(prix),
+                titre };
+    }
+
+    // Maroc entier
+    private CarteZoneDTO maroc(int zoom) {
+        return indexCarteService.carte(27.0, 36.0, -13.0, -1.0, zoom);
+    }
+
+    private List<String> grappes(CarteZoneDTO carte) {
+        return carte.getGrappes().stream().map(g -> g.getNombre() + "@" + g.getPrixMin().intValue()).toList();
+    }
+
+    @Test
+    void testCarte_GrappesSelonLeZoom() {
+        CarteZoneDTO carte = maroc(5);
+        assertEquals(List.of("3@300", "1@400"), grappes(carte));
+        assertEquals(4, carte.getTotal());
+        assertTrue(carte.getMarqueurs().isEmpty());
+        GrappeDTO casablanca = carte.getGrappes().get(0);
+        assertEquals((33.5731 + 33.5740 + 33.5890) / 3, casablanca.getLatitude(), 1e-9);
+        assertEquals((-7.5898 - 7.5880 - 7.6030) / 3, casablanca.getLongitude(), 1e-9);
+
+        assertEquals(List.of("4@300"), grappes(indexCarteService.carte(-85, 85, -180, 180, 0)));
+        // Anfa se détache du centre-ville ; à nombre égal, du nord au sud
+        assertEquals(List.of("2@300", "1@800", "1@400"), grappes(maroc(9)));
+    }
+
+    @Test
+    void testCarte_MarqueursAZoomEleve() {
+        CarteZoneDTO carte = indexCarteService.carte(33.5, 33.6, -7.65, -7.55, IndexCarteService.ZOOM_MARQUEURS);
+        assertTrue(carte.getGrappes().isEmpty());
+        assertEquals(3, carte.getTotal());
+        MarqueurDTO gare = carte.getMarqueurs().stream().filter(m -> m.getId().equals(casaGare)).findFirst()
+                .orElseThrow();
+        assertEquals("Studio gare", gare.getTitre());
+        assertEquals(0, BigDecimal.valueOf(300).compareTo(gare.getPrixParNuit()));
+
+        // Marqueurs strictement dans la zone
+        List<UUID> ids = indexCarteService.carte(33.5, 33.58, -7.65, -7.55, 17).getMarqueurs().stream()
+                .map(MarqueurDTO::getId).toList();
+        assertEquals(2, ids.size());
+        assertFalse(ids.contains(casaAnfa));
+    }
+
+    @Test
+    void testIndexerEtRetirer_RecalculeLesGrappes() {
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setLatitude(new BigDecimal("33.5800"));
+        annonce.setLongitude(new BigDecimal("-7.6000"));
+        annonce.setPrixParNuit(BigDecimal.valueOf(250));
+        indexCarteService.indexer(annonce);
+        assertEquals(List.of("4@250", "1@400"), grappes(maroc(5)));
+
+        // Hausse du prix : le minimum est recalculé
+        annonce.setPrixParNuit(BigDecimal.valueOf(900));
+        indexCarteService.indexer(annonce);
+        assertEquals(List.of("4@300", "1@400"), grappes(maroc(5)));
+
+        indexCarteService.retirer(casaGare);
+        annonce.setEstActive(false);
+        indexCarteService.indexer(annonce);
+        indexCarteService.retirer(marrakech);
+        assertEquals(2, indexCarteService.taille());
+        assertEquals(List.of("2@500"), grappes(maroc(5)));
+        assertEquals(List.of("1@800", "1@500"), grappes(maroc(9)));
+        assertEquals(List.of("2@500"), grappes(indexCarteService.carte(-85, 85, -180, 180, 0)));
+    }
+}
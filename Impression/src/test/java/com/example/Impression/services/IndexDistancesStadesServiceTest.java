@@ -0,0 +1,86 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.DistancesAnnonce;
+import com.example.Impression.enums.ModeTransport;
+import com.example.Impression.repositories.DistancesAnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexDistancesStadesServiceTest {
+
+    @Mock
+    private DistancesAnnonceRepository distancesAnnonceRepository;
+
+    private IndexDistancesStadesService index;
+
+    private final UUID stade = UUID.randomUUID();
+    private final List<UUID> annonces = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        index = new IndexDistancesStadesService(distancesAnnonceRepository);
+        // Annonce i à i km et 2 * i minutes du stade en voiture
+        List<DistancesAnnonce> lignes = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            UUID annonce = UUID.randomUUID();
+            annonces.add(annonce);
+            lignes.add(new DistancesAnnonce(annonce, donnees(BigDecimal.valueOf(i), 2 * i), null));
+        }
+        when(distancesAnnonceRepository.findApres(isNull(), any())).thenReturn(lignes);
+        index.recharger();
+    }
+
+    private byte[] donnees(BigDecimal distance, int minutes) {
+        DistancesCompactes distances = new DistancesCompactes();
+        distances.ajouter(stade, distance, minutes, ModeTransport.VOITURE);
+        return distances.ecrire();
+    }
+
+    @Test
+    void testAnnoncesProches_TrieesEtComptees() {
+        assertEquals(annonces.subList(0, 3), index.annoncesProches(stade, 3.0));
+        assertEquals(3, index.compterAnnoncesProches(stade, 3.5));
+        assertEquals(0, index.compterAnnoncesProches(UUID.randomUUID(), 100));
+    }
+
+    @Test
+    void testMettreAJour_DeplaceLAnnonce() {
+        index.mettreAJour(annonces.get(9), donnees(new BigDecimal("0.50"), 1));
+
+        assertEquals(annonces.get(9), index.annoncesProches(stade, 1.0).get(0));
+        assertEquals(10, index.compterAnnoncesProches(stade, 10));
+
+        index.retirer(annonces.get(9));
+        assertEquals(9, index.compterAnnoncesProches(stade, 10));
+    }
+
+    @Test
+    void testTrajetsParTemps_PaginationParCurseur() {
+        List<IndexDistancesStadesService.TrajetIndexe> premiere = index.trajetsParTemps(stade,
+                ModeTransport.VOITURE, 12, null, null, 4);
+        assertEquals(4, premiere.size());
+        IndexDistancesStadesService.TrajetIndexe dernier = premiere.get(3);
+        assertEquals(8, dernier.minutes());
+
+        List<IndexDistancesStadesService.TrajetIndexe> suivante = index.trajetsParTemps(stade,
+                ModeTransport.VOITURE, 12, dernier.minutes(), dernier.annonceId(), 4);
+        assertEquals(List.of(annonces.get(4), annonces.get(5)), suivante.stream()
+                .map(IndexDistancesStadesService.TrajetIndexe::annonceId)
+                .toList());
+        assertTrue(index.trajetsParTemps(stade, ModeTransport.MARCHE, 90, null, null, 4).isEmpty());
+    }
+}
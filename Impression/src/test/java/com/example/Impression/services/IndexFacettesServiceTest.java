@@ -0,0 +1,231 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.enums.Facette;
+import com.example.Impression.enums.TriAnnonce;
+import com.example.Impression.enums.TypeMaison;
+import com.example.Impression.exception.AnnonceException;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexFacettesServiceTest {
+
+    private static final String[] VILLES = { "Casablanca", "Rabat", "Marrakech" };
+    private static final String[] EQUIPEMENTS = { "WiFi", "Piscine", "Climatisation" };
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    private IndexFacettesService indexFacettesService;
+
+    private List<Object[]> annonces;
+
+    @BeforeEach
+    void setUp() {
+        indexFacettesService = new IndexFacettesService(annonceRepository, new int[] { 300, 600 },
+                new int[] { 2, 4 });
+        Random random = new Random(7);
+        annonces = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < 300; i++) {
+            List<String> equipements = new ArrayList<>();
+            for (String e : EQUIPEMENTS) {
+                if (random.nextBoolean()) {
+                    equipements.add(e);
+                }
+            }
+            annonces.add(new Object[] { UUID.randomUUID(),
+                    TypeMaison.values()[random.nextInt(TypeMaison.values().length)],
+                    VILLES[random.nextInt(VILLES.length)], BigDecimal.valueOf(100 + random.nextInt(900)),
+                    1 + random.nextInt(8), equipements, date.plusHours(random.nextInt(50)), 0L });
+        }
+        when(annonceRepository.findFacettesAnnoncesActives()).thenReturn(annonces);
+        indexFacettesService.recharger();
+    }
+
+    private static Map<Facette, Collection<String>> selection(Object... facetteEtValeurs) {
+        Map<Facette, Collection<String>> selection = new EnumMap<>(Facette.class);
+        for (int i = 0; i < facetteEtValeurs.length; i += 2) {
+            selection.put((Facette) facetteEtValeurs[i], List.of(((String) facetteEtValeurs[i + 1]).split(",")));
+        }
+        return selection;
+    }
+
+    private long compter(String ville, String equipement, TypeMaison type) {
+        return annonces.stream()
+                .filter(a -> ville == null || a[2].equals(ville))
+                .filter(a -> equipement == null || ((List<?>) a[5]).contains(equipement))
+                .filter(a -> type == null || a[1] == type)
+                .count();
+    }
+
+    @Test
+    void testRechercher_ComptesIdentiquesAuFiltrageComplet() {
+        TypeMaison type = TypeMaison.values()[0];
+        IndexFacettesService.Resultat resultat = indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.VILLE, "rabat", Facette.EQUIPEMENT, "wifi")), TriAnnonce.DATE, null, null, 10);
+
+        assertEquals(compter("Rabat", "WiFi", null), resultat.total());
+        // La facette VILLE ignore sa propre sélection
+        for (String ville : VILLES) {
+            assertEquals(compter(ville, "WiFi", null),
+                    resultat.facettes().get(Facette.VILLE).getOrDefault(ville, 0).longValue());
+        }
+        assertEquals(compter("Rabat", "WiFi", type),
+                resultat.facettes().get(Facette.TYPE_MAISON).getOrDefault(type.name(), 0).longValue());
+        // Équipements cumulatifs : WiFi seul compte tout le résultat
+        assertEquals(resultat.total(), resultat.facettes().get(Facette.EQUIPEMENT).get("WiFi"));
+    }
+
+    @Test
+    void testRechercher_PagesParCurseurSansTrouNiDoublon() {
+        Map<Facette, Collection<String>> selection = selection(Facette.PRIX, "0-300,301-600");
+        IndexFacettesService.Resultat complet = indexFacettesService.rechercher(
+                new IndexFacettesService.Criteres(selection), TriAnnonce.PRIX, null, null, 1000);
+        assertEquals(complet.total(), complet.ids().size());
+
+        List<UUID> pagine = new ArrayList<>();
+        String cle = null;
+        UUID id = null;
+        IndexFacettesService.Resultat page;
+        do {
+            page = indexFacettesService.rechercher(new IndexFacettesService.Criteres(selection), TriAnnonce.PRIX,
+                    cle, id, 25);
+            pagine.addAll(page.ids());
+            if (!page.ids().isEmpty()) {
+                cle = page.clesTri().get(page.ids().size() - 1);
+                id = page.ids().get(page.ids().size() - 1);
+            }
+        } while (page.ids().size() == 25);
+
+        assertEquals(complet.ids(), pagine);
+        for (int i = 1; i < complet.clesTri().size(); i++) {
+            assertTrue(new BigDecimal(complet.clesTri().get(i - 1))
+                    .compareTo(new BigDecimal(complet.clesTri().get(i))) <= 0);
+            assertTrue(new BigDecimal(complet.clesTri().get(i)).intValue() <= 600);
+        }
+    }
+
+    @Test
+    void testRechercher_CurseurAltereRefuse() {
+        IndexFacettesService.Criteres criteres = new IndexFacettesService.Criteres(selection());
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> indexFacettesService
+                .rechercher(criteres, TriAnnonce.PRIX, "trois-cents", UUID.randomUUID(), 10));
+        assertThrows(AnnonceException.AnnonceValidationException.class, () -> indexFacettesService
+                .rechercher(criteres, TriAnnonce.DATE, "2026-13-45T00:00", UUID.randomUUID(), 10));
+    }
+
+    @Test
+    void testIndexerEtRetirer() {
+        Adresse adresse = new Adresse();
+        adresse.setVille("Fès");
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setAdresse(adresse);
+        annonce.setTypeMaison(TypeMaison.values()[0]);
+        annonce.setPrixParNuit(BigDecimal.valueOf(2500));
+        annonce.setCapacite(3);
+        annonce.setEquipements(List.of("Jacuzzi"));
+        annonce.setDateCreation(LocalDateTime.of(2026, 1, 1, 0, 0));
+        indexFacettesService.indexer(annonce);
+
+        IndexFacettesService.Resultat resultat = indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.VILLE, "fes")), TriAnnonce.DATE, null, null, 10);
+        assertEquals(List.of(annonce.getId()), resultat.ids());
+        assertEquals(Map.of("601+", 1), resultat.facettes().get(Facette.PRIX));
+        assertEquals(Map.of("3-4", 1), resultat.facettes().get(Facette.CAPACITE));
+
+        annonce.setEstActive(false);
+        indexFacettesService.indexer(annonce);
+        assertEquals(300, indexFacettesService.taille());
+        assertEquals(0, indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.EQUIPEMENT, "jacuzzi")), TriAnnonce.DATE, null, null, 10).total());
+    }
+
+    @Test
+    void testIndexer_EquipementsDuCatalogueEtLibres() {
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setPrixParNuit(BigDecimal.valueOf(400));
+        annonce.definirEquipements(List.of("wi-fi", "Clim", "Hammam", "hammam"));
+        assertEquals(Equipement.WIFI.masque() | Equipement.CLIMATISATION.masque(), annonce.getEquipementsMasque());
+        assertEquals(List.of("Hammam"), annonce.getEquipements());
+        assertEquals(List.of("WiFi", "Climatisation", "Hammam"), annonce.listeEquipements());
+
+        indexFacettesService.indexer(annonce);
+        IndexFacettesService.Resultat resultat = indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.EQUIPEMENT, "WIFI,climatisation,hammam")), TriAnnonce.PRIX, null, null, 10);
+        assertEquals(List.of(annonce.getId()), resultat.ids());
+    }
+
+    @Test
+    void testIndexer_PrixDecimalALaBorneDeTranche() {
+        for (String prix : new String[] { "300.00", "300.50" }) {
+            Adresse adresse = new Adresse();
+            adresse.setVille("Ifrane");
+            Annonce annonce = new Annonce();
+            annonce.setId(UUID.randomUUID());
+            annonce.setAdresse(adresse);
+            annonce.setPrixParNuit(new BigDecimal(prix));
+            indexFacettesService.indexer(annonce);
+        }
+        IndexFacettesService.Resultat resultat = indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.VILLE, "ifrane")), TriAnnonce.PRIX, null, null, 10);
+        assertEquals(Map.of("0-300", 1, "301-600", 1), resultat.facettes().get(Facette.PRIX));
+        assertEquals(1, indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.VILLE, "ifrane", Facette.PRIX, "0-300")), TriAnnonce.PRIX, null, null, 10).total());
+    }
+
+    @Test
+    void testRecharger_MiseAJourPendantLaLectureConservee() {
+        Adresse adresse = new Adresse();
+        adresse.setVille("Tanger");
+        Annonce nouvelle = new Annonce();
+        nouvelle.setId(UUID.randomUUID());
+        nouvelle.setAdresse(adresse);
+        nouvelle.setPrixParNuit(BigDecimal.valueOf(450));
+        UUID retiree = (UUID) annonces.get(0)[0];
+        // L'image lue précède l'enregistrement de la nouvelle annonce et le retrait de la première
+        when(annonceRepository.findFacettesAnnoncesActives()).thenAnswer(invocation -> {
+            indexFacettesService.indexer(nouvelle);
+            indexFacettesService.retirer(retiree);
+            return annonces;
+        });
+
+        indexFacettesService.recharger();
+
+        assertEquals(300, indexFacettesService.taille());
+        assertEquals(List.of(nouvelle.getId()), indexFacettesService.rechercher(new IndexFacettesService.Criteres(
+                selection(Facette.VILLE, "tanger")), TriAnnonce.DATE, null, null, 10).ids());
+        assertFalse(indexFacettesService.rechercher(new IndexFacettesService.Criteres(selection()), TriAnnonce.DATE,
+                null, null, 1000).ids().contains(retiree));
+    }
+
+    @Test
+    void testTranche() {
+        int[] bornes = { 300, 600 };
+        assertEquals("0-300", IndexFacettesService.tranche(bornes, 300, 0));
+        assertEquals("301-600", IndexFacettesService.tranche(bornes, 301, 0));
+        assertEquals("601+", IndexFacettesService.tranche(bornes, 601, 0));
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexGeographiqueServiceTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @InjectMocks
+    private IndexGeographiqueService indexGeographiqueService;
+
+    private List<Object[]> coordonnees;
+
+    @BeforeEach
+    void setUp() {
+        // Nuage de points autour de Casablanca (~30 km)
+        Random random = new Random(42);
+        coordonnees = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            double lat = 33.45 + random.nextDouble() * 0.3;
+            double lon = -7.75 + random.nextDouble() * 0.3;
+            coordonnees.add(new Object[] { UUID.randomUUID(), BigDecimal.valueOf(lat), BigDecimal.valueOf(lon) });
+        }
+        when(annonceRepository.findCoordonneesAnnoncesActives()).thenReturn(coordonnees);
+        indexGeographiqueService.recharger();
+    }
+
+    @Test
+    void testPlusProchesVoisins_IdentiqueAuTriComplet() {
+        double lat = 33.5731;
+        double lon = -7.5898;
+
+        List<IndexGeographiqueService.ResultatProximite> resultats = indexGeographiqueService
+                .plusProchesVoisins(lat, lon, 10, null);
+
+        List<Object[]> attendus = new ArrayList<>(coordonnees);
+        attendus.sort(Comparator.comparingDouble(c -> IndexGeographiqueService.distanceKm(lat, lon,
+                ((BigDecimal) c[1]).doubleValue(), ((BigDecimal) c[2]).doubleValue())));
+
+        assertEquals(10, resultats.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(attendus.get(i)[0], resultats.get(i).annonceId());
+        }
+    }
+
+    @Test
+    void testPlusProchesVoisins_PagesParCurseurSansTrouNiDoublon() {
+        double lat = 33.5731;
+        double lon = -7.5898;
+
+        List<IndexGeographiqueService.ResultatProximite> complet = indexGeographiqueService
+                .plusProchesVoisins(lat, lon, 60, null);
+
+        List<IndexGeographiqueService.ResultatProximite> pagine = new ArrayList<>();
+        Double apresDistance = null;
+        UUID apresId = null;
+        for (int page = 0; page < 3; page++) {
+            List<IndexGeographiqueService.ResultatProximite> resultats = indexGeographiqueService
+                    .plusProchesVoisins(lat, lon, 20, null, apresDistance, apresId);
+            pagine.addAll(resultats);
+            IndexGeographiqueService.ResultatProximite dernier = resultats.get(resultats.size() - 1);
+            apresDistance = dernier.distanceKm();
+            apresId = dernier.annonceId();
+        }
+
+        assertEquals(complet, pagine);
+    }
+
+    @Test
+    void testRechercherDansRayon_RespecteLaDistance() {
+        double lat = 33.6;
+        double lon = -7.6;
+
+        List<IndexGeographiqueService.ResultatProximite> resultats = indexGeographiqueService
+                .rechercherDansRayon(lat, lon, 5.0);
+
+        long attendu = coordonnees.stream()
+                .filter(c -> IndexGeographiqueService.distanceKm(lat, lon, ((BigDecimal) c[1]).doubleValue(),
+                        ((BigDecimal) c[2]).doubleValue()) <= 5.0)
+                .count();
+        assertEquals(attendu, resultats.size());
+        assertTrue(resultats.stream().allMatch(r -> r.distanceKm() <= 5.0));
+    }
+
+    @Test
+    void testIndexerEtRetirer_MiseAJourIncrementale() {
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setEstActive(true);
+        annonce.setLatitude(new BigDecimal("35.7595"));
+        annonce.setLongitude(new BigDecimal("-5.8134"));
+
+        indexGeographiqueService.indexer(annonce);
+        assertEquals(annonce.getId(),
+                indexGeographiqueService.plusProchesVoisins(35.76, -5.81, 1, null).get(0).annonceId());
+
+        annonce.desactiver();
+        indexGeographiqueService.indexer(annonce);
+        assertTrue(indexGeographiqueService.rechercherDansZone(35.7, 35.8, -5.9, -5.7).isEmpty());
+    }
+
+    @Test
+    void testIndexer_ChargeLIndexAvantLaMiseAJour() {
+        IndexGeographiqueService nonCharge = new IndexGeographiqueService(annonceRepository);
+        Annonce annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        annonce.setLatitude(new BigDecimal("35.7595"));
+        annonce.setLongitude(new BigDecimal("-5.8134"));
+
+        // Index jamais chargé (échec au démarrage) : la mise à jour le charge d'abord
+        nonCharge.indexer(annonce);
+
+        assertEquals(coordonnees.size() + 1, nonCharge.taille());
+        verify(annonceRepository, times(2)).findCoordonneesAnnoncesActives();
+    }
+}
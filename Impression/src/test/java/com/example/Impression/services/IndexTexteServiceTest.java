@@ -0,0 +1,129 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Adresse;
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.enums.Equipement;
+import com.example.Impression.repositories.AnnonceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IndexTexteServiceTest {
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    private IndexTexteService indexTexteService;
+
+    private final UUID villaPiscine = UUID.randomUUID();
+    private final UUID riad = UUID.randomUUID();
+    private final UUID studio = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        indexTexteService = new IndexTexteService(annonceRepository);
+        List<Object[]> lignes = new ArrayList<>();
+        lignes.add(new Object[] { villaPiscine, "Villa avec piscine privée",
+                "Grande villa familiale, jardin et terrasse.", "Agadir", List.of(),
+                Equipement.PISCINE.masque() | Equipement.WIFI.masque() });
+        lignes.add(new Object[] { riad, "Riad traditionnel",
+                "Au cœur de la médina, à deux pas des piscines municipales. Petit-déjeuner <offert> & servi.",
+                "Marrakech", List.of("Climatisation"), 0L });
+        lignes.add(new Object[] { studio, "Studio meublé", "Proche du stade, climatisé.", "Rabat",
+                List.of("WiFi"), 0L });
+        when(annonceRepository.findTexteAnnoncesActives()).thenReturn(lignes);
+        indexTexteService.recharger();
+    }
+
+    private List<UUID> ids(List<IndexTexteService.Trouvee> trouvees) {
+        return trouvees.stream().map(IndexTexteService.Trouvee::annonceId).toList();
+    }
+
+    @Test
+    void testRechercher_TitreAvantDescriptionEtPlurielsRapproches() {
+        List<IndexTexteService.Trouvee> trouvees = indexTexteService.rechercher("PISCINES", null, null, 10);
+
+        assertEquals(List.of(villaPiscine, riad), ids(trouvees));
+        assertTrue(trouvees.get(0).score() > trouvees.get(1).score());
+        assertEquals("Villa avec <mark>piscine</mark> privée", trouvees.get(0).surlignages().get("titre"));
+        assertEquals("WiFi, <mark>Piscine</mark>", trouvees.get(0).surlignages().get("equipements"));
+        // Description échappée en HTML, réduite à un extrait
+        String extrait = trouvees.get(1).surlignages().get("description");
+        assertTrue(extrait.contains("<mark>piscines</mark>"));
+        assertTrue(extrait.contains("&lt;offert&gt; &amp;"));
+    }
+
+    @Test
+    void testRechercher_AccentsEtFeminin() {
+        assertEquals(List.of(studio), ids(indexTexteService.rechercher("meuble climatisee", null, null, 10)));
+        assertEquals(List.of(riad), ids(indexTexteService.rechercher("Medina coeur", null, null, 10)));
+        assertTrue(indexTexteService.rechercher("de la avec", null, null, 10).isEmpty());
+    }
+
+    @Test
+    void testRechercher_GraphieArabe() {
+        assertEquals(List.of(riad), ids(indexTexteService.rechercher("مراكش", null, null, 10)));
+        List<IndexTexteService.Trouvee> trouvees = indexTexteService.rechercher("الرباط", null, null, 10);
+        assertEquals(List.of(studio), ids(trouvees));
+        assertEquals("<mark>Rabat</mark>", trouvees.get(0).surlignages().get("ville"));
+    }
+
+    @Test
+    void testRechercher_PagesParCurseur() {
+        List<IndexTexteService.Trouvee> complet = indexTexteService.rechercher("wifi piscine climatisation", null,
+                null, 10);
+        assertEquals(3, complet.size());
+
+        List<IndexTexteService.Trouvee> premiere = indexTexteService.rechercher("wifi piscine climatisation", null,
+                null, 2);
+        IndexTexteService.Trouvee derniere = premiere.get(1);
+        List<IndexTexteService.Trouvee> seconde = indexTexteService.rechercher("wifi piscine climatisation",
+                derniere.score(), derniere.annonceId(), 2);
+
+        List<UUID> pagine = new ArrayList<>(ids(premiere));
+        pagine.addAll(ids(seconde));
+        assertEquals(ids(complet), pagine);
+    }
+
+    @Test
+    void testIndexerEtRetirer() {
+        Adresse adresse = new Adresse();
+        adresse.setVille("Fès");
+        Annonce annonce = new Annonce();
+        annonce.setId(riad);
+        annonce.setTitre("Dar avec hammam");
+        annonce.setDescription("Maison d'hôtes.");
+        annonce.setAdresse(adresse);
+        indexTexteService.indexer(annonce);
+
+        assertEquals(3, indexTexteService.taille());
+        assertTrue(indexTexteService.rechercher("riad", null, null, 10).isEmpty());
+        assertEquals(List.of(riad), ids(indexTexteService.rechercher("hammam fes", null, null, 10)));
+
+        annonce.setEstActive(false);
+        indexTexteService.indexer(annonce);
+        assertEquals(2, indexTexteService.taille());
+        assertTrue(indexTexteService.rechercher("hammam", null, null, 10).isEmpty());
+    }
+
+    @Test
+    void testAnalyseur_RacinesEtSquelettes() {
+        assertEquals("cheval", AnalyseurTexte.racine("chevaux"));
+        assertEquals(AnalyseurTexte.racine("sportif"), AnalyseurTexte.racine("sportive"));
+        assertEquals(AnalyseurTexte.racine("parisien"), AnalyseurTexte.racine("parisiennes"));
+        assertEquals(AnalyseurTexte.squelette("chefchaouen"),
+                AnalyseurTexte.squelette(AnalyseurTexte.translitterer("شفشاون")));
+        assertEquals(AnalyseurTexte.squelette("ouarzazate"),
+                AnalyseurTexte.squelette(AnalyseurTexte.translitterer("ورزازات")));
+    }
+}
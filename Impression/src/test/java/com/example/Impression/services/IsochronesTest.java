@@ -0,0 +1,27 @@
+package com.example.Impression.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsochronesTest {
+
+    @Test
+    void bande_borneHauteIncluse() {
+        assertEquals(10, Isochrones.bande(0));
+        assertEquals(10, Isochrones.bande(10));
+        assertEquals(20, Isochrones.bande(11));
+        assertEquals(45, Isochrones.bande(31));
+        assertEquals(90, Isochrones.bande(90));
+        assertNull(Isochrones.bande(91));
+        assertNull(Isochrones.bande(null));
+    }
+
+    @Test
+    void bandeCouvrante_contientToutLeBudget() {
+        assertEquals(20, Isochrones.bandeCouvrante(15));
+        assertEquals(30, Isochrones.bandeCouvrante(30));
+        assertEquals(90, Isochrones.bandeCouvrante(Isochrones.budgetMax()));
+        assertThrows(IllegalArgumentException.class, () -> Isochrones.bandeCouvrante(120));
+    }
+}
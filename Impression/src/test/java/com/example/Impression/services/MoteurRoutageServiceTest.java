@@ -0,0 +1,121 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.ModeTransport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+class MoteurRoutageServiceTest {
+
+    // 1 -- 2 : route à double sens et trottoir
+    // 2 -> 3 : sens unique pour les voitures, piétons dans les deux sens
+    // 3 -- 4 : chemin piéton
+    // 4 -- 1 : voie rapide interdite aux piétons
+    private static final String GRAPHE = """
+            # nœuds
+            N 1 33.50000 -7.60000
+            N 2 33.50000 -7.59000
+            N 3 33.50000 -7.58000
+            N 4 33.51000 -7.58000
+            # arcs
+            A 1 2 930 50 0 1
+            A 2 3 930 50 1 1
+            A 3 4 1110 0 0 1
+            A 4 1 2000 30 0 0
+            """;
+
+    @Mock
+    private StadeService stadeService;
+
+    private Stade stadeEst;
+    private Stade stadeOuest;
+
+    @BeforeEach
+    void setUp() {
+        stadeEst = stade("Stade Est", "33.50000", "-7.58000");
+        stadeOuest = stade("Stade Ouest", "33.50000", "-7.60000");
+        lenient().when(stadeService.snapshot()).thenReturn(StadeSnapshot.de(List.of(stadeEst, stadeOuest)));
+    }
+
+    @Test
+    void calculer_tempsVoitureEtMarcheParLeReseau() throws Exception {
+        MoteurRoutageService moteur = moteur(120);
+
+        List<StadeEtDistance> trajets = moteur.calculer(new BigDecimal("33.50000"), new BigDecimal("-7.60000"));
+
+        StadeEtDistance voiture = trouver(trajets, stadeEst, ModeTransport.VOITURE);
+        assertEquals(new BigDecimal("1.86"), voiture.distance);
+        assertEquals(2, voiture.dureeMinutes); // 1860 m à 50 km/h
+        StadeEtDistance marche = trouver(trajets, stadeEst, ModeTransport.MARCHE);
+        assertEquals(new BigDecimal("1.86"), marche.distance);
+        assertEquals(23, marche.dureeMinutes); // 1860 m à 4,8 km/h
+    }
+
+    @Test
+    void calculer_respecteLesSensUniquesEtLesArcsPietons() throws Exception {
+        MoteurRoutageService moteur = moteur(120);
+
+        // Depuis le nœud 3, aucune voie n'autorise une voiture à repartir
+        List<StadeEtDistance> trajets = moteur.calculer(new BigDecimal("33.50000"), new BigDecimal("-7.58000"));
+
+        assertNull(trouver(trajets, stadeOuest, ModeTransport.VOITURE));
+        StadeEtDistance marche = trouver(trajets, stadeOuest, ModeTransport.MARCHE);
+        assertEquals(new BigDecimal("1.86"), marche.distance); // 3 -> 2 -> 1, pas par la voie rapide
+    }
+
+    @Test
+    void calculer_marcheBorneeParLaDureeMaximale() throws Exception {
+        MoteurRoutageService moteur = moteur(10);
+
+        List<StadeEtDistance> trajets = moteur.calculer(new BigDecimal("33.50000"), new BigDecimal("-7.60000"));
+
+        assertNotNull(trouver(trajets, stadeEst, ModeTransport.VOITURE));
+        assertNull(trouver(trajets, stadeEst, ModeTransport.MARCHE));
+    }
+
+    @Test
+    void calculer_inactifSansGraphe() {
+        MoteurRoutageService moteur = new MoteurRoutageService(stadeService, "", 4.8, 20, 1500, 120);
+
+        assertFalse(moteur.isEnabled());
+        assertTrue(moteur.calculer(new BigDecimal("33.5"), new BigDecimal("-7.6")).isEmpty());
+    }
+
+    private MoteurRoutageService moteur(int marcheMaxMinutes) throws Exception {
+        MoteurRoutageService moteur = new MoteurRoutageService(stadeService, "", 4.8, 20, 1500, marcheMaxMinutes);
+        moteur.charger(GrapheRoutier.lire(new BufferedReader(new StringReader(GRAPHE))));
+        assertTrue(moteur.isEnabled());
+        return moteur;
+    }
+
+    private static StadeEtDistance trouver(List<StadeEtDistance> trajets, Stade stade, ModeTransport mode) {
+        List<StadeEtDistance> trouves = trajets.stream()
+                .filter(t -> t.stade == stade && t.mode == mode)
+                .collect(Collectors.toList());
+        assertTrue(trouves.size() <= 1);
+        return trouves.isEmpty() ? null : trouves.get(0);
+    }
+
+    private static Stade stade(String nom, String latitude, String longitude) {
+        Stade stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setNom(nom);
+        stade.setLatitude(new BigDecimal(latitude));
+        stade.setLongitude(new BigDecimal(longitude));
+        return stade;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Annonce;
+import com.example.Impression.entities.RecalculStade;
+import com.example.Impression.entities.Stade;
+import com.example.Impression.enums.StatutRecalculStade;
+import com.example.Impression.enums.TypeRecalculStade;
+import com.example.Impression.repositories.AnnonceRepository;
+import com.example.Impression.repositories.RecalculStadeRepository;
+import com.example.Impression.repositories.StadeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RecalculStadeServiceTest {
+
+    @Mock
+    private RecalculStadeRepository recalculStadeRepository;
+
+    @Mock
+    private AnnonceRepository annonceRepository;
+
+    @Mock
+    private StadeRepository stadeRepository;
+
+    @Mock
+    private AnnonceStadeDistanceService annonceStadeDistanceService;
+
+    @Mock
+    private MoteurRoutageService moteurRoutageService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RecalculStadeService recalculStadeService;
+
+    private Stade stade;
+    private Annonce annonce;
+    private RecalculStade recalcul;
+
+    @BeforeEach
+    void setUp() {
+        recalculStadeService = new RecalculStadeService(recalculStadeRepository, annonceRepository, stadeRepository,
+                annonceStadeDistanceService, moteurRoutageService, transactionManager);
+        stade = stade(33.5, -7.6);
+        annonce = new Annonce();
+        annonce.setId(UUID.randomUUID());
+        recalcul = new RecalculStade();
+        recalcul.setId(UUID.randomUUID());
+        recalcul.setStadeId(stade.getId());
+        recalcul.setType(TypeRecalculStade.AJOUT);
+        recalcul.setStatut(StatutRecalculStade.EN_COURS);
+    }
+
+    private static Stade stade(double latitude, double longitude) {
+        Stade stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setLatitude(BigDecimal.valueOf(latitude));
+        stade.setLongitude(BigDecimal.valueOf(longitude));
+        return stade;
+    }
+
+    private void reserverLeRecalcul() {
+        when(recalculStadeRepository.findByProprietaireAndStatut(anyString(), eq(StatutRecalculStade.EN_COURS)))
+                .thenReturn(List.of(recalcul));
+    }
+
+    @Test
+    void testTraiterTranche_RienAFaire() {
+        assertFalse(recalculStadeService.traiterTranche());
+        verify(annonceRepository, never()).findGeolocaliseesApres(any(), any());
+    }
+
+    @Test
+    void testTraiterTranche_AjoutMesureVersLeSeulStade() {
+        reserverLeRecalcul();
+        when(stadeRepository.findById(stade.getId())).thenReturn(Optional.of(stade));
+        when(annonceRepository.findGeolocaliseesApres(isNull(), any())).thenReturn(List.of(annonce));
+        Map<UUID, List<StadeEtDistance>> mesures = Map.of(annonce.getId(),
+                List.of(new StadeEtDistance(stade, BigDecimal.ONE, 2)));
+        when(annonceStadeDistanceService.mesurerVersStade(List.of(annonce), stade)).thenReturn(mesures);
+        when(annonceRepository.countGeolocalisees()).thenReturn(1L);
+        when(recalculStadeRepository.avancer(eq(recalcul.getId()), anyString(), eq(annonce.getId()), eq(1), eq(1L),
+                any(), eq(StatutRecalculStade.EN_COURS))).thenReturn(1);
+
+        assertTrue(recalculStadeService.traiterTranche());
+
+        verify(moteurRoutageService).verifierStades();
+        verify(annonceStadeDistanceService).remplacerDistancesVersStade(List.of(annonce), stade.getId(), mesures);
+    }
+
+    @Test
+    void testTraiterTranche_StadeSupprimeTraiteCommeRetrait() {
+        reserverLeRecalcul();
+        when(stadeRepository.findById(stade.getId())).thenReturn(Optional.empty());
+        when(annonceRepository.findGeolocaliseesApres(isNull(), any())).thenReturn(List.of(annonce));
+        when(annonceRepository.countGeolocalisees()).thenReturn(1L);
+        when(recalculStadeRepository.avancer(any(), anyString(), any(), anyInt(), anyLong(), any(), any()))
+                .thenReturn(1);
+
+        recalculStadeService.traiterTranche();
+
+        verify(annonceStadeDistanceService, never()).mesurerVersStade(any(), any());
+        verify(moteurRoutageService, never()).verifierStades();
+        verify(annonceStadeDistanceService).remplacerDistancesVersStade(List.of(annonce), stade.getId(), Map.of());
+    }
+
+    @Test
+    void testTraiterTranche_FinDuParcours() {
+        recalcul.setCurseur(UUID.randomUUID());
+        reserverLeRecalcul();
+        when(stadeRepository.findById(stade.getId())).thenReturn(Optional.of(stade));
+        when(annonceRepository.findGeolocaliseesApres(eq(recalcul.getCurseur()), any())).thenReturn(List.of());
+
+        assertTrue(recalculStadeService.traiterTranche());
+
+        verify(recalculStadeRepository).rendre(eq(recalcul.getId()), anyString(), eq(StatutRecalculStade.TERMINE),
+                eq(0), isNull(), any(), eq(StatutRecalculStade.EN_COURS));
+        verify(annonceStadeDistanceService, never()).remplacerDistancesVersStade(any(), any(), any());
+    }
+
+    @Test
+    void testTypeRecalcul() {
+        StadeSnapshot avant = StadeSnapshot.de(List.of(stade));
+        Stade nouveau = stade(34.0, -6.8);
+
+        assertEquals(TypeRecalculStade.AJOUT, StadeService.typeRecalcul(avant, -1, nouveau));
+        assertNull(StadeService.typeRecalcul(avant, 0, stade));
+
+        Stade deplace = stade(33.6, -7.6);
+        deplace.setId(stade.getId());
+        assertEquals(TypeRecalculStade.DEPLACEMENT, StadeService.typeRecalcul(avant, 0, deplace));
+
+        deplace.setEstActif(false);
+        assertEquals(TypeRecalculStade.RETRAIT, StadeService.typeRecalcul(avant, 0, deplace));
+    }
+}
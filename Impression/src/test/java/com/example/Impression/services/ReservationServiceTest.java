@@ -3,7 +3,6 @@ package com.example.Impression.services;
 import com.example.Impression.dto.CreationReservationDTO;
 import com.example.Impression.entities.Annonce;
 import com.example.Impression.entities.Locataire;
-import com.example.Impression.entities.Reservation;
 import com.example.Impression.enums.ModePaiement;
 import com.example.Impression.enums.StatutReservation;
 import com.example.Impression.repositories.AnnonceRepository;
@@ -37,6 +36,9 @@ class ReservationServiceTest {
     @Mock
     private LocataireRepository locataireRepository;
 
+    @Mock
+    private DisponibiliteService disponibiliteService;
+
     @InjectMocks
     private ReservationService reservationService;
 
@@ -92,8 +94,7 @@ class ReservationServiceTest {
     void testCreerRecapitulatif_Success() {
         // Given
         when(annonceRepository.findById(annonceId)).thenReturn(Optional.of(annonce));
-        when(reservationRepository.findConflitsReservation(any(), any(), any()))
-                .thenReturn(java.util.Collections.emptyList());
+        when(disponibiliteService.estDisponible(any(), any(), any())).thenReturn(true);
 
         // When
         var recapitulatif = reservationService.creerRecapitulatif(creationDTO);
@@ -109,8 +110,7 @@ class ReservationServiceTest {
     @Test
     void testVerifierDisponibilite_Disponible() {
         // Given
-        when(reservationRepository.findConflitsReservation(any(), any(), any()))
-                .thenReturn(java.util.Collections.emptyList());
+        when(disponibiliteService.estDisponible(any(), any(), any())).thenReturn(true);
 
         // When
         boolean disponible = reservationService.verifierDisponibilite(annonceId, LocalDate.now().plusDays(1),
@@ -123,9 +123,7 @@ class ReservationServiceTest {
     @Test
     void testVerifierDisponibilite_NonDisponible() {
         // Given
-        Reservation reservationExistante = new Reservation();
-        when(reservationRepository.findConflitsReservation(any(), any(), any()))
-                .thenReturn(java.util.Arrays.asList(reservationExistante));
+        when(disponibiliteService.estDisponible(any(), any(), any())).thenReturn(false);
 
         // When
         boolean disponible = reservationService.verifierDisponibilite(annonceId, LocalDate.now().plusDays(1),
@@ -134,4 +132,32 @@ class ReservationServiceTest {
         // Then
         assertFalse(disponible);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCalendrierAnnonce_PeriodesFusionnees() {
+        // Given : nuits 0-1 et 2 (séjours adjacents), puis 5
+        LocalDate debut = LocalDate.of(2025, 6, 1);
+        java.util.BitSet nuits = new java.util.BitSet();
+        nuits.set(0, 3);
+        nuits.set(5);
+        when(disponibiliteService.nuitsOccupees(annonceId, debut, debut.plusDays(10))).thenReturn(nuits);
+
+        // When
+        var calendrier = reservationService.getCalendrierAnnonce(annonceId, debut, debut.plusDays(10), true);
+
+        // Then
+        assertEquals(2, calendrier.getPeriodes().size());
+        assertEquals(debut, calendrier.getPeriodes().get(0).getDateArrivee());
+        assertEquals(debut.plusDays(3), calendrier.getPeriodes().get(0).getDateDepart());
+        assertEquals(debut.plusDays(5), calendrier.getPeriodes().get(1).getDateArrivee());
+        assertEquals(debut.plusDays(6), calendrier.getPeriodes().get(1).getDateDepart());
+        assertEquals("Jw==", calendrier.getMasque());
+    }
+
+    @Test
+    void testGetCalendrierAnnonce_PeriodeInvalide() {
+        LocalDate debut = LocalDate.of(2025, 6, 1);
+        assertThrows(com.example.Impression.exception.ReservationException.class,
+                () -> reservationService.getCalendrierAnnonce(annonceId, debut, debut, false));
+    }
+}
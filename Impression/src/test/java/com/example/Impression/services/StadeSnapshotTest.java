@@ -0,0 +1,103 @@
+package com.example.Impression.services;
+
+import com.example.Impression.entities.Stade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StadeSnapshotTest {
+
+    private final StadeService stadeService = new StadeService();
+
+    private List<Stade> stades;
+
+    @BeforeEach
+    void setUp() {
+        stades = new ArrayList<>();
+        stades.add(stade("Grand Stade de Casablanca", "33.52530000", "-7.64580000"));
+        stades.add(stade("Stade Prince Moulay Abdellah", "33.95950000", "-6.88920000"));
+        stades.add(stade("Grand Stade de Marrakech", "31.70610000", "-7.98060000"));
+        stades.add(stade("Grand Stade d'Agadir", "30.42780000", "-9.53890000"));
+        stades.add(stade("Sans coordonnées", null, null));
+    }
+
+    @Test
+    void distancesKm_identiquesAuCalculUnitaire() {
+        StadeSnapshot snapshot = StadeSnapshot.de(stades);
+        assertEquals(4, snapshot.taille());
+
+        BigDecimal lat = new BigDecimal("33.58290");
+        BigDecimal lon = new BigDecimal("-7.62000");
+        double[] distances = new double[snapshot.taille()];
+        snapshot.distancesKm(lat.doubleValue(), lon.doubleValue(), distances);
+
+        for (int j = 0; j < snapshot.taille(); j++) {
+            Stade stade = snapshot.stade(j);
+            assertEquals(stadeService.calculerDistance(lat, lon, stade.getLatitude(), stade.getLongitude()),
+                    StadeService.arrondirKm(distances[j]));
+        }
+    }
+
+    @Test
+    void distancesKm_lotDOriginesEnLignes() {
+        StadeSnapshot snapshot = StadeSnapshot.de(stades);
+        int n = snapshot.taille();
+        Random random = new Random(7);
+        int nbOrigines = 1000;
+        double[] latitudes = new double[nbOrigines];
+        double[] longitudes = new double[nbOrigines];
+        for (int i = 0; i < nbOrigines; i++) {
+            latitudes[i] = 30 + random.nextDouble() * 5;
+            longitudes[i] = -10 + random.nextDouble() * 4;
+        }
+        double[] lot = new double[nbOrigines * n];
+        snapshot.distancesKm(latitudes, longitudes, nbOrigines, lot);
+
+        double[] ligne = new double[n];
+        for (int i = 0; i < nbOrigines; i += 97) {
+            snapshot.distancesKm(latitudes[i], longitudes[i], ligne);
+            for (int j = 0; j < n; j++) {
+                assertEquals(ligne[j], lot[i * n + j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    void plusProche_retourneLeMinimum() {
+        StadeSnapshot snapshot = StadeSnapshot.de(stades);
+
+        int index = snapshot.plusProche(31.6295, -7.9811);
+
+        assertEquals("Grand Stade de Marrakech", snapshot.stade(index).getNom());
+        double[] distances = new double[snapshot.taille()];
+        snapshot.distancesKm(31.6295, -7.9811, distances);
+        for (double distance : distances) {
+            assertTrue(distances[index] <= distance);
+        }
+        assertEquals(distances[index], snapshot.distanceKm(31.6295, -7.9811, index), 0.0);
+    }
+
+    @Test
+    void snapshotVide() {
+        StadeSnapshot snapshot = StadeSnapshot.de(List.of());
+
+        assertTrue(snapshot.estVide());
+        assertEquals(-1, snapshot.plusProche(33.5, -7.6));
+    }
+
+    private static Stade stade(String nom, String latitude, String longitude) {
+        Stade stade = new Stade();
+        stade.setId(UUID.randomUUID());
+        stade.setNom(nom);
+        stade.setLatitude(latitude != null ? new BigDecimal(latitude) : null);
+        stade.setLongitude(longitude != null ? new BigDecimal(longitude) : null);
+        return stade;
+    }
+}